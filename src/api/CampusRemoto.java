@@ -0,0 +1,96 @@
+package api;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import model.Livro;
+import service.Campus;
+import service.RegistroAlteracoes;
+
+/**
+ * Campus de outra instância da biblioteca, acessado pelas rotas {@code /federacao} do {@link ServidorHttp}.
+ * <p>
+ * As respostas vêm como objetos Java serializados. A leitura aceita apenas as classes do
+ * modelo, do registro de alterações e as coleções básicas do Java, para que um servidor
+ * malicioso não consiga instanciar outras classes no campus que consulta.
+ * </p>
+ */
+public class CampusRemoto implements Campus {
+
+	/**
+	 * Tipo de conteúdo das respostas serializadas.
+	 */
+	static final String TIPO_CONTEUDO = "application/x-java-serialized-object";
+
+	// Classes aceitas na leitura das respostas; qualquer outra é rejeitada
+	private static final ObjectInputFilter FILTRO = ObjectInputFilter.Config.createFilter(
+			"maxdepth=20;model.*;service.RegistroAlteracoes$*;java.util.*;java.lang.*;!*");
+
+	private final String nome;
+	private final String base;
+	private final HttpClient cliente;
+
+	/**
+	 * Construtor completo.
+	 * @param nome O nome do campus.
+	 * @param base O endereço da API do campus (ex.: {@code http://localhost:8081}).
+	 */
+	public CampusRemoto(String nome, String base) {
+		this.nome = nome;
+		this.base = base.replaceAll("/+$", "");
+		this.cliente = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(2))
+				.build();
+	}
+
+	@Override
+	public String getNome() {
+		return nome;
+	}
+
+	@Override
+	public Livro exibeLivro(String titulo) throws IOException, InterruptedException {
+		return (Livro) obter("/federacao/busca?titulo=" + codificar(titulo));
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Livro> listLivrosPorAutor(String nomeAutor) throws IOException, InterruptedException {
+		return (List<Livro>) obter("/federacao/autor?nome=" + codificar(nomeAutor));
+	}
+
+	@Override
+	public RegistroAlteracoes.Lote alteracoesDesde(long desde) throws IOException, InterruptedException {
+		return (RegistroAlteracoes.Lote) obter("/federacao/alteracoes?desde=" + desde);
+	}
+
+	private Object obter(String caminho) throws IOException, InterruptedException {
+		HttpRequest requisicao = HttpRequest.newBuilder(URI.create(base + caminho)).GET().build();
+		HttpResponse<byte[]> resposta = cliente.send(requisicao, HttpResponse.BodyHandlers.ofByteArray());
+		if (resposta.statusCode() != 200) {
+			throw new IOException("Campus " + nome + " respondeu com status " + resposta.statusCode());
+		}
+
+		try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(resposta.body()))) {
+			ois.setObjectInputFilter(FILTRO);
+			return ois.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Resposta inválida do campus " + nome + ": " + e.getMessage(), e);
+		}
+	}
+
+	private static String codificar(String texto) {
+		return URLEncoder.encode(texto == null ? "" : texto, StandardCharsets.UTF_8);
+	}
+}
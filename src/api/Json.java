@@ -0,0 +1,127 @@
+package api;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+import model.Leitor;
+import model.Livro;
+
+/**
+ * Classe utilitária que escreve as entidades do modelo no formato JSON.
+ * <p>
+ * A escrita é feita diretamente num {@link Writer}, sem montar a resposta inteira em memória,
+ * o que permite transmitir listas grandes em partes (streaming).
+ * </p>
+ */
+public final class Json {
+
+	private Json() {
+		// Classe utilitária: não deve ser instanciada
+	}
+
+	/**
+	 * Escreve um livro como objeto JSON, incluindo o estado de cada exemplar.
+	 * @param livro O {@link Livro} a ser escrito.
+	 * @param saida O destino da escrita.
+	 * @throws IOException Em caso de erro de escrita.
+	 */
+	public static void escreverLivro(Livro livro, Writer saida) throws IOException {
+		saida.write("{\"id\":");
+		escreverTexto(livro.getIdLivro(), saida);
+		saida.write(",\"titulo\":");
+		escreverTexto(livro.getTitulo(), saida);
+		saida.write(",\"autor\":{\"id\":");
+		escreverTexto(livro.getAutor().getId(), saida);
+		saida.write(",\"nome\":");
+		escreverTexto(livro.getAutor().getNome(), saida);
+		saida.write(",\"nacionalidade\":");
+		escreverTexto(livro.getAutor().getNacionalidade(), saida);
+		saida.write("},\"numPags\":");
+		saida.write(Integer.toString(livro.getNumPags()));
+		saida.write(",\"anoPub\":");
+		saida.write(Integer.toString(livro.getAnoPub()));
+		saida.write(",\"preco\":");
+		saida.write(String.format(Locale.ROOT, "%.2f", livro.getPreco()));
+		saida.write(",\"exemplaresDisponiveis\":");
+		saida.write(Integer.toString(livro.getExemplaresDisponiveis()));
+		saida.write(",\"exemplares\":[");
+
+		for (int i = 0; i < livro.getNumExemplares(); i++) {
+			if (i > 0) saida.write(',');
+			Leitor leitor = livro.getLeitorExemplar(i);
+			if (leitor == null) {
+				saida.write("{\"disponivel\":true}");
+			} else {
+				saida.write("{\"disponivel\":false,\"leitor\":");
+				escreverTexto(leitor.getId(), saida);
+				saida.write(",\"devolverAte\":");
+				saida.write(Long.toString(livro.getVencimentoExemplar(i)));
+				saida.write('}');
+			}
+		}
+		saida.write("]}");
+	}
+
+	/**
+	 * Escreve um leitor como objeto JSON.
+	 * @param leitor O {@link Leitor} a ser escrito.
+	 * @param saida O destino da escrita.
+	 * @throws IOException Em caso de erro de escrita.
+	 */
+	public static void escreverLeitor(Leitor leitor, Writer saida) throws IOException {
+		saida.write("{\"id\":");
+		escreverTexto(leitor.getId(), saida);
+		saida.write(",\"nome\":");
+		escreverTexto(leitor.getNome(), saida);
+		saida.write(",\"telefone\":");
+		escreverTexto(leitor.getTelefone(), saida);
+		saida.write(",\"email\":");
+		escreverTexto(leitor.getEmail(), saida);
+		saida.write(",\"categoria\":");
+		escreverTexto(leitor.getCategoria().name(), saida);
+		saida.write('}');
+	}
+
+	/**
+	 * Escreve um texto como string JSON, com as aspas e os caracteres de escape necessários.
+	 * @param texto O texto (ou {@code null}).
+	 * @param saida O destino da escrita.
+	 * @throws IOException Em caso de erro de escrita.
+	 */
+	public static void escreverTexto(String texto, Writer saida) throws IOException {
+		if (texto == null) {
+			saida.write("null");
+			return;
+		}
+
+		saida.write('"');
+		for (int i = 0; i < texto.length(); i++) {
+			char c = texto.charAt(i);
+			switch (c) {
+				case '"':
+					saida.write("\\\"");
+					break;
+				case '\\':
+					saida.write("\\\\");
+					break;
+				case '\n':
+					saida.write("\\n");
+					break;
+				case '\r':
+					saida.write("\\r");
+					break;
+				case '\t':
+					saida.write("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						saida.write(String.format("\\u%04x", (int) c));
+					} else {
+						saida.write(c);
+					}
+			}
+		}
+		saida.write('"');
+	}
+}
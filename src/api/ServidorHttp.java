@@ -0,0 +1,447 @@
+package api;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import model.Autor;
+import model.Leitor;
+import model.Livro;
+import service.Cache;
+import service.CampusLocal;
+import service.GerenciadorBiblioteca;
+import service.LimitadorTaxa;
+
+/**
+ * Servidor HTTP embutido que expõe as operações do {@link GerenciadorBiblioteca} em JSON.
+ * <p>
+ * Usa o {@link HttpServer} do próprio JDK e atende cada requisição numa <i>virtual thread</i>,
+ * de modo que milhares de quiosques podem ficar conectados sem ocupar uma thread de sistema cada.
+ * Listagens grandes são enviadas em partes (chunked), à medida que são escritas.
+ * </p>
+ * <p>Rotas disponíveis:</p>
+ * <ul>
+ * <li>{@code GET /livros[?autor=Nome]} - lista os livros (em streaming)</li>
+ * <li>{@code GET /livros/busca?titulo=...} - busca pelo título exato</li>
+ * <li>{@code GET /livros/{id}} - busca pelo ID</li>
+ * <li>{@code POST /livros} - cadastra (titulo, autor, nacionalidade, paginas, ano, preco, exemplares)</li>
+ * <li>{@code DELETE /livros/{id}} - remove</li>
+ * <li>{@code POST /livros/{id}/emprestimo?leitor=ID} - empresta um exemplar</li>
+ * <li>{@code POST /livros/{id}/devolucao?leitor=ID} - devolve o exemplar do leitor</li>
+ * <li>{@code POST /livros/{id}/reserva?leitor=ID} - entra na fila de reservas</li>
+ * <li>{@code GET /atrasados} - lista os livros com exemplares atrasados</li>
+ * <li>{@code GET /leitores} - lista os leitores cadastrados</li>
+ * <li>{@code GET /cache} - estatísticas dos caches de consultas</li>
+ * </ul>
+ * <p>Rotas usadas pela federação de campi ({@link CampusRemoto}), com respostas em objetos Java serializados:</p>
+ * <ul>
+ * <li>{@code GET /federacao/busca?titulo=...} - o {@link Livro} com o título (ou {@code null})</li>
+ * <li>{@code GET /federacao/autor?nome=...} - a lista de livros do autor</li>
+ * <li>{@code GET /federacao/alteracoes?desde=N} - o lote de alterações para as réplicas</li>
+ * </ul>
+ * <p>Os parâmetros podem vir na URL ou no corpo ({@code application/x-www-form-urlencoded}).</p>
+ * <p>Empréstimos, devoluções e reservas passam por um {@link LimitadorTaxa} por leitor: acima
+ * da taxa, a resposta é {@code 429} com o cabeçalho {@code Retry-After}.</p>
+ */
+public class ServidorHttp {
+
+	// Quantos livros são escritos entre cada envio parcial de uma listagem.
+	private static final int LIVROS_POR_ENVIO = 256;
+
+	private final GerenciadorBiblioteca gerenciador;
+	private final CampusLocal campus;
+	private final LimitadorTaxa limitador;
+	private final HttpServer servidor;
+	private final ExecutorService executor;
+
+	/**
+	 * Cria o servidor ligado à porta informada (ainda não iniciado).
+	 * @param gerenciador O {@link GerenciadorBiblioteca} cujas operações serão expostas.
+	 * @param porta A porta TCP (0 escolhe uma porta livre).
+	 * @throws IOException Se não for possível abrir a porta.
+	 */
+	public ServidorHttp(GerenciadorBiblioteca gerenciador, int porta) throws IOException {
+		this(gerenciador, porta, new LimitadorTaxa(LimitadorTaxa.CAPACIDADE_PADRAO, LimitadorTaxa.TAXA_PADRAO));
+	}
+
+	/**
+	 * Cria o servidor com um limitador de taxa específico para as operações de empréstimo.
+	 * @param gerenciador O {@link GerenciadorBiblioteca} cujas operações serão expostas.
+	 * @param porta A porta TCP (0 escolhe uma porta livre).
+	 * @param limitador O {@link LimitadorTaxa} aplicado a cada leitor.
+	 * @throws IOException Se não for possível abrir a porta.
+	 */
+	public ServidorHttp(GerenciadorBiblioteca gerenciador, int porta, LimitadorTaxa limitador) throws IOException {
+		this.gerenciador = gerenciador;
+		this.limitador = limitador;
+		this.campus = new CampusLocal("local", gerenciador);
+		this.servidor = HttpServer.create(new InetSocketAddress(porta), 0);
+		this.executor = Executors.newVirtualThreadPerTaskExecutor(); // Uma virtual thread por requisição
+		this.servidor.setExecutor(executor);
+		this.servidor.createContext("/", this::atender);
+	}
+
+	/**
+	 * Inicia o atendimento das requisições.
+	 */
+	public void iniciar() {
+		servidor.start();
+	}
+
+	/**
+	 * Encerra o servidor, aguardando até um segundo pelas requisições em andamento.
+	 */
+	public void encerrar() {
+		servidor.stop(1);
+		executor.shutdown();
+	}
+
+	/**
+	 * Retorna a porta em que o servidor está escutando.
+	 * @return O número da porta.
+	 */
+	public int getPorta() {
+		return servidor.getAddress().getPort();
+	}
+
+	// =========================================================================
+	// Roteamento
+	// =========================================================================
+
+	private void atender(HttpExchange troca) throws IOException {
+		try {
+			String metodo = troca.getRequestMethod();
+			String[] partes = troca.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/");
+			Map<String, String> parametros = lerParametros(troca);
+
+			if (partes[0].equals("livros")) {
+				rotearLivros(troca, metodo, partes, parametros);
+			} else if (partes[0].equals("atrasados") && metodo.equals("GET")) {
+				enviarLista(troca, gerenciador.listLivrosAtrasados());
+			} else if (partes[0].equals("leitores") && metodo.equals("GET")) {
+				enviarLeitores(troca, gerenciador.getLeitores());
+			} else if (partes[0].equals("federacao") && partes.length == 2 && metodo.equals("GET")) {
+				rotearFederacao(troca, partes[1], parametros);
+			} else if (partes[0].equals("cache") && metodo.equals("GET")) {
+				enviarEstatisticasCache(troca, gerenciador.getEstatisticasCache());
+			} else {
+				enviarErro(troca, 404, "Rota não encontrada.");
+			}
+
+		} catch (NumberFormatException e) {
+			enviarFalha(troca, 400, "Parâmetro numérico inválido: " + e.getMessage());
+		} catch (RuntimeException e) {
+			enviarFalha(troca, 500, "Erro interno: " + e.getMessage());
+		} finally {
+			troca.close();
+		}
+	}
+
+	/**
+	 * Responde com um erro se a resposta ainda não começou. Se os cabeçalhos já foram enviados
+	 * (ex.: uma lista em streaming que falhou no meio), não há como mudar o status: a falha só
+	 * é registrada, e a troca é encerrada por quem chamou.
+	 */
+	private void enviarFalha(HttpExchange troca, int status, String mensagem) throws IOException {
+		if (troca.getResponseCode() == -1) {
+			enviarErro(troca, status, mensagem);
+		} else {
+			System.err.println("Falha depois do início da resposta de " + troca.getRequestURI() + ": " + mensagem);
+		}
+	}
+
+	private void rotearLivros(HttpExchange troca, String metodo, String[] partes, Map<String, String> parametros)
+			throws IOException {
+
+		if (partes.length == 1) {
+			if (metodo.equals("GET")) {
+				listarLivros(troca, parametros.get("autor"));
+			} else if (metodo.equals("POST")) {
+				cadastrarLivro(troca, parametros);
+			} else {
+				enviarErro(troca, 405, "Método não permitido.");
+			}
+			return;
+		}
+
+		if (partes.length == 2 && partes[1].equals("busca") && metodo.equals("GET")) {
+			enviarLivro(troca, gerenciador.exibeLivro(parametros.get("titulo")));
+			return;
+		}
+
+		String idLivro = partes[1];
+		if (partes.length == 2) {
+			if (metodo.equals("GET")) {
+				enviarLivro(troca, gerenciador.buscarLivroPorID(idLivro));
+			} else if (metodo.equals("DELETE")) {
+				enviarResultado(troca, gerenciador.remLivro(idLivro), 404, "Livro não encontrado.");
+			} else {
+				enviarErro(troca, 405, "Método não permitido.");
+			}
+			return;
+		}
+
+		if (partes.length == 3 && metodo.equals("POST")) {
+			operarEmprestimo(troca, idLivro, partes[2], parametros.get("leitor"));
+			return;
+		}
+
+		enviarErro(troca, 404, "Rota não encontrada.");
+	}
+
+	private void rotearFederacao(HttpExchange troca, String operacao, Map<String, String> parametros)
+			throws IOException {
+		switch (operacao) {
+			case "busca":
+				enviarSerializado(troca, campus.exibeLivro(parametros.get("titulo")));
+				break;
+			case "autor":
+				enviarSerializado(troca, new ArrayList<>(campus.listLivrosPorAutor(parametros.get("nome"))));
+				break;
+			case "alteracoes":
+				enviarSerializado(troca, campus.alteracoesDesde(Long.parseLong(parametros.getOrDefault("desde", "0"))));
+				break;
+			default:
+				enviarErro(troca, 404, "Rota não encontrada.");
+		}
+	}
+
+	// =========================================================================
+	// Operações
+	// =========================================================================
+
+	private void listarLivros(HttpExchange troca, String nomeAutor) throws IOException {
+		if (nomeAutor == null) {
+			enviarLista(troca, gerenciador.percorrerLivros());
+			return;
+		}
+
+		// Procura o Autor pelo nome, como faz a listagem por autor do console
+		for (Livro livro : gerenciador.percorrerLivros()) {
+			if (livro.getAutor().getNome().equalsIgnoreCase(nomeAutor)) {
+				enviarLista(troca, gerenciador.listLivrosPorAutor(livro.getAutor()));
+				return;
+			}
+		}
+		enviarLista(troca, List.of());
+	}
+
+	private void cadastrarLivro(HttpExchange troca, Map<String, String> p) throws IOException {
+		String titulo = p.get("titulo");
+		String nomeAutor = p.get("autor");
+		if (titulo == null || nomeAutor == null) {
+			enviarErro(troca, 400, "Os parâmetros 'titulo' e 'autor' são obrigatórios.");
+			return;
+		}
+
+		Autor autor = new Autor(nomeAutor, p.getOrDefault("nacionalidade", ""));
+		int paginas = Integer.parseInt(p.getOrDefault("paginas", "0"));
+		int ano = Integer.parseInt(p.getOrDefault("ano", "0"));
+		double preco = Double.parseDouble(p.getOrDefault("preco", "0").replace(',', '.'));
+		int exemplares = Integer.parseInt(p.getOrDefault("exemplares", "1"));
+
+		if (!gerenciador.addLivro(titulo, autor, paginas, ano, preco, exemplares)) {
+			enviarErro(troca, 409, "Livro já existe na coleção (mesmo título e autor).");
+			return;
+		}
+		enviarObjeto(troca, 201, gerenciador.buscarLivroPorTituloEAutor(titulo, nomeAutor));
+	}
+
+	private void operarEmprestimo(HttpExchange troca, String idLivro, String operacao, String idLeitor)
+			throws IOException {
+
+		if (gerenciador.buscarLivroPorID(idLivro) == null) {
+			enviarErro(troca, 404, "Livro não encontrado.");
+			return;
+		}
+		Leitor leitor = gerenciador.buscarLeitorPorID(idLeitor);
+		if (leitor == null) {
+			enviarErro(troca, 404, "Leitor não encontrado.");
+			return;
+		}
+		long espera = limitador.esperaParaConsumir(leitor.getId());
+		if (espera > 0) {
+			troca.getResponseHeaders().set("Retry-After", Long.toString((espera + 999) / 1000));
+			enviarErro(troca, 429, "Muitas operações seguidas para o leitor; tente novamente em instantes.");
+			return;
+		}
+
+		boolean sucesso;
+		switch (operacao) {
+			case "emprestimo":
+				sucesso = gerenciador.emprestarLivro(idLivro, leitor);
+				break;
+			case "devolucao":
+				sucesso = gerenciador.devolverLivro(idLivro, leitor);
+				break;
+			case "reserva":
+				sucesso = gerenciador.reservarLivro(idLivro, leitor);
+				break;
+			default:
+				enviarErro(troca, 404, "Operação desconhecida: " + operacao);
+				return;
+		}
+
+		if (sucesso) {
+			enviarObjeto(troca, 200, gerenciador.buscarLivroPorID(idLivro));
+		} else if (!operacao.equals("devolucao")
+				&& gerenciador.getQuantidadeEmprestimos(leitor) >= gerenciador.getLimiteEmprestimos(leitor)) {
+			enviarErro(troca, 409, "O leitor atingiu o limite de " + gerenciador.getLimiteEmprestimos(leitor) + " empréstimos.");
+		} else {
+			enviarErro(troca, 409, "Operação '" + operacao + "' não permitida no estado atual do livro.");
+		}
+	}
+
+	// =========================================================================
+	// Respostas
+	// =========================================================================
+
+	private void enviarLivro(HttpExchange troca, Livro livro) throws IOException {
+		if (livro == null) {
+			enviarErro(troca, 404, "Livro não encontrado.");
+		} else {
+			enviarObjeto(troca, 200, livro);
+		}
+	}
+
+	/**
+	 * Envia um único livro com tamanho conhecido (sem chunked).
+	 */
+	private void enviarObjeto(HttpExchange troca, int status, Livro livro) throws IOException {
+		StringWriter corpo = new StringWriter();
+		Json.escreverLivro(livro, corpo);
+		enviarTexto(troca, status, corpo.toString());
+	}
+
+	/**
+	 * Envia uma lista de livros em streaming: o corpo vai sendo transmitido enquanto é escrito.
+	 */
+	private void enviarLista(HttpExchange troca, Iterable<Livro> livros) throws IOException {
+		troca.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		troca.sendResponseHeaders(200, 0); // Tamanho 0 = transferência em partes (chunked)
+
+		try (Writer saida = new BufferedWriter(new OutputStreamWriter(troca.getResponseBody(), StandardCharsets.UTF_8))) {
+			saida.write('[');
+			int escritos = 0;
+			for (Livro livro : livros) {
+				if (escritos > 0) saida.write(',');
+				Json.escreverLivro(livro, saida);
+				if (++escritos % LIVROS_POR_ENVIO == 0) {
+					saida.flush(); // Libera uma parte para o cliente
+				}
+			}
+			saida.write(']');
+		}
+	}
+
+	private void enviarLeitores(HttpExchange troca, List<Leitor> leitores) throws IOException {
+		StringWriter corpo = new StringWriter();
+		corpo.write('[');
+		for (int i = 0; i < leitores.size(); i++) {
+			if (i > 0) corpo.write(',');
+			Json.escreverLeitor(leitores.get(i), corpo);
+		}
+		corpo.write(']');
+		enviarTexto(troca, 200, corpo.toString());
+	}
+
+	private void enviarEstatisticasCache(HttpExchange troca, List<Cache.Estatisticas> estatisticas) throws IOException {
+		StringWriter corpo = new StringWriter();
+		corpo.write('[');
+		for (int i = 0; i < estatisticas.size(); i++) {
+			Cache.Estatisticas e = estatisticas.get(i);
+			if (i > 0) corpo.write(',');
+			corpo.write("{\"nome\":");
+			Json.escreverTexto(e.getNome(), corpo);
+			corpo.write(String.format(Locale.ROOT,
+					",\"acertos\":%d,\"falhas\":%d,\"taxaAcertos\":%.4f,\"remocoes\":%d,\"ocupacao\":%d,\"capacidade\":%d}",
+					e.getAcertos(), e.getFalhas(), e.getTaxaAcertos(), e.getRemocoes(), e.getPesoAtual(), e.getCapacidade()));
+		}
+		corpo.write(']');
+		enviarTexto(troca, 200, corpo.toString());
+	}
+
+	private void enviarSerializado(HttpExchange troca, Serializable objeto) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+			oos.writeObject(objeto);
+		}
+		troca.getResponseHeaders().set("Content-Type", CampusRemoto.TIPO_CONTEUDO);
+		troca.sendResponseHeaders(200, bytes.size());
+		bytes.writeTo(troca.getResponseBody());
+	}
+
+	private void enviarResultado(HttpExchange troca, boolean sucesso, int statusErro, String mensagemErro)
+			throws IOException {
+		if (sucesso) {
+			enviarTexto(troca, 200, "{\"sucesso\":true}");
+		} else {
+			enviarErro(troca, statusErro, mensagemErro);
+		}
+	}
+
+	private void enviarErro(HttpExchange troca, int status, String mensagem) throws IOException {
+		StringWriter corpo = new StringWriter();
+		corpo.write("{\"erro\":");
+		Json.escreverTexto(mensagem, corpo);
+		corpo.write('}');
+		enviarTexto(troca, status, corpo.toString());
+	}
+
+	private void enviarTexto(HttpExchange troca, int status, String json) throws IOException {
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		troca.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		troca.sendResponseHeaders(status, bytes.length);
+		troca.getResponseBody().write(bytes);
+	}
+
+	// =========================================================================
+	// Métodos Auxiliares
+	// =========================================================================
+
+	/**
+	 * Junta os parâmetros da URL e do corpo (formulário) num único mapa.
+	 */
+	private static Map<String, String> lerParametros(HttpExchange troca) throws IOException {
+		Map<String, String> parametros = new HashMap<>();
+		decodificar(troca.getRequestURI().getRawQuery(), parametros);
+
+		try (InputStream corpo = troca.getRequestBody()) {
+			byte[] bytes = corpo.readAllBytes();
+			if (bytes.length > 0) {
+				decodificar(new String(bytes, StandardCharsets.UTF_8), parametros);
+			}
+		}
+		return parametros;
+	}
+
+	private static void decodificar(String consulta, Map<String, String> destino) {
+		if (consulta == null || consulta.isEmpty()) return;
+
+		for (String par : consulta.split("&")) {
+			int igual = par.indexOf('=');
+			String chave = (igual < 0) ? par : par.substring(0, igual);
+			String valor = (igual < 0) ? "" : par.substring(igual + 1);
+			destino.put(URLDecoder.decode(chave, StandardCharsets.UTF_8), URLDecoder.decode(valor, StandardCharsets.UTF_8));
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package api;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import model.Autor;
+import model.Leitor;
+import model.Livro;
+import service.GerenciadorBiblioteca;
+
+/**
+ * Teste de carga da API HTTP contra {@code localhost}.
+ * <p>
+ * Cria um acervo temporário, sobe o {@link ServidorHttp} numa porta livre e dispara
+ * clientes concorrentes (virtual threads) com uma mistura de consultas por ID, buscas por
+ * título, listagens, empréstimos e devoluções. Ao final, exibe a vazão e a latência
+ * (p50/p99/máx.) de cada tipo de operação.
+ * </p>
+ * <p>Uso: {@code java api.TesteCargaHttp [clientes] [segundos] [livros]}</p>
+ */
+public class TesteCargaHttp {
+
+	private static final String[] OPERACOES = { "GET /livros/{id}", "GET /livros/busca", "GET /livros",
+			"POST emprestimo", "POST devolucao" };
+
+	/**
+	 * Latências registradas de um tipo de operação (em microssegundos).
+	 */
+	private static final class Medidas {
+		private long[] valores = new long[1024];
+		private int quantidade;
+		private long erros;
+
+		synchronized void registrar(long micros, boolean sucesso) {
+			if (quantidade == valores.length) {
+				valores = Arrays.copyOf(valores, quantidade * 2);
+			}
+			valores[quantidade++] = micros;
+			if (!sucesso) erros++;
+		}
+
+		synchronized String resumo(double segundos) {
+			if (quantidade == 0) return "sem requisições";
+			long[] ordenados = Arrays.copyOf(valores, quantidade);
+			Arrays.sort(ordenados);
+			return String.format("%8d req  %9.1f req/s  p50=%6d us  p99=%7d us  max=%8d us  erros=%d",
+					quantidade, quantidade / segundos, ordenados[quantidade / 2],
+					ordenados[Math.min(quantidade - 1, (int) (quantidade * 0.99))], ordenados[quantidade - 1], erros);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		int clientes = (args.length > 0) ? Integer.parseInt(args[0]) : 64;
+		int segundos = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+		int numLivros = (args.length > 2) ? Integer.parseInt(args[2]) : 500;
+
+		File diretorio = Files.createTempDirectory("biblioteca-carga").toFile();
+		GerenciadorBiblioteca gerenciador = new GerenciadorBiblioteca(diretorio);
+		List<String> idsLivros = new ArrayList<>();
+		List<String> titulos = new ArrayList<>();
+		List<String> idsLeitores = new ArrayList<>();
+
+		System.out.println("Preparando acervo de " + numLivros + " livros em " + diretorio + "...");
+		for (int i = 0; i < numLivros; i++) {
+			String titulo = "Livro de Carga " + i;
+			gerenciador.addLivro(titulo, new Autor("Autor " + (i % 50), "Brasileira"), 100 + i % 400, 1900 + i % 120, 30.0, 2);
+			titulos.add(titulo);
+		}
+		for (Livro livro : gerenciador.percorrerLivros()) {
+			idsLivros.add(livro.getIdLivro());
+		}
+		for (int i = 0; i < Math.max(1, clientes); i++) {
+			Leitor leitor = new Leitor("Leitor " + i, "(77) 0000-" + i, "leitor" + i + "@uesb.br");
+			gerenciador.registrarLeitor(leitor);
+			idsLeitores.add(leitor.getId());
+		}
+
+		ServidorHttp servidor = new ServidorHttp(gerenciador, 0);
+		servidor.iniciar();
+		String base = "http://localhost:" + servidor.getPorta();
+		System.out.println("Servidor em " + base + ". Executando " + clientes + " clientes por " + segundos + " s...");
+
+		HttpClient cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+		Medidas[] medidas = new Medidas[OPERACOES.length];
+		for (int i = 0; i < medidas.length; i++) medidas[i] = new Medidas();
+		AtomicLong bytesRecebidos = new AtomicLong();
+		long fim = System.nanoTime() + segundos * 1_000_000_000L;
+
+		try (ExecutorService carga = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int c = 0; c < clientes; c++) {
+				final String idLeitor = idsLeitores.get(c);
+				carga.submit(() -> {
+					ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+					while (System.nanoTime() < fim) {
+						int sorteio = aleatorio.nextInt(100);
+						String idLivro = idsLivros.get(aleatorio.nextInt(idsLivros.size()));
+						int operacao;
+						HttpRequest requisicao;
+
+						// Mistura: 70% por ID, 15% por título, 1% listagem completa, 7% empréstimo, 7% devolução
+						if (sorteio < 70) {
+							operacao = 0;
+							requisicao = HttpRequest.newBuilder(URI.create(base + "/livros/" + idLivro)).GET().build();
+						} else if (sorteio < 85) {
+							operacao = 1;
+							String titulo = titulos.get(aleatorio.nextInt(titulos.size())).replace(" ", "+");
+							requisicao = HttpRequest.newBuilder(URI.create(base + "/livros/busca?titulo=" + titulo)).GET().build();
+						} else if (sorteio < 86) {
+							operacao = 2;
+							requisicao = HttpRequest.newBuilder(URI.create(base + "/livros")).GET().build();
+						} else {
+							operacao = (sorteio < 93) ? 3 : 4;
+							String rota = (operacao == 3) ? "/emprestimo" : "/devolucao";
+							requisicao = HttpRequest.newBuilder(URI.create(base + "/livros/" + idLivro + rota + "?leitor=" + idLeitor))
+									.POST(HttpRequest.BodyPublishers.noBody()).build();
+						}
+
+						long inicio = System.nanoTime();
+						try {
+							HttpResponse<byte[]> resposta = cliente.send(requisicao, HttpResponse.BodyHandlers.ofByteArray());
+							bytesRecebidos.addAndGet(resposta.body().length);
+							// 409 (regra de negócio) e 429 (limite de taxa do leitor) em empréstimo/devolução são respostas válidas
+							boolean sucesso = resposta.statusCode() < 400 || resposta.statusCode() == 409 || resposta.statusCode() == 429;
+							medidas[operacao].registrar((System.nanoTime() - inicio) / 1000, sucesso);
+						} catch (IOException e) {
+							medidas[operacao].registrar((System.nanoTime() - inicio) / 1000, false);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							return;
+						}
+					}
+				});
+			}
+		}
+
+		servidor.encerrar();
+		gerenciador.encerrar();
+
+		System.out.println("\n===== Resultado do Teste de Carga =====");
+		for (int i = 0; i < OPERACOES.length; i++) {
+			System.out.printf("%-20s %s%n", OPERACOES[i], medidas[i].resumo(segundos));
+		}
+		System.out.printf("Dados recebidos: %.1f MB%n", bytesRecebidos.get() / (1024.0 * 1024.0));
+	}
+}
@@ -0,0 +1,131 @@
+package api;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import model.Autor;
+import model.Livro;
+import service.Campus;
+import service.CampusLocal;
+import service.FederacaoCampi;
+import service.GerenciadorBiblioteca;
+import service.RegistroAlteracoes;
+
+/**
+ * Demonstração da federação de campi com três instâncias independentes.
+ * <p>
+ * Vitória da Conquista roda no próprio processo; Jequié é acessado pela API HTTP em
+ * {@code localhost}; Itapetinga também roda no processo, mas responde com atraso
+ * maior que o prazo, para mostrar o uso da réplica. No fim, o servidor de Jequié é
+ * desligado e as consultas passam a ser respondidas pela réplica dele.
+ * </p>
+ * <p>Uso: {@code java api.TesteFederacao [prazoMs]}</p>
+ */
+public class TesteFederacao {
+
+	/**
+	 * Campus que demora a responder às consultas (as réplicas continuam rápidas).
+	 */
+	private static final class CampusLento implements Campus {
+		private final Campus campus;
+		private final long atrasoMs;
+
+		CampusLento(Campus campus, long atrasoMs) {
+			this.campus = campus;
+			this.atrasoMs = atrasoMs;
+		}
+
+		@Override
+		public String getNome() {
+			return campus.getNome();
+		}
+
+		@Override
+		public Livro exibeLivro(String titulo) throws Exception {
+			Thread.sleep(atrasoMs);
+			return campus.exibeLivro(titulo);
+		}
+
+		@Override
+		public List<Livro> listLivrosPorAutor(String nomeAutor) throws Exception {
+			Thread.sleep(atrasoMs);
+			return campus.listLivrosPorAutor(nomeAutor);
+		}
+
+		@Override
+		public RegistroAlteracoes.Lote alteracoesDesde(long desde) throws Exception {
+			return campus.alteracoesDesde(desde);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		long prazoMs = (args.length > 0) ? Long.parseLong(args[0]) : 500;
+
+		GerenciadorBiblioteca conquista = criarCampus("conquista");
+		GerenciadorBiblioteca jequie = criarCampus("jequie");
+		GerenciadorBiblioteca itapetinga = criarCampus("itapetinga");
+
+		Autor machado = new Autor("Machado de Assis", "Brasileira");
+		Autor amado = new Autor("Jorge Amado", "Brasileira");
+		conquista.addLivro("Dom Casmurro", machado, 256, 1899, 35.0);
+		conquista.addLivro("Capitães da Areia", amado, 280, 1937, 42.0);
+		jequie.addLivro("Memórias Póstumas de Brás Cubas", machado, 368, 1881, 39.9);
+		jequie.addLivro("Dom Casmurro", machado, 256, 1899, 35.0, 3);
+		itapetinga.addLivro("Gabriela, Cravo e Canela", amado, 424, 1958, 55.0);
+		itapetinga.addLivro("Quincas Borba", machado, 352, 1891, 38.0);
+
+		ServidorHttp servidorJequie = new ServidorHttp(jequie, 0);
+		servidorJequie.iniciar();
+
+		FederacaoCampi federacao = new FederacaoCampi("Vitória da Conquista", List.of(
+				new CampusLocal("Vitória da Conquista", conquista),
+				new CampusRemoto("Jequié", "http://localhost:" + servidorJequie.getPorta()),
+				new CampusLento(new CampusLocal("Itapetinga", itapetinga), prazoMs * 3)), prazoMs);
+
+		System.out.println("=== Antes da replicação ===");
+		exibir(federacao.exibeLivro("dom casmurro"));
+
+		System.out.println("\n=== Replicação inicial: " + federacao.sincronizarReplicas() + " réplicas atualizadas ===");
+		System.out.println("Réplica de Jequié: " + federacao.tamanhoDaReplica("Jequié") + " livros; Itapetinga: "
+				+ federacao.tamanhoDaReplica("Itapetinga") + " livros");
+		exibir(federacao.listLivrosPorAutor("machado de assis"));
+
+		System.out.println("\n=== Jequié cadastra um livro e é desligado ===");
+		jequie.addLivro("Esaú e Jacó", machado, 240, 1904, 33.0);
+		federacao.sincronizarReplicas();
+		servidorJequie.encerrar();
+		exibir(federacao.listLivrosPorAutor("machado de assis"));
+
+		federacao.encerrar();
+		conquista.encerrar();
+		jequie.encerrar();
+		itapetinga.encerrar();
+	}
+
+	private static GerenciadorBiblioteca criarCampus(String nome) throws Exception {
+		File diretorio = Files.createTempDirectory("biblioteca-" + nome).toFile();
+		return new GerenciadorBiblioteca(diretorio);
+	}
+
+	private static <T> void exibir(FederacaoCampi.Resultado<T> resultado) {
+		resultado.getPorCampus().forEach((campus, resposta) -> System.out.println("  [" + campus + "] " + resumo(resposta)));
+		resultado.getDaReplica().forEach((campus, resposta) -> System.out.println("  [" + campus + " - réplica] " + resumo(resposta)));
+		for (String campus : resultado.getSemResposta()) {
+			System.out.println("  [" + campus + "] sem resposta");
+		}
+	}
+
+	private static String resumo(Object resposta) {
+		if (resposta instanceof Livro) {
+			Livro livro = (Livro) resposta;
+			return livro.getTitulo() + " (" + livro.getExemplaresDisponiveis() + "/" + livro.getNumExemplares() + " disponíveis)";
+		}
+		StringBuilder titulos = new StringBuilder();
+		for (Object item : (List<?>) resposta) {
+			if (titulos.length() > 0) titulos.append("; ");
+			titulos.append(((Livro) item).getTitulo());
+		}
+		return titulos.toString();
+	}
+}
@@ -1,481 +1,907 @@
-package main;
-
-import java.util.ArrayList;
-import java.util.Scanner;
-
-import model.Autor;
-import model.Leitor;
-import model.Livro;
-import service.GerenciadorBiblioteca;
-import service.GerenciadorBiblioteca.TipoOrdenacao;
-
-/**
- * Classe principal para a aplicação de console da Biblioteca.
- * <p>
- * Responsável pela interação com o usuário (apresentação do menu) e por
- * coordenar as chamadas à camada de serviço (GerenciadorBiblioteca),
- * demonstrando o uso de todas as classes de Modelo e Serviço.
- * </p>
- */
-public class App {
-
-    private static GerenciadorBiblioteca gerenciador;
-    private static Scanner scanner;
-    
-    // Lista auxiliar para arazenar Leitores (é um sistema de cadastro de livros, o foco não é de pessoas)
-    private static ArrayList<Leitor> listaLeitores;
-
-    public static void main(String[] args) {
-        gerenciador = new GerenciadorBiblioteca();
-        scanner = new Scanner(System.in);
-        
-        // Inicialização de Leitores
-        listaLeitores = new ArrayList<>();
-        inicializarLeitores();
-        
-        System.out.println("Sistema de Biblioteca Iniciado. Dados carregados da persistência.");
-        exibirMenuPrincipal();
-        
-        System.out.println("Obrigado por utilizar o sistema da Biblioteca!");
-        scanner.close();
-    }
-    
-    /**
-     * Cria alguns leitores de exemplo para facilitar os testes de empréstimo.
-     */
-    private static void inicializarLeitores() {
-        listaLeitores.add(new Leitor("Ana Silva", "(11) 98765-4321", "ana@email.com"));
-        listaLeitores.add(new Leitor("Bruno Costa", "(21) 91234-5678", "bruno@email.com"));
-        listaLeitores.add(new Leitor("Carlos Rocha", "(31) 99999-0000", "carlos@email.com"));
-    }
-
-    /**
-     * Exibe o menu principal de interação e gerencia as escolhas do usuário.
-     */
-    private static void exibirMenuPrincipal() {
-        int opcao;
-        
-        do {
-            System.out.println("\n===== Menu da Biblioteca =====");
-            System.out.println("1. Adicionar Novo Livro");
-            System.out.println("2. Listar Livros (Ordenação)");
-            System.out.println("3. Buscar Livro por ID/Título");
-            System.out.println("4. Remover Livro");
-            System.out.println("5. Realizar Empréstimo / Devolução");
-            System.out.println("6. Listar Livros Emprestados a um Leitor");
-            System.out.println("0. Sair e Salvar Dados");
-            System.out.print("Escolha uma opção: ");
-            
-            // Tratamento de exceção para entrada de menu
-            try {
-                opcao = Integer.parseInt(scanner.nextLine());
-            } catch (NumberFormatException e) {
-                opcao = -1; // Valor inválido para repetição do loop
-                System.err.println("Entrada inválida. Digite um número de 0 a 6.");
-            }
-
-            switch (opcao) {
-                case 1:
-                    adicionarLivro();
-                    break;
-                case 2:
-                    listarLivros();
-                    break;
-                case 3:
-                    buscarLivro();
-                    break;
-                case 4:
-                    removerLivro();
-                    break;
-                case 5:
-                    menuEmprestimoDevolucao();
-                    break;
-                case 6:
-                    listarLivrosEmprestados();
-                    break;
-                case 0:
-                    // O gerenciador salva no construtor e nas alterações, então sair é suficiente.
-                    break;
-                default:
-                    if (opcao != -1) {
-                         System.out.println("Opção não reconhecida.");
-                    }
-                    break;
-            }
-            
-        } while (opcao != 0);
-    }
-    
-    // =========================================================================
-    // Métodos de Ação do Menu
-    // =========================================================================
-
-    /**
-     * Processa a entrada de dados do usuário e adiciona um novo livro.
-     */
-    private static void adicionarLivro() {
-        System.out.println("\n--- Adicionar Livro ---");
-        
-        System.out.print("Título: ");
-        String titulo = scanner.nextLine();
-        
-        System.out.print("Nome do Autor: ");
-        String nomeAutor = scanner.nextLine();
-        
-        System.out.print("Nacionalidade do Autor: ");
-        String nacionalidadeAutor = scanner.nextLine();
-        
-        // Criação de objeto Autor
-        Autor autor = new Autor(nomeAutor, nacionalidadeAutor);
-        
-        int numPags = lerInteiro("Número de Páginas: ");
-        int anoPub = lerInteiro("Ano de Publicação: ");
-        double preco = lerDouble("Preço (R$): ");
-
-        boolean sucesso = gerenciador.addLivro(titulo, autor, numPags, anoPub, preco);
-
-        if (sucesso) {
-            System.out.println("\nLivro adicionado com sucesso!");
-        } else {
-            System.out.println("\nErro: Livro já existe na coleção (verifique título e autor).");
-        }
-    }
-
-    /**
-     * Exibe as opções de listagem e ordenação dos livros.
-     */
-    private static void listarLivros() {
-        if (gerenciador.getListaLivros().isEmpty()) {
-            System.out.println("\nA biblioteca está vazia. Adicione livros primeiro.");
-            return;
-        }
-
-        System.out.println("\n--- Opções de Listagem e Ordenação ---");
-        System.out.println("1. Listar todos (Título - Ordenação Natural)");
-        System.out.println("2. Listar todos (Autor)");
-        System.out.println("3. Listar por um Autor Específico");
-        System.out.print("Escolha: ");
-        
-        int escolha;
-        try {
-            escolha = Integer.parseInt(scanner.nextLine());
-        } catch (NumberFormatException e) {
-            System.err.println("Entrada inválida.");
-            return;
-        }
-
-        try {
-            switch (escolha) {
-                case 1:
-                    gerenciador.ordenarLivros(TipoOrdenacao.TITULO);
-                    exibirLista(gerenciador.getListaLivros(), "TODOS OS LIVROS (Ordenado por Título)");
-                    break;
-                case 2:
-                    gerenciador.ordenarLivros(TipoOrdenacao.AUTOR);
-                    exibirLista(gerenciador.getListaLivros(), "TODOS OS LIVROS (Ordenado por Autor)");
-                    break;
-                case 3:
-                    listarPorAutorEspecifico();
-                    break;
-                default:
-                    System.out.println("Opção inválida.");
-                    break;
-            }
-        } catch (IllegalArgumentException e) {
-            // Captura a exceção específica para tipo de ordenação não suportado
-            System.err.println("Erro de Ordenação: " + e.getMessage());
-        }
-    }
-    
-    /**
-     * Lista todos os leitores disponíveis para seleção.
-     */
-    private static void listarLeitores() {
-        System.out.println("\n--- Leitores Cadastrados ---");
-        if (listaLeitores.isEmpty()) {
-            System.out.println("Nenhum leitor cadastrado.");
-            return;
-        }
-        for (int i = 0; i < listaLeitores.size(); i++) {
-            // Exibe o ID interno (índice) para seleção rápida
-            System.out.println((i + 1) + ". " + listaLeitores.get(i).toString());
-        }
-    }
-    
-    /**
-     * Lista os livros emprestados a um leitor selecionado.
-     */
-    private static void listarLivrosEmprestados() {
-        System.out.println("\n--- Livros Emprestados por Leitor ---");
-        listarLeitores();
-        
-        int indiceLeitor = lerInteiro("Selecione o número do Leitor (1 a " + listaLeitores.size() + "): ") - 1;
-        
-        if (indiceLeitor < 0 || indiceLeitor >= listaLeitores.size()) {
-            System.out.println("Seleção de leitor inválida.");
-            return;
-        }
-        
-        Leitor leitorSelecionado = listaLeitores.get(indiceLeitor);
-        
-        ArrayList<Livro> livrosEmprestados = gerenciador.listLivrosEmprestadosPara(leitorSelecionado);
-        exibirLista(livrosEmprestados, "LIVROS EMPRESTADOS A: " + leitorSelecionado.getNome());
-    }
-    
-    /**
-     * Pede ao usuário o nome de um autor e lista os livros dele.
-     */
-    private static void listarPorAutorEspecifico() {
-        System.out.print("Nome do Autor para busca (Precisa ser exato): ");
-        String nomeBusca = scanner.nextLine();
-        
-        // Procura o primeiro Livro com esse Autor
-        Autor autorBusca = null;
-        for (Livro livro : gerenciador.getListaLivros()) {
-            if (livro.getAutor().getNome().equalsIgnoreCase(nomeBusca)) {
-                autorBusca = livro.getAutor();
-                break;
-            }
-        }
-        
-        if (autorBusca == null) {
-            System.out.println("\nAutor não encontrado na coleção. Tente um nome exato.");
-            return;
-        }
-        
-        // Uso do método de filtragem do Gerenciador
-        ArrayList<Livro> livrosDoAutor = gerenciador.listLivrosPorAutor(autorBusca);
-        exibirLista(livrosDoAutor, "Livros do Autor: " + autorBusca.getNome());
-    }
-
-    /**
-     * Busca um livro pelo ID ou Título e exibe suas informações.
-     */
-    private static void buscarLivro() {
-        System.out.println("\n--- Buscar Livro ---");
-        System.out.print("Buscar por ID ou Título? (ID/T): ");
-        String tipoBusca = scanner.nextLine().toUpperCase();
-        
-        Livro livro = null;
-        
-        if (tipoBusca.equals("ID")) {
-            System.out.print("Digite o ID único: ");
-            String idBusca = scanner.nextLine();
-            livro = gerenciador.buscarLivroPorID(idBusca);
-            
-        } else if (tipoBusca.equals("T")) {
-            System.out.print("Digite o Título exato: ");
-            String tituloBusca = scanner.nextLine();
-            livro = gerenciador.exibeLivro(tituloBusca);
-            
-        } else {
-            System.out.println("Tipo de busca inválido.");
-            return;
-        }
-
-        if (livro != null) {
-            System.out.println("\nLivro Encontrado:");
-            System.out.println(livro.exibeInformacoes());
-        } else {
-            System.out.println("\nLivro não encontrado.");
-        }
-    }
-
-    /**
-     * Remove um livro da coleção.
-     */
-    private static void removerLivro() {
-        System.out.println("\n--- Remover Livro ---");
-        System.out.print("Digite o ID do livro a ser removido: ");
-        String idRemocao = scanner.nextLine();
-
-        boolean sucesso = gerenciador.remLivro(idRemocao);
-
-        if (sucesso) {
-            System.out.println("\nLivro removido com sucesso! (Dados salvos)");
-        } else {
-            System.out.println("\nErro: Livro não encontrado.");
-        }
-    }
-    
-    /**
-     * Exibe o submenu para Empréstimo ou Devolução.
-     */
-    private static void menuEmprestimoDevolucao() {
-        System.out.println("\n--- Empréstimo / Devolução ---");
-        System.out.println("1. Emprestar Livro");
-        System.out.println("2. Devolver Livro");
-        System.out.print("Escolha a operação: ");
-        
-        int escolha;
-        try {
-            escolha = Integer.parseInt(scanner.nextLine());
-        } catch (NumberFormatException e) {
-            System.err.println("Entrada inválida.");
-            return;
-        }
-        
-        switch(escolha) {
-            case 1:
-                emprestarLivro();
-                break;
-            case 2:
-                devolverLivro();
-                break;
-            default:
-                System.out.println("Opção inválida.");
-                break;
-        }
-    }
-    
-    /**
-     * Realiza a lógica de empréstimo de um livro para um leitor.
-     */
-    private static void emprestarLivro() {
-        System.out.println("\n--- Realizar Empréstimo ---");
-        System.out.print("Digite o ID do livro para empréstimo: ");
-        String idLivro = scanner.nextLine();
-        
-        Livro livro = gerenciador.buscarLivroPorID(idLivro);
-        if (livro == null) {
-            System.out.println("Livro não encontrado com o ID: " + idLivro);
-            return;
-        }
-        
-        if (livro.getLeitorEmprestimo() != null) {
-            System.out.println("O livro já está emprestado para: " + livro.getLeitorEmprestimo().getNome());
-            return;
-        }
-        
-        //Seleção do Leitor
-        listarLeitores();
-        int indiceLeitor = lerInteiro("Selecione o número do Leitor (1 a " + listaLeitores.size() + "): ") - 1;
-        
-        if (indiceLeitor < 0 || indiceLeitor >= listaLeitores.size()) {
-            System.out.println("Seleção de leitor inválida.");
-            return;
-        }
-        
-        Leitor leitorSelecionado = listaLeitores.get(indiceLeitor);
-        
-        //Uso do método editLivro para atribuir o objeto Leitor
-        boolean sucesso = gerenciador.editLivro(
-            livro.getIdLivro(), 
-            livro.getTitulo(), 
-            livro.getAutor(), 
-            livro.getNumPags(), 
-            livro.getAnoPub(), 
-            livro.getPreco(), 
-            leitorSelecionado // Atribui o objeto Leitor
-        );
-        
-        if (sucesso) {
-            System.out.println("\nLivro '" + livro.getTitulo() + "' emprestado com sucesso para " + leitorSelecionado.getNome() + ". (Dados salvos)");
-        } else {
-            System.out.println("\nErro ao registrar o empréstimo.");
-        }
-    }
-    
-    /**
-     * Realiza a lógica de devolução de um livro.
-     */
-    private static void devolverLivro() {
-        System.out.println("\n--- Realizar Devolução ---");
-        System.out.print("Digite o ID do livro para devolução: ");
-        String idLivro = scanner.nextLine();
-        
-        Livro livro = gerenciador.buscarLivroPorID(idLivro);
-        if (livro == null) {
-            System.out.println("Livro não encontrado com o ID: " + idLivro);
-            return;
-        }
-        
-        if (livro.getLeitorEmprestimo() == null) {
-            System.out.println("O livro já está disponível. Não foi possível realizar a devolução.");
-            return;
-        }
-        
-        String nomeLeitor = livro.getLeitorEmprestimo().getNome();
-        
-        // Uso do método editLivro para setar o Leitor como null (Devolução)
-        boolean sucesso = gerenciador.editLivro(
-            livro.getIdLivro(), 
-            livro.getTitulo(), 
-            livro.getAutor(), 
-            livro.getNumPags(), 
-            livro.getAnoPub(), 
-            livro.getPreco(), 
-            null // Define como null para devolução
-        );
-        
-        if (sucesso) {
-            System.out.println("\nLivro '" + livro.getTitulo() + "' devolvido com sucesso por " + nomeLeitor + ". (Dados salvos)");
-        } else {
-            System.out.println("\nErro ao registrar a devolução.");
-        }
-    }
-
-
-    // =========================================================================
-    // Métodos Auxiliares
-    // =========================================================================
-
-    /**
-     * Exibe a lista de livros formatada.
-     * @param lista A lista de livros a ser exibida.
-     * @param titulo O título da seção de listagem.
-     */
-    private static void exibirLista(ArrayList<Livro> lista, String titulo) {
-        System.out.println("\n-----------------------------------------");
-        System.out.println("     " + titulo.toUpperCase());
-        System.out.println("-----------------------------------------");
-        
-        if (lista.isEmpty()) {
-            System.out.println("Nenhum livro encontrado para este critério.");
-            return;
-        }
-        
-        for (Livro livro : lista) {
-            // Imprime o ID para facilitar operações de busca/remoção
-            System.out.println("[ID: " + livro.getIdLivro() + "]");
-            System.out.println(livro.exibeInformacoes());
-            System.out.println("---");
-        }
-    }
-    
-    /**
-     * Método auxiliar para garantir que o usuário digite um número inteiro válido.
-     * @param prompt A mensagem a ser exibida para o usuário.
-     * @return O valor inteiro digitado.
-     */
-    private static int lerInteiro(String prompt) {
-        while (true) {
-            System.out.print(prompt);
-            try {
-                return Integer.parseInt(scanner.nextLine());
-            } catch (NumberFormatException e) {
-                // Tratamento de exceção específico
-                System.err.println("Entrada inválida. Por favor, digite um número inteiro.");
-            }
-        }
-    }
-
-    /**
-     * Método auxiliar para garantir que o usuário digite um número decimal válido (double).
-     * @param prompt A mensagem a ser exibida para o usuário.
-     * @return O valor decimal (double) digitado.
-     */
-    private static double lerDouble(String prompt) {
-        while (true) {
-            System.out.print(prompt);
-            try {
-                // Tenta ler o valor, substituindo vírgulas por pontos para consistência
-                String entrada = scanner.nextLine().replace(',', '.');
-                return Double.parseDouble(entrada);
-            } catch (NumberFormatException e) {
-                // Tratamento de exceção específico
-                System.err.println("Entrada inválida. Por favor, digite um número decimal (ex: 19.99 ou 19,99).");
-            }
-        }
-    }
+package main;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+import api.ServidorHttp;
+import model.Autor;
+import model.EventoEmprestimo;
+import model.Leitor;
+import model.Livro;
+import service.ArvoreBMais;
+import service.Codec;
+import service.GeradorAcervo;
+import service.GerenciadorBiblioteca;
+import service.GerenciadorBiblioteca.TipoOrdenacao;
+import service.Persistencia;
+import service.PersistenciaBlocos;
+import service.PersistenciaFragmentada;
+import service.PersistenciaIndexada;
+import service.PersistenciaRegistros;
+
+/**
+ * Classe principal para a aplicação de console da Biblioteca.
+ * <p>
+ * Responsável pela interação com o usuário (apresentação do menu) e por
+ * coordenar as chamadas à camada de serviço (GerenciadorBiblioteca),
+ * demonstrando o uso de todas as classes de Modelo e Serviço.
+ * </p>
+ */
+public class App {
+
+    private static GerenciadorBiblioteca gerenciador;
+    private static Scanner scanner;
+    
+    // Lista auxiliar para arazenar Leitores (é um sistema de cadastro de livros, o foco não é de pessoas)
+    private static ArrayList<Leitor> listaLeitores;
+
+    /**
+     * Ponto de entrada da aplicação.
+     * <p>Com o argumento {@code --http [porta]}, também sobe a API HTTP (porta padrão 8080),
+     * que atende os quiosques enquanto o menu do console continua disponível.</p>
+     * <p>Com {@code --lote [arquivo]} ou {@code --executar comando...}, executa os comandos em lote
+     * e termina, sem o menu (ver {@link ExecutorLote}).</p>
+     * <p>Com {@code --gerar [livros] [leitores]}, inclui um acervo sintético e cadastra leitores
+     * sintéticos (ver {@link GeradorAcervo}) antes de tudo, para experimentar o sistema com volume.</p>
+     * @param args Os argumentos da linha de comando.
+     */
+    public static void main(String[] args) {
+        gerenciador = criarGerenciador(args);
+        
+        // Inicialização de Leitores
+        listaLeitores = new ArrayList<>();
+        inicializarLeitores();
+        gerarAcervoSintetico(args);
+        
+        Boolean loteOk = executarLote(args);
+        if (loteOk != null) {
+            gerenciador.encerrar();
+            if (!loteOk) {
+                System.exit(1); // Permite que scripts detectem comandos com erro
+            }
+            return;
+        }
+        
+        scanner = new Scanner(System.in);
+        System.out.println("Sistema de Biblioteca Iniciado. Dados carregados da persistência.");
+        exibirTemposInicializacao();
+        ServidorHttp servidor = iniciarServidorHttp(args);
+        exibirMenuPrincipal();
+        
+        System.out.println("Obrigado por utilizar o sistema da Biblioteca!");
+        if (servidor != null) {
+            servidor.encerrar();
+        }
+        gerenciador.encerrar();
+        scanner.close();
+    }
+    
+    /**
+     * Cria o gerenciador com o arquivo único padrão ou, conforme os argumentos, com o acervo
+     * dividido em K arquivos ({@code --fragmentos [K]}), gravado em registros por livro
+     * ({@code --registros}), em blocos decodificados em paralelo ({@code --blocos}) ou em disco,
+     * com índices B+, sem carregar o acervo na memória ({@code --indexado [MiB]}).
+     * <p>No modo indexado, o número opcional é o orçamento de memória dos livros: os usados
+     * recentemente ficam residentes até somá-lo, e os demais são lidos do disco quando pedidos.</p>
+     * <p>Na primeira execução em um desses modos, o arquivo único existente é importado.</p>
+     * <p>Com {@code --compressao [codec]}, o arquivo único é gravado em blocos comprimidos
+     * ({@code deflate}, o padrão, {@code rapido}, {@code gzip} ou {@code nenhum}).</p>
+     * @param args Os argumentos da linha de comando.
+     * @return O gerenciador da biblioteca.
+     */
+    private static GerenciadorBiblioteca criarGerenciador(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--fragmentos")) {
+                int numFragmentos = PersistenciaFragmentada.NUM_FRAGMENTOS_PADRAO;
+                try {
+                    if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        numFragmentos = Integer.parseInt(args[i + 1]);
+                    }
+                } catch (NumberFormatException e) {
+                    System.err.println("Quantidade de fragmentos inválida: " + args[i + 1] + ". Usando " + numFragmentos + ".");
+                }
+
+                PersistenciaFragmentada fragmentada = new PersistenciaFragmentada(
+                        new File(PersistenciaFragmentada.DIRETORIO_PADRAO), numFragmentos);
+                if (fragmentada.estaVazio()) {
+                    int importados = fragmentada.importarDe(new Persistencia());
+                    if (importados > 0) {
+                        System.out.println(importados + " livros importados para " + fragmentada.getNumFragmentos() + " fragmentos.");
+                    }
+                }
+                return new GerenciadorBiblioteca(new File("."), fragmentada);
+            }
+            if (args[i].equals("--registros")) {
+                File arquivo = new File(PersistenciaRegistros.NOME_ARQUIVO);
+                PersistenciaRegistros registros = new PersistenciaRegistros(arquivo);
+                if (!arquivo.exists()) {
+                    int importados = registros.importarDe(new Persistencia());
+                    if (importados > 0) {
+                        System.out.println(importados + " livros importados para " + arquivo + ".");
+                    }
+                }
+                return new GerenciadorBiblioteca(new File("."), registros);
+            }
+            if (args[i].equals("--blocos")) {
+                File arquivo = new File(PersistenciaBlocos.NOME_ARQUIVO);
+                PersistenciaBlocos blocos = new PersistenciaBlocos(arquivo);
+                if (!arquivo.exists()) {
+                    int importados = blocos.importarDe(new Persistencia());
+                    if (importados > 0) {
+                        System.out.println(importados + " livros importados para " + arquivo + ".");
+                    }
+                }
+                return new GerenciadorBiblioteca(new File("."), blocos);
+            }
+            if (args[i].equals("--indexado")) {
+                long orcamentoMiB = PersistenciaIndexada.SEM_ORCAMENTO;
+                try {
+                    if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        orcamentoMiB = Long.parseLong(args[i + 1]);
+                    }
+                } catch (NumberFormatException e) {
+                    System.err.println("Orçamento de memória inválido: " + args[i + 1] + ". Usando o acervo sem orçamento.");
+                }
+
+                PersistenciaIndexada indexada = new PersistenciaIndexada(new File(PersistenciaIndexada.DIRETORIO_PADRAO),
+                        ArvoreBMais.PAGINAS_EM_CACHE_PADRAO, orcamentoMiB * 1024 * 1024);
+                if (indexada.estaVazio()) {
+                    int importados = indexada.importarDe(new Persistencia());
+                    if (importados > 0) {
+                        System.out.println(importados + " livros importados para " + PersistenciaIndexada.DIRETORIO_PADRAO + ".");
+                    }
+                }
+                return new GerenciadorBiblioteca(new File("."), indexada);
+            }
+            if (args[i].equals("--compressao")) {
+                Codec codec = Codec.Padrao.DEFLATE;
+                if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                    codec = Codec.Padrao.porNome(args[i + 1]);
+                    if (codec == null) {
+                        System.err.println("Codec desconhecido: " + args[i + 1] + ". Usando deflate.");
+                        codec = Codec.Padrao.DEFLATE;
+                    }
+                }
+                return new GerenciadorBiblioteca(new File("."), new Persistencia(codec));
+            }
+        }
+        return new GerenciadorBiblioteca();
+    }
+
+    /**
+     * Executa os comandos em lote, se pedidos: os de um arquivo ({@code --lote arquivo}), os da
+     * entrada padrão ({@code --lote} ou {@code --lote -}) ou os próprios argumentos seguintes
+     * ({@code --executar "comando" "comando" ...}).
+     * @param args Os argumentos da linha de comando.
+     * @return {@code null} se o modo em lote não foi pedido; senão, se todos os comandos deram certo.
+     */
+    private static Boolean executarLote(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].equals("--lote") && !args[i].equals("--executar")) {
+                continue;
+            }
+            BufferedWriter saida = new BufferedWriter(new OutputStreamWriter(System.out));
+            ExecutorLote executor = new ExecutorLote(gerenciador, saida);
+            try {
+                if (args[i].equals("--executar")) {
+                    StringBuilder comandos = new StringBuilder();
+                    for (int j = i + 1; j < args.length && !args[j].startsWith("--"); j++) {
+                        comandos.append(args[j]).append('\n');
+                    }
+                    return executor.executar(new BufferedReader(new StringReader(comandos.toString())));
+                }
+                boolean temArquivo = i + 1 < args.length && !args[i + 1].startsWith("--") && !args[i + 1].equals("-");
+                try (BufferedReader entrada = temArquivo
+                        ? Files.newBufferedReader(Paths.get(args[i + 1]))
+                        : new BufferedReader(new InputStreamReader(System.in))) {
+                    return executor.executar(entrada);
+                }
+            } catch (IOException e) {
+                System.err.println("Erro ao executar o lote: " + e.getMessage());
+                return false;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Exibe quanto tempo levou cada fase da inicialização do gerenciador.
+     */
+    private static void exibirTemposInicializacao() {
+        StringBuilder tempos = new StringBuilder("Inicialização (" + gerenciador.getQuantidadeLivros() + " livros):");
+        for (Map.Entry<String, Long> fase : gerenciador.getTemposInicializacao().entrySet()) {
+            tempos.append(" ").append(fase.getKey()).append(" ").append(fase.getValue()).append(" ms;");
+        }
+        System.out.println(tempos);
+    }
+
+    /**
+     * Sobe a API HTTP se o argumento {@code --http} tiver sido informado.
+     * @param args Os argumentos da linha de comando.
+     * @return O servidor iniciado, ou {@code null} se a API não foi pedida ou não pôde ser iniciada.
+     */
+    private static ServidorHttp iniciarServidorHttp(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--http")) {
+                try {
+                    int porta = (i + 1 < args.length && !args[i + 1].startsWith("--")) ? Integer.parseInt(args[i + 1]) : 8080;
+                    ServidorHttp servidor = new ServidorHttp(gerenciador, porta);
+                    servidor.iniciar();
+                    System.out.println("API HTTP disponível em http://localhost:" + servidor.getPorta() + "/livros");
+                    return servidor;
+                } catch (NumberFormatException e) {
+                    System.err.println("Porta inválida para a API HTTP: " + args[i + 1]);
+                } catch (java.io.IOException e) {
+                    System.err.println("Não foi possível iniciar a API HTTP: " + e.getMessage());
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Inclui livros e leitores sintéticos se o argumento {@code --gerar} tiver sido informado.
+     * Os leitores gerados entram também na lista do menu de empréstimos.
+     * @param args Os argumentos da linha de comando.
+     */
+    private static void gerarAcervoSintetico(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--gerar")) {
+                int numLivros = 10_000;
+                int numLeitores = 100;
+                try {
+                    if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        numLivros = Integer.parseInt(args[i + 1]);
+                    }
+                    if (i + 2 < args.length && !args[i + 1].startsWith("--") && !args[i + 2].startsWith("--")) {
+                        numLeitores = Integer.parseInt(args[i + 2]);
+                    }
+                } catch (NumberFormatException e) {
+                    System.err.println("Quantidade inválida para --gerar. Usando " + numLivros + " livros e " + numLeitores + " leitores.");
+                }
+                GeradorAcervo gerador = new GeradorAcervo(System.nanoTime());
+                int incluidos = gerador.popularLivros(gerenciador, numLivros).size();
+                listaLeitores.addAll(gerador.popularLeitores(gerenciador, numLeitores));
+                System.out.println("Acervo sintético: " + incluidos + " livros incluídos e " + numLeitores + " leitores cadastrados.");
+                return;
+            }
+        }
+    }
+
+    /**
+     * Cria alguns leitores de exemplo para facilitar os testes de empréstimo.
+     */
+    private static void inicializarLeitores() {
+        listaLeitores.add(new Leitor("Ana Silva", "(11) 98765-4321", "ana@email.com"));
+        listaLeitores.add(new Leitor("Bruno Costa", "(21) 91234-5678", "bruno@email.com"));
+        listaLeitores.add(new Leitor("Carlos Rocha", "(31) 99999-0000", "carlos@email.com"));
+        
+        // Cadastra também no Gerenciador, para que outros canais (ex.: API HTTP) os encontrem pelo ID
+        for (Leitor leitor : listaLeitores) {
+            gerenciador.registrarLeitor(leitor);
+        }
+    }
+
+    /**
+     * Exibe o menu principal de interação e gerencia as escolhas do usuário.
+     */
+    private static void exibirMenuPrincipal() {
+        int opcao;
+        
+        do {
+            System.out.println("\n===== Menu da Biblioteca =====");
+            System.out.println("1. Adicionar Novo Livro");
+            System.out.println("2. Listar Livros (Ordenação)");
+            System.out.println("3. Buscar Livro por ID/Título");
+            System.out.println("4. Remover Livro");
+            System.out.println("5. Realizar Empréstimo / Devolução");
+            System.out.println("6. Listar Livros Emprestados a um Leitor");
+            System.out.println("7. Histórico e Estatísticas de Empréstimos");
+            System.out.println("8. Listar Empréstimos Atrasados");
+            System.out.println("0. Sair e Salvar Dados");
+            System.out.print("Escolha uma opção: ");
+            
+            // Tratamento de exceção para entrada de menu
+            try {
+                opcao = Integer.parseInt(scanner.nextLine());
+            } catch (NumberFormatException e) {
+                opcao = -1; // Valor inválido para repetição do loop
+                System.err.println("Entrada inválida. Digite um número de 0 a 8.");
+            }
+
+            switch (opcao) {
+                case 1:
+                    adicionarLivro();
+                    break;
+                case 2:
+                    listarLivros();
+                    break;
+                case 3:
+                    buscarLivro();
+                    break;
+                case 4:
+                    removerLivro();
+                    break;
+                case 5:
+                    menuEmprestimoDevolucao();
+                    break;
+                case 6:
+                    listarLivrosEmprestados();
+                    break;
+                case 7:
+                    exibirHistoricoEmprestimos();
+                    break;
+                case 8:
+                    listarEmprestimosAtrasados();
+                    break;
+                case 0:
+                    // O gerenciador salva no construtor e nas alterações, então sair é suficiente.
+                    break;
+                default:
+                    if (opcao != -1) {
+                         System.out.println("Opção não reconhecida.");
+                    }
+                    break;
+            }
+            
+        } while (opcao != 0);
+    }
+    
+    // =========================================================================
+    // Métodos de Ação do Menu
+    // =========================================================================
+
+    /**
+     * Processa a entrada de dados do usuário e adiciona um novo livro.
+     */
+    private static void adicionarLivro() {
+        System.out.println("\n--- Adicionar Livro ---");
+        
+        System.out.print("Título: ");
+        String titulo = scanner.nextLine();
+        
+        System.out.print("Nome do Autor: ");
+        String nomeAutor = scanner.nextLine();
+        
+        System.out.print("Nacionalidade do Autor: ");
+        String nacionalidadeAutor = scanner.nextLine();
+        
+        // Criação de objeto Autor
+        Autor autor = new Autor(nomeAutor, nacionalidadeAutor);
+        
+        int numPags = lerInteiro("Número de Páginas: ");
+        int anoPub = lerInteiro("Ano de Publicação: ");
+        double preco = lerDouble("Preço (R$): ");
+        int numExemplares = lerInteiro("Quantidade de Exemplares: ");
+
+        boolean sucesso = gerenciador.addLivro(titulo, autor, numPags, anoPub, preco, numExemplares);
+
+        if (sucesso) {
+            System.out.println("\nLivro adicionado com sucesso!");
+            return;
+        }
+        
+        // O título já existe: oferece cadastrar as cópias como novos exemplares dele
+        Livro existente = gerenciador.buscarLivroPorTituloEAutor(titulo, nomeAutor);
+        System.out.println("\nEste livro já existe na coleção (mesmo título e autor) com "
+                + existente.getNumExemplares() + " exemplar(es).");
+        System.out.print("Deseja cadastrar " + Math.max(1, numExemplares) + " novo(s) exemplar(es) dele? (S/N): ");
+        
+        if (scanner.nextLine().trim().equalsIgnoreCase("S")
+                && gerenciador.addExemplares(existente.getIdLivro(), Math.max(1, numExemplares))) {
+            // O livro guardado é trocado a cada edição: a cópia lida acima ainda tem a contagem antiga
+            Livro atualizado = gerenciador.buscarLivroPorID(existente.getIdLivro());
+            int total = (atualizado != null) ? atualizado.getNumExemplares() : existente.getNumExemplares() + Math.max(1, numExemplares);
+            System.out.println("Exemplares cadastrados. Total: " + total);
+        }
+    }
+
+    /**
+     * Exibe as opções de listagem e ordenação dos livros.
+     */
+    private static void listarLivros() {
+        if (gerenciador.getQuantidadeLivros() == 0) {
+            System.out.println("\nA biblioteca está vazia. Adicione livros primeiro.");
+            return;
+        }
+
+        System.out.println("\n--- Opções de Listagem e Ordenação ---");
+        System.out.println("1. Listar todos (Título - Ordenação Natural)");
+        System.out.println("2. Listar todos (Autor)");
+        System.out.println("3. Listar por um Autor Específico");
+        System.out.print("Escolha: ");
+        
+        int escolha;
+        try {
+            escolha = Integer.parseInt(scanner.nextLine());
+        } catch (NumberFormatException e) {
+            System.err.println("Entrada inválida.");
+            return;
+        }
+
+        try {
+            switch (escolha) {
+                case 1:
+                    exibirLista(gerenciador.ordenarLivros(TipoOrdenacao.TITULO), "TODOS OS LIVROS (Ordenado por Título)");
+                    break;
+                case 2:
+                    exibirLista(gerenciador.ordenarLivros(TipoOrdenacao.AUTOR), "TODOS OS LIVROS (Ordenado por Autor)");
+                    break;
+                case 3:
+                    listarPorAutorEspecifico();
+                    break;
+                default:
+                    System.out.println("Opção inválida.");
+                    break;
+            }
+        } catch (IllegalArgumentException e) {
+            // Captura a exceção específica para tipo de ordenação não suportado
+            System.err.println("Erro de Ordenação: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Lista todos os leitores disponíveis para seleção.
+     */
+    private static void listarLeitores() {
+        System.out.println("\n--- Leitores Cadastrados ---");
+        if (listaLeitores.isEmpty()) {
+            System.out.println("Nenhum leitor cadastrado.");
+            return;
+        }
+        for (int i = 0; i < listaLeitores.size(); i++) {
+            // Exibe o ID interno (índice) para seleção rápida
+            System.out.println((i + 1) + ". " + listaLeitores.get(i).toString());
+        }
+    }
+    
+    /**
+     * Lista os livros emprestados a um leitor selecionado.
+     */
+    private static void listarLivrosEmprestados() {
+        System.out.println("\n--- Livros Emprestados por Leitor ---");
+        listarLeitores();
+        
+        int indiceLeitor = lerInteiro("Selecione o número do Leitor (1 a " + listaLeitores.size() + "): ") - 1;
+        
+        if (indiceLeitor < 0 || indiceLeitor >= listaLeitores.size()) {
+            System.out.println("Seleção de leitor inválida.");
+            return;
+        }
+        
+        Leitor leitorSelecionado = listaLeitores.get(indiceLeitor);
+        
+        ArrayList<Livro> livrosEmprestados = gerenciador.listLivrosEmprestadosPara(leitorSelecionado);
+        exibirLista(livrosEmprestados, "LIVROS EMPRESTADOS A: " + leitorSelecionado.getNome());
+    }
+    
+    /**
+     * Pede ao usuário o nome de um autor e lista os livros dele.
+     */
+    private static void listarPorAutorEspecifico() {
+        System.out.print("Nome do Autor para busca: ");
+        String nomeBusca = scanner.nextLine();
+        
+        Autor autorBusca = buscarAutor(nomeBusca);
+        if (autorBusca == null) {
+            // Sem nome exato: oferece os nomes parecidos (erros de digitação, acentos)
+            String sugestao = escolherSugestao(gerenciador.sugerirAutores(nomeBusca, 5));
+            autorBusca = (sugestao != null) ? buscarAutor(sugestao) : null;
+        }
+        
+        if (autorBusca == null) {
+            System.out.println("\nAutor não encontrado na coleção.");
+            return;
+        }
+        
+        // Uso do método de filtragem do Gerenciador
+        ArrayList<Livro> livrosDoAutor = gerenciador.listLivrosPorAutor(autorBusca);
+        exibirLista(livrosDoAutor, "Livros do Autor: " + autorBusca.getNome());
+    }
+
+    /**
+     * Procura o autor do primeiro livro com esse nome de autor (ignora maiúsculas/minúsculas).
+     * @param nome O nome do autor.
+     * @return O {@link Autor}, ou {@code null} se nenhum livro for dele.
+     */
+    private static Autor buscarAutor(String nome) {
+        for (Livro livro : gerenciador.percorrerLivros()) {
+            if (livro.getAutor().getNome().equalsIgnoreCase(nome)) {
+                return livro.getAutor();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Mostra as sugestões de uma busca sem resultado ("Você quis dizer") e deixa o usuário escolher uma.
+     * @param sugestoes As sugestões, da mais parecida para a menos parecida.
+     * @return A sugestão escolhida, ou {@code null} se não houver sugestões ou o usuário não escolher nenhuma.
+     */
+    private static String escolherSugestao(List<String> sugestoes) {
+        if (sugestoes.isEmpty()) {
+            return null;
+        }
+        System.out.println("\nVocê quis dizer:");
+        for (int i = 0; i < sugestoes.size(); i++) {
+            System.out.println((i + 1) + ". " + sugestoes.get(i));
+        }
+        int escolha = lerInteiro("Escolha uma opção (0 para nenhuma): ");
+        return (escolha >= 1 && escolha <= sugestoes.size()) ? sugestoes.get(escolha - 1) : null;
+    }
+
+    /**
+     * Busca um livro pelo ID ou Título e exibe suas informações.
+     */
+    private static void buscarLivro() {
+        System.out.println("\n--- Buscar Livro ---");
+        System.out.print("Buscar por ID ou Título? (ID/T): ");
+        String tipoBusca = scanner.nextLine().toUpperCase();
+        
+        Livro livro = null;
+        
+        if (tipoBusca.equals("ID")) {
+            System.out.print("Digite o ID único: ");
+            String idBusca = scanner.nextLine();
+            livro = gerenciador.buscarLivroPorID(idBusca);
+            
+        } else if (tipoBusca.equals("T")) {
+            System.out.print("Digite o Título: ");
+            String tituloBusca = scanner.nextLine();
+            livro = gerenciador.exibeLivro(tituloBusca);
+            if (livro == null && !tituloBusca.trim().isEmpty()) {
+                // Sem título exato: mostra os títulos que começam com o texto digitado
+                List<Livro> parecidos = gerenciador.listLivrosPorPrefixoTitulo(tituloBusca.trim(), 10);
+                if (!parecidos.isEmpty()) {
+                    exibirLista(parecidos, "TÍTULOS QUE COMEÇAM COM \"" + tituloBusca.trim() + "\"");
+                    return;
+                }
+                // Nem começo de título: oferece os títulos parecidos
+                String sugestao = escolherSugestao(gerenciador.sugerirTitulos(tituloBusca, 5));
+                livro = (sugestao != null) ? gerenciador.exibeLivro(sugestao) : null;
+            }
+            
+        } else {
+            System.out.println("Tipo de busca inválido.");
+            return;
+        }
+
+        if (livro != null) {
+            System.out.println("\nLivro Encontrado:");
+            System.out.println(livro.exibeInformacoes());
+        } else {
+            System.out.println("\nLivro não encontrado.");
+        }
+    }
+
+    /**
+     * Remove um livro da coleção.
+     */
+    private static void removerLivro() {
+        System.out.println("\n--- Remover Livro ---");
+        System.out.print("Digite o ID do livro a ser removido: ");
+        String idRemocao = scanner.nextLine();
+
+        boolean sucesso = gerenciador.remLivro(idRemocao);
+
+        if (sucesso) {
+            System.out.println("\nLivro removido com sucesso! (Dados salvos)");
+        } else {
+            System.out.println("\nErro: Livro não encontrado.");
+        }
+    }
+    
+    /**
+     * Exibe o submenu para Empréstimo ou Devolução.
+     */
+    private static void menuEmprestimoDevolucao() {
+        System.out.println("\n--- Empréstimo / Devolução ---");
+        System.out.println("1. Emprestar Livro");
+        System.out.println("2. Devolver Livro");
+        System.out.print("Escolha a operação: ");
+        
+        int escolha;
+        try {
+            escolha = Integer.parseInt(scanner.nextLine());
+        } catch (NumberFormatException e) {
+            System.err.println("Entrada inválida.");
+            return;
+        }
+        
+        switch(escolha) {
+            case 1:
+                emprestarLivro();
+                break;
+            case 2:
+                devolverLivro();
+                break;
+            default:
+                System.out.println("Opção inválida.");
+                break;
+        }
+    }
+    
+    /**
+     * Realiza a lógica de empréstimo de um livro para um leitor.
+     */
+    private static void emprestarLivro() {
+        System.out.println("\n--- Realizar Empréstimo ---");
+        System.out.print("Digite o ID do livro para empréstimo: ");
+        String idLivro = scanner.nextLine();
+        
+        Livro livro = gerenciador.buscarLivroPorID(idLivro);
+        if (livro == null) {
+            System.out.println("Livro não encontrado com o ID: " + idLivro);
+            return;
+        }
+        
+        if (!livro.temExemplarDisponivel()) {
+            if (livro.getNumExemplares() == 1) {
+                System.out.println("O livro já está emprestado para: " + livro.getLeitorEmprestimo().getNome());
+            } else {
+                System.out.println("Todos os " + livro.getNumExemplares() + " exemplares estão emprestados.");
+            }
+            oferecerReserva(livro);
+            return;
+        }
+        
+        //Seleção do Leitor
+        listarLeitores();
+        int indiceLeitor = lerInteiro("Selecione o número do Leitor (1 a " + listaLeitores.size() + "): ") - 1;
+        
+        if (indiceLeitor < 0 || indiceLeitor >= listaLeitores.size()) {
+            System.out.println("Seleção de leitor inválida.");
+            return;
+        }
+        
+        Leitor leitorSelecionado = listaLeitores.get(indiceLeitor);
+        
+        // Empréstimo pelo Gerenciador, que também registra o evento no histórico
+        boolean sucesso = gerenciador.emprestarLivro(livro.getIdLivro(), leitorSelecionado);
+        
+        if (sucesso) {
+            System.out.println("\nLivro '" + livro.getTitulo() + "' emprestado com sucesso para " + leitorSelecionado.getNome() + ". (Dados salvos)");
+            List<Livro> sugeridos = gerenciador.recomendarLivros(livro.getIdLivro(), 3);
+            if (!sugeridos.isEmpty()) {
+                System.out.println("Quem pegou este livro também pegou:");
+                for (Livro sugerido : sugeridos) {
+                    System.out.println("  - " + sugerido.getTitulo() + " (" + sugerido.getAutor().getNome() + ")");
+                }
+            }
+        } else if (gerenciador.getQuantidadeEmprestimos(leitorSelecionado) >= gerenciador.getLimiteEmprestimos(leitorSelecionado)) {
+            System.out.println("\n" + leitorSelecionado.getNome() + " já está com " + gerenciador.getQuantidadeEmprestimos(leitorSelecionado)
+                    + " livros, o limite da categoria. Devolva um livro antes de pegar outro.");
+        } else {
+            System.out.println("\nErro ao registrar o empréstimo.");
+        }
+    }
+    
+    /**
+     * Oferece ao usuário a opção de entrar na fila de reservas de um livro emprestado.
+     * @param livro O livro indisponível.
+     */
+    private static void oferecerReserva(Livro livro) {
+        int naFila = gerenciador.getReservas().tamanhoDaFila(livro.getIdLivro());
+        System.out.print("Leitores na fila de reservas: " + naFila + ". Deseja reservar? (S/N): ");
+        if (!scanner.nextLine().trim().equalsIgnoreCase("S")) {
+            return;
+        }
+        
+        listarLeitores();
+        int indiceLeitor = lerInteiro("Selecione o número do Leitor (1 a " + listaLeitores.size() + "): ") - 1;
+        
+        if (indiceLeitor < 0 || indiceLeitor >= listaLeitores.size()) {
+            System.out.println("Seleção de leitor inválida.");
+            return;
+        }
+        
+        Leitor leitorSelecionado = listaLeitores.get(indiceLeitor);
+        if (gerenciador.reservarLivro(livro.getIdLivro(), leitorSelecionado)) {
+            System.out.println("Reserva registrada. Posição na fila: "
+                    + gerenciador.getReservas().tamanhoDaFila(livro.getIdLivro()));
+        } else {
+            System.out.println("Não foi possível reservar (o leitor já está na fila ou com o livro).");
+        }
+    }
+    
+    /**
+     * Realiza a lógica de devolução de um livro.
+     */
+    private static void devolverLivro() {
+        System.out.println("\n--- Realizar Devolução ---");
+        System.out.print("Digite o ID do livro para devolução: ");
+        String idLivro = scanner.nextLine();
+        
+        Livro livro = gerenciador.buscarLivroPorID(idLivro);
+        if (livro == null) {
+            System.out.println("Livro não encontrado com o ID: " + idLivro);
+            return;
+        }
+        
+        if (!livro.temExemplarEmprestado()) {
+            System.out.println("O livro já está disponível. Não foi possível realizar a devolução.");
+            return;
+        }
+        
+        // Com vários exemplares emprestados, o usuário escolhe qual está sendo devolvido
+        int exemplar = -1;
+        for (int i = 0; i < livro.getNumExemplares(); i++) {
+            if (livro.getLeitorExemplar(i) != null) {
+                if (exemplar == -1) {
+                    exemplar = i;
+                } else {
+                    exemplar = -2; // Mais de um exemplar emprestado
+                    break;
+                }
+            }
+        }
+        if (exemplar == -2) {
+            System.out.println("Exemplares emprestados:");
+            for (int i = 0; i < livro.getNumExemplares(); i++) {
+                if (livro.getLeitorExemplar(i) != null) {
+                    System.out.println((i + 1) + ". " + livro.getLeitorExemplar(i).getNome());
+                }
+            }
+            exemplar = lerInteiro("Número do exemplar devolvido: ") - 1;
+            if (exemplar < 0 || exemplar >= livro.getNumExemplares() || livro.getLeitorExemplar(exemplar) == null) {
+                System.out.println("Seleção de exemplar inválida.");
+                return;
+            }
+        }
+        
+        String nomeLeitor = livro.getLeitorExemplar(exemplar).getNome();
+        
+        // Devolução pelo Gerenciador, que também registra o evento no histórico
+        boolean sucesso = gerenciador.devolverExemplar(livro.getIdLivro(), exemplar);
+        
+        if (sucesso) {
+            System.out.println("\nLivro '" + livro.getTitulo() + "' devolvido com sucesso por " + nomeLeitor + ". (Dados salvos)");
+            if (livro.getLeitorExemplar(exemplar) != null) {
+                System.out.println("Livro repassado automaticamente para " + livro.getLeitorExemplar(exemplar).getNome()
+                        + ", primeiro da fila de reservas.");
+            }
+        } else {
+            System.out.println("\nErro ao registrar a devolução.");
+        }
+    }
+
+    
+    /**
+     * Exibe as estatísticas de circulação dos últimos 30 dias e, opcionalmente,
+     * o histórico completo de um livro.
+     */
+    private static void exibirHistoricoEmprestimos() {
+        System.out.println("\n--- Histórico de Empréstimos ---");
+        
+        List<EventoEmprestimo> recentes = gerenciador.getHistorico().emprestimosNosUltimosDias(30);
+        System.out.println("Empréstimos nos últimos 30 dias: " + recentes.size());
+        
+        List<Map.Entry<String, Integer>> maisEmprestados = gerenciador.getHistorico().maisEmprestadosNosUltimosDias(30, 5);
+        if (!maisEmprestados.isEmpty()) {
+            System.out.println("\nMais emprestados nos últimos 30 dias:");
+            int posicao = 1;
+            for (Map.Entry<String, Integer> entrada : maisEmprestados) {
+                Livro livro = gerenciador.buscarLivroPorID(entrada.getKey());
+                String titulo = (livro != null) ? livro.getTitulo() : "(removido) " + entrada.getKey();
+                System.out.println(posicao++ + ". " + titulo + " - " + entrada.getValue() + " empréstimo(s)");
+            }
+        }
+        
+        System.out.print("\nDigite o ID de um livro para ver seu histórico (ou Enter para voltar): ");
+        String idLivro = scanner.nextLine().trim();
+        if (idLivro.isEmpty()) {
+            return;
+        }
+        
+        List<EventoEmprestimo> doLivro = gerenciador.getHistorico().historicoDoLivro(idLivro);
+        if (doLivro.isEmpty()) {
+            System.out.println("Nenhuma movimentação registrada para este livro.");
+            return;
+        }
+        for (EventoEmprestimo evento : doLivro) {
+            String linha = evento.toString();
+            if (evento.getTipo() == EventoEmprestimo.Tipo.DEVOLUCAO) {
+                linha += " - ficou " + (evento.getDuracao() / (60 * 60 * 1000)) + " hora(s) com o leitor";
+            }
+            System.out.println(linha);
+        }
+    }
+
+    
+    /**
+     * Lista os empréstimos com prazo de devolução vencido.
+     */
+    private static void listarEmprestimosAtrasados() {
+        ArrayList<Livro> atrasados = gerenciador.listLivrosAtrasados();
+        exibirLista(atrasados, "EMPRÉSTIMOS ATRASADOS");
+        
+        long agora = System.currentTimeMillis();
+        for (Livro livro : atrasados) {
+            for (int i = 0; i < livro.getNumExemplares(); i++) {
+                if (livro.exemplarAtrasado(i, agora)) {
+                    long diasAtraso = (agora - livro.getVencimentoExemplar(i)) / (24L * 60 * 60 * 1000);
+                    System.out.println("'" + livro.getTitulo() + "' (exemplar " + (i + 1) + ") com "
+                            + livro.getLeitorExemplar(i).getNome() + ": " + diasAtraso + " dia(s) de atraso");
+                }
+            }
+        }
+    }
+
+
+    // =========================================================================
+    // Métodos Auxiliares
+    // =========================================================================
+
+    /**
+     * Exibe a lista de livros formatada.
+     * @param lista A lista de livros a ser exibida.
+     * @param titulo O título da seção de listagem.
+     */
+    private static void exibirLista(List<Livro> lista, String titulo) {
+        System.out.println("\n-----------------------------------------");
+        System.out.println("     " + titulo.toUpperCase());
+        System.out.println("-----------------------------------------");
+        
+        if (lista.isEmpty()) {
+            System.out.println("Nenhum livro encontrado para este critério.");
+            return;
+        }
+        
+        // Monta a listagem inteira num único texto: nenhum String intermediário por livro, e uma só escrita no console
+        String quebra = System.lineSeparator();
+        StringBuilder saida = new StringBuilder(lista.size() * 320);
+        for (Livro livro : lista) {
+            // Imprime o ID para facilitar operações de busca/remoção
+            saida.append("[ID: ").append(livro.getIdLivro()).append(']').append(quebra);
+            livro.exibeInformacoes(saida).append(quebra).append("---").append(quebra);
+        }
+        System.out.print(saida);
+    }
+    
+    /**
+     * Método auxiliar para garantir que o usuário digite um número inteiro válido.
+     * @param prompt A mensagem a ser exibida para o usuário.
+     * @return O valor inteiro digitado.
+     */
+    private static int lerInteiro(String prompt) {
+        while (true) {
+            System.out.print(prompt);
+            try {
+                return Integer.parseInt(scanner.nextLine());
+            } catch (NumberFormatException e) {
+                // Tratamento de exceção específico
+                System.err.println("Entrada inválida. Por favor, digite um número inteiro.");
+            }
+        }
+    }
+
+    /**
+     * Método auxiliar para garantir que o usuário digite um número decimal válido (double).
+     * @param prompt A mensagem a ser exibida para o usuário.
+     * @return O valor decimal (double) digitado.
+     */
+    private static double lerDouble(String prompt) {
+        while (true) {
+            System.out.print(prompt);
+            try {
+                // Tenta ler o valor, substituindo vírgulas por pontos para consistência
+                String entrada = scanner.nextLine().replace(',', '.');
+                return Double.parseDouble(entrada);
+            } catch (NumberFormatException e) {
+                // Tratamento de exceção específico
+                System.err.println("Entrada inválida. Por favor, digite um número decimal (ex: 19.99 ou 19,99).");
+            }
+        }
+    }
 }
\ No newline at end of file
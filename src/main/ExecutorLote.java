@@ -0,0 +1,320 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import api.Json;
+import model.Autor;
+import model.Leitor;
+import model.Livro;
+import service.GerenciadorBiblioteca;
+
+/**
+ * Executa comandos em lote, sem o menu interativo (ex.: {@code App --lote comandos.txt}).
+ * <p>
+ * Cada linha é um comando, com os campos separados por {@code |}; linhas vazias ou começadas
+ * por {@code #} são ignoradas:
+ * </p>
+ * <pre>
+ * adicionar | título | autor | nacionalidade | páginas | ano | preço [| exemplares]
+ * leitor    | nome | telefone | email [| categoria]
+ * emprestar | livro | leitor
+ * devolver  | livro | leitor
+ * buscar    | título (exato, pelo começo ou parecido)
+ * exportar  | arquivo (um livro em JSON por linha)
+ * </pre>
+ * <p>
+ * Os nomes em inglês ({@code add}, {@code reader}, {@code lend}, {@code return}, {@code search},
+ * {@code export}) também são aceitos. Um livro pode ser indicado pelo ID ou pelo título, e um
+ * leitor pelo ID ou pelo nome.
+ * </p>
+ * <p>
+ * Os comandos são lidos e respondidos por um único leitor e um único escritor com buffer. A
+ * gravação do acervo fica adiada até o fim do lote ({@link GerenciadorBiblioteca#adiarGravacao()}),
+ * em vez de acontecer a cada alteração, e no fim é exibido um resumo da vazão.
+ * </p>
+ */
+final class ExecutorLote {
+
+    /**
+     * Quantidade máxima de livros listados por uma busca.
+     */
+    static final int LIMITE_BUSCA = 20;
+
+    private final GerenciadorBiblioteca gerenciador;
+    private final Writer saida;
+
+    // Comando -> {executados, com erro}, na ordem em que apareceram
+    private final Map<String, int[]> contagens = new LinkedHashMap<>();
+
+    /**
+     * Cria um executor de lote.
+     * @param gerenciador O gerenciador da biblioteca.
+     * @param saida O destino das respostas e do resumo (deve ter buffer).
+     */
+    ExecutorLote(GerenciadorBiblioteca gerenciador, BufferedWriter saida) {
+        this.gerenciador = gerenciador;
+        this.saida = saida;
+    }
+
+    /**
+     * Executa todos os comandos da entrada, grava o acervo uma única vez e escreve o resumo.
+     * @param entrada Os comandos, um por linha.
+     * @return {@code true} se todos os comandos e a gravação final deram certo.
+     * @throws IOException Em caso de erro de leitura ou escrita.
+     */
+    boolean executar(BufferedReader entrada) throws IOException {
+        int comandos = 0;
+        int erros = 0;
+        long inicio = System.nanoTime();
+
+        gerenciador.adiarGravacao();
+        try {
+            String linha;
+            int numeroLinha = 0;
+            while ((linha = entrada.readLine()) != null) {
+                numeroLinha++;
+                String comando = linha.trim();
+                if (comando.isEmpty() || comando.startsWith("#")) {
+                    continue;
+                }
+                comandos++;
+                String erro = executarComando(comando.split("\\|", -1));
+                if (erro != null) {
+                    erros++;
+                    saida.write("ERRO linha " + numeroLinha + ": " + erro + "\n");
+                }
+            }
+        } finally {
+            long inicioGravacao = System.nanoTime();
+            boolean gravou = gerenciador.concluirGravacao();
+            long fim = System.nanoTime();
+            if (!gravou) {
+                erros++;
+                saida.write("ERRO: não foi possível gravar o acervo.\n");
+            }
+            escreverResumo(comandos, erros, fim - inicio, fim - inicioGravacao);
+            saida.flush();
+        }
+        return erros == 0;
+    }
+
+    /**
+     * Executa um comando já separado em campos.
+     * @return A mensagem de erro, ou {@code null} se o comando deu certo.
+     */
+    private String executarComando(String[] campos) throws IOException {
+        for (int i = 0; i < campos.length; i++) {
+            campos[i] = campos[i].trim();
+        }
+        String nome = campos[0].toLowerCase(Locale.ROOT);
+        String erro;
+        try {
+            switch (nome) {
+                case "adicionar":
+                case "add":
+                    nome = "adicionar";
+                    erro = adicionar(campos);
+                    break;
+                case "leitor":
+                case "reader":
+                    nome = "leitor";
+                    erro = cadastrarLeitor(campos);
+                    break;
+                case "emprestar":
+                case "lend":
+                    nome = "emprestar";
+                    erro = emprestar(campos);
+                    break;
+                case "devolver":
+                case "return":
+                    nome = "devolver";
+                    erro = devolver(campos);
+                    break;
+                case "buscar":
+                case "search":
+                    nome = "buscar";
+                    erro = buscar(campos);
+                    break;
+                case "exportar":
+                case "export":
+                    nome = "exportar";
+                    erro = exportar(campos);
+                    break;
+                default:
+                    return "comando desconhecido: " + campos[0];
+            }
+        } catch (NumberFormatException e) {
+            erro = "número inválido (" + e.getMessage() + ")";
+        }
+
+        int[] contagem = contagens.computeIfAbsent(nome, chave -> new int[2]);
+        contagem[0]++;
+        if (erro != null) {
+            contagem[1]++;
+        }
+        return erro;
+    }
+
+    // =========================================================================
+    // Comandos
+    // =========================================================================
+
+    private String adicionar(String[] campos) throws IOException {
+        if (campos.length < 7) {
+            return "uso: adicionar | título | autor | nacionalidade | páginas | ano | preço [| exemplares]";
+        }
+        int numPags = Integer.parseInt(campos[4]);
+        int anoPub = Integer.parseInt(campos[5]);
+        double preco = Double.parseDouble(campos[6].replace(',', '.'));
+        int numExemplares = (campos.length > 7) ? Integer.parseInt(campos[7]) : 1;
+
+        if (!gerenciador.addLivro(campos[1], new Autor(campos[2], campos[3]), numPags, anoPub, preco, numExemplares)) {
+            return "o livro '" + campos[1] + "' já existe (mesmo título e autor)";
+        }
+        Livro livro = gerenciador.buscarLivroPorTituloEAutor(campos[1], campos[2]);
+        saida.write("adicionado " + livro.getIdLivro() + " " + livro.getTitulo() + "\n");
+        return null;
+    }
+
+    private String cadastrarLeitor(String[] campos) throws IOException {
+        if (campos.length < 2 || campos[1].isEmpty()) {
+            return "uso: leitor | nome | telefone | email [| categoria]";
+        }
+        Leitor.Categoria categoria = Leitor.Categoria.GRADUACAO;
+        if (campos.length > 4 && !campos[4].isEmpty()) {
+            try {
+                categoria = Leitor.Categoria.valueOf(campos[4].toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                return "categoria desconhecida: " + campos[4] + " (use " + Arrays.toString(Leitor.Categoria.values()) + ")";
+            }
+        }
+        Leitor leitor = new Leitor(campos[1], (campos.length > 2) ? campos[2] : "", (campos.length > 3) ? campos[3] : "", categoria);
+        gerenciador.registrarLeitor(leitor);
+        saida.write("leitor " + leitor.getId() + " " + leitor.getNome() + "\n");
+        return null;
+    }
+
+    private String emprestar(String[] campos) throws IOException {
+        if (campos.length < 3) {
+            return "uso: emprestar | livro | leitor";
+        }
+        Livro livro = localizarLivro(campos[1]);
+        Leitor leitor = localizarLeitor(campos[2]);
+        if (livro == null || leitor == null) {
+            return (livro == null) ? "livro não encontrado: " + campos[1] : "leitor não encontrado: " + campos[2];
+        }
+        if (!gerenciador.emprestarLivro(livro.getIdLivro(), leitor)) {
+            if (gerenciador.getQuantidadeEmprestimos(leitor) >= gerenciador.getLimiteEmprestimos(leitor)) {
+                return leitor.getNome() + " já atingiu o limite de " + gerenciador.getLimiteEmprestimos(leitor) + " empréstimos";
+            }
+            return "'" + livro.getTitulo() + "' sem exemplar disponível ou já emprestado a " + leitor.getNome();
+        }
+        saida.write("emprestado " + livro.getIdLivro() + " para " + leitor.getNome() + "\n");
+        return null;
+    }
+
+    private String devolver(String[] campos) throws IOException {
+        if (campos.length < 3) {
+            return "uso: devolver | livro | leitor";
+        }
+        Livro livro = localizarLivro(campos[1]);
+        Leitor leitor = localizarLeitor(campos[2]);
+        if (livro == null || leitor == null) {
+            return (livro == null) ? "livro não encontrado: " + campos[1] : "leitor não encontrado: " + campos[2];
+        }
+        if (!gerenciador.devolverLivro(livro.getIdLivro(), leitor)) {
+            return "'" + livro.getTitulo() + "' não está emprestado a " + leitor.getNome();
+        }
+        saida.write("devolvido " + livro.getIdLivro() + " por " + leitor.getNome() + "\n");
+        return null;
+    }
+
+    private String buscar(String[] campos) throws IOException {
+        if (campos.length < 2 || campos[1].isEmpty()) {
+            return "uso: buscar | título";
+        }
+        Livro exato = gerenciador.exibeLivro(campos[1]);
+        List<Livro> encontrados = (exato != null) ? List.of(exato)
+                : gerenciador.listLivrosPorPrefixoTitulo(campos[1], LIMITE_BUSCA);
+        if (!encontrados.isEmpty()) {
+            for (Livro livro : encontrados) {
+                saida.write("livro " + livro.getIdLivro() + " " + livro.getTitulo() + " (" + livro.getAutor().getNome()
+                        + ") " + livro.getExemplaresDisponiveis() + "/" + livro.getNumExemplares() + "\n");
+            }
+            return null;
+        }
+        List<String> sugestoes = gerenciador.sugerirTitulos(campos[1], 5);
+        if (sugestoes.isEmpty()) {
+            return "nenhum livro encontrado: " + campos[1];
+        }
+        saida.write("sugestões para '" + campos[1] + "': " + String.join("; ", sugestoes) + "\n");
+        return null;
+    }
+
+    private String exportar(String[] campos) throws IOException {
+        if (campos.length < 2 || campos[1].isEmpty()) {
+            return "uso: exportar | arquivo";
+        }
+        int quantidade = 0;
+        try (BufferedWriter arquivo = Files.newBufferedWriter(Paths.get(campos[1]))) {
+            for (Livro livro : gerenciador.percorrerLivros()) {
+                Json.escreverLivro(livro, arquivo);
+                arquivo.write('\n');
+                quantidade++;
+            }
+        } catch (IOException e) {
+            return "não foi possível exportar para " + campos[1] + ": " + e.getMessage();
+        }
+        saida.write("exportados " + quantidade + " livros para " + campos[1] + "\n");
+        return null;
+    }
+
+    // =========================================================================
+    // Métodos Auxiliares
+    // =========================================================================
+
+    /**
+     * Localiza um livro pelo ID ou, se não houver, pelo título.
+     */
+    private Livro localizarLivro(String idOuTitulo) {
+        Livro livro = gerenciador.buscarLivroPorID(idOuTitulo);
+        return (livro != null) ? livro : gerenciador.exibeLivro(idOuTitulo);
+    }
+
+    /**
+     * Localiza um leitor cadastrado pelo ID ou, se não houver, pelo nome (ignora maiúsculas/minúsculas).
+     */
+    private Leitor localizarLeitor(String idOuNome) {
+        Leitor leitor = gerenciador.buscarLeitorPorID(idOuNome);
+        if (leitor != null) {
+            return leitor;
+        }
+        for (Leitor cadastrado : gerenciador.getLeitores()) {
+            if (cadastrado.getNome().equalsIgnoreCase(idOuNome)) {
+                return cadastrado;
+            }
+        }
+        return null;
+    }
+
+    private void escreverResumo(int comandos, int erros, long nanosTotal, long nanosGravacao) throws IOException {
+        double segundos = nanosTotal / 1e9;
+        saida.write(String.format(Locale.ROOT, "%n===== Resumo do lote =====%n"));
+        for (Map.Entry<String, int[]> contagem : contagens.entrySet()) {
+            saida.write(String.format(Locale.ROOT, "%-10s %8d (%d com erro)%n",
+                    contagem.getKey(), contagem.getValue()[0], contagem.getValue()[1]));
+        }
+        saida.write(String.format(Locale.ROOT, "%d comandos, %d com erro, em %.3f s (%.0f comandos/s); gravação final: %.1f ms%n",
+                comandos, erros, segundos, (segundos > 0) ? comandos / segundos : 0.0, nanosGravacao / 1e6));
+    }
+}
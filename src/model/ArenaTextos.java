@@ -0,0 +1,141 @@
+package model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Depósito de textos em UTF-8, guardados lado a lado em grandes vetores de bytes.
+ * <p>
+ * Em vez de um {@link String} por título ou nome (cabeçalho do objeto, vetor interno e
+ * campos), cada texto ocupa apenas os seus bytes num bloco compartilhado e é identificado
+ * por uma referência ({@code long}) com o bloco, a posição e o tamanho. Os blocos não têm
+ * referências para outros objetos, o que também deixa pouco trabalho para o coletor de lixo.
+ * </p>
+ * <p>
+ * O depósito só cresce: um texto substituído (ex.: título editado) continua ocupando os
+ * seus bytes. Por isso só recebe textos de objetos que vivem muito (o acervo residente), e
+ * não de cada objeto decodificado. O texto é decodificado a cada leitura, então quem o usa várias vezes deve
+ * guardar o {@link String} devolvido. A referência deve ser publicada num campo
+ * {@code volatile}, para que outras threads vejam os bytes já gravados.
+ * </p>
+ */
+public final class ArenaTextos {
+
+	/**
+	 * Depósito usado pelos livros do acervo residente (ver {@link Livro#compactarTextos()}).
+	 */
+	public static final ArenaTextos COMPARTILHADA = new ArenaTextos();
+
+	/**
+	 * Referência que representa {@code null}.
+	 */
+	public static final long NULO = -1;
+
+	// Referência: 24 bits para o bloco, 20 para a posição e 20 para o tamanho
+	private static final int BITS_TAMANHO = 20;
+	private static final int BITS_POSICAO = 20;
+	private static final int TAMANHO_BLOCO = 1 << BITS_POSICAO;
+
+	/**
+	 * Maior texto aceito, em bytes (UTF-8).
+	 */
+	public static final int MAIOR_TEXTO = TAMANHO_BLOCO - 1;
+
+	private volatile byte[][] blocos = new byte[0][];
+	private int posicao = TAMANHO_BLOCO; // Força a criação do primeiro bloco
+	private long bytesUsados;
+
+	/**
+	 * Guarda um texto e retorna a referência para lê-lo.
+	 * @param texto O texto (pode ser {@code null}).
+	 * @return A referência do texto, ou {@link #NULO}.
+	 * @throws IllegalArgumentException Se o texto passar de {@link #MAIOR_TEXTO} bytes.
+	 */
+	public long guardar(String texto) {
+		if (texto == null) {
+			return NULO;
+		}
+		byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > MAIOR_TEXTO) {
+			throw new IllegalArgumentException("Texto com " + bytes.length + " bytes (máximo " + MAIOR_TEXTO + ").");
+		}
+
+		synchronized (this) {
+			if (posicao + bytes.length > TAMANHO_BLOCO) {
+				// O texto não cabe no fim do bloco atual: começa um novo
+				byte[][] novos = Arrays.copyOf(blocos, blocos.length + 1);
+				novos[novos.length - 1] = new byte[TAMANHO_BLOCO];
+				blocos = novos;
+				posicao = 0;
+			}
+			int bloco = blocos.length - 1;
+			System.arraycopy(bytes, 0, blocos[bloco], posicao, bytes.length);
+			long referencia = ((long) bloco << (BITS_POSICAO + BITS_TAMANHO))
+					| ((long) posicao << BITS_TAMANHO) | bytes.length;
+			posicao += bytes.length;
+			bytesUsados += bytes.length;
+			return referencia;
+		}
+	}
+
+	/**
+	 * Lê um texto guardado.
+	 * @param referencia A referência devolvida por {@link #guardar(String)}.
+	 * @return O texto, ou {@code null} para {@link #NULO}.
+	 */
+	public String ler(long referencia) {
+		if (referencia == NULO) {
+			return null;
+		}
+		byte[] bloco = blocos[(int) (referencia >>> (BITS_POSICAO + BITS_TAMANHO))];
+		int inicio = (int) (referencia >>> BITS_TAMANHO) & (TAMANHO_BLOCO - 1);
+		int tamanho = (int) referencia & ((1 << BITS_TAMANHO) - 1);
+		return new String(bloco, inicio, tamanho, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Acrescenta um texto guardado ao fim de um {@link StringBuilder}, decodificando os bytes
+	 * direto nele, sem criar um {@link String}.
+	 * @param referencia A referência devolvida por {@link #guardar(String)}.
+	 * @param destino Onde acrescentar o texto ({@code "null"} para {@link #NULO}, como no {@code append}).
+	 */
+	public void anexar(long referencia, StringBuilder destino) {
+		if (referencia == NULO) {
+			destino.append((String) null);
+			return;
+		}
+		byte[] bloco = blocos[(int) (referencia >>> (BITS_POSICAO + BITS_TAMANHO))];
+		int i = (int) (referencia >>> BITS_TAMANHO) & (TAMANHO_BLOCO - 1);
+		int fim = i + ((int) referencia & ((1 << BITS_TAMANHO) - 1));
+		while (i < fim) {
+			int b = bloco[i++];
+			if (b >= 0) {
+				destino.append((char) b); // ASCII
+				continue;
+			}
+			// Os textos vêm de String.getBytes(UTF_8): as sequências são sempre completas
+			int extras = ((b & 0xE0) == 0xC0) ? 1 : ((b & 0xF0) == 0xE0) ? 2 : 3;
+			int codigo = b & (0x3F >> extras);
+			for (; extras > 0 && i < fim; extras--) {
+				codigo = (codigo << 6) | (bloco[i++] & 0x3F);
+			}
+			destino.appendCodePoint(codigo);
+		}
+	}
+
+	/**
+	 * Retorna quantos bytes de texto já foram guardados.
+	 * @return O total de bytes usados.
+	 */
+	public synchronized long getBytesUsados() {
+		return bytesUsados;
+	}
+
+	/**
+	 * Retorna quantos bytes os blocos ocupam na memória.
+	 * @return O total de bytes reservados.
+	 */
+	public long getBytesReservados() {
+		return (long) blocos.length * TAMANHO_BLOCO;
+	}
+}
@@ -1,71 +1,142 @@
-package model;
-
-import java.io.Serializable;
-
-/**
- * Classe que representa o Autor de um livro.
- * <p>
- * Esta classe herda atributos básicos (nome, id) e comportamento (equals, hashCode, compareTo)
- * da classe {@link Pessoa}, aplicando o conceito de Herança.
- * Implementa {@link Serializable} para suportar persistência em arquivos.
- * </p>
- */
-public class Autor extends Pessoa implements Serializable {
-	
-	// Adicionado para suportar serialização.
-	private static final long serialVersionUID = 1L; 
-	
-	private String nacionalidade;
-	
-	/**
-	 * Construtor completo para criar uma nova instância de Autor.
-	 * <p>Chama o construtor da classe base (Pessoa) para inicializar nome e ID.</p>
-	 * @param nome O nome completo do autor.
-	 * @param nacionalidade A nacionalidade do autor.
-	 */
-	public Autor(String nome, String nacionalidade) {
-		super(nome); // Chama o construtor de Pessoa para setar nome e ID
-		this.nacionalidade = nacionalidade;
-	}
-	
-	/**
-	 * Construtor vazio (necessário para processos de desserialização).
-	 */
-	public Autor() {
-		super();
-	}
-
-	// --- Getters e Setters específicos de Autor ---
-	
-	/**
-	 * Retorna a nacionalidade do autor.
-	 * @return A nacionalidade do autor.
-	 */
-	public String getNacionalidade() {
-		return nacionalidade;
-	}
-	
-	/**
-	 * Define a nacionalidade do autor.
-	 * @param nacionalidade A nova nacionalidade do autor.
-	 */
-	public void setNacionalidade(String nacionalidade) {
-		this.nacionalidade = nacionalidade;
-	}
-	
-	// --- Métodos de Representação ---
-
-	/**
-	 * Retorna a representação textual formatada do Autor.
-	 * O formato é: "Nome (Nacionalidade)".
-	 * @return Uma string representando o autor.
-	 */
-	@Override
-	public String toString() {
-		// O método getNome() é herdado da classe Pessoa
-		return getNome() + " (" + nacionalidade + ")";
-	}
-	
-	// Os métodos equals(), hashCode() e compareTo() são herdados diretamente da classe Pessoa
-	// e utilizam o ID e o Nome para comparação/ordenação.
+package model;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+
+/**
+ * Classe que representa o Autor de um livro.
+ * <p>
+ * Esta classe herda atributos básicos (nome, id) e comportamento (equals, hashCode, compareTo)
+ * da classe {@link Pessoa}, aplicando o conceito de Herança.
+ * Implementa {@link Serializable} para suportar persistência em arquivos.
+ * </p>
+ */
+public class Autor extends Pessoa implements Serializable {
+	
+	// Adicionado para suportar serialização.
+	private static final long serialVersionUID = 1L; 
+	
+	// Campos gravados na serialização (os mesmos de antes da compactação)
+	private static final ObjectStreamField[] serialPersistentFields = {
+			new ObjectStreamField("nacionalidade", String.class)
+	};
+
+	private static final ArenaTextos ARENA = ArenaTextos.COMPARTILHADA;
+
+	// Nacionalidade em texto comum, até ser compactada; depois, null
+	private volatile String nacionalidadeTexto;
+	// Referência da nacionalidade na arena, depois de compactada
+	private volatile long nacionalidade = ArenaTextos.NULO;
+	
+	/**
+	 * Construtor completo para criar uma nova instância de Autor.
+	 * <p>Chama o construtor da classe base (Pessoa) para inicializar nome e ID.</p>
+	 * @param nome O nome completo do autor.
+	 * @param nacionalidade A nacionalidade do autor.
+	 */
+	public Autor(String nome, String nacionalidade) {
+		super(nome); // Chama o construtor de Pessoa para setar nome e ID
+		this.nacionalidadeTexto = nacionalidade;
+	}
+	
+	/**
+	 * Construtor vazio (necessário para processos de desserialização).
+	 */
+	public Autor() {
+		super();
+	}
+
+	// --- Getters e Setters específicos de Autor ---
+	
+	/**
+	 * Retorna a nacionalidade do autor.
+	 * @return A nacionalidade do autor.
+	 */
+	public String getNacionalidade() {
+		String texto = nacionalidadeTexto;
+		return (texto != null) ? texto : ARENA.ler(nacionalidade);
+	}
+	
+	/**
+	 * Define a nacionalidade do autor.
+	 * @param nacionalidade A nova nacionalidade do autor.
+	 */
+	public synchronized void setNacionalidade(String nacionalidade) {
+		if (nacionalidade == null) {
+			this.nacionalidade = ArenaTextos.NULO;
+		}
+		this.nacionalidadeTexto = nacionalidade;
+	}
+
+	/**
+	 * Passa o nome e a nacionalidade para a {@link ArenaTextos} (ver {@link Livro#compactarTextos()}).
+	 */
+	@Override
+	synchronized void compactarTextos() {
+		super.compactarTextos();
+		String texto = nacionalidadeTexto;
+		if (texto != null) {
+			nacionalidade = ARENA.guardar(texto);
+			nacionalidadeTexto = null;
+		}
+	}
+	
+	// --- Métodos de Representação ---
+
+	/**
+	 * Retorna a representação textual formatada do Autor.
+	 * O formato é: "Nome (Nacionalidade)".
+	 * @return Uma string representando o autor.
+	 */
+	@Override
+	public String toString() {
+		return anexarDescricao(new StringBuilder(48)).toString();
+	}
+
+	/**
+	 * Acrescenta a representação textual do Autor (a mesma de {@link #toString()}) ao fim de
+	 * um {@link StringBuilder}, sem criar objetos.
+	 * @param destino Onde acrescentar.
+	 * @return O próprio {@code destino}.
+	 */
+	public StringBuilder anexarDescricao(StringBuilder destino) {
+		// O método anexarNome() é herdado da classe Pessoa
+		anexarNome(destino);
+		destino.append(" (");
+		String texto = nacionalidadeTexto;
+		if (texto != null) {
+			destino.append(texto);
+		} else {
+			ARENA.anexar(nacionalidade, destino);
+		}
+		return destino.append(')');
+	}
+
+	/**
+	 * Serializa a nacionalidade como texto, no mesmo formato dos arquivos já gravados.
+	 * @param out O fluxo de saída.
+	 * @throws IOException Em caso de erro de escrita.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField campos = out.putFields();
+		campos.put("nacionalidade", getNacionalidade());
+		out.writeFields();
+	}
+
+	/**
+	 * Desserializa a nacionalidade, como texto comum (ver {@link Livro#compactarTextos()}).
+	 * @param in O fluxo de entrada.
+	 * @throws IOException Em caso de erro de leitura.
+	 * @throws ClassNotFoundException Se a classe de algum campo não for encontrada.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		nacionalidadeTexto = (String) in.readFields().get("nacionalidade", null);
+		nacionalidade = ArenaTextos.NULO;
+	}
+	
+	// Os métodos equals(), hashCode() e compareTo() são herdados diretamente da classe Pessoa
+	// e utilizam o ID e o Nome para comparação/ordenação.
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+package model;
+
+import java.io.Serializable;
+
+/**
+ * Classe que representa uma alteração do acervo, entregue a outros sistemas (ex.: o site do
+ * catálogo) pelo fluxo de eventos da biblioteca.
+ * <p>
+ * Cada evento tem um número de sequência único e crescente: quem o recebe guarda a última
+ * sequência processada e, ao voltar, pede os eventos seguintes a ela. Os eventos são
+ * imutáveis e apenas acrescentados ao fluxo.
+ * </p>
+ */
+public class EventoAcervo implements Serializable {
+
+	// Adicionado para suportar serialização.
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Enum para representar o tipo de alteração.
+	 */
+	public enum Tipo {
+		/** Um novo título entrou no acervo */
+		LIVRO_ADICIONADO,
+		/** Os dados de um título (título, autor, páginas, ano, preço) foram editados */
+		LIVRO_EDITADO,
+		/** Um título saiu do acervo */
+		LIVRO_REMOVIDO,
+		/** Novos exemplares de um título foram cadastrados */
+		EXEMPLARES_ADICIONADOS,
+		/** Um exemplar saiu com um leitor */
+		EMPRESTIMO,
+		/** Um exemplar voltou para a biblioteca */
+		DEVOLUCAO
+	}
+
+	private final long sequencia;
+	private final long instante; // Momento do evento (milissegundos desde a época Unix)
+	private final Tipo tipo;
+	private final String idLivro;
+	private final String idLeitor; // Apenas em empréstimos e devoluções
+	private final int exemplar;    // Apenas em empréstimos e devoluções; -1 nos demais
+
+	/**
+	 * Construtor completo de um evento do acervo.
+	 * @param sequencia O número de sequência do evento (a partir de 1).
+	 * @param instante O momento do evento, em milissegundos desde a época Unix.
+	 * @param tipo O {@link Tipo} do evento.
+	 * @param idLivro O ID do livro alterado.
+	 * @param idLeitor O ID do leitor envolvido (ou {@code null}, fora da circulação).
+	 * @param exemplar O índice do exemplar envolvido (ou {@code -1}, fora da circulação).
+	 */
+	public EventoAcervo(long sequencia, long instante, Tipo tipo, String idLivro, String idLeitor, int exemplar) {
+		this.sequencia = sequencia;
+		this.instante = instante;
+		this.tipo = tipo;
+		this.idLivro = idLivro;
+		this.idLeitor = idLeitor;
+		this.exemplar = exemplar;
+	}
+
+	// --- Getters ---
+
+	/**
+	 * Retorna o número de sequência do evento.
+	 * @return A sequência, maior que a de todos os eventos anteriores.
+	 */
+	public long getSequencia() {
+		return sequencia;
+	}
+
+	/**
+	 * Retorna o momento do evento.
+	 * @return O instante em milissegundos desde a época Unix.
+	 */
+	public long getInstante() {
+		return instante;
+	}
+
+	/**
+	 * Retorna o tipo do evento.
+	 * @return O {@link Tipo} da alteração.
+	 */
+	public Tipo getTipo() {
+		return tipo;
+	}
+
+	/**
+	 * Retorna o ID do livro alterado.
+	 * @return O ID do livro.
+	 */
+	public String getIdLivro() {
+		return idLivro;
+	}
+
+	/**
+	 * Retorna o ID do leitor envolvido num empréstimo ou devolução.
+	 * @return O ID do leitor, ou {@code null} nos demais eventos.
+	 */
+	public String getIdLeitor() {
+		return idLeitor;
+	}
+
+	/**
+	 * Retorna o exemplar envolvido num empréstimo ou devolução.
+	 * @return O índice do exemplar, ou {@code -1} nos demais eventos.
+	 */
+	public int getExemplar() {
+		return exemplar;
+	}
+
+	/**
+	 * Retorna a representação textual do evento.
+	 * @return Uma string no formato "#sequência TIPO livro".
+	 */
+	@Override
+	public String toString() {
+		return "#" + sequencia + " " + tipo + " " + idLivro + ((idLeitor != null) ? " (leitor " + idLeitor + ")" : "");
+	}
+}
@@ -0,0 +1,112 @@
+package model;
+
+import java.io.Serializable;
+
+/**
+ * Classe que representa um evento do histórico de circulação de um livro.
+ * <p>
+ * Cada empréstimo ou devolução gera um evento imutável, guardando quem pegou
+ * qual livro, quando e (no caso da devolução) por quanto tempo ficou com ele.
+ * Os eventos são apenas acrescentados ao histórico, nunca alterados.
+ * </p>
+ */
+public class EventoEmprestimo implements Serializable {
+
+	// Adicionado para suportar serialização.
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Enum para representar o tipo de movimentação registrada.
+	 */
+	public enum Tipo {
+		/** O livro saiu da biblioteca com um leitor */
+		EMPRESTIMO,
+		/** O livro voltou para a biblioteca */
+		DEVOLUCAO
+	}
+
+	private final long instante; // Momento do evento (milissegundos desde a época Unix)
+	private final Tipo tipo;
+	private final String idLivro;
+	private final String idLeitor;
+	private final String nomeLeitor;
+	private final long duracao; // Tempo com o leitor (apenas na devolução), em milissegundos
+
+	/**
+	 * Construtor completo de um evento de circulação.
+	 * @param instante O momento do evento, em milissegundos desde a época Unix.
+	 * @param tipo O {@link Tipo} do evento.
+	 * @param idLivro O ID do livro movimentado.
+	 * @param idLeitor O ID do leitor envolvido.
+	 * @param nomeLeitor O nome do leitor no momento do evento.
+	 * @param duracao O tempo do empréstimo em milissegundos (0 para empréstimos).
+	 */
+	public EventoEmprestimo(long instante, Tipo tipo, String idLivro, String idLeitor,
+			String nomeLeitor, long duracao) {
+		this.instante = instante;
+		this.tipo = tipo;
+		this.idLivro = idLivro;
+		this.idLeitor = idLeitor;
+		this.nomeLeitor = nomeLeitor;
+		this.duracao = duracao;
+	}
+
+	// --- Getters ---
+
+	/**
+	 * Retorna o momento do evento.
+	 * @return O instante em milissegundos desde a época Unix.
+	 */
+	public long getInstante() {
+		return instante;
+	}
+
+	/**
+	 * Retorna o tipo do evento.
+	 * @return O {@link Tipo} (EMPRESTIMO ou DEVOLUCAO).
+	 */
+	public Tipo getTipo() {
+		return tipo;
+	}
+
+	/**
+	 * Retorna o ID do livro movimentado.
+	 * @return O ID do livro.
+	 */
+	public String getIdLivro() {
+		return idLivro;
+	}
+
+	/**
+	 * Retorna o ID do leitor envolvido.
+	 * @return O ID do leitor.
+	 */
+	public String getIdLeitor() {
+		return idLeitor;
+	}
+
+	/**
+	 * Retorna o nome do leitor no momento do evento.
+	 * @return O nome do leitor.
+	 */
+	public String getNomeLeitor() {
+		return nomeLeitor;
+	}
+
+	/**
+	 * Retorna por quanto tempo o livro ficou com o leitor.
+	 * @return A duração em milissegundos (sempre 0 para eventos de empréstimo).
+	 */
+	public long getDuracao() {
+		return duracao;
+	}
+
+	/**
+	 * Retorna a representação textual do evento.
+	 * @return Uma string no formato "TIPO - Leitor (instante)".
+	 */
+	@Override
+	public String toString() {
+		return tipo + " - " + nomeLeitor + " (" + java.time.Instant.ofEpochMilli(instante) + ")";
+	}
+}
@@ -0,0 +1,204 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chave de 128 bits das entidades: as duas metades ({@code long}) do UUID.
+ * <p>
+ * Os IDs gerados pelo sistema são UUIDs e são comparados apenas pelas duas metades, sem
+ * {@link String}s. O texto do ID (ex.: {@code "3f1c...-..."}) é montado só para exibição e
+ * para a gravação em arquivo, que continua com o ID textual.
+ * </p>
+ * <p>
+ * Um ID fora da forma canônica (ex.: vindo de um arquivo editado à mão) não se perde: a metade
+ * alta fica zerada e a baixa recebe um código próprio daquele texto, registrado uma única vez.
+ * Nenhum UUID gerado tem a metade alta zerada, e o mesmo texto sempre recebe o mesmo código.
+ * </p>
+ */
+public final class Identificador {
+
+	/**
+	 * Metade baixa de uma entidade sem ID (com a metade alta zerada).
+	 */
+	public static final long NULO = -1;
+
+	private static final int TAMANHO_UUID = 36;
+
+	// Valor de cada dígito hexadecimal minúsculo; -1 para os demais caracteres ASCII
+	private static final byte[] DIGITOS = new byte[128];
+
+	static {
+		Arrays.fill(DIGITOS, (byte) -1);
+		for (int d = 0; d < 16; d++) {
+			DIGITOS[Character.forDigit(d, 16)] = (byte) d;
+		}
+	}
+
+	// IDs fora do formato UUID: texto -> código, e código -> texto
+	private static final Map<String, Long> CODIGOS = new ConcurrentHashMap<>();
+	private static final List<String> TEXTOS = new ArrayList<>();
+
+	private Identificador() {
+	}
+
+	/**
+	 * Retorna a metade alta de um ID textual, sem criar objetos quando o ID é um UUID.
+	 * @param id O ID textual.
+	 * @return A metade alta ({@code 0} se o ID não for um UUID).
+	 */
+	public static long alta(String id) {
+		if (id == null || id.length() != TAMANHO_UUID) {
+			return 0;
+		}
+		// Uma única passagem: valida o texto inteiro e lê a metade alta (posições 0 a 17)
+		int erros = (id.charAt(8) ^ '-') | (id.charAt(13) ^ '-') | (id.charAt(18) ^ '-') | (id.charAt(23) ^ '-');
+		long alta = 0;
+		for (int i = 0; i < 18; i++) {
+			if (i == 8 || i == 13) continue;
+			char c = id.charAt(i);
+			int digito = DIGITOS[c & 0x7F];
+			erros |= (c & 0xFF80) | (digito & 0x80); // Fora do ASCII ou fora da tabela
+			alta = (alta << 4) | (digito & 0xF);
+		}
+		for (int i = 19; i < TAMANHO_UUID; i++) {
+			if (i == 23) continue;
+			char c = id.charAt(i);
+			erros |= (c & 0xFF80) | (DIGITOS[c & 0x7F] & 0x80);
+		}
+		return (erros == 0) ? alta : 0;
+	}
+
+	/**
+	 * Retorna a metade baixa de um ID textual, sem criar objetos quando o ID é um UUID.
+	 * <p>Um texto que nenhuma entidade usa como ID resulta em {@link #NULO}.</p>
+	 * @param id O ID textual.
+	 * @return A metade baixa.
+	 */
+	public static long baixa(String id) {
+		return baixa(id, alta(id));
+	}
+
+	/**
+	 * Retorna a metade baixa de um ID cuja metade alta já foi obtida com {@link #alta(String)},
+	 * sem validar o texto de novo.
+	 * @param id O ID textual.
+	 * @param alta A metade alta do mesmo ID.
+	 * @return A metade baixa.
+	 */
+	public static long baixa(String id, long alta) {
+		if (alta != 0) {
+			return metadeBaixa(id);
+		}
+		Long codigo = (id == null) ? null : CODIGOS.get(id);
+		return (codigo == null) ? NULO : codigo;
+	}
+
+	/**
+	 * Monta o ID textual, para exibição ou gravação.
+	 * @param alta A metade alta.
+	 * @param baixa A metade baixa.
+	 * @return O ID, ou {@code null} se a entidade não tiver ID.
+	 */
+	public static String texto(long alta, long baixa) {
+		if (alta != 0) {
+			return new UUID(alta, baixa).toString();
+		}
+		if (baixa == NULO) {
+			return null;
+		}
+		synchronized (TEXTOS) {
+			return TEXTOS.get((int) baixa);
+		}
+	}
+
+	/**
+	 * Calcula o código hash de um ID.
+	 * @param alta A metade alta.
+	 * @param baixa A metade baixa.
+	 * @return O código hash.
+	 */
+	public static int hash(long alta, long baixa) {
+		return Long.hashCode(alta ^ baixa);
+	}
+
+	/**
+	 * Calcula o {@link String#hashCode()} do ID textual sem montar o texto.
+	 * <p>É o mesmo valor de {@code texto(alta, baixa).hashCode()}, para quem já distribuía
+	 * entidades pelo hash do texto (ex.: os fragmentos do acervo).</p>
+	 * @param alta A metade alta.
+	 * @param baixa A metade baixa.
+	 * @return O código hash do texto ({@code 0} se a entidade não tiver ID).
+	 */
+	public static int hashTexto(long alta, long baixa) {
+		if (alta == 0) {
+			String texto = texto(alta, baixa);
+			return (texto != null) ? texto.hashCode() : 0;
+		}
+		// Os 32 dígitos hexadecimais minúsculos, com os hífens da forma 8-4-4-4-12
+		int h = 0;
+		for (int i = 0; i < 32; i++) {
+			if (i == 8 || i == 12 || i == 16 || i == 20) {
+				h = 31 * h + '-';
+			}
+			long metade = (i < 16) ? alta : baixa;
+			int digito = (int) (metade >>> (60 - 4 * (i % 16))) & 0xF;
+			h = 31 * h + Character.forDigit(digito, 16);
+		}
+		return h;
+	}
+
+	/**
+	 * Compara dois IDs pelas metades, sem montar o texto.
+	 * <p>Entre UUIDs, a ordem é a mesma dos textos; os IDs fora do formato UUID vêm antes.</p>
+	 * @param altaA A metade alta do primeiro ID.
+	 * @param baixaA A metade baixa do primeiro ID.
+	 * @param altaB A metade alta do segundo ID.
+	 * @param baixaB A metade baixa do segundo ID.
+	 * @return Negativo, zero ou positivo, como em {@link Comparable#compareTo(Object)}.
+	 */
+	public static int comparar(long altaA, long baixaA, long altaB, long baixaB) {
+		int comparacao = Long.compareUnsigned(altaA, altaB);
+		return (comparacao != 0) ? comparacao : Long.compareUnsigned(baixaA, baixaB);
+	}
+
+	/**
+	 * Converte um ID textual nas duas metades, registrando o texto se ele não for um UUID.
+	 * <p>Diferente de {@link #baixa(String)}, um texto fora do formato UUID ainda não visto
+	 * recebe o seu código aqui.</p>
+	 * @param id O ID (pode ser {@code null}).
+	 * @return As metades alta e baixa, nessa ordem.
+	 */
+	public static long[] compactar(String id) {
+		if (id == null) {
+			return new long[] { 0, NULO };
+		}
+		long alta = alta(id);
+		if (alta != 0) {
+			return new long[] { alta, metadeBaixa(id) };
+		}
+		long codigo = CODIGOS.computeIfAbsent(id, texto -> {
+			synchronized (TEXTOS) {
+				TEXTOS.add(texto);
+				return (long) TEXTOS.size() - 1;
+			}
+		});
+		return new long[] { 0, codigo };
+	}
+
+	// Lê os 16 dígitos da metade baixa (posições 19 a 35, já validadas), pulando o hífen
+	private static long metadeBaixa(String id) {
+		long valor = 0;
+		for (int i = 19; i < TAMANHO_UUID; i++) {
+			char c = id.charAt(i);
+			if (c != '-') {
+				valor = (valor << 4) | DIGITOS[c];
+			}
+		}
+		return valor;
+	}
+}
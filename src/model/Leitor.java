@@ -1,91 +1,149 @@
-package model;
-
-import java.io.Serializable;
-
-/**
- * Classe que representa um Leitor (cliente) da biblioteca, ou seja,
- * a pessoa que pode pegar um livro emprestado.
- * <p>
- * Esta classe herda atributos básicos (nome, id) e comportamento (equals, hashCode, compareTo)
- * da classe {@link Pessoa}, utilizando o conceito de Herança.
- * Implementa {@link Serializable} para suportar persistência em arquivos.
- * </p>
- */
-public class Leitor extends Pessoa implements Serializable {
-	
-	// Adicionado para suportar serialização.
-	private static final long serialVersionUID = 1L; 
-	
-	// Atributos específicos do Leitor
-	private String telefone;
-	private String email;
-	
-	/**
-	 * Construtor completo para criar uma nova instância de Leitor.
-	 * <p>Chama o construtor da classe base (Pessoa) para inicializar nome e ID.</p>
-	 * @param nome O nome completo do leitor.
-	 * @param telefone O número de telefone de contato do leitor.
-	 * @param email O endereço de e-mail do leitor.
-	 */
-	public Leitor(String nome, String telefone, String email) {
-		super(nome); // Chama o construtor de Pessoa para setar nome e ID
-		this.telefone = telefone;
-		this.email = email;
-	}
-	
-	/**
-	 * Construtor vazio (necessário para processos de desserialização).
-	 */
-	public Leitor() {
-		super();
-	}
-
-	// --- Getters e Setters específicos de Leitor ---
-
-	/**
-	 * Retorna o número de telefone do leitor.
-	 * @return O telefone do leitor.
-	 */
-	public String getTelefone() {
-		return telefone;
-	}
-
-	/**
-	 * Define o número de telefone do leitor.
-	 * @param telefone O novo número de telefone.
-	 */
-	public void setTelefone(String telefone) {
-		this.telefone = telefone;
-	}
-
-	/**
-	 * Retorna o endereço de e-mail do leitor.
-	 * @return O e-mail do leitor.
-	 */
-	public String getEmail() {
-		return email;
-	}
-
-	/**
-	 * Define o endereço de e-mail do leitor.
-	 * @param email O novo endereço de e-mail.
-	 */
-	public void setEmail(String email) {
-		this.email = email;
-	}
-	
-	// --- Métodos de Representação ---
-
-	/**
-	 * Retorna a representação textual formatada do Leitor.
-	 * O formato é: "Nome (Telefone: [telefone])".
-	 * @return Uma string representando o leitor.
-	 */
-	@Override
-	public String toString() {
-		// O método getNome() é herdado da classe Pessoa
-		return getNome() + " (Telefone: " + telefone + ")";
-	}
-	
-	// Os métodos equals(), hashCode() e compareTo() são herdados da classe Pessoa.
+package model;
+
+import java.io.Serializable;
+
+/**
+ * Classe que representa um Leitor (cliente) da biblioteca, ou seja,
+ * a pessoa que pode pegar um livro emprestado.
+ * <p>
+ * Esta classe herda atributos básicos (nome, id) e comportamento (equals, hashCode, compareTo)
+ * da classe {@link Pessoa}, utilizando o conceito de Herança.
+ * Implementa {@link Serializable} para suportar persistência em arquivos.
+ * </p>
+ */
+public class Leitor extends Pessoa implements Serializable {
+	
+	// Adicionado para suportar serialização.
+	private static final long serialVersionUID = 1L; 
+	
+	/**
+	 * Vínculo do leitor com a universidade, que define quantos livros ele pode ter ao mesmo tempo.
+	 */
+	public enum Categoria {
+		/** Aluno de graduação */
+		GRADUACAO,
+		/** Aluno de pós-graduação */
+		POS_GRADUACAO,
+		/** Professor */
+		DOCENTE,
+		/** Técnico ou servidor administrativo */
+		SERVIDOR,
+		/** Leitor da comunidade externa */
+		EXTERNO
+	}
+	
+	// Atributos específicos do Leitor
+	private String telefone;
+	private String email;
+	// null nos leitores gravados antes das categorias, lidos como GRADUACAO
+	private Categoria categoria;
+	
+	/**
+	 * Construtor completo para criar uma nova instância de Leitor.
+	 * <p>Chama o construtor da classe base (Pessoa) para inicializar nome e ID.</p>
+	 * @param nome O nome completo do leitor.
+	 * @param telefone O número de telefone de contato do leitor.
+	 * @param email O endereço de e-mail do leitor.
+	 */
+	public Leitor(String nome, String telefone, String email) {
+		this(nome, telefone, email, Categoria.GRADUACAO);
+	}
+
+	/**
+	 * Construtor que também informa a categoria do leitor.
+	 * @param nome O nome completo do leitor.
+	 * @param telefone O número de telefone de contato do leitor.
+	 * @param email O endereço de e-mail do leitor.
+	 * @param categoria A {@link Categoria} do leitor.
+	 */
+	public Leitor(String nome, String telefone, String email, Categoria categoria) {
+		super(nome); // Chama o construtor de Pessoa para setar nome e ID
+		this.telefone = telefone;
+		this.email = email;
+		this.categoria = categoria;
+	}
+	
+	/**
+	 * Construtor vazio (necessário para processos de desserialização).
+	 */
+	public Leitor() {
+		super();
+	}
+
+	// --- Getters e Setters específicos de Leitor ---
+
+	/**
+	 * Retorna o número de telefone do leitor.
+	 * @return O telefone do leitor.
+	 */
+	public String getTelefone() {
+		return telefone;
+	}
+
+	/**
+	 * Define o número de telefone do leitor.
+	 * @param telefone O novo número de telefone.
+	 */
+	public void setTelefone(String telefone) {
+		this.telefone = telefone;
+	}
+
+	/**
+	 * Retorna o endereço de e-mail do leitor.
+	 * @return O e-mail do leitor.
+	 */
+	public String getEmail() {
+		return email;
+	}
+
+	/**
+	 * Define o endereço de e-mail do leitor.
+	 * @param email O novo endereço de e-mail.
+	 */
+	public void setEmail(String email) {
+		this.email = email;
+	}
+
+	/**
+	 * Retorna a categoria do leitor.
+	 * @return A {@link Categoria} do leitor ({@link Categoria#GRADUACAO} se não foi informada).
+	 */
+	public Categoria getCategoria() {
+		return (categoria != null) ? categoria : Categoria.GRADUACAO;
+	}
+
+	/**
+	 * Define a categoria do leitor.
+	 * <p>Os empréstimos em aberto continuam; o novo limite vale para os próximos.</p>
+	 * @param categoria A nova {@link Categoria}.
+	 */
+	public void setCategoria(Categoria categoria) {
+		this.categoria = categoria;
+	}
+	
+	// --- Métodos de Representação ---
+
+	/**
+	 * Retorna a representação textual formatada do Leitor.
+	 * O formato é: "Nome (Telefone: [telefone])".
+	 * @return Uma string representando o leitor.
+	 */
+	@Override
+	public String toString() {
+		return anexarDescricao(new StringBuilder(48)).toString();
+	}
+
+	/**
+	 * Acrescenta a representação textual do Leitor (a mesma de {@link #toString()}) ao fim de
+	 * um {@link StringBuilder}, sem criar objetos.
+	 * @param destino Onde acrescentar.
+	 * @return O próprio {@code destino}.
+	 */
+	public StringBuilder anexarDescricao(StringBuilder destino) {
+		// O método anexarNome() é herdado da classe Pessoa
+		anexarNome(destino);
+		return destino.append(" (Telefone: ").append(telefone).append(')');
+	}
+	
+	// Os métodos equals(), hashCode() e compareTo() são herdados da classe Pessoa.
 }
\ No newline at end of file
@@ -1,214 +1,693 @@
-package model;
-
-import java.io.Serializable;
-import java.util.Objects;
-import java.util.UUID;
-
-/**
- * Classe que representa um Livro na biblioteca.
- * <p>
- * Implementa {@link Comparable} para permitir a ordenação natural dos livros pelo título
- * e {@link Serializable} para suportar persistência em arquivos.
- * O empréstimo agora é representado pela referência a um objeto {@link Leitor}.
- * </p>
- */
-public class Livro implements Comparable<Livro>, Serializable {
-	
-	// Adicionado para suportar serialização. É uma prática recomendada.
-	private static final long serialVersionUID = 1L; 
-
-	private String idLivro;
-	private String titulo;
-	private Autor autor; // Referência ao objeto Autor
-	private int numPags;
-	private int anoPub;
-	private double preco;
-	
-	// Referencia o objeto Leitor para quem o livro foi emprestado.
-	private Leitor leitorEmprestimo; // null se não estiver emprestado
-	
-	
-	/**
-	 * Construtor principal para adicionar um novo livro à coleção.
-	 * <p>Um {@code idLivro} único é gerado automaticamente usando {@link UUID}.</p>
-	 * * @param titulo O título do livro.
-	 * @param autor O objeto {@link Autor} do livro.
-	 * @param numPags O número total de páginas.
-	 * @param anoPub O ano de publicação.
-	 * @param preco O preço do livro.
-	 */
-	public Livro(String titulo, Autor autor, int numPags, int anoPub, double preco) {
-		this.idLivro = UUID.randomUUID().toString(); // Gera um ID único e aleatório
-		this.titulo = titulo;
-		this.autor = autor;
-		this.numPags = numPags;
-		this.anoPub = anoPub;
-		this.preco = preco;
-		this.leitorEmprestimo = null; // Inicializa como não emprestado
-	}
-	
-	/**
-	 * Construtor vazio (necessário para processos de serialização/desserialização).
-	 */
-	public Livro() {
-	}
-
-	// --- Getters e Setters ---
-    /**
-     * Retorna o identificador único do livro.
-     * @return O ID único do livro.
-     */
-    public String getIdLivro() {
-        return idLivro;
-    }
-	/**
-	 * Retorna o título do livro.
-	 * @return O título.
-	 */
-	public String getTitulo() {
-		return titulo;
-	}
-	/**
-	 * Define o título do livro.
-	 * @param titulo O novo título.
-	 */
-	public void setTitulo(String titulo) {
-		this.titulo = titulo;
-	}
-	/**
-	 * Retorna o objeto Autor do livro.
-	 * @return O {@link Autor} do livro.
-	 */
-	public Autor getAutor() {
-		return autor;
-	}
-	/**
-	 * Define o objeto Autor do livro.
-	 * @param autor O novo {@link Autor} do livro.
-	 */
-	public void setAutor(Autor autor) {
-		this.autor = autor;
-	}
-	/**
-	 * Retorna o número de páginas.
-	 * @return O número de páginas.
-	 */
-	public int getNumPags() {
-		return numPags;
-	}
-	/**
-	 * Define o número de páginas.
-	 * @param numPags O novo número de páginas.
-	 */
-	public void setNumPags(int numPags) {
-		this.numPags = numPags;
-	}
-	/**
-	 * Retorna o ano de publicação.
-	 * @return O ano de publicação.
-	 */
-	public int getAnoPub() {
-		return anoPub;
-	}
-	/**
-	 * Define o ano de publicação.
-	 * @param anoPub O novo ano de publicação.
-	 */
-	public void setAnoPub(int anoPub) {
-		this.anoPub = anoPub;
-	}
-	/**
-	 * Retorna o preço do livro.
-	 * @return O preço do livro.
-	 */
-	public double getPreco() {
-		return preco;
-	}
-	/**
-	 * Define o preço do livro.
-	 * @param preco O novo preço.
-	 */
-	public void setPreco(double preco) {
-		this.preco = preco;
-	}
-	
-	/**
-	 * Retorna o objeto Leitor para o qual o livro foi emprestado.
-	 * @return O objeto {@link Leitor}, ou {@code null} se estiver disponível.
-	 */
-	public Leitor getLeitorEmprestimo() {
-		return leitorEmprestimo;
-	}
-	
-	/**
-	 * Define o objeto Leitor para o qual o livro foi emprestado (para empréstimo)
-	 * ou define como {@code null} (para devolução).
-	 * @param leitorEmprestimo O objeto {@link Leitor}.
-	 */
-	public void setLeitorEmprestimo(Leitor leitorEmprestimo) {
-		this.leitorEmprestimo = leitorEmprestimo;
-	}
-	
-	/**
-	 * Retorna uma string formatada com todas as informações do livro.
-	 * O preço é formatado para duas casas decimais.
-	 * @return Uma string detalhada do livro.
-	 */
-	public String exibeInformacoes() {
-		String emprestado;
-		if (leitorEmprestimo != null) {
-		    // Usa o toString() da classe Leitor
-			emprestado = "\nEmprestado para: " + leitorEmprestimo.toString(); 
-		} else {
-			emprestado = "\nStatus: Disponível";
-		}
-			
-		return "--- Livro ---\n" 
-			+ "Título: " + titulo 
-			+ "\nAutor: " + autor.toString() 
-			+ "\nNúmero de págs.: " + numPags 
-			+ "\nAno de publicação: " + anoPub
-			+ "\nPreço: R$" + String.format("%.2f", preco) 
-			+ emprestado;
-	}
-
-	// --- Métodos Essenciais ---
-	
-	/**
-	 * Compara este Livro com outro objeto para verificar igualdade.
-	 * <p>Dois livros são considerados iguais se tiverem o mesmo {@code idLivro}.</p>
-	 * * @param o O objeto a ser comparado.
-	 * @return {@code true} se os objetos forem considerados iguais, {@code false} caso contrário.
-	 */
-	@Override
-	public boolean equals(Object o) {
-	    if (this == o) return true;
-	    if (o == null || getClass() != o.getClass()) return false;
-	    Livro livro = (Livro) o;
-	    // O objeto é igual apenas se o ID for o mesmo.
-	    return Objects.equals(idLivro, livro.idLivro); 
-	}
-
-	/**
-	 * Gera um código hash para o objeto Livro.
-	 * <p>É essencial que este método seja sobrescrito juntamente com {@code equals()}.</p>
-	 * * @return O código hash, baseado no título e autor.
-	 */
-	@Override
-	public int hashCode() {
-		return Objects.hash(titulo, autor);
-	}
-	
-	/**
-	 * Implementa a ordenação natural (por título) para a classe Livro.
-	 * * @param outroLivro O livro a ser comparado.
-	 * @return Um valor negativo, zero ou positivo se este livro for alfabeticamente
-	 * menor, igual ou maior que o livro especificado.
-	 */
-	@Override
-	public int compareTo(Livro outroLivro) {
-		return this.titulo.compareToIgnoreCase(outroLivro.titulo);
-	}
-	
-	
+package model;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Classe que representa um Livro na biblioteca.
+ * <p>
+ * Implementa {@link Comparable} para permitir a ordenação natural dos livros pelo título
+ * e {@link Serializable} para suportar persistência em arquivos.
+ * O empréstimo agora é representado pela referência a um objeto {@link Leitor}.
+ * </p>
+ * <p>
+ * Um Livro representa o <b>título</b> (dados bibliográficos guardados uma única vez) e os seus
+ * <b>exemplares</b> físicos. O estado de empréstimo de cada exemplar fica em vetores compactos
+ * (leitor e prazo por posição), de modo que cada cópia extra custa poucos bytes em vez de um
+ * objeto Livro inteiro. Um contador mantém quantos exemplares estão disponíveis.
+ * </p>
+ * <p>
+ * O ID é guardado como os dois {@code long} do UUID, comparados sem criar objetos. O título é um
+ * {@link String} comum até o livro entrar no acervo residente, quando {@link #compactarTextos()}
+ * o passa para a {@link ArenaTextos}; livros decodificados de passagem (ex.: lidos do disco) não
+ * ocupam a arena, que só cresce. A forma serializada não mudou.
+ * </p>
+ */
+public class Livro implements Comparable<Livro>, Serializable {
+	
+	// Adicionado para suportar serialização. É uma prática recomendada.
+	private static final long serialVersionUID = 1L; 
+	
+	// Fuso e separador decimal usados na exibição (os mesmos de String.format e de um DateTimeFormatter padrão)
+	private static final ZoneId ZONA = ZoneId.systemDefault();
+	private static final char SEPARADOR_DECIMAL =
+			DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT)).getDecimalSeparator();
+
+	/**
+	 * Deslocamento do fuso entre duas transições (ex.: horário de verão), em milissegundos
+	 * desde a época Unix: {@code [inicio, fim)}.
+	 */
+	private record Deslocamento(long inicio, long fim, int segundos) {
+	}
+
+	// O último deslocamento calculado: as datas exibidas quase sempre caem no mesmo intervalo
+	private static volatile Deslocamento deslocamento = new Deslocamento(0, 0, 0);
+
+	// Campos gravados na serialização (os mesmos de antes da compactação)
+	private static final ObjectStreamField[] serialPersistentFields = {
+			new ObjectStreamField("idLivro", String.class),
+			new ObjectStreamField("titulo", String.class),
+			new ObjectStreamField("autor", Autor.class),
+			new ObjectStreamField("numPags", int.class),
+			new ObjectStreamField("anoPub", int.class),
+			new ObjectStreamField("preco", double.class),
+			new ObjectStreamField("leitoresExemplares", Leitor[].class),
+			new ObjectStreamField("vencimentosExemplares", long[].class)
+	};
+
+	private static final ArenaTextos ARENA = ArenaTextos.COMPARTILHADA;
+
+	// Metades do UUID (ver Identificador)
+	private long idAlta;
+	private long idBaixa = Identificador.NULO;
+	// Título em texto comum, até ser compactado; depois, null
+	private volatile String tituloTexto;
+	// Referência do título na arena, depois de compactado
+	private volatile long titulo = ArenaTextos.NULO;
+	private Autor autor; // Referência ao objeto Autor
+	private int numPags;
+	private int anoPub;
+	private double preco;
+	
+	// Leitor de cada exemplar (posição = número do exemplar - 1); null se o exemplar estiver disponível.
+	private Leitor[] leitoresExemplares;
+	
+	// Data limite para devolução de cada exemplar (milissegundos desde a época Unix); 0 se disponível.
+	private long[] vencimentosExemplares;
+	
+	// Quantidade de exemplares disponíveis, recalculada ao desserializar.
+	private transient int exemplaresDisponiveis;
+	
+	
+	/**
+	 * Construtor principal para adicionar um novo livro à coleção.
+	 * <p>Um {@code idLivro} único é gerado automaticamente usando {@link UUID}.</p>
+	 * * @param titulo O título do livro.
+	 * @param autor O objeto {@link Autor} do livro.
+	 * @param numPags O número total de páginas.
+	 * @param anoPub O ano de publicação.
+	 * @param preco O preço do livro.
+	 */
+	public Livro(String titulo, Autor autor, int numPags, int anoPub, double preco) {
+		this(titulo, autor, numPags, anoPub, preco, 1);
+	}
+	
+	/**
+	 * Construtor para adicionar um novo título com vários exemplares físicos.
+	 * <p>Todos os exemplares começam disponíveis.</p>
+	 * * @param titulo O título do livro.
+	 * @param autor O objeto {@link Autor} do livro.
+	 * @param numPags O número total de páginas.
+	 * @param anoPub O ano de publicação.
+	 * @param preco O preço do livro.
+	 * @param numExemplares A quantidade de exemplares (no mínimo 1).
+	 */
+	public Livro(String titulo, Autor autor, int numPags, int anoPub, double preco, int numExemplares) {
+		UUID uuid = UUID.randomUUID(); // Gera um ID único e aleatório
+		this.idAlta = uuid.getMostSignificantBits();
+		this.idBaixa = uuid.getLeastSignificantBits();
+		this.tituloTexto = titulo;
+		this.autor = autor;
+		this.numPags = numPags;
+		this.anoPub = anoPub;
+		this.preco = preco;
+		// Inicializa todos os exemplares como não emprestados
+		this.leitoresExemplares = new Leitor[Math.max(1, numExemplares)];
+		this.vencimentosExemplares = new long[leitoresExemplares.length];
+		this.exemplaresDisponiveis = leitoresExemplares.length;
+	}
+	
+	/**
+	 * Construtor vazio (necessário para processos de serialização/desserialização).
+	 */
+	public Livro() {
+		this.leitoresExemplares = new Leitor[1];
+		this.vencimentosExemplares = new long[1];
+		this.exemplaresDisponiveis = 1;
+	}
+
+	/**
+	 * Construtor de cópia: o mesmo ID, título, autor e dados, e o estado de empréstimo de
+	 * cada exemplar em vetores próprios.
+	 * <p>O {@link Autor} e os {@link Leitor}es são os mesmos objetos do original. Serve para
+	 * preparar uma nova versão do livro sem que quem lê a atual a veja pela metade.</p>
+	 * @param original O livro copiado.
+	 */
+	public Livro(Livro original) {
+		this.idAlta = original.idAlta;
+		this.idBaixa = original.idBaixa;
+		this.tituloTexto = original.tituloTexto;
+		this.titulo = original.titulo;
+		this.autor = original.autor;
+		this.numPags = original.numPags;
+		this.anoPub = original.anoPub;
+		this.preco = original.preco;
+		this.leitoresExemplares = original.leitoresExemplares.clone();
+		this.vencimentosExemplares = original.vencimentosExemplares.clone();
+		this.exemplaresDisponiveis = original.exemplaresDisponiveis;
+	}
+
+	// --- Getters e Setters ---
+    /**
+     * Retorna o identificador único do livro.
+     * <p>O texto é montado a cada chamada e não fica guardado no livro; para comparar ou
+     * indexar livros, use as metades ({@link #getIdAlta()} e {@link #getIdBaixa()}).</p>
+     * @return O ID único do livro.
+     */
+    public String getIdLivro() {
+        return Identificador.texto(idAlta, idBaixa);
+    }
+	/**
+	 * Retorna a metade alta da chave de 128 bits do livro (ver {@link Identificador}).
+	 * @return A metade alta do ID.
+	 */
+	public long getIdAlta() {
+		return idAlta;
+	}
+	/**
+	 * Retorna a metade baixa da chave de 128 bits do livro (ver {@link Identificador}).
+	 * @return A metade baixa do ID.
+	 */
+	public long getIdBaixa() {
+		return idBaixa;
+	}
+	/**
+	 * Retorna o título do livro.
+	 * @return O título.
+	 */
+	public String getTitulo() {
+		String texto = tituloTexto;
+		return (texto != null) ? texto : ARENA.ler(titulo);
+	}
+	/**
+	 * Define o título do livro.
+	 * @param titulo O novo título.
+	 */
+	public synchronized void setTitulo(String titulo) {
+		// Com a referência antiga ainda no lugar, quem lê nunca fica sem título
+		if (titulo == null) {
+			this.titulo = ArenaTextos.NULO;
+		}
+		this.tituloTexto = titulo;
+	}
+
+	/**
+	 * Passa o título e os textos do autor para a {@link ArenaTextos}.
+	 * <p>Deve ser chamado só para os livros que ficam no acervo residente em memória: a arena
+	 * não devolve o espaço, então um livro de passagem (decodificado do disco, cópia de uma
+	 * versão) deve continuar com os textos comuns, que o coletor de lixo recolhe. Chamar de
+	 * novo não gasta mais espaço, a não ser para um título trocado desde a última vez.</p>
+	 */
+	public synchronized void compactarTextos() {
+		String texto = tituloTexto;
+		if (texto != null) {
+			titulo = ARENA.guardar(texto);
+			tituloTexto = null; // Depois da referência: quem vê null encontra a referência
+		}
+		if (autor != null) {
+			autor.compactarTextos();
+		}
+	}
+	/**
+	 * Retorna o objeto Autor do livro.
+	 * @return O {@link Autor} do livro.
+	 */
+	public Autor getAutor() {
+		return autor;
+	}
+	/**
+	 * Define o objeto Autor do livro.
+	 * @param autor O novo {@link Autor} do livro.
+	 */
+	public void setAutor(Autor autor) {
+		this.autor = autor;
+	}
+	/**
+	 * Retorna o número de páginas.
+	 * @return O número de páginas.
+	 */
+	public int getNumPags() {
+		return numPags;
+	}
+	/**
+	 * Define o número de páginas.
+	 * @param numPags O novo número de páginas.
+	 */
+	public void setNumPags(int numPags) {
+		this.numPags = numPags;
+	}
+	/**
+	 * Retorna o ano de publicação.
+	 * @return O ano de publicação.
+	 */
+	public int getAnoPub() {
+		return anoPub;
+	}
+	/**
+	 * Define o ano de publicação.
+	 * @param anoPub O novo ano de publicação.
+	 */
+	public void setAnoPub(int anoPub) {
+		this.anoPub = anoPub;
+	}
+	/**
+	 * Retorna o preço do livro.
+	 * @return O preço do livro.
+	 */
+	public double getPreco() {
+		return preco;
+	}
+	/**
+	 * Define o preço do livro.
+	 * @param preco O novo preço.
+	 */
+	public void setPreco(double preco) {
+		this.preco = preco;
+	}
+	
+	// --- Exemplares ---
+	
+	/**
+	 * Retorna a quantidade de exemplares físicos do título.
+	 * @return O número de exemplares.
+	 */
+	public int getNumExemplares() {
+		return leitoresExemplares.length;
+	}
+	
+	/**
+	 * Retorna quantos exemplares estão disponíveis para empréstimo (tempo constante).
+	 * @return O número de exemplares disponíveis.
+	 */
+	public int getExemplaresDisponiveis() {
+		return exemplaresDisponiveis;
+	}
+	
+	/**
+	 * Verifica, em tempo constante, se algum exemplar está disponível.
+	 * @return {@code true} se houver pelo menos um exemplar disponível.
+	 */
+	public boolean temExemplarDisponivel() {
+		return exemplaresDisponiveis > 0;
+	}
+	
+	/**
+	 * Verifica se algum exemplar está emprestado.
+	 * @return {@code true} se pelo menos um exemplar estiver com um leitor.
+	 */
+	public boolean temExemplarEmprestado() {
+		return exemplaresDisponiveis < leitoresExemplares.length;
+	}
+	
+	/**
+	 * Acrescenta novos exemplares (disponíveis) ao título.
+	 * @param quantidade Quantos exemplares acrescentar.
+	 */
+	public void adicionarExemplares(int quantidade) {
+		if (quantidade <= 0) return;
+		int novoTotal = leitoresExemplares.length + quantidade;
+		leitoresExemplares = Arrays.copyOf(leitoresExemplares, novoTotal);
+		vencimentosExemplares = Arrays.copyOf(vencimentosExemplares, novoTotal);
+		exemplaresDisponiveis += quantidade;
+	}
+	
+	/**
+	 * Retorna o leitor com quem está um exemplar.
+	 * @param exemplar O índice do exemplar (0 a {@code getNumExemplares() - 1}).
+	 * @return O {@link Leitor}, ou {@code null} se o exemplar estiver disponível.
+	 */
+	public Leitor getLeitorExemplar(int exemplar) {
+		return leitoresExemplares[exemplar];
+	}
+	
+	/**
+	 * Retorna a data limite para a devolução de um exemplar.
+	 * @param exemplar O índice do exemplar.
+	 * @return O instante em milissegundos desde a época Unix, ou {@code 0} se não houver empréstimo.
+	 */
+	public long getVencimentoExemplar(int exemplar) {
+		return vencimentosExemplares[exemplar];
+	}
+	
+	/**
+	 * Define o leitor e o prazo de um exemplar, mantendo o contador de disponíveis em dia.
+	 * @param exemplar O índice do exemplar.
+	 * @param leitor O {@link Leitor} (ou {@code null} para devolução).
+	 * @param vencimento A data limite em milissegundos (ignorada na devolução).
+	 */
+	public void setEmprestimoExemplar(int exemplar, Leitor leitor, long vencimento) {
+		boolean estavaDisponivel = leitoresExemplares[exemplar] == null;
+		leitoresExemplares[exemplar] = leitor;
+		vencimentosExemplares[exemplar] = (leitor != null) ? vencimento : 0;
+
+		if (estavaDisponivel && leitor != null) {
+			exemplaresDisponiveis--;
+		} else if (!estavaDisponivel && leitor == null) {
+			exemplaresDisponiveis++;
+		}
+	}
+	
+	/**
+	 * Procura o primeiro exemplar disponível.
+	 * @return O índice do exemplar ou {@code -1} se todos estiverem emprestados.
+	 */
+	public int primeiroExemplarDisponivel() {
+		if (exemplaresDisponiveis == 0) return -1; // Resposta imediata pelo contador
+		for (int i = 0; i < leitoresExemplares.length; i++) {
+			if (leitoresExemplares[i] == null) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Procura o exemplar que está com um leitor.
+	 * @param leitor O {@link Leitor} procurado.
+	 * @return O índice do exemplar ou {@code -1} se o leitor não estiver com nenhum exemplar.
+	 */
+	public int exemplarEmprestadoPara(Leitor leitor) {
+		if (leitor == null) return -1;
+		for (int i = 0; i < leitoresExemplares.length; i++) {
+			if (leitor.equals(leitoresExemplares[i])) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Verifica se um exemplar está emprestado e com o prazo de devolução vencido.
+	 * @param exemplar O índice do exemplar.
+	 * @param agora O instante de referência, em milissegundos.
+	 * @return {@code true} se o exemplar estiver atrasado.
+	 */
+	public boolean exemplarAtrasado(int exemplar, long agora) {
+		long vencimento = vencimentosExemplares[exemplar];
+		return leitoresExemplares[exemplar] != null && vencimento > 0 && vencimento <= agora;
+	}
+	
+	/**
+	 * Retorna o objeto Leitor para o qual o primeiro exemplar foi emprestado.
+	 * <p>Para títulos com um único exemplar, é o leitor com quem o livro está.</p>
+	 * @return O objeto {@link Leitor}, ou {@code null} se estiver disponível.
+	 */
+	public Leitor getLeitorEmprestimo() {
+		return leitoresExemplares[0];
+	}
+	
+	/**
+	 * Define o objeto Leitor para o qual o primeiro exemplar foi emprestado (para empréstimo)
+	 * ou define como {@code null} (para devolução).
+	 * @param leitorEmprestimo O objeto {@link Leitor}.
+	 */
+	public void setLeitorEmprestimo(Leitor leitorEmprestimo) {
+		setEmprestimoExemplar(0, leitorEmprestimo, vencimentosExemplares[0]);
+	}
+	
+	/**
+	 * Retorna a data limite para a devolução do primeiro exemplar.
+	 * @return O instante em milissegundos desde a época Unix, ou {@code 0} se não houver empréstimo.
+	 */
+	public long getDataDevolucaoPrevista() {
+		return vencimentosExemplares[0];
+	}
+	
+	/**
+	 * Define a data limite para a devolução do primeiro exemplar.
+	 * @param dataDevolucaoPrevista O instante em milissegundos, ou {@code 0} para limpar o prazo.
+	 */
+	public void setDataDevolucaoPrevista(long dataDevolucaoPrevista) {
+		vencimentosExemplares[0] = dataDevolucaoPrevista;
+	}
+	
+	/**
+	 * Verifica se algum exemplar está emprestado e com o prazo de devolução vencido.
+	 * @param agora O instante de referência, em milissegundos.
+	 * @return {@code true} se houver exemplar atrasado.
+	 */
+	public boolean estaAtrasado(long agora) {
+		for (int i = 0; i < leitoresExemplares.length; i++) {
+			if (exemplarAtrasado(i, agora)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Retorna uma string formatada com todas as informações do livro.
+	 * O preço é formatado para duas casas decimais.
+	 * @return Uma string detalhada do livro.
+	 * @see #exibeInformacoes(StringBuilder)
+	 */
+	public String exibeInformacoes() {
+		return exibeInformacoes(new StringBuilder(256)).toString();
+	}
+
+	/**
+	 * Acrescenta as informações do livro (o mesmo texto de {@link #exibeInformacoes()}) ao fim
+	 * de um {@link StringBuilder}.
+	 * <p>Título e nomes são decodificados direto da {@link ArenaTextos}, e preço e datas são
+	 * escritos dígito a dígito: com um {@code destino} reaproveitado (e já com capacidade), a
+	 * exibição não cria nenhum objeto.</p>
+	 * @param destino Onde acrescentar as informações.
+	 * @return O próprio {@code destino}.
+	 */
+	public StringBuilder exibeInformacoes(StringBuilder destino) {
+		destino.append("--- Livro ---\nTítulo: ");
+		String texto = tituloTexto;
+		if (texto != null) {
+			destino.append(texto);
+		} else {
+			ARENA.anexar(titulo, destino);
+		}
+		destino.append("\nAutor: ");
+		autor.anexarDescricao(destino);
+		destino.append("\nNúmero de págs.: ").append(numPags)
+			.append("\nAno de publicação: ").append(anoPub)
+			.append("\nPreço: R$");
+		anexarPreco(preco, destino);
+
+		if (leitoresExemplares.length == 1) {
+			if (leitoresExemplares[0] == null) {
+				destino.append("\nStatus: Disponível");
+			} else {
+				anexarSituacao(0, "\n", destino);
+			}
+		} else {
+			destino.append("\nExemplares: ").append(leitoresExemplares.length)
+				.append(" (").append(exemplaresDisponiveis).append(" disponível(is))");
+			for (int i = 0; i < leitoresExemplares.length; i++) {
+				if (leitoresExemplares[i] != null) {
+					destino.append("\nExemplar ").append(i + 1).append(':');
+					anexarSituacao(i, "\n  ", destino);
+				}
+			}
+		}
+		return destino;
+	}
+
+	/**
+	 * Acrescenta a descrição do empréstimo de um exemplar (leitor e prazo), uma informação por linha.
+	 */
+	private void anexarSituacao(int exemplar, String quebra, StringBuilder destino) {
+		destino.append(quebra).append("Emprestado para: ");
+		leitoresExemplares[exemplar].anexarDescricao(destino);
+		if (vencimentosExemplares[exemplar] > 0) {
+			destino.append(quebra).append("Devolver até: ");
+			anexarData(vencimentosExemplares[exemplar], destino);
+		}
+	}
+
+	/**
+	 * Escreve o valor com duas casas decimais, como {@code String.format("%.2f", valor)}.
+	 * <p>O arredondamento é o de {@code String.format}: metade para cima, sobre o decimal mais curto
+	 * que representa o {@code double} (o de {@link Double#toString(double)}). Só os valores a um fio
+	 * do meio do centavo precisam desse decimal e são conferidos com {@link BigDecimal}.</p>
+	 */
+	private static void anexarPreco(double valor, StringBuilder destino) {
+		if (!(Math.abs(valor) < 1e7)) { // Inclui NaN e infinitos
+			destino.append(String.format("%.2f", valor));
+			return;
+		}
+		double centavos = Math.abs(valor) * 100;
+		long arredondado = Math.round(centavos);
+		if (Math.abs(centavos - Math.floor(centavos) - 0.5) < 1e-6) {
+			// Quase no meio: decide pelo decimal, como o String.format
+			arredondado = BigDecimal.valueOf(Math.abs(valor)).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+		}
+		if (valor < 0 || (valor == 0 && 1 / valor < 0)) { // -0.0 também sai com sinal
+			destino.append('-');
+		}
+		destino.append(arredondado / 100).append(SEPARADOR_DECIMAL);
+		long resto = arredondado % 100;
+		if (resto < 10) {
+			destino.append('0');
+		}
+		destino.append(resto);
+	}
+
+	/**
+	 * Escreve a data (dd/MM/yyyy, no fuso do sistema) de um instante em milissegundos.
+	 * <p>O dia é calculado pelo algoritmo de calendário civil de Howard Hinnant; o deslocamento
+	 * do fuso só é consultado nas {@link ZoneRules} quando o instante sai do último intervalo usado.</p>
+	 */
+	private static void anexarData(long instante, StringBuilder destino) {
+		Deslocamento atual = deslocamento;
+		if (instante < atual.inicio() || instante >= atual.fim()) {
+			atual = deslocamento = calcularDeslocamento(instante);
+		}
+		long dias = Math.floorDiv(Math.floorDiv(instante, 1000) + atual.segundos(), 86_400);
+
+		long z = dias + 719_468; // Dias desde 01/03/0000
+		long era = Math.floorDiv(z, 146_097);
+		long diaDaEra = z - era * 146_097;
+		long anoDaEra = (diaDaEra - diaDaEra / 1460 + diaDaEra / 36_524 - diaDaEra / 146_096) / 365;
+		long diaDoAno = diaDaEra - (365 * anoDaEra + anoDaEra / 4 - anoDaEra / 100);
+		long mesDesdeMarco = (5 * diaDoAno + 2) / 153;
+		int dia = (int) (diaDoAno - (153 * mesDesdeMarco + 2) / 5 + 1);
+		int mes = (int) ((mesDesdeMarco < 10) ? mesDesdeMarco + 3 : mesDesdeMarco - 9);
+		long ano = anoDaEra + era * 400 + ((mes <= 2) ? 1 : 0);
+
+		anexarDigitos(dia, 2, destino);
+		destino.append('/');
+		anexarDigitos(mes, 2, destino);
+		destino.append('/');
+		anexarDigitos(ano, 4, destino);
+	}
+
+	/**
+	 * Calcula o deslocamento do fuso no instante e o intervalo (entre transições) em que ele vale.
+	 */
+	private static Deslocamento calcularDeslocamento(long instante) {
+		ZoneRules regras = ZONA.getRules();
+		Instant momento = Instant.ofEpochMilli(instante);
+		// Transição até o próprio instante (inclusive) e a primeira depois dele
+		ZoneOffsetTransition anterior = regras.previousTransition(momento.plusMillis(1));
+		ZoneOffsetTransition proxima = regras.nextTransition(momento);
+		long inicio = (anterior == null) ? Long.MIN_VALUE : anterior.getInstant().toEpochMilli();
+		long fim = (proxima == null) ? Long.MAX_VALUE : proxima.getInstant().toEpochMilli();
+		return new Deslocamento(inicio, fim, regras.getOffset(momento).getTotalSeconds());
+	}
+
+	private static void anexarDigitos(long valor, int largura, StringBuilder destino) {
+		for (long limite = 10; largura > 1; largura--, limite *= 10) {
+			if (valor < limite) {
+				destino.append('0');
+			}
+		}
+		destino.append(valor);
+	}
+
+	// --- Métodos Essenciais ---
+	
+	/**
+	 * Compara este Livro com outro objeto para verificar igualdade.
+	 * <p>Dois livros são considerados iguais se tiverem o mesmo {@code idLivro}.</p>
+	 * * @param o O objeto a ser comparado.
+	 * @return {@code true} se os objetos forem considerados iguais, {@code false} caso contrário.
+	 */
+	@Override
+	public boolean equals(Object o) {
+	    if (this == o) return true;
+	    if (o == null || getClass() != o.getClass()) return false;
+	    Livro livro = (Livro) o;
+	    // O objeto é igual apenas se o ID for o mesmo.
+	    return idAlta == livro.idAlta && idBaixa == livro.idBaixa;
+	}
+
+	/**
+	 * Gera um código hash para o objeto Livro.
+	 * <p>É essencial que este método seja sobrescrito juntamente com {@code equals()}.</p>
+	 * * @return O código hash, baseado no ID (o mesmo critério de {@code equals()}).
+	 */
+	@Override
+	public int hashCode() {
+		return Identificador.hash(idAlta, idBaixa);
+	}
+	
+	/**
+	 * Implementa a ordenação natural (por título) para a classe Livro.
+	 * * @param outroLivro O livro a ser comparado.
+	 * @return Um valor negativo, zero ou positivo se este livro for alfabeticamente
+	 * menor, igual ou maior que o livro especificado.
+	 */
+	@Override
+	public int compareTo(Livro outroLivro) {
+		return getTitulo().compareToIgnoreCase(outroLivro.getTitulo());
+	}
+	
+	/**
+	 * Serialização personalizada: grava o ID e o título como texto, no mesmo formato
+	 * dos arquivos já existentes.
+	 * @param out O fluxo de saída.
+	 * @throws IOException Em caso de erro de escrita.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField campos = out.putFields();
+		campos.put("idLivro", Identificador.texto(idAlta, idBaixa));
+		campos.put("titulo", getTitulo());
+		campos.put("autor", autor);
+		campos.put("numPags", numPags);
+		campos.put("anoPub", anoPub);
+		campos.put("preco", preco);
+		campos.put("leitoresExemplares", leitoresExemplares);
+		campos.put("vencimentosExemplares", vencimentosExemplares);
+		out.writeFields();
+	}
+	
+	/**
+	 * Desserialização personalizada, que também lê arquivos do formato antigo (um único
+	 * exemplar, com os campos {@code leitorEmprestimo} e {@code dataDevolucaoPrevista}).
+	 * @param in O fluxo de entrada.
+	 * @throws IOException Em caso de erro de leitura.
+	 * @throws ClassNotFoundException Se a classe de algum campo não for encontrada.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField campos = in.readFields();
+		long[] id = Identificador.compactar((String) campos.get("idLivro", null));
+		idAlta = id[0];
+		idBaixa = id[1];
+		tituloTexto = (String) campos.get("titulo", null);
+		titulo = ArenaTextos.NULO; // Um livro decodificado não ocupa a arena (ver compactarTextos)
+		autor = (Autor) campos.get("autor", null);
+		numPags = campos.get("numPags", 0);
+		anoPub = campos.get("anoPub", 0);
+		preco = campos.get("preco", 0.0);
+		leitoresExemplares = (Leitor[]) campos.get("leitoresExemplares", null);
+		vencimentosExemplares = (long[]) campos.get("vencimentosExemplares", null);
+
+		if (leitoresExemplares == null) {
+			// Formato antigo: o livro era um único exemplar
+			leitoresExemplares = new Leitor[] { (Leitor) campos.get("leitorEmprestimo", null) };
+			long prazo = 0;
+			try {
+				prazo = campos.get("dataDevolucaoPrevista", 0L);
+			} catch (IllegalArgumentException e) {
+				// Arquivo anterior à criação do prazo de devolução
+			}
+			vencimentosExemplares = new long[] { prazo };
+		}
+
+		exemplaresDisponiveis = 0;
+		for (Leitor leitor : leitoresExemplares) {
+			if (leitor == null) {
+				exemplaresDisponiveis++;
+			}
+		}
+	}
 }
\ No newline at end of file
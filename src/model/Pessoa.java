@@ -1,99 +1,197 @@
-package model;
-
-import java.io.Serializable;
-import java.util.Objects;
-import java.util.UUID;
-
-/**
- * Classe base abstrata para todas as entidades de 'Pessoa' no sistema (Autor, Leitor, etc.).
- * <p>
- * Contém atributos comuns como nome e um identificador único.
- * Implementa {@link Serializable} para suportar persistência em arquivos.
- * </p>
- */
-public abstract class Pessoa implements Comparable<Pessoa>, Serializable {
-	
-	// Adicionado para suportar serialização. É uma prática recomendada.
-	private static final long serialVersionUID = 1L; 
-
-	private String id;
-	private String nome;
-	
-	/**
-	 * Construtor padrão que inicializa a Pessoa com um nome e gera um ID único.
-	 * @param nome O nome completo da pessoa.
-	 */
-	public Pessoa(String nome) {
-		// Gera um ID único na criação
-		this.id = UUID.randomUUID().toString(); 
-		this.nome = nome;
-	}
-	
-	/**
-	 * Construtor vazio (necessário para processos de desserialização).
-	 */
-	public Pessoa() {
-	}
-
-	// --- Getters e Setters ---
-	/**
-	 * Retorna o identificador único da pessoa.
-	 * @return O ID único (String).
-	 */
-	public String getId() {
-		return id;
-	}
-	
-	/**
-	 * Retorna o nome da pessoa.
-	 * @return O nome da pessoa.
-	 */
-	public String getNome() {
-		return nome;
-	}
-	
-	/**
-	 * Define o nome da pessoa.
-	 * @param nome O novo nome da pessoa.
-	 */
-	public void setNome(String nome) {
-		this.nome = nome;
-	}
-
-	// --- Polimorfismo e Métodos Essenciais ---
-	
-	/**
-	 * Compara esta Pessoa com outro objeto para verificar igualdade.
-	 * <p>A igualdade é definida pelo {@code id} único.</p>
-	 * @param o O objeto a ser comparado.
-	 * @return {@code true} se os objetos tiverem o mesmo ID, {@code false} caso contrário.
-	 */
-	@Override
-	public boolean equals(Object o) {
-		if (this == o) return true;
-		if (o == null || getClass() != o.getClass()) return false;
-		Pessoa pessoa = (Pessoa) o;
-		// A igualdade é definida unicamente pelo ID
-		return Objects.equals(id, pessoa.id);
-	}
-
-	/**
-	 * Gera um código hash para o objeto Pessoa.
-	 * @return O código hash, baseado no ID.
-	 */
-	@Override
-	public int hashCode() {
-		return Objects.hash(id);
-	}
-	
-	/**
-	 * Implementa a ordenação natural (por nome) para a classe Pessoa e suas subclasses.
-	 * @param outraPessoa A pessoa a ser comparada.
-	 * @return Um valor negativo, zero ou positivo se esta pessoa for alfabeticamente
-	 * menor, igual ou maior que a pessoa especificada.
-	 */
-	@Override
-	public int compareTo(Pessoa outraPessoa) {
-		return this.nome.compareToIgnoreCase(outraPessoa.nome);
-	}
+package model;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * Classe base abstrata para todas as entidades de 'Pessoa' no sistema (Autor, Leitor, etc.).
+ * <p>
+ * Contém atributos comuns como nome e um identificador único.
+ * Implementa {@link Serializable} para suportar persistência em arquivos.
+ * </p>
+ * <p>
+ * O ID é guardado como os dois {@code long} do UUID. O nome é um {@link String} comum, passado
+ * para a {@link ArenaTextos} só quando a pessoa é o autor de um livro do acervo residente (ver
+ * {@link Livro#compactarTextos()}). A forma serializada continua com os dois campos de texto,
+ * como nos arquivos já gravados.
+ * </p>
+ */
+public abstract class Pessoa implements Comparable<Pessoa>, Serializable {
+	
+	// Adicionado para suportar serialização. É uma prática recomendada.
+	private static final long serialVersionUID = 1L; 
+
+	// Campos gravados na serialização (os mesmos de antes da compactação)
+	private static final ObjectStreamField[] serialPersistentFields = {
+			new ObjectStreamField("id", String.class),
+			new ObjectStreamField("nome", String.class)
+	};
+
+	private static final ArenaTextos ARENA = ArenaTextos.COMPARTILHADA;
+
+	// Metades do UUID (ver Identificador)
+	private long idAlta;
+	private long idBaixa = Identificador.NULO;
+	// Nome em texto comum, até ser compactado; depois, null
+	private volatile String nomeTexto;
+	// Referência do nome na arena, depois de compactado
+	private volatile long nome = ArenaTextos.NULO;
+	
+	/**
+	 * Construtor padrão que inicializa a Pessoa com um nome e gera um ID único.
+	 * @param nome O nome completo da pessoa.
+	 */
+	public Pessoa(String nome) {
+		// Gera um ID único na criação
+		UUID uuid = UUID.randomUUID();
+		this.idAlta = uuid.getMostSignificantBits();
+		this.idBaixa = uuid.getLeastSignificantBits();
+		this.nomeTexto = nome;
+	}
+	
+	/**
+	 * Construtor vazio (necessário para processos de desserialização).
+	 */
+	public Pessoa() {
+	}
+
+	// --- Getters e Setters ---
+	/**
+	 * Retorna o identificador único da pessoa.
+	 * <p>O texto é montado a cada chamada e não fica guardado na pessoa; para comparar ou
+	 * indexar, use as metades ({@link #getIdAlta()} e {@link #getIdBaixa()}).</p>
+	 * @return O ID único (String).
+	 */
+	public String getId() {
+		return Identificador.texto(idAlta, idBaixa);
+	}
+
+	/**
+	 * Retorna a metade alta da chave de 128 bits da pessoa (ver {@link Identificador}).
+	 * @return A metade alta do ID.
+	 */
+	public long getIdAlta() {
+		return idAlta;
+	}
+
+	/**
+	 * Retorna a metade baixa da chave de 128 bits da pessoa (ver {@link Identificador}).
+	 * @return A metade baixa do ID.
+	 */
+	public long getIdBaixa() {
+		return idBaixa;
+	}
+	
+	/**
+	 * Retorna o nome da pessoa.
+	 * @return O nome da pessoa.
+	 */
+	public String getNome() {
+		String texto = nomeTexto;
+		return (texto != null) ? texto : ARENA.ler(nome);
+	}
+	
+	/**
+	 * Define o nome da pessoa.
+	 * @param nome O novo nome da pessoa.
+	 */
+	public synchronized void setNome(String nome) {
+		// Com a referência antiga ainda no lugar, quem lê nunca fica sem nome
+		if (nome == null) {
+			this.nome = ArenaTextos.NULO;
+		}
+		this.nomeTexto = nome;
+	}
+
+	/**
+	 * Acrescenta o nome ao fim de um {@link StringBuilder}, sem criar um {@link String}.
+	 * @param destino Onde acrescentar o nome.
+	 */
+	public void anexarNome(StringBuilder destino) {
+		String texto = nomeTexto;
+		if (texto != null) {
+			destino.append(texto);
+		} else {
+			ARENA.anexar(nome, destino);
+		}
+	}
+
+	/**
+	 * Passa o nome para a {@link ArenaTextos} (ver {@link Livro#compactarTextos()}).
+	 */
+	synchronized void compactarTextos() {
+		String texto = nomeTexto;
+		if (texto != null) {
+			nome = ARENA.guardar(texto);
+			nomeTexto = null; // Depois da referência: quem vê null encontra a referência
+		}
+	}
+
+	// --- Polimorfismo e Métodos Essenciais ---
+	
+	/**
+	 * Compara esta Pessoa com outro objeto para verificar igualdade.
+	 * <p>A igualdade é definida pelo {@code id} único.</p>
+	 * @param o O objeto a ser comparado.
+	 * @return {@code true} se os objetos tiverem o mesmo ID, {@code false} caso contrário.
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		Pessoa pessoa = (Pessoa) o;
+		// A igualdade é definida unicamente pelo ID
+		return idAlta == pessoa.idAlta && idBaixa == pessoa.idBaixa;
+	}
+
+	/**
+	 * Gera um código hash para o objeto Pessoa.
+	 * @return O código hash, baseado no ID.
+	 */
+	@Override
+	public int hashCode() {
+		return Identificador.hash(idAlta, idBaixa);
+	}
+	
+	/**
+	 * Implementa a ordenação natural (por nome) para a classe Pessoa e suas subclasses.
+	 * @param outraPessoa A pessoa a ser comparada.
+	 * @return Um valor negativo, zero ou positivo se esta pessoa for alfabeticamente
+	 * menor, igual ou maior que a pessoa especificada.
+	 */
+	@Override
+	public int compareTo(Pessoa outraPessoa) {
+		return getNome().compareToIgnoreCase(outraPessoa.getNome());
+	}
+
+	/**
+	 * Serializa o ID e o nome como texto, no mesmo formato dos arquivos já gravados.
+	 * @param out O fluxo de saída.
+	 * @throws IOException Em caso de erro de escrita.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField campos = out.putFields();
+		campos.put("id", Identificador.texto(idAlta, idBaixa));
+		campos.put("nome", getNome());
+		out.writeFields();
+	}
+
+	/**
+	 * Desserializa o ID e o nome (o ID na forma compacta; o nome como texto comum).
+	 * @param in O fluxo de entrada.
+	 * @throws IOException Em caso de erro de leitura.
+	 * @throws ClassNotFoundException Se a classe de algum campo não for encontrada.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField campos = in.readFields();
+		long[] id = Identificador.compactar((String) campos.get("id", null));
+		idAlta = id[0];
+		idBaixa = id[1];
+		nomeTexto = (String) campos.get("nome", null);
+		nome = ArenaTextos.NULO;
+	}
 }
\ No newline at end of file
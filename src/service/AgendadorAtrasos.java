@@ -0,0 +1,184 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Classe responsável por acompanhar os prazos de devolução e detectar empréstimos atrasados.
+ * <p>
+ * Os vencimentos ficam num heap mínimo ({@link PriorityQueue}) ordenado pela data de devolução.
+ * Uma varredura só precisa retirar do topo os prazos que já venceram, ou seja, o custo é
+ * proporcional aos empréstimos que venceram desde a última varredura, e não ao acervo inteiro.
+ * </p>
+ * <p>
+ * Devoluções e renovações não removem a entrada do heap (o que custaria O(n)): o prazo
+ * vigente de cada livro fica num mapa, e entradas antigas são descartadas quando chegam ao topo.
+ * As varreduras periódicas são executadas por um {@link ScheduledExecutorService}.
+ * </p>
+ */
+public class AgendadorAtrasos {
+
+	// Intervalo padrão entre varreduras automáticas, em segundos.
+	private static final long INTERVALO_VARREDURA_PADRAO = 60;
+
+	/**
+	 * Entrada do heap: um prazo de devolução de um livro.
+	 */
+	private static final class Vencimento {
+		final long instante;
+		final String idLivro;
+
+		Vencimento(long instante, String idLivro) {
+			this.instante = instante;
+			this.idLivro = idLivro;
+		}
+	}
+
+	private final PriorityQueue<Vencimento> heap =
+			new PriorityQueue<>((a, b) -> Long.compare(a.instante, b.instante));
+
+	// Prazo vigente de cada livro emprestado (usado para descartar entradas antigas do heap).
+	private final HashMap<String, Long> prazoVigente = new HashMap<>();
+
+	// Livros atrasados, na ordem em que venceram.
+	private final LinkedHashMap<String, Long> atrasados = new LinkedHashMap<>();
+
+	private ScheduledExecutorService executor;
+	private Consumer<List<String>> aoDetectarAtrasos;
+
+	/**
+	 * Agenda (ou reagenda) o prazo de devolução de um livro emprestado.
+	 * @param idLivro O ID do livro.
+	 * @param vencimento A data limite, em milissegundos desde a época Unix.
+	 */
+	public synchronized void agendar(String idLivro, long vencimento) {
+		prazoVigente.put(idLivro, vencimento);
+		atrasados.remove(idLivro); // Uma renovação tira o livro da lista de atrasados
+		heap.offer(new Vencimento(vencimento, idLivro));
+	}
+
+	/**
+	 * Cancela o acompanhamento de um livro (devolução ou remoção do acervo).
+	 * @param idLivro O ID do livro.
+	 */
+	public synchronized void cancelar(String idLivro) {
+		prazoVigente.remove(idLivro);
+		atrasados.remove(idLivro);
+	}
+
+	/**
+	 * Retira do heap os prazos vencidos até o instante informado.
+	 * @param agora O instante de referência, em milissegundos.
+	 * @return Os IDs dos livros que passaram a estar atrasados nesta varredura.
+	 */
+	public synchronized List<String> varrer(long agora) {
+		ArrayList<String> novos = new ArrayList<>();
+
+		while (!heap.isEmpty() && heap.peek().instante <= agora) {
+			Vencimento vencido = heap.poll();
+			Long vigente = prazoVigente.get(vencido.idLivro);
+
+			// Só conta se ainda for o prazo atual do livro (não devolvido nem renovado)
+			if (vigente != null && vigente == vencido.instante) {
+				atrasados.put(vencido.idLivro, vencido.instante);
+				novos.add(vencido.idLivro);
+			}
+		}
+
+		// Mantém o heap enxuto quando acumula muitas entradas descartadas
+		if (heap.size() > 2 * prazoVigente.size() + 64) {
+			compactar();
+		}
+		return novos;
+	}
+
+	/**
+	 * Retorna os livros atualmente atrasados, na ordem em que venceram.
+	 * @return Uma lista com os IDs dos livros atrasados.
+	 */
+	public synchronized List<String> listarAtrasados() {
+		return new ArrayList<>(atrasados.keySet());
+	}
+
+	/**
+	 * Define uma ação executada sempre que uma varredura automática encontra novos atrasos.
+	 * @param aoDetectarAtrasos Ação que recebe os IDs dos livros recém-atrasados.
+	 */
+	public synchronized void setAoDetectarAtrasos(Consumer<List<String>> aoDetectarAtrasos) {
+		this.aoDetectarAtrasos = aoDetectarAtrasos;
+	}
+
+	/**
+	 * Inicia as varreduras automáticas com o intervalo padrão.
+	 */
+	public void iniciar() {
+		iniciar(INTERVALO_VARREDURA_PADRAO, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Inicia as varreduras automáticas numa thread daemon, para não impedir o encerramento da aplicação.
+	 * @param intervalo O intervalo entre varreduras.
+	 * @param unidade A unidade de tempo do intervalo.
+	 */
+	public synchronized void iniciar(long intervalo, TimeUnit unidade) {
+		if (executor != null) {
+			return; // Já iniciado
+		}
+		executor = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+			Thread thread = new Thread(tarefa, "agendador-atrasos");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleAtFixedRate(this::varreduraAutomatica, 0, intervalo, unidade);
+	}
+
+	/**
+	 * Interrompe as varreduras automáticas.
+	 */
+	public synchronized void encerrar() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	// =========================================================================
+	// Métodos Auxiliares
+	// =========================================================================
+
+	private void varreduraAutomatica() {
+		List<String> novos = varrer(System.currentTimeMillis());
+		Consumer<List<String>> acao;
+		synchronized (this) {
+			acao = aoDetectarAtrasos;
+		}
+		if (!novos.isEmpty() && acao != null) {
+			try {
+				acao.accept(novos);
+			} catch (RuntimeException e) {
+				// Uma exceção aqui cancelaria as próximas execuções do ScheduledExecutorService
+				System.err.println("Erro ao notificar atrasos: " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Reconstrói o heap apenas com os prazos vigentes que ainda não venceram.
+	 */
+	private void compactar() {
+		heap.clear();
+		for (Map.Entry<String, Long> prazo : prazoVigente.entrySet()) {
+			if (!atrasados.containsKey(prazo.getKey())) {
+				heap.offer(new Vencimento(prazo.getValue(), prazo.getKey()));
+			}
+		}
+	}
+}
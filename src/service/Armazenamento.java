@@ -0,0 +1,67 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import model.Livro;
+
+/**
+ * Interface das formas de guardar o acervo em disco.
+ * <p>
+ * O {@link GerenciadorBiblioteca} avisa o armazenamento sobre cada livro incluído, alterado
+ * ou removido antes de pedir a gravação. Implementações que dividem o acervo em partes
+ * ({@link PersistenciaFragmentada}) usam esses avisos para regravar apenas o necessário;
+ * a {@link Persistencia} de arquivo único simplesmente os ignora.
+ * </p>
+ */
+public interface Armazenamento {
+
+	/**
+	 * Salva o acervo.
+	 * @param livros A versão atual e completa da lista de livros.
+	 * @return {@code true} se a gravação foi bem-sucedida.
+	 */
+	boolean salvarLivros(List<Livro> livros);
+
+	/**
+	 * Carrega o acervo salvo.
+	 * @return A lista de livros (vazia se não houver dados ou em caso de erro).
+	 */
+	ArrayList<Livro> carregarLivros();
+
+	/**
+	 * Carrega o acervo salvo em blocos, que podem ser consumidos à medida que ficam prontos.
+	 * <p>Por padrão, o acervo inteiro é carregado de uma vez e entregue num único bloco;
+	 * a {@link PersistenciaBlocos} decodifica vários blocos em paralelo.</p>
+	 * @return Um futuro por bloco, na ordem do acervo.
+	 */
+	default List<CompletableFuture<List<Livro>>> carregarEmBlocos() {
+		ArrayList<Livro> livros = carregarLivros();
+		List<Livro> bloco = (livros == null) ? new ArrayList<>() : livros;
+		return List.of(CompletableFuture.completedFuture(bloco));
+	}
+
+	/**
+	 * Avisa que um livro foi incluído ou alterado desde a última gravação.
+	 * @param livro O {@link Livro} alterado.
+	 */
+	default void marcarAlterado(Livro livro) {
+		// Por padrão, toda gravação regrava o acervo inteiro
+	}
+
+	/**
+	 * Avisa que um livro foi removido desde a última gravação.
+	 * @param idLivro O ID do livro removido.
+	 */
+	default void marcarRemovido(String idLivro) {
+		// Por padrão, toda gravação regrava o acervo inteiro
+	}
+
+	/**
+	 * Fecha os arquivos mantidos abertos entre as gravações.
+	 */
+	default void fechar() {
+		// Por padrão, nenhum arquivo fica aberto
+	}
+}
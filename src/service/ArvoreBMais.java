@@ -0,0 +1,555 @@
+package service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Árvore B+ gravada em disco, que associa chaves de texto a números ({@code long}).
+ * <p>
+ * O arquivo é dividido em páginas de {@value #TAMANHO_PAGINA} bytes, lidas e gravadas com
+ * um {@link FileChannel}. A página 0 guarda o cabeçalho (raiz, primeira folha, quantidade
+ * de chaves); as demais são nós. As folhas guardam as chaves e os valores e são encadeadas
+ * em ordem, de modo que buscas por intervalo ou por prefixo percorrem só as folhas.
+ * </p>
+ * <p>
+ * Só um número limitado de páginas fica em memória (cache LRU); uma página alterada é gravada
+ * ao sair do cache ou em {@link #gravar()}. Assim, o uso de memória não depende do tamanho da
+ * árvore. As chaves são comparadas pelos bytes em UTF-8, o que equivale à ordem dos caracteres.
+ * </p>
+ * <p>
+ * Remoções apenas tiram a chave da folha, sem juntar páginas: a árvore continua correta, mas
+ * pode ficar com folhas pouco ocupadas. Para recuperar o espaço, basta montar uma nova árvore.
+ * </p>
+ */
+public class ArvoreBMais {
+
+	/**
+	 * Tamanho de cada página do arquivo, em bytes.
+	 */
+	public static final int TAMANHO_PAGINA = 4096;
+
+	/**
+	 * Maior chave aceita, em bytes (UTF-8). Garante que qualquer página cheia possa ser dividida.
+	 */
+	public static final int TAMANHO_MAXIMO_CHAVE = 1024;
+
+	/**
+	 * Quantidade padrão de páginas mantidas em memória.
+	 */
+	public static final int PAGINAS_EM_CACHE_PADRAO = 256;
+
+	/**
+	 * Recebe cada par visitado numa busca por intervalo ou prefixo.
+	 */
+	@FunctionalInterface
+	public interface Visitante {
+		/**
+		 * @param chave A chave visitada.
+		 * @param valor O valor associado.
+		 * @return {@code true} para continuar a busca, {@code false} para pará-la.
+		 */
+		boolean visitar(String chave, long valor);
+	}
+
+	private static final int ASSINATURA = 0x42505452; // "BPTR"
+	private static final byte FOLHA = 0;
+	private static final byte INTERNO = 1;
+	private static final int CABECALHO_NO = 1 + 2 + 8; // Tipo, quantidade de chaves e próxima folha
+	private static final int SEM_PAGINA = -1;
+
+	/**
+	 * Nó da árvore em memória. Numa folha, {@code ponteiros} tem o valor de cada chave; num nó
+	 * interno, tem os filhos (um a mais que as chaves): o filho {@code i} cobre as chaves
+	 * maiores ou iguais a {@code chaves[i-1]} e menores que {@code chaves[i]}.
+	 */
+	private static final class No {
+		final long pagina;
+		final boolean folha;
+		final ArrayList<byte[]> chaves = new ArrayList<>();
+		final ArrayList<Long> ponteiros = new ArrayList<>();
+		long proxima = SEM_PAGINA;
+		boolean sujo;
+
+		No(long pagina, boolean folha) {
+			this.pagina = pagina;
+			this.folha = folha;
+		}
+
+		int tamanhoCodificado() {
+			int tamanho = CABECALHO_NO + (folha ? 0 : 8);
+			for (byte[] chave : chaves) {
+				tamanho += 2 + chave.length + 8;
+			}
+			return tamanho;
+		}
+	}
+
+	/**
+	 * Resultado da divisão de um nó: a chave que sobe para o pai e a página do novo nó à direita.
+	 */
+	private static final class Divisao {
+		final byte[] chave;
+		final long pagina;
+
+		Divisao(byte[] chave, long pagina) {
+			this.chave = chave;
+			this.pagina = pagina;
+		}
+	}
+
+	private final FileChannel canal;
+	private final LinkedHashMap<Long, No> cache;
+	private long raiz;
+	private long primeiraFolha;
+	private long totalPaginas;
+	private long quantidade;
+	private final boolean fechadaCorretamente;
+	private long paginasLidas;
+	private long paginasGravadas;
+
+	/**
+	 * Abre (ou cria) uma árvore com a quantidade padrão de páginas em memória.
+	 * @param arquivo O arquivo da árvore.
+	 * @throws IOException Se o arquivo não puder ser aberto ou não for uma árvore.
+	 */
+	public ArvoreBMais(File arquivo) throws IOException {
+		this(arquivo, PAGINAS_EM_CACHE_PADRAO);
+	}
+
+	/**
+	 * Abre (ou cria) uma árvore.
+	 * @param arquivo O arquivo da árvore.
+	 * @param paginasEmCache Quantas páginas manter em memória (no mínimo 16).
+	 * @throws IOException Se o arquivo não puder ser aberto ou não for uma árvore.
+	 */
+	public ArvoreBMais(File arquivo, int paginasEmCache) throws IOException {
+		int capacidade = Math.max(16, paginasEmCache);
+		this.cache = new LinkedHashMap<>(capacidade * 4 / 3 + 1, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, No> maisAntiga) {
+				if (size() <= capacidade) {
+					return false;
+				}
+				if (maisAntiga.getValue().sujo) {
+					try {
+						escreverPagina(maisAntiga.getValue());
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+				return true;
+			}
+		};
+		this.canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		try {
+			if (canal.size() == 0) {
+				// Árvore nova: a raiz é uma folha vazia na página 1
+				totalPaginas = 1;
+				No folha = novoNo(true);
+				raiz = folha.pagina;
+				primeiraFolha = folha.pagina;
+				fechadaCorretamente = true;
+			} else {
+				ByteBuffer cabecalho = lerBytes(0);
+				if (cabecalho.getInt() != ASSINATURA || cabecalho.getInt() != TAMANHO_PAGINA) {
+					throw new IOException("O arquivo " + arquivo + " não é uma árvore B+.");
+				}
+				raiz = cabecalho.getLong();
+				primeiraFolha = cabecalho.getLong();
+				totalPaginas = cabecalho.getLong();
+				quantidade = cabecalho.getLong();
+				fechadaCorretamente = cabecalho.get() == 1;
+			}
+			// Enquanto a árvore estiver aberta, o arquivo fica marcado como "não fechado"
+			escreverCabecalho(false);
+		} catch (IOException e) {
+			canal.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Indica se o arquivo foi fechado corretamente da última vez (ou se a árvore é nova).
+	 * <p>Se não foi, páginas alteradas podem ter se perdido, e a árvore deve ser refeita.</p>
+	 * @return {@code true} se o conteúdo do arquivo é confiável.
+	 */
+	public boolean foiFechadaCorretamente() {
+		return fechadaCorretamente;
+	}
+
+	/**
+	 * Busca o valor de uma chave.
+	 * @param chave A chave procurada.
+	 * @return O valor, ou {@code -1} se a chave não existe.
+	 * @throws IOException Se uma página não puder ser lida.
+	 */
+	public synchronized long obter(String chave) throws IOException {
+		byte[] bytes = codificar(chave);
+		try {
+			No folha = folhaPara(bytes);
+			int i = buscar(folha, bytes);
+			return (i >= 0) ? folha.ponteiros.get(i) : -1;
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Associa um valor a uma chave, substituindo o valor anterior, se houver.
+	 * @param chave A chave (no máximo {@value #TAMANHO_MAXIMO_CHAVE} bytes em UTF-8).
+	 * @param valor O valor (não negativo).
+	 * @throws IOException Se uma página não puder ser lida ou gravada.
+	 */
+	public synchronized void inserir(String chave, long valor) throws IOException {
+		byte[] bytes = codificar(chave);
+		if (bytes.length > TAMANHO_MAXIMO_CHAVE) {
+			throw new IllegalArgumentException("Chave com " + bytes.length + " bytes (máximo " + TAMANHO_MAXIMO_CHAVE + ").");
+		}
+		try {
+			Divisao divisao = inserir(ler(raiz), bytes, valor);
+			if (divisao != null) {
+				// A raiz foi dividida: a árvore cresce um nível
+				No novaRaiz = novoNo(false);
+				novaRaiz.ponteiros.add(raiz);
+				novaRaiz.chaves.add(divisao.chave);
+				novaRaiz.ponteiros.add(divisao.pagina);
+				raiz = novaRaiz.pagina;
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Remove uma chave.
+	 * @param chave A chave a ser removida.
+	 * @return {@code true} se a chave existia.
+	 * @throws IOException Se uma página não puder ser lida.
+	 */
+	public synchronized boolean remover(String chave) throws IOException {
+		byte[] bytes = codificar(chave);
+		try {
+			No folha = folhaPara(bytes);
+			int i = buscar(folha, bytes);
+			if (i < 0) {
+				return false;
+			}
+			folha.chaves.remove(i);
+			folha.ponteiros.remove(i);
+			sujar(folha);
+			quantidade--;
+			return true;
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Visita, em ordem, as chaves entre {@code de} (inclusive) e {@code ate} (exclusive).
+	 * @param de A primeira chave, ou {@code null} para começar do início.
+	 * @param ate A chave onde parar, ou {@code null} para ir até o fim.
+	 * @param visitante Quem recebe cada par (pode interromper a busca).
+	 * @throws IOException Se uma página não puder ser lida.
+	 */
+	public synchronized void percorrerIntervalo(String de, String ate, Visitante visitante) throws IOException {
+		percorrer((de == null) ? null : codificar(de), (ate == null) ? null : codificar(ate), null, visitante);
+	}
+
+	/**
+	 * Visita, em ordem, todas as chaves que começam com o prefixo.
+	 * @param prefixo O prefixo procurado ({@code ""} visita todas as chaves).
+	 * @param visitante Quem recebe cada par (pode interromper a busca).
+	 * @throws IOException Se uma página não puder ser lida.
+	 */
+	public synchronized void percorrerPrefixo(String prefixo, Visitante visitante) throws IOException {
+		byte[] bytes = codificar(prefixo);
+		percorrer(bytes, null, bytes, visitante);
+	}
+
+	/**
+	 * Retorna quantas chaves a árvore contém.
+	 * @return A quantidade de chaves.
+	 */
+	public synchronized long getQuantidade() {
+		return quantidade;
+	}
+
+	/**
+	 * Retorna quantas páginas foram lidas do disco (faltas do cache de páginas) desde a abertura.
+	 * @return A quantidade de páginas lidas.
+	 */
+	public synchronized long getPaginasLidas() {
+		return paginasLidas;
+	}
+
+	/**
+	 * Retorna quantas páginas foram gravadas no disco desde a abertura.
+	 * @return A quantidade de páginas gravadas.
+	 */
+	public synchronized long getPaginasGravadas() {
+		return paginasGravadas;
+	}
+
+	/**
+	 * Grava no arquivo todas as páginas alteradas e o cabeçalho.
+	 * <p>Não força a gravação física ({@code fsync}); isso só acontece em {@link #fechar()}.</p>
+	 * @throws IOException Se a gravação falhar.
+	 */
+	public synchronized void gravar() throws IOException {
+		for (No no : cache.values()) {
+			if (no.sujo) {
+				escreverPagina(no);
+			}
+		}
+		escreverCabecalho(false);
+	}
+
+	/**
+	 * Grava as páginas alteradas, marca o arquivo como fechado corretamente e o fecha.
+	 * @throws IOException Se a gravação falhar.
+	 */
+	public synchronized void fechar() throws IOException {
+		try {
+			gravar();
+			canal.force(false);
+			escreverCabecalho(true);
+			canal.force(false);
+		} finally {
+			cache.clear();
+			canal.close();
+		}
+	}
+
+	// =========================================================================
+	// Métodos Auxiliares
+	// =========================================================================
+
+	private Divisao inserir(No no, byte[] chave, long valor) throws IOException {
+		int i = buscar(no, chave);
+		if (no.folha) {
+			if (i >= 0) {
+				no.ponteiros.set(i, valor);
+			} else {
+				no.chaves.add(-i - 1, chave);
+				no.ponteiros.add(-i - 1, valor);
+				quantidade++;
+			}
+			sujar(no);
+		} else {
+			int filho = (i >= 0) ? i + 1 : -i - 1;
+			Divisao divisao = inserir(ler(no.ponteiros.get(filho)), chave, valor);
+			if (divisao == null) {
+				return null;
+			}
+			no.chaves.add(filho, divisao.chave);
+			no.ponteiros.add(filho + 1, divisao.pagina);
+			sujar(no);
+		}
+		return (no.tamanhoCodificado() > TAMANHO_PAGINA) ? dividir(no) : null;
+	}
+
+	/**
+	 * Divide um nó cheio em dois com mais ou menos o mesmo número de bytes.
+	 */
+	private Divisao dividir(No no) throws IOException {
+		int total = no.tamanhoCodificado();
+		int meio = 0;
+		int acumulado = CABECALHO_NO;
+		while (meio < no.chaves.size() - 1 && acumulado < total / 2) {
+			acumulado += 2 + no.chaves.get(meio).length + 8;
+			meio++;
+		}
+		meio = Math.max(1, meio);
+
+		No direita = novoNo(no.folha);
+		byte[] chaveQueSobe;
+		if (no.folha) {
+			// A primeira chave da direita é copiada para o pai
+			direita.chaves.addAll(no.chaves.subList(meio, no.chaves.size()));
+			direita.ponteiros.addAll(no.ponteiros.subList(meio, no.ponteiros.size()));
+			chaveQueSobe = direita.chaves.get(0);
+			direita.proxima = no.proxima;
+			no.proxima = direita.pagina;
+			no.chaves.subList(meio, no.chaves.size()).clear();
+			no.ponteiros.subList(meio, no.ponteiros.size()).clear();
+		} else {
+			// A chave do meio sobe para o pai e sai deste nível
+			chaveQueSobe = no.chaves.get(meio);
+			direita.chaves.addAll(no.chaves.subList(meio + 1, no.chaves.size()));
+			direita.ponteiros.addAll(no.ponteiros.subList(meio + 1, no.ponteiros.size()));
+			no.chaves.subList(meio, no.chaves.size()).clear();
+			no.ponteiros.subList(meio + 1, no.ponteiros.size()).clear();
+		}
+		sujar(no);
+		sujar(direita);
+		return new Divisao(chaveQueSobe, direita.pagina);
+	}
+
+	private void percorrer(byte[] de, byte[] ate, byte[] prefixo, Visitante visitante) throws IOException {
+		try {
+			No folha;
+			int i;
+			if (de == null) {
+				folha = ler(primeiraFolha);
+				i = 0;
+			} else {
+				folha = folhaPara(de);
+				i = buscar(folha, de);
+				i = (i >= 0) ? i : -i - 1;
+			}
+
+			while (true) {
+				for (; i < folha.chaves.size(); i++) {
+					byte[] chave = folha.chaves.get(i);
+					if (ate != null && Arrays.compareUnsigned(chave, ate) >= 0) return;
+					if (prefixo != null && !comecaCom(chave, prefixo)) return;
+					if (!visitante.visitar(new String(chave, StandardCharsets.UTF_8), folha.ponteiros.get(i))) return;
+				}
+				if (folha.proxima == SEM_PAGINA) return;
+				folha = ler(folha.proxima);
+				i = 0;
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private No folhaPara(byte[] chave) throws IOException {
+		No no = ler(raiz);
+		while (!no.folha) {
+			int i = buscar(no, chave);
+			no = ler(no.ponteiros.get((i >= 0) ? i + 1 : -i - 1));
+		}
+		return no;
+	}
+
+	/**
+	 * Busca binária pela chave no nó, com o mesmo retorno de {@link Arrays#binarySearch(int[], int)}.
+	 */
+	private static int buscar(No no, byte[] chave) {
+		int baixo = 0;
+		int alto = no.chaves.size() - 1;
+		while (baixo <= alto) {
+			int meio = (baixo + alto) >>> 1;
+			int comparacao = Arrays.compareUnsigned(no.chaves.get(meio), chave);
+			if (comparacao < 0) {
+				baixo = meio + 1;
+			} else if (comparacao > 0) {
+				alto = meio - 1;
+			} else {
+				return meio;
+			}
+		}
+		return -(baixo + 1);
+	}
+
+	private static boolean comecaCom(byte[] chave, byte[] prefixo) {
+		return chave.length >= prefixo.length
+				&& Arrays.equals(chave, 0, prefixo.length, prefixo, 0, prefixo.length);
+	}
+
+	private static byte[] codificar(String chave) {
+		return chave.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private No novoNo(boolean folha) {
+		No no = new No(totalPaginas++, folha);
+		sujar(no);
+		return no;
+	}
+
+	/**
+	 * Marca o nó como alterado e o devolve ao cache, caso ele já tenha saído (e sido gravado).
+	 */
+	private void sujar(No no) {
+		no.sujo = true;
+		cache.put(no.pagina, no);
+	}
+
+	private No ler(long pagina) throws IOException {
+		No no = cache.get(pagina);
+		if (no != null) {
+			return no;
+		}
+
+		ByteBuffer buffer = lerBytes(pagina);
+		paginasLidas++;
+		no = new No(pagina, buffer.get() == FOLHA);
+		int numChaves = buffer.getShort() & 0xFFFF;
+		no.proxima = buffer.getLong();
+		if (!no.folha) {
+			no.ponteiros.add(buffer.getLong());
+		}
+		for (int i = 0; i < numChaves; i++) {
+			byte[] chave = new byte[buffer.getShort() & 0xFFFF];
+			buffer.get(chave);
+			no.chaves.add(chave);
+			no.ponteiros.add(buffer.getLong());
+		}
+		cache.put(pagina, no);
+		return no;
+	}
+
+	private ByteBuffer lerBytes(long pagina) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_PAGINA);
+		long posicao = pagina * TAMANHO_PAGINA;
+		while (buffer.hasRemaining()) {
+			if (canal.read(buffer, posicao + buffer.position()) < 0) {
+				throw new IOException("Página " + pagina + " além do fim do arquivo.");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private void escreverPagina(No no) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_PAGINA);
+		buffer.put(no.folha ? FOLHA : INTERNO);
+		buffer.putShort((short) no.chaves.size());
+		buffer.putLong(no.proxima);
+		Iterator<Long> ponteiros = no.ponteiros.iterator();
+		if (!no.folha) {
+			buffer.putLong(ponteiros.next());
+		}
+		for (byte[] chave : no.chaves) {
+			buffer.putShort((short) chave.length);
+			buffer.put(chave);
+			buffer.putLong(ponteiros.next());
+		}
+		buffer.clear();
+		escreverBytes(buffer, no.pagina * TAMANHO_PAGINA);
+		no.sujo = false;
+		paginasGravadas++;
+	}
+
+	private void escreverCabecalho(boolean fechado) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_PAGINA);
+		buffer.putInt(ASSINATURA);
+		buffer.putInt(TAMANHO_PAGINA);
+		buffer.putLong(raiz);
+		buffer.putLong(primeiraFolha);
+		buffer.putLong(totalPaginas);
+		buffer.putLong(quantidade);
+		buffer.put((byte) (fechado ? 1 : 0));
+		buffer.clear();
+		escreverBytes(buffer, 0);
+	}
+
+	private void escreverBytes(ByteBuffer buffer, long posicao) throws IOException {
+		while (buffer.hasRemaining()) {
+			canal.write(buffer, posicao + buffer.position());
+		}
+	}
+}
@@ -0,0 +1,261 @@
+package service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.CRC32C;
+
+/**
+ * Formato de arquivo em blocos comprimidos, lido e gravado como fluxo.
+ * <p>
+ * O conteúdo (ex.: a lista de livros serializada) é cortado em blocos de tamanho fixo, e cada
+ * bloco é comprimido à parte pelo {@link Codec} escolhido e gravado com o seu CRC32C:
+ * </p>
+ * <pre>
+ * cabeçalho: assinatura "BCMP" | versão (byte) | codec (byte) | tamanho dos blocos (int)
+ * bloco:     tamanho original (int) | tamanho gravado (int) | CRC32C do gravado (int) | bytes
+ * fim:       tamanho original 0 (int)
+ * </pre>
+ * <p>
+ * A {@link Saida} e a {@link Entrada} guardam apenas um bloco por vez, de modo que um acervo
+ * de qualquer tamanho é gravado e lido com memória constante (fora a dos objetos em si). A
+ * leitura confere o CRC de cada bloco antes de descomprimi-lo, e um arquivo sem a marca de
+ * fim é tratado como truncado.
+ * </p>
+ */
+final class BlocosComprimidos {
+
+	// "BCMP"
+	static final int ASSINATURA = 0x42434D50;
+	static final byte VERSAO_FORMATO = 1;
+
+	/**
+	 * Tamanho padrão dos blocos, antes da compressão.
+	 */
+	static final int TAMANHO_BLOCO_PADRAO = 64 * 1024;
+
+	// Limite aceito na leitura, para não alocar tamanhos absurdos de um arquivo corrompido
+	private static final int TAMANHO_BLOCO_MAXIMO = 64 * 1024 * 1024;
+
+	private BlocosComprimidos() {
+	}
+
+	/**
+	 * Indica se os primeiros bytes de um arquivo são a assinatura deste formato.
+	 * @param inicio Os primeiros bytes lidos do arquivo.
+	 * @param tamanho Quantos bytes foram lidos.
+	 * @return {@code true} se o arquivo está em blocos comprimidos.
+	 */
+	static boolean temAssinatura(byte[] inicio, int tamanho) {
+		return tamanho >= 4 && ((inicio[0] & 0xFF) << 24 | (inicio[1] & 0xFF) << 16
+				| (inicio[2] & 0xFF) << 8 | (inicio[3] & 0xFF)) == ASSINATURA;
+	}
+
+	/**
+	 * Fluxo de saída que grava o conteúdo em blocos comprimidos.
+	 * <p>{@link #close()} grava o último bloco e a marca de fim; sem ele, o arquivo fica truncado.</p>
+	 */
+	static final class Saida extends OutputStream {
+		private final DataOutputStream destino;
+		private final Codec codec;
+		private final byte[] bloco;
+		private final CRC32C crc = new CRC32C();
+		private int usados;
+		private boolean fechado;
+
+		/**
+		 * Grava o cabeçalho e prepara o primeiro bloco.
+		 * @param destino O fluxo de destino (fechado junto com este).
+		 * @param codec O {@link Codec} dos blocos.
+		 * @param tamanhoBloco O tamanho dos blocos antes da compressão.
+		 * @throws IOException Em caso de erro ao gravar o cabeçalho.
+		 */
+		Saida(OutputStream destino, Codec codec, int tamanhoBloco) throws IOException {
+			if (tamanhoBloco <= 0 || tamanhoBloco > TAMANHO_BLOCO_MAXIMO) {
+				throw new IllegalArgumentException("Tamanho de bloco inválido: " + tamanhoBloco);
+			}
+			this.destino = new DataOutputStream(destino);
+			this.codec = codec;
+			this.bloco = new byte[tamanhoBloco];
+			this.destino.writeInt(ASSINATURA);
+			this.destino.writeByte(VERSAO_FORMATO);
+			this.destino.writeByte(codec.getId());
+			this.destino.writeInt(tamanhoBloco);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (usados == bloco.length) {
+				gravarBloco();
+			}
+			bloco[usados++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] dados, int inicio, int tamanho) throws IOException {
+			while (tamanho > 0) {
+				if (usados == bloco.length) {
+					gravarBloco();
+				}
+				int parte = Math.min(tamanho, bloco.length - usados);
+				System.arraycopy(dados, inicio, bloco, usados, parte);
+				usados += parte;
+				inicio += parte;
+				tamanho -= parte;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (fechado) {
+				return;
+			}
+			fechado = true;
+			try {
+				if (usados > 0) {
+					gravarBloco();
+				}
+				destino.writeInt(0);
+			} finally {
+				destino.close();
+			}
+		}
+
+		private void gravarBloco() throws IOException {
+			byte[] comprimido = codec.comprimir(bloco, usados);
+			crc.reset();
+			crc.update(comprimido, 0, comprimido.length);
+			destino.writeInt(usados);
+			destino.writeInt(comprimido.length);
+			destino.writeInt((int) crc.getValue());
+			destino.write(comprimido);
+			usados = 0;
+		}
+	}
+
+	/**
+	 * Fluxo de entrada que lê e descomprime um arquivo em blocos comprimidos, um bloco por vez.
+	 */
+	static final class Entrada extends InputStream {
+		private final DataInputStream origem;
+		private final Codec codec;
+		private final CRC32C crc = new CRC32C();
+		private byte[] bloco = new byte[0];
+		private byte[] comprimido = new byte[0];
+		private int posicao;
+		private int tamanho;
+		private boolean terminou;
+
+		/**
+		 * Lê e confere o cabeçalho.
+		 * @param origem O fluxo do arquivo (fechado junto com este).
+		 * @param codec O codec configurado; se o arquivo usar outro, ele é procurado entre os {@link Codec.Padrao}.
+		 * @throws IOException Se o cabeçalho for inválido ou o codec do arquivo for desconhecido.
+		 */
+		Entrada(InputStream origem, Codec codec) throws IOException {
+			this.origem = new DataInputStream(origem);
+			if (this.origem.readInt() != ASSINATURA) {
+				throw new IOException("Arquivo sem a assinatura de blocos comprimidos.");
+			}
+			byte versao = this.origem.readByte();
+			if (versao != VERSAO_FORMATO) {
+				throw new IOException("Versão de blocos comprimidos não suportada: " + versao);
+			}
+			byte idCodec = this.origem.readByte();
+			Codec doArquivo = (codec != null && codec.getId() == idCodec) ? codec : Codec.Padrao.porId(idCodec);
+			if (doArquivo == null) {
+				throw new IOException("Codec desconhecido no arquivo: " + idCodec);
+			}
+			this.codec = doArquivo;
+			this.origem.readInt(); // Tamanho dos blocos: cada bloco também traz o seu
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (posicao == tamanho && !lerBloco()) {
+				return -1;
+			}
+			return bloco[posicao++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] destino, int inicio, int quantidade) throws IOException {
+			if (quantidade == 0) {
+				return 0;
+			}
+			if (posicao == tamanho && !lerBloco()) {
+				return -1;
+			}
+			int parte = Math.min(quantidade, tamanho - posicao);
+			System.arraycopy(bloco, posicao, destino, inicio, parte);
+			posicao += parte;
+			return parte;
+		}
+
+		/**
+		 * Lê o restante do arquivo até a marca de fim, conferindo os blocos que faltarem.
+		 * @throws IOException Se o arquivo estiver truncado ou algum bloco estiver corrompido.
+		 */
+		void conferirFim() throws IOException {
+			posicao = tamanho;
+			while (lerBloco()) {
+				posicao = tamanho;
+			}
+		}
+
+		@Override
+		public int available() {
+			return tamanho - posicao;
+		}
+
+		@Override
+		public void close() throws IOException {
+			origem.close();
+		}
+
+		/**
+		 * Lê, confere e descomprime o próximo bloco.
+		 * @return {@code false} ao chegar na marca de fim.
+		 */
+		private boolean lerBloco() throws IOException {
+			if (terminou) {
+				return false;
+			}
+			int tamanhoOriginal;
+			try {
+				tamanhoOriginal = origem.readInt();
+			} catch (EOFException e) {
+				throw new IOException("Arquivo de blocos comprimidos truncado (sem a marca de fim).", e);
+			}
+			if (tamanhoOriginal == 0) {
+				terminou = true;
+				return false;
+			}
+			int tamanhoGravado = origem.readInt();
+			int crcGravado = origem.readInt();
+			if (tamanhoOriginal < 0 || tamanhoOriginal > TAMANHO_BLOCO_MAXIMO
+					|| tamanhoGravado < 0 || tamanhoGravado > TAMANHO_BLOCO_MAXIMO) {
+				throw new IOException("Bloco com tamanho inválido: " + tamanhoOriginal + "/" + tamanhoGravado);
+			}
+			if (comprimido.length < tamanhoGravado) {
+				comprimido = new byte[tamanhoGravado];
+			}
+			origem.readFully(comprimido, 0, tamanhoGravado);
+			crc.reset();
+			crc.update(comprimido, 0, tamanhoGravado);
+			if ((int) crc.getValue() != crcGravado) {
+				throw new IOException("CRC32C inválido num bloco comprimido.");
+			}
+			if (bloco.length < tamanhoOriginal) {
+				bloco = new byte[tamanhoOriginal];
+			}
+			codec.descomprimir(comprimido, tamanhoGravado, bloco, tamanhoOriginal);
+			posicao = 0;
+			tamanho = tamanhoOriginal;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package service;
+
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Interface de um cache de leitura (read-through) usado na frente das consultas do
+ * {@link GerenciadorBiblioteca}.
+ * <p>
+ * O cache não sabe de onde vêm os valores: em uma falta, ele chama o carregador recebido,
+ * que executa a consulta real. Por isso, qualquer forma de armazenamento do acervo pode
+ * ficar por trás dele. Implementações diferentes podem ser plugadas por meio de uma {@link Fabrica}.
+ * </p>
+ * @param <K> O tipo da chave.
+ * @param <V> O tipo do valor.
+ */
+public interface Cache<K, V> {
+
+	/**
+	 * Retorna o valor da chave, carregando-o (e guardando-o) em caso de falta.
+	 * <p>Valores {@code null} retornados pelo carregador não são guardados.</p>
+	 * @param chave A chave procurada.
+	 * @param carregador A consulta real, executada apenas em caso de falta.
+	 * @return O valor da chave (ou {@code null} se o carregador não encontrar nada).
+	 */
+	V obter(K chave, Function<K, V> carregador);
+
+	/**
+	 * Descarta a entrada de uma chave.
+	 * @param chave A chave a ser invalidada.
+	 */
+	void invalidar(K chave);
+
+	/**
+	 * Descarta todas as entradas.
+	 */
+	void invalidarTudo();
+
+	/**
+	 * Retorna as estatísticas acumuladas do cache.
+	 * @return Um retrato das {@link Estatisticas} no momento da chamada.
+	 */
+	Estatisticas estatisticas();
+
+	/**
+	 * Fábrica de caches, usada pelo {@link GerenciadorBiblioteca} para criar um cache por consulta.
+	 */
+	interface Fabrica {
+		/**
+		 * Cria um cache.
+		 * @param <K> O tipo da chave.
+		 * @param <V> O tipo do valor.
+		 * @param nome O nome da consulta (usado nas estatísticas).
+		 * @param capacidade O peso total máximo das entradas.
+		 * @param peso Função que calcula o peso de cada valor (ex.: tamanho de uma lista).
+		 * @return O cache criado.
+		 */
+		<K, V> Cache<K, V> criar(String nome, long capacidade, ToIntFunction<V> peso);
+	}
+
+	/**
+	 * Retrato imutável das estatísticas de um cache.
+	 */
+	final class Estatisticas {
+		private final String nome;
+		private final long acertos;
+		private final long falhas;
+		private final long remocoes;
+		private final long pesoAtual;
+		private final long capacidade;
+
+		/**
+		 * Construtor completo.
+		 * @param nome O nome do cache.
+		 * @param acertos Consultas atendidas pelo cache.
+		 * @param falhas Consultas que precisaram do carregador.
+		 * @param remocoes Entradas descartadas por falta de espaço.
+		 * @param pesoAtual O peso total das entradas guardadas.
+		 * @param capacidade O peso total máximo.
+		 */
+		public Estatisticas(String nome, long acertos, long falhas, long remocoes, long pesoAtual, long capacidade) {
+			this.nome = nome;
+			this.acertos = acertos;
+			this.falhas = falhas;
+			this.remocoes = remocoes;
+			this.pesoAtual = pesoAtual;
+			this.capacidade = capacidade;
+		}
+
+		/** @return O nome do cache. */
+		public String getNome() {
+			return nome;
+		}
+
+		/** @return Quantas consultas foram atendidas pelo cache. */
+		public long getAcertos() {
+			return acertos;
+		}
+
+		/** @return Quantas consultas precisaram do carregador. */
+		public long getFalhas() {
+			return falhas;
+		}
+
+		/** @return Quantas entradas foram descartadas por falta de espaço. */
+		public long getRemocoes() {
+			return remocoes;
+		}
+
+		/** @return O peso total das entradas guardadas. */
+		public long getPesoAtual() {
+			return pesoAtual;
+		}
+
+		/** @return O peso total máximo. */
+		public long getCapacidade() {
+			return capacidade;
+		}
+
+		/**
+		 * Calcula a taxa de acertos.
+		 * @return A fração de consultas atendidas pelo cache (0 a 1).
+		 */
+		public double getTaxaAcertos() {
+			long total = acertos + falhas;
+			return (total == 0) ? 0 : (double) acertos / total;
+		}
+
+		/**
+		 * Retorna a representação textual das estatísticas.
+		 * @return Uma string com acertos, falhas, remoções e ocupação.
+		 */
+		@Override
+		public String toString() {
+			return String.format("%s: acertos=%d falhas=%d (%.1f%%) remocoes=%d ocupacao=%d/%d",
+					nome, acertos, falhas, getTaxaAcertos() * 100, remocoes, pesoAtual, capacidade);
+		}
+	}
+}
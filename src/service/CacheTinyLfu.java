@@ -0,0 +1,298 @@
+package service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Cache limitado por peso com política de remoção W-TinyLFU.
+ * <p>
+ * As entradas novas entram numa pequena janela LRU (1% da capacidade). Quando a janela
+ * transborda, a entrada mais antiga dela disputa uma vaga na área principal (também LRU)
+ * com a vítima da área principal. Vence quem tiver sido consultado mais vezes recentemente,
+ * segundo um esboço Count-Min de frequências. Com isso, uma varredura de chaves raras não
+ * expulsa os títulos populares, que continuam sendo atendidos pelo cache.
+ * </p>
+ * <p>
+ * As frequências são contadores de 4 bits divididos pela metade periodicamente (envelhecimento),
+ * para que títulos que deixaram de ser populares percam a vaga com o tempo.
+ * </p>
+ * <p>
+ * O carregador é executado fora da trava do cache. Se a chave for invalidada durante o
+ * carregamento, o valor carregado é devolvido mas não é guardado, pois pode estar desatualizado.
+ * </p>
+ * @param <K> O tipo da chave.
+ * @param <V> O tipo do valor.
+ */
+public class CacheTinyLfu<K, V> implements Cache<K, V> {
+
+	/**
+	 * Fábrica padrão, usada pelo {@link GerenciadorBiblioteca}.
+	 */
+	public static final Cache.Fabrica FABRICA = new Cache.Fabrica() {
+		@Override
+		public <K, V> Cache<K, V> criar(String nome, long capacidade, ToIntFunction<V> peso) {
+			return new CacheTinyLfu<>(nome, capacidade, peso);
+		}
+	};
+
+	/**
+	 * Entrada guardada no cache.
+	 */
+	private static final class Entrada<V> {
+		final V valor;
+		final int peso;
+
+		Entrada(V valor, int peso) {
+			this.valor = valor;
+			this.peso = peso;
+		}
+	}
+
+	private final String nome;
+	private final long capacidade;
+	private final long capacidadeJanela;
+	private final ToIntFunction<V> peso;
+
+	// Ambas em ordem de acesso: a primeira entrada é sempre a menos usada recentemente
+	private final LinkedHashMap<K, Entrada<V>> janela = new LinkedHashMap<>(16, 0.75f, true);
+	private final LinkedHashMap<K, Entrada<V>> principal = new LinkedHashMap<>(16, 0.75f, true);
+	private long pesoJanela;
+	private long pesoPrincipal;
+
+	private final EsbocoFrequencia frequencias;
+
+	// Incrementado a cada invalidação, para descartar carregamentos que ficaram desatualizados
+	private long versao;
+
+	private long acertos;
+	private long falhas;
+	private long remocoes;
+
+	/**
+	 * Construtor de um cache em que cada entrada pesa 1 (capacidade = número de entradas).
+	 * @param nome O nome do cache (usado nas estatísticas).
+	 * @param capacidade O número máximo de entradas.
+	 */
+	public CacheTinyLfu(String nome, long capacidade) {
+		this(nome, capacidade, v -> 1);
+	}
+
+	/**
+	 * Construtor completo.
+	 * @param nome O nome do cache (usado nas estatísticas).
+	 * @param capacidade O peso total máximo das entradas.
+	 * @param peso Função que calcula o peso de cada valor (mínimo 1).
+	 */
+	public CacheTinyLfu(String nome, long capacidade, ToIntFunction<V> peso) {
+		if (capacidade <= 0) {
+			throw new IllegalArgumentException("Capacidade do cache deve ser positiva: " + capacidade);
+		}
+		this.nome = nome;
+		this.capacidade = capacidade;
+		this.capacidadeJanela = Math.max(1, capacidade / 100);
+		this.peso = peso;
+		this.frequencias = new EsbocoFrequencia(capacidade);
+	}
+
+	@Override
+	public V obter(K chave, Function<K, V> carregador) {
+		long versaoCarga;
+		synchronized (this) {
+			frequencias.incrementar(chave);
+			Entrada<V> entrada = janela.get(chave);
+			if (entrada == null) {
+				entrada = principal.get(chave);
+			}
+			if (entrada != null) {
+				acertos++;
+				return entrada.valor;
+			}
+			falhas++;
+			versaoCarga = versao;
+		}
+
+		// A consulta real roda sem a trava do cache (ela pode precisar das travas do acervo)
+		V valor = carregador.apply(chave);
+		if (valor == null) {
+			return null;
+		}
+
+		synchronized (this) {
+			if (versaoCarga == versao && !janela.containsKey(chave) && !principal.containsKey(chave)) {
+				inserir(chave, valor);
+			}
+		}
+		return valor;
+	}
+
+	@Override
+	public synchronized void invalidar(K chave) {
+		versao++;
+		Entrada<V> entrada = janela.remove(chave);
+		if (entrada != null) {
+			pesoJanela -= entrada.peso;
+		}
+		entrada = principal.remove(chave);
+		if (entrada != null) {
+			pesoPrincipal -= entrada.peso;
+		}
+	}
+
+	@Override
+	public synchronized void invalidarTudo() {
+		versao++;
+		janela.clear();
+		principal.clear();
+		pesoJanela = 0;
+		pesoPrincipal = 0;
+	}
+
+	@Override
+	public synchronized Estatisticas estatisticas() {
+		return new Estatisticas(nome, acertos, falhas, remocoes, pesoJanela + pesoPrincipal, capacidade);
+	}
+
+	/**
+	 * Coloca uma entrada nova na janela e resolve os transbordamentos.
+	 */
+	private void inserir(K chave, V valor) {
+		int pesoEntrada = Math.max(1, peso.applyAsInt(valor));
+		if (pesoEntrada > capacidade) {
+			return; // Nunca caberia: não vale a pena guardar
+		}
+		janela.put(chave, new Entrada<>(valor, pesoEntrada));
+		pesoJanela += pesoEntrada;
+
+		// Quem sai da janela vira candidato à área principal
+		while (pesoJanela > capacidadeJanela && janela.size() > 1) {
+			Iterator<Map.Entry<K, Entrada<V>>> it = janela.entrySet().iterator();
+			Map.Entry<K, Entrada<V>> candidato = it.next();
+			it.remove();
+			pesoJanela -= candidato.getValue().peso;
+			admitir(candidato.getKey(), candidato.getValue());
+		}
+
+		// A janela sozinha pode ultrapassar a capacidade com uma entrada muito pesada
+		while (pesoJanela + pesoPrincipal > capacidade && !principal.isEmpty()) {
+			removerMaisAntigaPrincipal();
+		}
+	}
+
+	/**
+	 * Decide se o candidato que saiu da janela entra na área principal, comparando a sua
+	 * frequência com a das vítimas que precisariam sair para abrir espaço.
+	 */
+	private void admitir(K chave, Entrada<V> candidato) {
+		long limitePrincipal = capacidade - pesoJanela;
+		int frequenciaCandidato = frequencias.estimar(chave);
+
+		while (pesoPrincipal + candidato.peso > limitePrincipal) {
+			if (principal.isEmpty()) {
+				remocoes++;
+				return; // Não há espaço nem vítima: o candidato é descartado
+			}
+			K vitima = principal.keySet().iterator().next();
+			if (frequenciaCandidato <= frequencias.estimar(vitima)) {
+				remocoes++;
+				return; // A vítima é mais popular: o candidato é descartado
+			}
+			removerMaisAntigaPrincipal();
+		}
+
+		principal.put(chave, candidato);
+		pesoPrincipal += candidato.peso;
+	}
+
+	private void removerMaisAntigaPrincipal() {
+		Iterator<Map.Entry<K, Entrada<V>>> it = principal.entrySet().iterator();
+		Entrada<V> removida = it.next().getValue();
+		it.remove();
+		pesoPrincipal -= removida.peso;
+		remocoes++;
+	}
+
+	/**
+	 * Esboço Count-Min com 4 linhas de contadores de 4 bits (16 contadores por {@code long}).
+	 * <p>Depois de um número de incrementos proporcional à capacidade, todos os contadores são
+	 * divididos pela metade, o que dá mais peso às consultas recentes.</p>
+	 */
+	private static final class EsbocoFrequencia {
+		private static final long[] SEMENTES = { 0x97cb3127L, 0xcf5a1b57L, 0x5a1d8b31L, 0xa3e5f1c7L };
+		private static final long METADE_SEM_BIT_ALTO = 0x7777777777777777L;
+
+		private final long[] tabela;
+		private final int mascara;
+		private final int limiteAmostra;
+		private int amostras;
+
+		EsbocoFrequencia(long capacidade) {
+			int contadores = Integer.highestOneBit((int) Math.min(1 << 24, Math.max(64, capacidade * 4)) - 1) << 1;
+			this.tabela = new long[contadores / 16 * SEMENTES.length];
+			this.mascara = contadores - 1;
+			this.limiteAmostra = (int) Math.min(Integer.MAX_VALUE, Math.max(640, capacidade * 10));
+		}
+
+		void incrementar(Object chave) {
+			int hash = espalhar(chave.hashCode());
+			boolean mudou = false;
+			for (int linha = 0; linha < SEMENTES.length; linha++) {
+				mudou |= incrementarContador(linha, indice(hash, linha));
+			}
+			if (mudou && ++amostras >= limiteAmostra) {
+				envelhecer();
+			}
+		}
+
+		int estimar(Object chave) {
+			int hash = espalhar(chave.hashCode());
+			int minimo = 15;
+			for (int linha = 0; linha < SEMENTES.length; linha++) {
+				minimo = Math.min(minimo, lerContador(linha, indice(hash, linha)));
+			}
+			return minimo;
+		}
+
+		private int indice(int hash, int linha) {
+			long h = (hash + SEMENTES[linha]) * SEMENTES[linha];
+			return (int) (h ^ (h >>> 32)) & mascara;
+		}
+
+		private int posicao(int linha, int indice) {
+			return linha * (tabela.length / SEMENTES.length) + (indice >>> 4);
+		}
+
+		private int lerContador(int linha, int indice) {
+			int deslocamento = (indice & 15) << 2;
+			return (int) ((tabela[posicao(linha, indice)] >>> deslocamento) & 0xf);
+		}
+
+		private boolean incrementarContador(int linha, int indice) {
+			int deslocamento = (indice & 15) << 2;
+			int pos = posicao(linha, indice);
+			if (((tabela[pos] >>> deslocamento) & 0xf) == 15) {
+				return false; // Contador saturado
+			}
+			tabela[pos] += 1L << deslocamento;
+			return true;
+		}
+
+		private void envelhecer() {
+			for (int i = 0; i < tabela.length; i++) {
+				tabela[i] = (tabela[i] >>> 1) & METADE_SEM_BIT_ALTO;
+			}
+			amostras /= 2;
+		}
+
+		private static int espalhar(int h) {
+			h ^= h >>> 17;
+			h *= 0xed5ad4bb;
+			h ^= h >>> 11;
+			h *= 0xac4c1b51;
+			h ^= h >>> 15;
+			return h;
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package service;
+
+import java.util.List;
+
+import model.Livro;
+
+/**
+ * Interface de um campus participante da federação de bibliotecas.
+ * <p>
+ * Um campus pode ser uma instância do {@link GerenciadorBiblioteca} no mesmo processo
+ * ({@link CampusLocal}) ou em outra máquina, acessada pela API HTTP. As consultas podem
+ * demorar ou falhar: quem as chama ({@link FederacaoCampi}) é responsável pelos prazos.
+ * </p>
+ */
+public interface Campus {
+
+	/**
+	 * Retorna o nome do campus.
+	 * @return O nome (ex.: "Vitória da Conquista").
+	 */
+	String getNome();
+
+	/**
+	 * Busca um livro pelo título (ignora maiúsculas/minúsculas).
+	 * @param titulo O título procurado.
+	 * @return O {@link Livro} encontrado ou {@code null}.
+	 * @throws Exception Se o campus não puder ser consultado.
+	 */
+	Livro exibeLivro(String titulo) throws Exception;
+
+	/**
+	 * Lista os livros de um autor, procurado pelo nome (ignora maiúsculas/minúsculas).
+	 * @param nomeAutor O nome do autor.
+	 * @return Os livros do autor (lista vazia se não houver).
+	 * @throws Exception Se o campus não puder ser consultado.
+	 */
+	List<Livro> listLivrosPorAutor(String nomeAutor) throws Exception;
+
+	/**
+	 * Retorna as alterações do acervo depois de uma sequência, para atualizar uma réplica.
+	 * @param desde A última sequência já aplicada ({@code 0} para o acervo inteiro).
+	 * @return O {@link RegistroAlteracoes.Lote} com as alterações.
+	 * @throws Exception Se o campus não puder ser consultado.
+	 */
+	RegistroAlteracoes.Lote alteracoesDesde(long desde) throws Exception;
+}
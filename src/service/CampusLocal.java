@@ -0,0 +1,63 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import model.Autor;
+import model.Livro;
+
+/**
+ * Campus cujo {@link GerenciadorBiblioteca} roda no mesmo processo.
+ */
+public class CampusLocal implements Campus {
+
+	private final String nome;
+	private final GerenciadorBiblioteca gerenciador;
+
+	/**
+	 * Construtor completo.
+	 * @param nome O nome do campus.
+	 * @param gerenciador O {@link GerenciadorBiblioteca} do campus.
+	 */
+	public CampusLocal(String nome, GerenciadorBiblioteca gerenciador) {
+		this.nome = nome;
+		this.gerenciador = gerenciador;
+	}
+
+	@Override
+	public String getNome() {
+		return nome;
+	}
+
+	@Override
+	public Livro exibeLivro(String titulo) {
+		return gerenciador.exibeLivro(titulo);
+	}
+
+	@Override
+	public List<Livro> listLivrosPorAutor(String nomeAutor) {
+		Autor autor = buscarAutorPorNome(gerenciador, nomeAutor);
+		return (autor == null) ? new ArrayList<>() : gerenciador.listLivrosPorAutor(autor);
+	}
+
+	@Override
+	public RegistroAlteracoes.Lote alteracoesDesde(long desde) {
+		return gerenciador.alteracoesDesde(desde);
+	}
+
+	/**
+	 * Procura o {@link Autor} de algum livro do acervo pelo nome, como faz a listagem por autor do console.
+	 * @param gerenciador O gerenciador onde procurar.
+	 * @param nomeAutor O nome do autor (ignora maiúsculas/minúsculas).
+	 * @return O autor encontrado ou {@code null}.
+	 */
+	static Autor buscarAutorPorNome(GerenciadorBiblioteca gerenciador, String nomeAutor) {
+		if (nomeAutor == null) return null;
+		for (Livro livro : gerenciador.percorrerLivros()) {
+			if (livro.getAutor().getNome().equalsIgnoreCase(nomeAutor)) {
+				return livro.getAutor();
+			}
+		}
+		return null;
+	}
+}
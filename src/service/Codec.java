@@ -0,0 +1,183 @@
+package service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Interface dos algoritmos de compressão usados nos retratos em blocos comprimidos
+ * ({@link BlocosComprimidos}).
+ * <p>
+ * Cada bloco é comprimido de forma independente. O identificador do codec vai no cabeçalho
+ * do arquivo, para que a leitura saiba como descomprimi-lo; os codecs do JDK estão em
+ * {@link Padrao}.
+ * </p>
+ */
+public interface Codec {
+
+	/**
+	 * Retorna o identificador gravado no cabeçalho dos arquivos (único entre os codecs).
+	 * @return O identificador do codec.
+	 */
+	byte getId();
+
+	/**
+	 * Retorna o nome do codec (ex.: para a linha de comando).
+	 * @return O nome, em minúsculas.
+	 */
+	String getNome();
+
+	/**
+	 * Comprime um bloco.
+	 * @param dados Os bytes do bloco.
+	 * @param tamanho Quantos bytes de {@code dados} usar, a partir do início.
+	 * @return Os bytes comprimidos.
+	 */
+	byte[] comprimir(byte[] dados, int tamanho);
+
+	/**
+	 * Descomprime um bloco.
+	 * @param comprimido Os bytes comprimidos.
+	 * @param tamanhoComprimido Quantos bytes de {@code comprimido} usar.
+	 * @param destino Onde escrever o bloco original.
+	 * @param tamanhoOriginal O tamanho exato do bloco original.
+	 * @throws IOException Se os dados estiverem corrompidos ou não tiverem o tamanho esperado.
+	 */
+	void descomprimir(byte[] comprimido, int tamanhoComprimido, byte[] destino, int tamanhoOriginal) throws IOException;
+
+	/**
+	 * Codecs do JDK: sem compressão, Deflate (nível padrão ou o mais rápido) e GZIP.
+	 */
+	enum Padrao implements Codec {
+		/** Guarda os blocos como estão (apenas os CRCs são acrescentados) */
+		NENHUM(0, "nenhum", Deflater.NO_COMPRESSION),
+		/** Deflate no nível padrão: bom equilíbrio entre tamanho e tempo */
+		DEFLATE(1, "deflate", Deflater.DEFAULT_COMPRESSION),
+		/** Deflate no nível mais rápido: arquivo maior, gravação bem mais rápida */
+		DEFLATE_RAPIDO(2, "rapido", Deflater.BEST_SPEED),
+		/** O mesmo Deflate dentro do formato GZIP (cabeçalho e CRC próprios) */
+		GZIP(3, "gzip", Deflater.DEFAULT_COMPRESSION);
+
+		private final byte id;
+		private final String nome;
+		private final int nivel;
+
+		Padrao(int id, String nome, int nivel) {
+			this.id = (byte) id;
+			this.nome = nome;
+			this.nivel = nivel;
+		}
+
+		@Override
+		public byte getId() {
+			return id;
+		}
+
+		@Override
+		public String getNome() {
+			return nome;
+		}
+
+		@Override
+		public byte[] comprimir(byte[] dados, int tamanho) {
+			if (this == NENHUM) {
+				return Arrays.copyOf(dados, tamanho);
+			}
+			ByteArrayOutputStream saida = new ByteArrayOutputStream(tamanho / 4 + 64);
+			if (this == GZIP) {
+				try (GZIPOutputStream gzip = new GZIPOutputStream(saida)) {
+					gzip.write(dados, 0, tamanho);
+				} catch (IOException e) {
+					throw new IllegalStateException("Falha ao comprimir bloco: " + e.getMessage(), e);
+				}
+				return saida.toByteArray();
+			}
+			Deflater deflater = new Deflater(nivel, true);
+			try {
+				deflater.setInput(dados, 0, tamanho);
+				deflater.finish();
+				byte[] parte = new byte[8192];
+				while (!deflater.finished()) {
+					saida.write(parte, 0, deflater.deflate(parte));
+				}
+			} finally {
+				deflater.end();
+			}
+			return saida.toByteArray();
+		}
+
+		@Override
+		public void descomprimir(byte[] comprimido, int tamanhoComprimido, byte[] destino, int tamanhoOriginal)
+				throws IOException {
+			if (this == NENHUM) {
+				if (tamanhoComprimido != tamanhoOriginal) {
+					throw new IOException("Bloco sem compressão com tamanho inesperado: " + tamanhoComprimido);
+				}
+				System.arraycopy(comprimido, 0, destino, 0, tamanhoOriginal);
+				return;
+			}
+			int lidos = 0;
+			if (this == GZIP) {
+				try (GZIPInputStream gzip = new GZIPInputStream(
+						new ByteArrayInputStream(comprimido, 0, tamanhoComprimido))) {
+					int n;
+					while (lidos < tamanhoOriginal && (n = gzip.read(destino, lidos, tamanhoOriginal - lidos)) > 0) {
+						lidos += n;
+					}
+					if (gzip.read() != -1) {
+						lidos++; // Sobrou conteúdo: o tamanho não confere
+					}
+				}
+			} else {
+				Inflater inflater = new Inflater(true);
+				try {
+					inflater.setInput(comprimido, 0, tamanhoComprimido);
+					while (lidos < tamanhoOriginal && !inflater.finished()) {
+						int n = inflater.inflate(destino, lidos, tamanhoOriginal - lidos);
+						if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+							break;
+						}
+						lidos += n;
+					}
+				} catch (DataFormatException e) {
+					throw new IOException("Bloco Deflate corrompido: " + e.getMessage(), e);
+				} finally {
+					inflater.end();
+				}
+			}
+			if (lidos != tamanhoOriginal) {
+				throw new IOException("Bloco descomprimido com " + lidos + " bytes; esperados " + tamanhoOriginal);
+			}
+		}
+
+		/**
+		 * Busca um codec do JDK pelo identificador.
+		 * @param id O identificador gravado no arquivo.
+		 * @return O codec, ou {@code null} se nenhum tiver esse identificador.
+		 */
+		public static Padrao porId(byte id) {
+			for (Padrao codec : values()) {
+				if (codec.id == id) return codec;
+			}
+			return null;
+		}
+
+		/**
+		 * Busca um codec do JDK pelo nome (ignora maiúsculas/minúsculas).
+		 * @param nome O nome do codec (ex.: "deflate", "gzip", "rapido", "nenhum").
+		 * @return O codec, ou {@code null} se nenhum tiver esse nome.
+		 */
+		public static Padrao porNome(String nome) {
+			for (Padrao codec : values()) {
+				if (codec.nome.equalsIgnoreCase(nome)) return codec;
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package service;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+
+import model.Leitor;
+
+/**
+ * Contadores de empréstimos em aberto por leitor e limites por {@link Leitor.Categoria}.
+ * <p>
+ * Cada leitor tem um contador atômico, mantido pelo {@link GerenciadorBiblioteca} a cada
+ * empréstimo, devolução e repasse. Conferir o limite não percorre o acervo: é uma leitura e um
+ * {@code compareAndSet} no contador do leitor, em tempo constante. Como a conferência e o
+ * incremento são uma só operação atômica, dois balcões emprestando livros diferentes ao mesmo
+ * leitor nunca passam juntos do limite. Os contadores são achados pelas duas metades do ID do
+ * leitor (ver {@link MapaIds}), sem criar objetos na consulta.
+ * </p>
+ * <p>Pode ser usado por várias threads ao mesmo tempo.</p>
+ */
+public final class CotasEmprestimo {
+
+	/**
+	 * Limites padrão de livros em aberto por categoria (o regulamento da biblioteca).
+	 */
+	public static final Map<Leitor.Categoria, Integer> LIMITES_PADRAO;
+	static {
+		Map<Leitor.Categoria, Integer> limites = new EnumMap<>(Leitor.Categoria.class);
+		limites.put(Leitor.Categoria.GRADUACAO, 5);
+		limites.put(Leitor.Categoria.POS_GRADUACAO, 8);
+		limites.put(Leitor.Categoria.DOCENTE, 15);
+		limites.put(Leitor.Categoria.SERVIDOR, 5);
+		limites.put(Leitor.Categoria.EXTERNO, 2);
+		LIMITES_PADRAO = Collections.unmodifiableMap(limites);
+	}
+
+	// ID do leitor -> livros em aberto (criado no primeiro empréstimo do leitor, nunca removido)
+	private final MapaIds<AtomicInteger> emAberto = new MapaIds<>();
+	private final StampedLock travaEmAberto = new StampedLock();
+
+	// Limite de cada categoria, pela posição (ordinal); trocado inteiro a cada configuração
+	private volatile int[] limites;
+
+	/**
+	 * Cria os contadores zerados, com os {@link #LIMITES_PADRAO}.
+	 */
+	public CotasEmprestimo() {
+		int[] padrao = new int[Leitor.Categoria.values().length];
+		for (Leitor.Categoria categoria : Leitor.Categoria.values()) {
+			padrao[categoria.ordinal()] = LIMITES_PADRAO.get(categoria);
+		}
+		this.limites = padrao;
+	}
+
+	/**
+	 * Conta um novo empréstimo para o leitor, se ele ainda estiver abaixo do limite da sua categoria.
+	 * @param leitor O {@link Leitor}.
+	 * @return {@code true} se o empréstimo foi contado; {@code false} se o leitor já atingiu o limite.
+	 */
+	public boolean adquirir(Leitor leitor) {
+		int limite = getLimite(leitor.getCategoria());
+		AtomicInteger contador = contadorDe(leitor);
+		while (true) {
+			int atual = contador.get();
+			if (atual >= limite) {
+				return false;
+			}
+			if (contador.compareAndSet(atual, atual + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Conta um empréstimo sem conferir o limite (repasses da fila de reservas, edições feitas
+	 * pelo bibliotecário e reconstrução dos contadores na carga).
+	 * @param leitor O {@link Leitor}.
+	 */
+	public void contar(Leitor leitor) {
+		contadorDe(leitor).incrementAndGet();
+	}
+
+	/**
+	 * Desconta um empréstimo encerrado (devolução, repasse ou remoção do livro).
+	 * @param leitor O {@link Leitor}.
+	 */
+	public void liberar(Leitor leitor) {
+		AtomicInteger contador = consultar(leitor);
+		if (contador != null) {
+			contador.getAndUpdate(atual -> Math.max(0, atual - 1));
+		}
+	}
+
+	/**
+	 * Retorna quantos livros o leitor tem em aberto.
+	 * @param leitor O {@link Leitor}.
+	 * @return A quantidade de empréstimos em aberto.
+	 */
+	public int getEmAberto(Leitor leitor) {
+		AtomicInteger contador = (leitor == null) ? null : consultar(leitor);
+		return (contador != null) ? contador.get() : 0;
+	}
+
+	/**
+	 * Confere, sem contar nada, se o leitor ainda pode pegar mais um livro.
+	 * @param leitor O {@link Leitor}.
+	 * @return {@code true} se ele está abaixo do limite da sua categoria.
+	 */
+	public boolean podeEmprestar(Leitor leitor) {
+		return getEmAberto(leitor) < getLimite(leitor.getCategoria());
+	}
+
+	/**
+	 * Retorna o limite de livros em aberto de uma categoria.
+	 * @param categoria A {@link Leitor.Categoria}.
+	 * @return O limite.
+	 */
+	public int getLimite(Leitor.Categoria categoria) {
+		return limites[categoria.ordinal()];
+	}
+
+	/**
+	 * Define o limite de livros em aberto de uma categoria.
+	 * <p>Os empréstimos já feitos continuam, mesmo acima do novo limite; os próximos são conferidos com ele.</p>
+	 * @param categoria A {@link Leitor.Categoria}.
+	 * @param limite O novo limite ({@code 0} impede novos empréstimos).
+	 */
+	public synchronized void configurarLimite(Leitor.Categoria categoria, int limite) {
+		int[] novos = limites.clone();
+		novos[categoria.ordinal()] = Math.max(0, limite);
+		limites = novos;
+	}
+
+	// =========================================================================
+	// Métodos Auxiliares
+	// =========================================================================
+
+	/**
+	 * Busca o contador do leitor sem criá-lo. A leitura é otimista, como em {@link IndiceLivros}.
+	 */
+	private AtomicInteger consultar(Leitor leitor) {
+		long alta = leitor.getIdAlta();
+		long baixa = leitor.getIdBaixa();
+		long marca = travaEmAberto.tryOptimisticRead();
+		AtomicInteger contador = emAberto.obter(alta, baixa);
+		if (!travaEmAberto.validate(marca)) {
+			marca = travaEmAberto.readLock();
+			try {
+				contador = emAberto.obter(alta, baixa);
+			} finally {
+				travaEmAberto.unlockRead(marca);
+			}
+		}
+		return contador;
+	}
+
+	/**
+	 * Busca o contador do leitor, criando-o zerado no primeiro empréstimo.
+	 */
+	private AtomicInteger contadorDe(Leitor leitor) {
+		AtomicInteger contador = consultar(leitor);
+		if (contador != null) {
+			return contador;
+		}
+		long marca = travaEmAberto.writeLock();
+		try {
+			contador = emAberto.obter(leitor.getIdAlta(), leitor.getIdBaixa());
+			if (contador == null) {
+				contador = new AtomicInteger();
+				emAberto.inserir(leitor.getIdAlta(), leitor.getIdBaixa(), contador);
+			}
+			return contador;
+		} finally {
+			travaEmAberto.unlockWrite(marca);
+		}
+	}
+}
@@ -0,0 +1,338 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import model.Livro;
+
+/**
+ * Federação das bibliotecas dos campi da UESB.
+ * <p>
+ * As consultas ({@link #exibeLivro(String)}, {@link #listLivrosPorAutor(String)}) são
+ * disparadas ao mesmo tempo para todos os campi (scatter-gather), cada uma numa virtual
+ * thread, e os resultados são reunidos num {@link Resultado}. Um campus que não responde
+ * dentro do prazo não atrasa os demais: a resposta dele vem da réplica local, se houver,
+ * ou ele é listado como sem resposta.
+ * </p>
+ * <p>
+ * Cada federação mantém uma réplica de leitura de cada um dos outros campi, atualizada
+ * com as alterações publicadas por eles ({@link Campus#alteracoesDesde(long)}), sob demanda
+ * ({@link #sincronizarReplicas()}) ou periodicamente ({@link #iniciarReplicacao(long, TimeUnit)}).
+ * </p>
+ */
+public class FederacaoCampi {
+
+	/**
+	 * Prazo padrão de resposta de cada campus, em milissegundos.
+	 */
+	public static final long PRAZO_PADRAO_MS = 2000;
+
+	/**
+	 * Resultado de uma consulta federada.
+	 * @param <T> O tipo da resposta de cada campus.
+	 */
+	public static final class Resultado<T> {
+		private final Map<String, T> porCampus = new LinkedHashMap<>();
+		private final Map<String, T> daReplica = new LinkedHashMap<>();
+		private final List<String> semResposta = new ArrayList<>();
+
+		/**
+		 * Retorna as respostas dadas pelos próprios campi, dentro do prazo.
+		 * @return Um mapa do nome do campus para a resposta (só campi que encontraram algo).
+		 */
+		public Map<String, T> getPorCampus() {
+			return Collections.unmodifiableMap(porCampus);
+		}
+
+		/**
+		 * Retorna as respostas tiradas das réplicas locais, para campi que não responderam a tempo.
+		 * @return Um mapa do nome do campus para a resposta da réplica (podem estar desatualizadas).
+		 */
+		public Map<String, T> getDaReplica() {
+			return Collections.unmodifiableMap(daReplica);
+		}
+
+		/**
+		 * Retorna os campi que não responderam e não têm réplica.
+		 * @return Os nomes dos campi sem resposta.
+		 */
+		public List<String> getSemResposta() {
+			return Collections.unmodifiableList(semResposta);
+		}
+
+		/**
+		 * Junta as respostas dos campi e das réplicas, na ordem dos campi.
+		 * @return Todas as respostas encontradas.
+		 */
+		public List<T> getTodos() {
+			List<T> todos = new ArrayList<>(porCampus.values());
+			todos.addAll(daReplica.values());
+			return todos;
+		}
+	}
+
+	/**
+	 * Réplica de leitura do acervo de outro campus.
+	 */
+	private static final class Replica {
+		private final Map<String, Livro> livros = new LinkedHashMap<>();
+		private String origem;
+		private long sequencia;
+
+		synchronized long getSequencia() {
+			return sequencia;
+		}
+
+		synchronized boolean vazia() {
+			return origem == null;
+		}
+
+		/**
+		 * Aplica um lote de alterações. Se a origem mudou (o campus foi reiniciado),
+		 * retorna {@code false} para que a réplica seja refeita a partir do zero.
+		 */
+		synchronized boolean aplicar(RegistroAlteracoes.Lote lote, long pedidoDesde) {
+			if (origem != null && !origem.equals(lote.getOrigem())) {
+				livros.clear();
+				origem = null;
+				sequencia = 0;
+				if (pedidoDesde != 0) return false;
+			}
+			origem = lote.getOrigem();
+			for (RegistroAlteracoes.Alteracao alteracao : lote.getAlteracoes()) {
+				if (alteracao.isRemocao()) {
+					livros.remove(alteracao.getIdLivro());
+				} else {
+					livros.put(alteracao.getIdLivro(), alteracao.getLivro());
+				}
+			}
+			sequencia = Math.max(sequencia, lote.getUltimaSequencia());
+			return true;
+		}
+
+		synchronized Livro exibeLivro(String titulo) {
+			for (Livro livro : livros.values()) {
+				if (livro.getTitulo().equalsIgnoreCase(titulo)) {
+					return livro;
+				}
+			}
+			return null;
+		}
+
+		synchronized List<Livro> listLivrosPorAutor(String nomeAutor) {
+			List<Livro> doAutor = new ArrayList<>();
+			for (Livro livro : livros.values()) {
+				if (livro.getAutor().getNome().equalsIgnoreCase(nomeAutor)) {
+					doAutor.add(livro);
+				}
+			}
+			return doAutor;
+		}
+
+		synchronized int tamanho() {
+			return livros.size();
+		}
+	}
+
+	/**
+	 * Uma consulta a um campus que pode lançar exceção (ex.: falha de rede).
+	 */
+	@FunctionalInterface
+	private interface Consulta<T> {
+		T executar(Campus campus) throws Exception;
+	}
+
+	private final List<Campus> campi;
+	private final String nomeCampusLocal;
+	private final long prazoMs;
+	private final Map<String, Replica> replicas = new ConcurrentHashMap<>();
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+	private ScheduledExecutorService agendador;
+
+	/**
+	 * Construtor completo.
+	 * @param nomeCampusLocal O nome do campus que roda esta federação (não recebe réplica),
+	 * ou {@code null} para replicar todos.
+	 * @param campi Todos os campi da federação, inclusive o local.
+	 * @param prazoMs O prazo de resposta de cada campus, em milissegundos.
+	 */
+	public FederacaoCampi(String nomeCampusLocal, List<Campus> campi, long prazoMs) {
+		this.nomeCampusLocal = nomeCampusLocal;
+		this.campi = new ArrayList<>(campi);
+		this.prazoMs = prazoMs;
+		for (Campus campus : campi) {
+			if (!campus.getNome().equals(nomeCampusLocal)) {
+				replicas.put(campus.getNome(), new Replica());
+			}
+		}
+	}
+
+	/**
+	 * Busca um livro pelo título em todos os campi ao mesmo tempo.
+	 * @param titulo O título procurado (ignora maiúsculas/minúsculas).
+	 * @return O {@link Resultado} com o livro encontrado em cada campus.
+	 */
+	public Resultado<Livro> exibeLivro(String titulo) {
+		return consultar(campus -> campus.exibeLivro(titulo), replica -> replica.exibeLivro(titulo));
+	}
+
+	/**
+	 * Lista os livros de um autor em todos os campi ao mesmo tempo.
+	 * @param nomeAutor O nome do autor (ignora maiúsculas/minúsculas).
+	 * @return O {@link Resultado} com a lista de cada campus que tem livros do autor.
+	 */
+	public Resultado<List<Livro>> listLivrosPorAutor(String nomeAutor) {
+		Resultado<List<Livro>> resultado = consultar(campus -> campus.listLivrosPorAutor(nomeAutor),
+				replica -> replica.listLivrosPorAutor(nomeAutor));
+		// Listas vazias não contam como "encontrado"
+		resultado.porCampus.values().removeIf(List::isEmpty);
+		resultado.daReplica.values().removeIf(List::isEmpty);
+		return resultado;
+	}
+
+	/**
+	 * Dispara a consulta em todos os campi e espera cada um até o prazo comum.
+	 */
+	private <T> Resultado<T> consultar(Consulta<T> consulta, Function<Replica, T> consultaReplica) {
+		Map<Campus, Future<T>> pendentes = new LinkedHashMap<>();
+		for (Campus campus : campi) {
+			pendentes.put(campus, executor.submit(() -> consulta.executar(campus)));
+		}
+
+		Resultado<T> resultado = new Resultado<>();
+		long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(prazoMs);
+		for (Map.Entry<Campus, Future<T>> pendente : pendentes.entrySet()) {
+			String nome = pendente.getKey().getNome();
+			try {
+				T resposta = pendente.getValue().get(Math.max(0, limite - System.nanoTime()), TimeUnit.NANOSECONDS);
+				if (resposta != null) {
+					resultado.porCampus.put(nome, resposta);
+				}
+				continue;
+			} catch (TimeoutException e) {
+				pendente.getValue().cancel(true);
+				System.err.println("Campus " + nome + " não respondeu em " + prazoMs + " ms.");
+			} catch (ExecutionException e) {
+				System.err.println("Erro ao consultar o campus " + nome + ": " + e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			// Sem resposta do campus: usa a réplica local, se ela já tiver sido carregada
+			Replica replica = replicas.get(nome);
+			if (replica != null && !replica.vazia()) {
+				T resposta = consultaReplica.apply(replica);
+				if (resposta != null) {
+					resultado.daReplica.put(nome, resposta);
+				}
+			} else {
+				resultado.semResposta.add(nome);
+			}
+		}
+		return resultado;
+	}
+
+	// =========================================================================
+	// Réplicas
+	// =========================================================================
+
+	/**
+	 * Atualiza as réplicas de todos os outros campi ao mesmo tempo, respeitando o prazo.
+	 * @return Quantas réplicas foram atualizadas.
+	 */
+	public int sincronizarReplicas() {
+		Map<String, Future<Boolean>> pendentes = new LinkedHashMap<>();
+		for (Campus campus : campi) {
+			Replica replica = replicas.get(campus.getNome());
+			if (replica != null) {
+				pendentes.put(campus.getNome(), executor.submit(() -> sincronizar(campus, replica)));
+			}
+		}
+
+		int atualizadas = 0;
+		long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(prazoMs);
+		for (Map.Entry<String, Future<Boolean>> pendente : pendentes.entrySet()) {
+			try {
+				if (pendente.getValue().get(Math.max(0, limite - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+					atualizadas++;
+				}
+			} catch (TimeoutException e) {
+				pendente.getValue().cancel(true);
+				System.err.println("Réplica do campus " + pendente.getKey() + " não foi atualizada a tempo.");
+			} catch (ExecutionException e) {
+				System.err.println("Erro ao replicar o campus " + pendente.getKey() + ": " + e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		return atualizadas;
+	}
+
+	private static boolean sincronizar(Campus campus, Replica replica) throws Exception {
+		long desde = replica.getSequencia();
+		if (!replica.aplicar(campus.alteracoesDesde(desde), desde)) {
+			// O campus foi reiniciado: refaz a réplica com o acervo inteiro
+			replica.aplicar(campus.alteracoesDesde(0), 0);
+		}
+		return true;
+	}
+
+	/**
+	 * Retorna quantos livros a réplica de um campus contém.
+	 * @param nomeCampus O nome do campus.
+	 * @return O tamanho da réplica, ou {@code -1} se o campus não for replicado.
+	 */
+	public int tamanhoDaReplica(String nomeCampus) {
+		Replica replica = replicas.get(nomeCampus);
+		return (replica == null) ? -1 : replica.tamanho();
+	}
+
+	/**
+	 * Inicia a atualização periódica das réplicas numa thread em segundo plano.
+	 * @param intervalo O intervalo entre as atualizações.
+	 * @param unidade A unidade do intervalo.
+	 */
+	public synchronized void iniciarReplicacao(long intervalo, TimeUnit unidade) {
+		if (agendador != null) {
+			return;
+		}
+		agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+			Thread thread = new Thread(tarefa, "replicacao-campi");
+			thread.setDaemon(true);
+			return thread;
+		});
+		agendador.scheduleWithFixedDelay(this::sincronizarReplicas, 0, intervalo, unidade);
+	}
+
+	/**
+	 * Encerra a replicação periódica e as consultas em andamento.
+	 */
+	public synchronized void encerrar() {
+		if (agendador != null) {
+			agendador.shutdownNow();
+			agendador = null;
+		}
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Retorna o nome do campus que roda esta federação.
+	 * @return O nome do campus local (ou {@code null}).
+	 */
+	public String getNomeCampusLocal() {
+		return nomeCampusLocal;
+	}
+}
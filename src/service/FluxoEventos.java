@@ -0,0 +1,610 @@
+package service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import model.EventoAcervo;
+
+/**
+ * Fluxo de eventos do acervo (captura de alterações), assinado por outros sistemas.
+ * <p>
+ * Cada alteração vira um {@link EventoAcervo} com sequência crescente. O evento é gravado em
+ * segmentos <i>append-only</i> (como em {@link HistoricoEmprestimos}) e colocado num anel de
+ * capacidade fixa em memória, de onde as assinaturas o leem.
+ * </p>
+ * <p>
+ * Cada assinatura tem uma thread própria, que entrega os eventos em lotes e em ordem de
+ * sequência. A publicação nunca espera: recebe a sequência, grava e entra no anel na hora, e
+ * pode ser feita segurando outras travas. A contrapressão fica em {@link #aguardarEspaco()},
+ * chamado por quem publica depois de soltar as suas travas: quando o anel está cheio porque a
+ * assinatura mais atrasada ainda não leu o evento mais antigo, ele espera por até
+ * {@link #ESPERA_MAXIMA_MS_PADRAO} milissegundos. Uma assinatura que ficou para trás do anel
+ * lê do disco os eventos que saíram dele. Assim a memória fica limitada e nenhum evento se perde.
+ * </p>
+ * <p>
+ * Uma assinatura com nome guarda a última sequência entregue no arquivo de cursores, junto dos
+ * segmentos. Ao assinar de novo com o mesmo nome (ex.: depois de reiniciar), a entrega
+ * continua de onde parou. O cursor é gravado no máximo uma vez por segundo; depois de uma
+ * queda, os eventos do último segundo podem ser entregues de novo, e quem assina deve ignorar
+ * as sequências que já processou.
+ * </p>
+ */
+public class FluxoEventos {
+
+	// Diretório padrão dos segmentos e do arquivo de cursores.
+	static final String DIRETORIO_PADRAO = "eventos_acervo";
+
+	// Quantidade de eventos mantidos em memória para as assinaturas (arredondada para potência de 2).
+	static final int CAPACIDADE_PADRAO = 4096;
+
+	// Quantidade de eventos gravados em cada arquivo de segmento antes de abrir o próximo.
+	static final int EVENTOS_POR_SEGMENTO_PADRAO = 65536;
+
+	/**
+	 * Tempo máximo que uma publicação espera por espaço no anel, em milissegundos.
+	 */
+	public static final long ESPERA_MAXIMA_MS_PADRAO = 2000;
+
+	private static final int LOTE_MAXIMO = 256;
+	private static final long INTERVALO_CURSORES_MS = 1000;
+	private static final String ARQUIVO_CURSORES = "cursores.properties";
+
+	/**
+	 * Assinatura do fluxo: entrega os eventos, em ordem, a um consumidor.
+	 * <p>Encerrada por {@link #close()} ou por {@link FluxoEventos#fechar()}.</p>
+	 */
+	public final class Assinatura implements AutoCloseable {
+		private final String nome;
+		private final Consumer<EventoAcervo> consumidor;
+		private final Thread thread;
+		private volatile long proxima; // Próxima sequência a entregar
+		private volatile boolean ativa = true;
+
+		private Assinatura(String nome, long desde, Consumer<EventoAcervo> consumidor) {
+			this.nome = nome;
+			this.consumidor = consumidor;
+			this.proxima = desde + 1;
+			this.thread = new Thread(this::entregar, "eventos-" + ((nome != null) ? nome : "anonima"));
+			this.thread.setDaemon(true);
+		}
+
+		/**
+		 * Retorna o nome da assinatura.
+		 * @return O nome, ou {@code null} para uma assinatura sem cursor gravado.
+		 */
+		public String getNome() {
+			return nome;
+		}
+
+		/**
+		 * Retorna a última sequência já entregue ao consumidor.
+		 * @return A sequência ({@code 0} se nada foi entregue).
+		 */
+		public long getUltimaEntregue() {
+			return proxima - 1;
+		}
+
+		/**
+		 * Indica se a assinatura ainda recebe eventos.
+		 * @return {@code true} até ela ser encerrada.
+		 */
+		public boolean isAtiva() {
+			return ativa;
+		}
+
+		/**
+		 * Encerra a assinatura, gravando o cursor se ela tiver nome.
+		 */
+		@Override
+		public void close() {
+			cancelar(this);
+		}
+
+		private void entregar() {
+			List<EventoAcervo> lote = new ArrayList<>(LOTE_MAXIMO);
+			while (ativa) {
+				lote.clear();
+				try {
+					proximos(this, lote);
+				} catch (InterruptedException e) {
+					break;
+				}
+				for (EventoAcervo evento : lote) {
+					try {
+						consumidor.accept(evento);
+					} catch (RuntimeException e) {
+						System.err.println("Erro na assinatura " + thread.getName() + " (evento " + evento.getSequencia() + "): " + e.getMessage());
+					}
+				}
+				if (!lote.isEmpty()) {
+					confirmar(this, lote.get(lote.size() - 1).getSequencia());
+				}
+			}
+		}
+	}
+
+	private final File diretorio;
+	private final int eventosPorSegmento;
+	private final long esperaMaximaMs;
+
+	// Anel com os eventos mais recentes: o da sequência s fica na posição s & mascara
+	private final EventoAcervo[] anel;
+	private final int mascara;
+
+	private final ReentrantLock trava = new ReentrantLock();
+	private final Condition novoEvento = trava.newCondition();
+	private final Condition espacoLivre = trava.newCondition();
+
+	private final List<Assinatura> assinaturas = new CopyOnWriteArrayList<>();
+
+	// Protegidos pela trava
+	private long ultimaSequencia;
+	private final long primeiraDestaExecucao; // As anteriores só existem no disco
+	private DataOutputStream segmentoAtual;
+	private int eventosNoSegmento;
+
+	// Última sequência entregue de cada assinatura com nome (protegidos por cursores)
+	private final Properties cursores = new Properties();
+	private long cursoresGravadosEm;
+
+	/**
+	 * Construtor que usa a capacidade, o tamanho de segmento e a espera padrão.
+	 * @param diretorio O diretório dos segmentos e do arquivo de cursores.
+	 */
+	public FluxoEventos(File diretorio) {
+		this(diretorio, CAPACIDADE_PADRAO, EVENTOS_POR_SEGMENTO_PADRAO, ESPERA_MAXIMA_MS_PADRAO);
+	}
+
+	/**
+	 * Construtor completo. Continua a numeração dos segmentos já existentes no diretório.
+	 * @param diretorio O diretório dos segmentos e do arquivo de cursores.
+	 * @param capacidade Quantos eventos o anel em memória guarda.
+	 * @param eventosPorSegmento Quantos eventos cada segmento comporta.
+	 * @param esperaMaximaMs Quanto uma publicação espera por espaço no anel, em milissegundos.
+	 */
+	public FluxoEventos(File diretorio, int capacidade, int eventosPorSegmento, long esperaMaximaMs) {
+		this.diretorio = diretorio;
+		this.eventosPorSegmento = eventosPorSegmento;
+		this.esperaMaximaMs = esperaMaximaMs;
+		int tamanhoAnel = Integer.highestOneBit(Math.max(2, capacidade) * 2 - 1);
+		this.anel = new EventoAcervo[tamanhoAnel];
+		this.mascara = tamanhoAnel - 1;
+		this.ultimaSequencia = ultimaSequenciaGravada();
+		this.primeiraDestaExecucao = ultimaSequencia + 1;
+		carregarCursores();
+	}
+
+	/**
+	 * Publica um evento: grava-o e o entrega às assinaturas.
+	 * <p>Não espera pelas assinaturas; depois de soltar as travas que segura, quem publica deve
+	 * chamar {@link #aguardarEspaco()}.</p>
+	 * @param tipo O {@link EventoAcervo.Tipo} do evento.
+	 * @param idLivro O ID do livro alterado.
+	 * @param idLeitor O ID do leitor (ou {@code null}, fora da circulação).
+	 * @param exemplar O índice do exemplar (ou {@code -1}, fora da circulação).
+	 * @return O evento publicado, com a sua sequência.
+	 */
+	public EventoAcervo publicar(EventoAcervo.Tipo tipo, String idLivro, String idLeitor, int exemplar) {
+		trava.lock();
+		try {
+			EventoAcervo evento = new EventoAcervo(ultimaSequencia + 1, System.currentTimeMillis(),
+					tipo, idLivro, idLeitor, exemplar);
+			gravarNoSegmento(evento); // No disco antes de sair do anel
+			anel[(int) (evento.getSequencia() & mascara)] = evento;
+			ultimaSequencia = evento.getSequencia();
+			novoEvento.signalAll();
+			return evento;
+		} finally {
+			trava.unlock();
+		}
+	}
+
+	/**
+	 * Espera, por até a espera máxima, que a assinatura mais atrasada libere espaço no anel
+	 * (contrapressão sobre quem publica; ver a descrição da classe).
+	 * <p>Deve ser chamado sem outras travas, para que a espera não segure outras threads.
+	 * Numa thread de assinatura, retorna na hora.</p>
+	 */
+	public void aguardarEspaco() {
+		trava.lock();
+		try {
+			esperarEspaco();
+		} finally {
+			trava.unlock();
+		}
+	}
+
+	/**
+	 * Assina o fluxo a partir do próximo evento publicado, sem gravar cursor.
+	 * @param consumidor Quem recebe os eventos (chamado por uma thread da assinatura).
+	 * @return A {@link Assinatura}, já em andamento.
+	 */
+	public Assinatura assinar(Consumer<EventoAcervo> consumidor) {
+		return iniciar(new Assinatura(null, getUltimaSequencia(), consumidor));
+	}
+
+	/**
+	 * Assina o fluxo continuando da última sequência entregue a uma assinatura com o mesmo nome
+	 * (ou desde o primeiro evento gravado, se o nome é novo).
+	 * @param nome O nome da assinatura (ex.: {@code "site"}), usado no arquivo de cursores.
+	 * @param consumidor Quem recebe os eventos (chamado por uma thread da assinatura).
+	 * @return A {@link Assinatura}, já em andamento.
+	 */
+	public Assinatura assinar(String nome, Consumer<EventoAcervo> consumidor) {
+		return assinar(nome, getCursor(nome), consumidor);
+	}
+
+	/**
+	 * Assina o fluxo a partir de uma sequência informada.
+	 * @param nome O nome da assinatura, usado no arquivo de cursores (ou {@code null}).
+	 * @param desde A última sequência já processada ({@code 0} para todos os eventos gravados).
+	 * @param consumidor Quem recebe os eventos (chamado por uma thread da assinatura).
+	 * @return A {@link Assinatura}, já em andamento.
+	 */
+	public Assinatura assinar(String nome, long desde, Consumer<EventoAcervo> consumidor) {
+		return iniciar(new Assinatura(nome, Math.max(0, desde), consumidor));
+	}
+
+	/**
+	 * Retorna a última sequência gravada para uma assinatura.
+	 * @param nome O nome da assinatura.
+	 * @return A última sequência entregue a ela ({@code 0} se o nome é desconhecido).
+	 */
+	public long getCursor(String nome) {
+		synchronized (cursores) {
+			try {
+				return Long.parseLong(cursores.getProperty(nome, "0"));
+			} catch (NumberFormatException e) {
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * Retorna a maior sequência publicada (nesta execução ou nas anteriores).
+	 * @return A última sequência ({@code 0} se nada foi publicado).
+	 */
+	public long getUltimaSequencia() {
+		trava.lock();
+		try {
+			return ultimaSequencia;
+		} finally {
+			trava.unlock();
+		}
+	}
+
+	/**
+	 * Encerra todas as assinaturas, grava os cursores e fecha o segmento aberto.
+	 */
+	public void fechar() {
+		for (Assinatura assinatura : assinaturas) {
+			cancelar(assinatura);
+		}
+		trava.lock();
+		try {
+			if (segmentoAtual != null) {
+				segmentoAtual.close();
+				segmentoAtual = null;
+			}
+		} catch (IOException e) {
+			System.err.println("Erro ao fechar segmento de eventos: " + e.getMessage());
+		} finally {
+			trava.unlock();
+		}
+	}
+
+	// =========================================================================
+	// Entrega
+	// =========================================================================
+
+	private Assinatura iniciar(Assinatura assinatura) {
+		assinaturas.add(assinatura);
+		assinatura.thread.start();
+		return assinatura;
+	}
+
+	private void cancelar(Assinatura assinatura) {
+		trava.lock();
+		try {
+			assinatura.ativa = false;
+			assinaturas.remove(assinatura);
+			novoEvento.signalAll();
+			espacoLivre.signalAll(); // Quem publicava esperando por ela não espera mais
+		} finally {
+			trava.unlock();
+		}
+		if (Thread.currentThread() != assinatura.thread) {
+			assinatura.thread.interrupt();
+			try {
+				assinatura.thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (assinatura.nome != null) {
+			guardarCursor(assinatura.nome, assinatura.getUltimaEntregue(), true);
+		}
+	}
+
+	/**
+	 * Espera haver eventos para a assinatura e os coloca no lote, em ordem. Os que ainda estão
+	 * no anel são copiados dele; os que já saíram são lidos do disco.
+	 */
+	private void proximos(Assinatura assinatura, List<EventoAcervo> lote) throws InterruptedException {
+		long desde;
+		long maisAntigaNoAnel;
+		trava.lockInterruptibly();
+		try {
+			while (assinatura.ativa && assinatura.proxima > ultimaSequencia) {
+				novoEvento.await();
+			}
+			if (!assinatura.ativa) {
+				return;
+			}
+			maisAntigaNoAnel = maisAntigaNoAnel();
+			desde = assinatura.proxima;
+			if (desde >= maisAntigaNoAnel) {
+				long ate = Math.min(ultimaSequencia, desde + LOTE_MAXIMO - 1);
+				for (long s = desde; s <= ate; s++) {
+					lote.add(anel[(int) (s & mascara)]);
+				}
+				return;
+			}
+		} finally {
+			trava.unlock();
+		}
+
+		// Os eventos saíram do anel (ou são de execuções anteriores), mas já estão gravados
+		lerDoDisco(desde, maisAntigaNoAnel, lote);
+		if (lote.isEmpty()) {
+			System.err.println("Eventos " + desde + " a " + (maisAntigaNoAnel - 1) + " não encontrados no disco; assinatura "
+					+ assinatura.thread.getName() + " continua do " + maisAntigaNoAnel + ".");
+			confirmar(assinatura, maisAntigaNoAnel - 1);
+		}
+	}
+
+	private void confirmar(Assinatura assinatura, long sequencia) {
+		trava.lock();
+		try {
+			assinatura.proxima = sequencia + 1;
+			espacoLivre.signalAll();
+		} finally {
+			trava.unlock();
+		}
+		if (assinatura.nome != null) {
+			guardarCursor(assinatura.nome, sequencia, false);
+		}
+	}
+
+	/**
+	 * Espera até que o próximo evento não tire do anel um evento que alguma assinatura ainda
+	 * vai ler dele, ou até a espera máxima. Deve ser chamado com a trava.
+	 */
+	private void esperarEspaco() {
+		for (Assinatura assinatura : assinaturas) {
+			if (assinatura.thread == Thread.currentThread()) {
+				return; // Um consumidor que publica não pode esperar por si mesmo
+			}
+		}
+		long restante = TimeUnit.MILLISECONDS.toNanos(esperaMaximaMs);
+		while (restante > 0 && ultimaSequencia + 1 - menorPendenteNoAnel() >= anel.length) {
+			try {
+				restante = espacoLivre.awaitNanos(restante);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	// Menor sequência que alguma assinatura ainda vai ler do anel (as que leem do disco não contam)
+	private long menorPendenteNoAnel() {
+		long menor = Long.MAX_VALUE;
+		long maisAntiga = maisAntigaNoAnel();
+		for (Assinatura assinatura : assinaturas) {
+			if (assinatura.ativa && assinatura.proxima >= maisAntiga) {
+				menor = Math.min(menor, assinatura.proxima);
+			}
+		}
+		return menor;
+	}
+
+	private long maisAntigaNoAnel() {
+		return Math.max(primeiraDestaExecucao, ultimaSequencia - anel.length + 1);
+	}
+
+	// =========================================================================
+	// Segmentos e cursores
+	// =========================================================================
+
+	private void gravarNoSegmento(EventoAcervo evento) {
+		try {
+			if (segmentoAtual == null || eventosNoSegmento >= eventosPorSegmento) {
+				abrirNovoSegmento(evento.getSequencia());
+			}
+			segmentoAtual.writeLong(evento.getSequencia());
+			segmentoAtual.writeLong(evento.getInstante());
+			segmentoAtual.writeByte(evento.getTipo().ordinal());
+			segmentoAtual.writeUTF(evento.getIdLivro());
+			segmentoAtual.writeUTF((evento.getIdLeitor() != null) ? evento.getIdLeitor() : "");
+			segmentoAtual.writeInt(evento.getExemplar());
+			segmentoAtual.flush(); // Cada evento fica em disco assim que publicado
+			eventosNoSegmento++;
+
+		} catch (IOException e) {
+			System.err.println("Erro ao gravar evento do acervo: " + e.getMessage());
+		}
+	}
+
+	private void abrirNovoSegmento(long primeiraSequencia) throws IOException {
+		if (segmentoAtual != null) {
+			segmentoAtual.close();
+			segmentoAtual = null;
+		}
+		if (!diretorio.exists() && !diretorio.mkdirs()) {
+			throw new IOException("Não foi possível criar o diretório " + diretorio);
+		}
+		// O nome leva a primeira sequência do segmento, para a leitura ir direto a ele
+		File arquivo = new File(diretorio, String.format("segmento-%016d.log", primeiraSequencia));
+		segmentoAtual = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(arquivo, true)));
+		eventosNoSegmento = 0;
+	}
+
+	/**
+	 * Lê do disco, em ordem, até {@link #LOTE_MAXIMO} eventos de sequência entre
+	 * {@code desde} (inclusive) e {@code ate} (exclusive).
+	 * <p>Um registro com tipo inválido encerra a leitura daquele segmento, como um fim truncado.</p>
+	 */
+	private void lerDoDisco(long desde, long ate, List<EventoAcervo> lote) {
+		File[] arquivos = segmentos();
+		int primeiro = 0;
+		for (int i = 0; i < arquivos.length; i++) {
+			if (sequenciaDoSegmento(arquivos[i]) <= desde) {
+				primeiro = i; // Último segmento que começa antes do evento procurado
+			}
+		}
+
+		EventoAcervo.Tipo[] tipos = EventoAcervo.Tipo.values();
+		for (int i = primeiro; i < arquivos.length; i++) {
+			try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(arquivos[i])))) {
+				while (true) {
+					long sequencia = dis.readLong();
+					long instante = dis.readLong();
+					int codigoTipo = dis.readByte();
+					if (codigoTipo < 0 || codigoTipo >= tipos.length) {
+						// Byte de tipo inválido: o resto do segmento é tratado como um fim truncado
+						System.err.println("Evento corrompido (" + arquivos[i].getName() + "); o restante do segmento foi ignorado.");
+						break;
+					}
+					EventoAcervo.Tipo tipo = tipos[codigoTipo];
+					String idLivro = dis.readUTF();
+					String idLeitor = dis.readUTF();
+					int exemplar = dis.readInt();
+					if (sequencia >= ate || lote.size() >= LOTE_MAXIMO) {
+						return;
+					}
+					if (sequencia >= desde) {
+						lote.add(new EventoAcervo(sequencia, instante, tipo, idLivro,
+								idLeitor.isEmpty() ? null : idLeitor, exemplar));
+					}
+				}
+			} catch (EOFException e) {
+				// Fim normal do segmento
+			} catch (IOException e) {
+				System.err.println("Erro de I/O ao ler eventos (" + arquivos[i].getName() + "): " + e.getMessage());
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Encontra a última sequência gravada, lendo apenas o último segmento.
+	 * <p>Um registro incompleto no fim (ex.: queda durante a gravação) é ignorado, e as próximas
+	 * gravações abrem um segmento novo.</p>
+	 */
+	private long ultimaSequenciaGravada() {
+		File[] arquivos = segmentos();
+		if (arquivos.length == 0) {
+			return 0;
+		}
+		File ultimo = arquivos[arquivos.length - 1];
+		long ultima = sequenciaDoSegmento(ultimo) - 1;
+		try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(ultimo)))) {
+			while (true) {
+				long sequencia = dis.readLong();
+				dis.readLong();
+				dis.readByte();
+				dis.readUTF();
+				dis.readUTF();
+				dis.readInt();
+				ultima = sequencia;
+			}
+		} catch (EOFException e) {
+			// Fim normal do segmento
+		} catch (IOException e) {
+			System.err.println("Erro de I/O ao ler eventos (" + ultimo.getName() + "): " + e.getMessage());
+		}
+		return ultima;
+	}
+
+	private File[] segmentos() {
+		File[] arquivos = diretorio.listFiles((dir, nome) -> nome.startsWith("segmento-") && nome.endsWith(".log"));
+		if (arquivos == null) {
+			return new File[0];
+		}
+		Arrays.sort(arquivos); // A sequência tem zeros à esquerda, então a ordem é a de criação
+		return arquivos;
+	}
+
+	private static long sequenciaDoSegmento(File arquivo) {
+		String nome = arquivo.getName();
+		try {
+			return Long.parseLong(nome.substring("segmento-".length(), nome.length() - ".log".length()));
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	private void carregarCursores() {
+		File arquivo = new File(diretorio, ARQUIVO_CURSORES);
+		if (!arquivo.exists()) {
+			return;
+		}
+		try (InputStream entrada = new FileInputStream(arquivo)) {
+			cursores.load(entrada);
+		} catch (IOException e) {
+			System.err.println("Erro ao ler cursores das assinaturas: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Guarda a última sequência entregue a uma assinatura e grava o arquivo de cursores se já
+	 * passou o intervalo mínimo desde a última gravação (ou se {@code forcar}).
+	 */
+	private void guardarCursor(String nome, long sequencia, boolean forcar) {
+		synchronized (cursores) {
+			cursores.setProperty(nome, Long.toString(sequencia));
+			long agora = System.currentTimeMillis();
+			if (!forcar && agora - cursoresGravadosEm < INTERVALO_CURSORES_MS) {
+				return;
+			}
+			cursoresGravadosEm = agora;
+
+			// Grava num arquivo temporário e o troca pelo anterior, para nunca deixar um arquivo pela metade
+			File arquivo = new File(diretorio, ARQUIVO_CURSORES);
+			File temporario = new File(diretorio, ARQUIVO_CURSORES + ".tmp");
+			diretorio.mkdirs();
+			try (OutputStream saida = new FileOutputStream(temporario)) {
+				cursores.store(saida, "Cursores das assinaturas do fluxo de eventos");
+			} catch (IOException e) {
+				System.err.println("Erro ao gravar cursores das assinaturas: " + e.getMessage());
+				return;
+			}
+			try {
+				Files.move(temporario.toPath(), arquivo.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} catch (IOException e) {
+				System.err.println("Erro ao gravar cursores das assinaturas: " + e.getMessage());
+			}
+		}
+	}
+}
@@ -0,0 +1,239 @@
+package service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import model.Autor;
+import model.Leitor;
+import model.Livro;
+
+/**
+ * Gerador determinístico de acervos sintéticos (autores, livros e leitores) para testes de carga.
+ * <p>
+ * A mesma semente gera sempre os mesmos nomes, títulos e números (os IDs, sorteados pelo
+ * próprio modelo, mudam). As distribuições imitam um acervo real: poucos nomes e sobrenomes
+ * muito comuns e muitos raros, poucos autores com muitos livros, a maioria dos autores
+ * brasileiros, páginas concentradas entre 150 e 400 e anos de publicação mais recentes.
+ * </p>
+ * <p>
+ * A popularidade dos livros segue uma distribuição de Zipf ({@link Zipf}): o livro de
+ * posição {@code k} na ordem de geração é procurado com frequência proporcional a
+ * {@code 1/k^s}, como acontece com os títulos mais pedidos no balcão.
+ * </p>
+ * <p>Não é sincronizado; cada thread deve usar o seu gerador ou o seu {@link Random}.</p>
+ */
+public final class GeradorAcervo {
+
+	// Listas em ordem aproximada de frequência: o sorteio favorece o começo delas
+	private static final String[] PRENOMES = { "Maria", "José", "Ana", "João", "Antônio", "Francisco", "Carlos",
+			"Paulo", "Pedro", "Lucas", "Luiz", "Marcos", "Luís", "Gabriel", "Rafael", "Francisca", "Daniel", "Marcelo",
+			"Bruno", "Eduardo", "Felipe", "Raimundo", "Rodrigo", "Adriana", "Juliana", "Márcia", "Fernanda", "Patrícia",
+			"Aline", "Sandra", "Camila", "Amanda", "Bruna", "Jéssica", "Letícia", "Júlia", "Luciana", "Vanessa",
+			"Mariana", "Gabriela", "Vera", "Vitória", "Larissa", "Cláudia", "Beatriz", "Rita", "Luana", "Sônia",
+			"Renata", "Eliane", "Joaquim", "Otávio", "Heitor", "Cecília", "Graciliano", "Clarice", "Jorge", "Rachel" };
+	private static final String[] SOBRENOMES = { "Silva", "Santos", "Oliveira", "Souza", "Rodrigues", "Ferreira",
+			"Alves", "Pereira", "Lima", "Gomes", "Costa", "Ribeiro", "Martins", "Carvalho", "Almeida", "Lopes",
+			"Soares", "Fernandes", "Vieira", "Barbosa", "Rocha", "Dias", "Nascimento", "Andrade", "Moreira", "Nunes",
+			"Marques", "Machado", "Mendes", "Freitas", "Cardoso", "Ramos", "Gonçalves", "Santana", "Teixeira",
+			"Araújo", "Pinto", "Moura", "Cavalcanti", "Queiroz", "Amado", "Lispector", "Meireles", "Bandeira" };
+	private static final String[] NACIONALIDADES = { "Brasileira", "Portuguesa", "Angolana", "Moçambicana",
+			"Argentina", "Francesa", "Inglesa", "Norte-americana", "Russa", "Colombiana" };
+	private static final double[] PESOS_NACIONALIDADES = { 60, 10, 3, 3, 4, 5, 5, 6, 2, 2 };
+
+	private static final String[] SUJEITOS = { "Memórias", "A Hora", "O Tempo", "Vidas", "O Cortiço", "A Casa",
+			"O Quinze", "Capitães", "Histórias", "Crônicas", "O Livro", "A Estrela", "Sagarana", "O Sertão",
+			"Os Sertões", "A Viagem", "O Mar", "A Cidade", "Cartas", "Contos", "Poemas", "O Retrato", "A Paixão",
+			"Introdução", "Fundamentos", "Manual", "Princípios", "Elementos", "Tratado", "Curso" };
+	private static final String[] COMPLEMENTOS = { "da Noite", "do Sertão", "de Areia", "Secas", "Póstumas",
+			"do Mar", "da Bahia", "de Sol", "do Cárcere", "Invisíveis", "de Pedra", "Sem Fim", "do Norte",
+			"da Memória", "de Cálculo", "de Física", "de Programação", "de Estruturas de Dados",
+			"de Banco de Dados", "de Algoritmos", "de Sociologia", "de História do Brasil", "de Química Orgânica" };
+
+	/**
+	 * Distribuição de Zipf sobre as posições {@code 0..n-1}: a posição {@code k} sai com
+	 * probabilidade proporcional a {@code 1/(k+1)^s}.
+	 * <p>A tabela acumulada é calculada uma vez; cada sorteio é uma busca binária. É imutável e
+	 * pode ser compartilhada entre threads, cada uma com o seu {@link Random}.</p>
+	 */
+	public static final class Zipf {
+		private final double[] acumulada;
+
+		/**
+		 * Cria a distribuição.
+		 * @param n A quantidade de posições.
+		 * @param s O expoente (1 é o clássico; maior concentra mais nas primeiras posições).
+		 */
+		public Zipf(int n, double s) {
+			if (n <= 0) {
+				throw new IllegalArgumentException("Distribuição de Zipf sem posições: " + n);
+			}
+			acumulada = new double[n];
+			double soma = 0;
+			for (int k = 0; k < n; k++) {
+				soma += 1.0 / Math.pow(k + 1, s);
+				acumulada[k] = soma;
+			}
+			for (int k = 0; k < n; k++) {
+				acumulada[k] /= soma;
+			}
+		}
+
+		/**
+		 * Sorteia uma posição.
+		 * @param aleatorio A fonte de números aleatórios.
+		 * @return Uma posição entre {@code 0} e {@code n-1}.
+		 */
+		public int sortear(Random aleatorio) {
+			int posicao = Arrays.binarySearch(acumulada, aleatorio.nextDouble());
+			return Math.min(acumulada.length - 1, (posicao >= 0) ? posicao : -posicao - 1);
+		}
+
+		/**
+		 * Retorna a quantidade de posições.
+		 * @return O {@code n} da distribuição.
+		 */
+		public int tamanho() {
+			return acumulada.length;
+		}
+	}
+
+	private final Random aleatorio;
+	private final Zipf prenomes = new Zipf(PRENOMES.length, 0.8);
+	private final Zipf sobrenomes = new Zipf(SOBRENOMES.length, 0.9);
+	private final Zipf sujeitos = new Zipf(SUJEITOS.length, 0.6);
+	private final Zipf complementos = new Zipf(COMPLEMENTOS.length, 0.6);
+
+	/**
+	 * Cria um gerador.
+	 * @param semente A semente: a mesma semente gera o mesmo acervo.
+	 */
+	public GeradorAcervo(long semente) {
+		this.aleatorio = new Random(semente);
+	}
+
+	/**
+	 * Gera autores com nomes e nacionalidades realistas.
+	 * @param quantidade Quantos autores gerar.
+	 * @return Os autores, na ordem de geração.
+	 */
+	public List<Autor> gerarAutores(int quantidade) {
+		List<Autor> autores = new ArrayList<>(quantidade);
+		for (int i = 0; i < quantidade; i++) {
+			autores.add(new Autor(gerarNome(), NACIONALIDADES[sortearPeso(PESOS_NACIONALIDADES)]));
+		}
+		return autores;
+	}
+
+	/**
+	 * Gera leitores com nome, telefone e e-mail.
+	 * @param quantidade Quantos leitores gerar.
+	 * @return Os leitores, na ordem de geração.
+	 */
+	public List<Leitor> gerarLeitores(int quantidade) {
+		List<Leitor> leitores = new ArrayList<>(quantidade);
+		for (int i = 0; i < quantidade; i++) {
+			String nome = gerarNome();
+			String telefone = String.format("(%02d) 9%04d-%04d", 71 + aleatorio.nextInt(9),
+					aleatorio.nextInt(10000), aleatorio.nextInt(10000));
+			leitores.add(new Leitor(nome, telefone, emailDe(nome, i)));
+		}
+		return leitores;
+	}
+
+	/**
+	 * Gera livros dos autores informados. Poucos autores concentram muitos livros (Zipf), e os
+	 * títulos são únicos por autor, como exige o {@link GerenciadorBiblioteca}.
+	 * @param quantidade Quantos livros gerar.
+	 * @param autores Os autores dos livros (não vazia).
+	 * @return Os livros, na ordem de geração, que também é a ordem de popularidade.
+	 */
+	public List<Livro> gerarLivros(int quantidade, List<Autor> autores) {
+		Zipf porAutor = new Zipf(autores.size(), 1.0);
+		List<Livro> livros = new ArrayList<>(quantidade);
+		for (int i = 0; i < quantidade; i++) {
+			String titulo = SUJEITOS[sujeitos.sortear(aleatorio)] + " " + COMPLEMENTOS[complementos.sortear(aleatorio)];
+			if (i > 0) {
+				titulo += " (" + (i + 1) + ")"; // Mantém os títulos únicos
+			}
+			int paginas = (int) Math.max(24, Math.min(1600, Math.round(Math.exp(5.6 + 0.5 * aleatorio.nextGaussian()))));
+			int ano = 2025 - (int) Math.min(200, Math.abs(aleatorio.nextGaussian()) * 30);
+			double preco = Math.round((20 + paginas * 0.12 + aleatorio.nextInt(40)) * 100) / 100.0;
+			// Os livros mais populares (os primeiros) têm mais exemplares
+			int exemplares = (i < quantidade / 100) ? 3 + aleatorio.nextInt(3) : 1 + ((aleatorio.nextInt(10) < 2) ? 1 : 0);
+			livros.add(new Livro(titulo, autores.get(porAutor.sortear(aleatorio)), paginas, ano, preco, exemplares));
+		}
+		return livros;
+	}
+
+	/**
+	 * Inclui livros sintéticos (e os seus autores) no gerenciador, gravando o acervo uma única vez no fim.
+	 * @param gerenciador O gerenciador (de preferência com o acervo vazio).
+	 * @param numLivros Quantos livros incluir.
+	 * @return Os IDs dos livros incluídos, do mais ao menos popular.
+	 */
+	public List<String> popularLivros(GerenciadorBiblioteca gerenciador, int numLivros) {
+		List<Autor> autores = gerarAutores(Math.max(1, numLivros / 8));
+		List<String> ids = new ArrayList<>(numLivros);
+		gerenciador.adiarGravacao();
+		try {
+			for (Livro livro : gerarLivros(numLivros, autores)) {
+				if (gerenciador.addLivro(livro.getTitulo(), livro.getAutor(), livro.getNumPags(), livro.getAnoPub(),
+						livro.getPreco(), livro.getNumExemplares())) {
+					ids.add(gerenciador.buscarLivroPorTituloEAutor(livro.getTitulo(), livro.getAutor().getNome()).getIdLivro());
+				}
+			}
+		} finally {
+			gerenciador.concluirGravacao();
+		}
+		return ids;
+	}
+
+	/**
+	 * Cadastra leitores sintéticos no gerenciador.
+	 * @param gerenciador O gerenciador.
+	 * @param numLeitores Quantos leitores cadastrar.
+	 * @return Os leitores cadastrados.
+	 */
+	public List<Leitor> popularLeitores(GerenciadorBiblioteca gerenciador, int numLeitores) {
+		List<Leitor> leitores = gerarLeitores(numLeitores);
+		for (Leitor leitor : leitores) {
+			gerenciador.registrarLeitor(leitor);
+		}
+		return leitores;
+	}
+
+	// =========================================================================
+	// Métodos Auxiliares
+	// =========================================================================
+
+	private String gerarNome() {
+		String nome = PRENOMES[prenomes.sortear(aleatorio)] + " " + SOBRENOMES[sobrenomes.sortear(aleatorio)];
+		if (aleatorio.nextInt(3) > 0) {
+			nome += " " + SOBRENOMES[sobrenomes.sortear(aleatorio)];
+		}
+		return nome;
+	}
+
+	private int sortearPeso(double[] pesos) {
+		double total = 0;
+		for (double peso : pesos) total += peso;
+		double sorteio = aleatorio.nextDouble() * total;
+		for (int i = 0; i < pesos.length; i++) {
+			sorteio -= pesos[i];
+			if (sorteio < 0) return i;
+		}
+		return pesos.length - 1;
+	}
+
+	/**
+	 * Monta o e-mail a partir do nome, sem acentos (ex.: "Márcia Lima" vira "marcia.lima12@email.com").
+	 */
+	private static String emailDe(String nome, int numero) {
+		String semAcentos = Normalizer.normalize(nome, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+		return semAcentos.toLowerCase(Locale.ROOT).replace(' ', '.') + numero + "@email.com";
+	}
+}
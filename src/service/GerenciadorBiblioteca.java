@@ -1,259 +1,1894 @@
-package service;
-
-import java.util.ArrayList;
-import java.util.Comparator;
-
-import model.Autor;
-import model.Leitor;
-import model.Livro;
-
-/**
- * Classe responsável por gerenciar a coleção de livros.
- * <p>
- * Contém a lógica de negócio para adicionar, remover, editar, listar e ordenar
- * os livros da biblioteca. Integra a persistência de dados através da classe {@link Persistencia}.
- * </p>
- */
-public class GerenciadorBiblioteca {
-
-	/**
-	 * Lista principal de livros da biblioteca, armazenada como {@link ArrayList}.
-	 */
-	private ArrayList<Livro> listaLivros;
-	
-	/**
-	 * Objeto responsável por carregar e salvar a lista de livros no arquivo.
-	 */
-	private final Persistencia persistencia;
-	
-	/**
-     * Enum para representar as opções de ordenação disponíveis para a coleção de livros.
-     */
-    public enum TipoOrdenacao {
-        /** Ordenar por Título */
-        TITULO,
-        /** Ordenar por Autor */
-        AUTOR
-    }
-
-	/**
-	 * Construtor que inicializa a lista de livros e o objeto de persistência.
-	 * A lista é carregada do arquivo na inicialização.
-	 */
-	public GerenciadorBiblioteca() {
-		this.persistencia = new Persistencia();
-		// Tenta carregar os dados persistidos ao iniciar
-		this.listaLivros = persistencia.carregarLivros();
-		
-		// Se o carregamento falhar (ou se o arquivo estiver vazio/não existir), inicia uma lista vazia
-		if (this.listaLivros == null) {
-			this.listaLivros = new ArrayList<>();
-		}
-	}
-
-	/**
-	 * Adiciona um novo livro à coleção e salva a lista.
-	 * * @param titulo O título do livro.
-	 * @param autor O objeto {@link Autor} do livro.
-	 * @param numPags O número de páginas.
-	 * @param anoPub O ano de publicação.
-	 * @param preco O preço do livro.
-	 * @return {@code true} se o livro for adicionado com sucesso, {@code false} caso já exista.
-	 */
-	public boolean addLivro(String titulo, Autor autor, int numPags, int anoPub, double preco) {
-
-		Livro livroAdd = new Livro(titulo, autor, numPags, anoPub, preco);
-
-		if (listaLivros.contains(livroAdd)) {
-			return false;
-		}
-
-		listaLivros.add(livroAdd);
-		persistencia.salvarLivros(listaLivros); // Salva após alteração
-		return true;
-	}
-
-	/**
-	 * Busca um livro na coleção usando o seu ID único.
-	 * * @param idLivro O ID único do livro a ser procurado.
-	 * @return O objeto {@link Livro} encontrado ou {@code null} caso não exista.
-	 */
-	public Livro buscarLivroPorID(String idLivro) {
-		if (idLivro == null || idLivro.isEmpty()) return null;
-
-		for (Livro livro : listaLivros) {
-			// Usa o método getIdLivro()
-			if (livro.getIdLivro().equals(idLivro)) {
-				return livro;
-			}
-		}
-		return null;
-	}
-
-	/**
-	 * Retorna o índice (posição na lista) do livro com o ID informado.
-	 * * @param idLivro O ID único do livro.
-	 * @return O índice do livro na lista ou {@code -1} caso não seja encontrado.
-	 */
-	public int buscarIndiceLivroPorID(String idLivro) {
-		if (idLivro == null || idLivro.isEmpty()) return -1;
-
-		for (int i = 0; i < listaLivros.size(); i++) {
-			if (listaLivros.get(i).getIdLivro().equals(idLivro)) {
-				return i;
-			}
-		}
-		return -1;
-	}
-
-	/**
-	 * Remove um livro da coleção usando o seu ID e salva a lista.
-	 * * @param idLivro O ID único do livro a ser removido.
-	 * @return {@code true} se o livro for encontrado e removido, {@code false} caso não exista.
-	 */
-	public boolean remLivro(String idLivro) {
-		int indice = this.buscarIndiceLivroPorID(idLivro);
-
-		if (indice != -1) {
-			listaLivros.remove(indice);
-			persistencia.salvarLivros(listaLivros); // Salva após alteração
-			return true;
-		}
-
-		return false;
-	}
-
-	/**
-	 * Edita todas as informações de um livro existente, encontrado pelo seu ID, e salva a lista.
-	 * * @param idLivro O ID único do livro a ser editado.
-	 * @param titulo O novo título do livro.
-	 * @param autor O novo objeto {@link Autor} do livro.
-	 * @param numPags O novo número de páginas.
-	 * @param anoPub O novo ano de publicação.
-	 * @param preco O novo preço do livro.
-	 * @param leitorEmprestimo O objeto {@link Leitor} (ou {@code null} se estiver disponível).
-	 * @return {@code true} se o livro for encontrado e as informações forem atualizadas.
-	 */
-	public boolean editLivro(String idLivro, String titulo, Autor autor, int numPags, 
-			int anoPub, double preco, Leitor leitorEmprestimo) {
-
-		int indice = this.buscarIndiceLivroPorID(idLivro);
-
-		if (indice != -1) {
-			Livro livro = listaLivros.get(indice);
-
-			// Atualiza os dados básicos
-			livro.setTitulo(titulo);
-			livro.setAutor(autor);
-			livro.setNumPags(numPags);
-			livro.setAnoPub(anoPub);
-			livro.setPreco(preco);
-			
-			// ATUALIZADO: Define o objeto Leitor
-			livro.setLeitorEmprestimo(leitorEmprestimo);
-
-			persistencia.salvarLivros(listaLivros); // Salva após alteração
-			return true;
-		}
-
-		return false;
-	}
-
-	/**
-	 * Retorna uma sublista contendo todos os livros escritos por um autor específico.
-	 * * @param autor O objeto {@link Autor} para filtrar a lista.
-	 * @return Uma {@link ArrayList} de livros do autor especificado.
-	 */
-	public ArrayList<Livro> listLivrosPorAutor(Autor autor) {
-		ArrayList<Livro> livrosDoAutor = new ArrayList<>();
-
-		for (Livro livro : listaLivros) {
-			if (livro.getAutor().equals(autor)) {
-				livrosDoAutor.add(livro);
-			}
-		}
-
-		return livrosDoAutor;
-	}
-
-	/**
-	 * Retorna uma sublista contendo todos os livros que estão emprestados para um leitor específico.
-	 * * @param leitor O objeto {@link Leitor} que emprestou o livro.
-	 * @return Uma {@link ArrayList} de livros emprestados ao leitor.
-	 */
-	public ArrayList<Livro> listLivrosEmprestadosPara(Leitor leitor) {
-		ArrayList<Livro> livrosDoEmprestimo = new ArrayList<>();
-
-		for (Livro livro : listaLivros) {
-			// ATUALIZADO: Compara objetos Leitor
-			if (livro.getLeitorEmprestimo() != null &&
-				livro.getLeitorEmprestimo().equals(leitor)) {
-
-				livrosDoEmprestimo.add(livro);
-			}
-		}
-
-		return livrosDoEmprestimo;
-	}
-
-	/**
-	 * Busca um livro pelo título (ignora maiúsculas/minúsculas - case-insensitive).
-	 * * @param titulo O título a ser procurado.
-	 * @return O objeto {@link Livro} encontrado ou {@code null} se o livro não for encontrado.
-	 */
-	public Livro exibeLivro(String titulo) {
-		if (titulo == null || titulo.trim().isEmpty()) return null;
-
-		for (Livro livro : listaLivros) {
-			if (livro.getTitulo().equalsIgnoreCase(titulo)) {
-				return livro;
-			}
-		}
-
-		return null;
-	}
-	
-	/**
-     * Ordena a lista de livros com base no tipo de ordenação escolhido.
-     * <p>Substitui o uso de {@code throws Exception} genérico por uma exceção mais específica.</p>
-     * * @param tipo O {@link TipoOrdenacao} desejado (TITULO ou AUTOR).
-	 * @return A lista de livros ordenada.
-     * @throws IllegalArgumentException Se o tipo de ordenação não for suportado.
-     */
-    public ArrayList<Livro> ordenarLivros(TipoOrdenacao tipo) throws IllegalArgumentException {
-        
-        // Definição do Comparator com base na escolha
-        Comparator<Livro> comparator;
-
-        if (tipo == TipoOrdenacao.TITULO) { // Ordenação por título
-            // Usa a ordenação natural definida em Livro (compareTo)
-            comparator = Comparator.naturalOrder(); 
-            
-        } else if (tipo == TipoOrdenacao.AUTOR) { // Ordenação por autor
-            // Cria um Comparator que compara primeiro o objeto Autor, usando o nome (em minúsculas)
-            comparator = Comparator.comparing(Livro::getAutor, 
-                                             Comparator.comparing(a -> a.getNome().toLowerCase()));
-            
-        } else {
-        	// Substituição do throws Exception genérico pelo IllegalArgumentException
-        	throw new IllegalArgumentException("Tipo de ordenação não suportado: " + tipo);
-        }
-
-        // Aplica o Comparator à lista
-        this.listaLivros.sort(comparator);
-        
-        // Salva a lista após a ordenação (se a ordenação for um estado persistente)
-        // Se a ordenação for apenas para exibição, esta linha pode ser removida.
-        persistencia.salvarLivros(listaLivros);
-        
-        return this.listaLivros;
-    }
-
-	/**
-	 * Retorna a lista completa e atualizada de livros.
-	 * @return A {@link ArrayList} de {@link Livro}s.
-	 */
-	public ArrayList<Livro> getListaLivros() {
-		return listaLivros;
-	}
+package service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import model.Autor;
+import model.EventoAcervo;
+import model.EventoEmprestimo;
+import model.Identificador;
+import model.Leitor;
+import model.Livro;
+
+/**
+ * Classe responsável por gerenciar a coleção de livros.
+ * <p>
+ * Contém a lógica de negócio para adicionar, remover, editar, listar e ordenar
+ * os livros da biblioteca. Integra a persistência de dados através da classe {@link Persistencia}.
+ * </p>
+ */
+public final class GerenciadorBiblioteca {
+
+	/**
+	 * Versão atual do acervo, armazenada como {@link VetorPersistente} imutável.
+	 * <p>Quem consulta lê a versão vigente sem travas; quem altera monta uma nova versão
+	 * (compartilhando a estrutura da anterior) e a publica de uma só vez neste campo.</p>
+	 */
+	private volatile VetorPersistente<Livro> catalogo;
+	
+	/**
+	 * Trava dos escritores: inclusões, remoções e ordenações publicam uma versão por vez.
+	 * As leituras não a usam. O estado de empréstimo de cada livro usa a trava própria do
+	 * livro (ver {@link GerenciadorReservas#travaDoLivro(String)}).
+	 */
+	private final ReentrantLock travaEscrita = new ReentrantLock();
+	
+	/**
+	 * Leitores cadastrados, indexados pelo ID (em ordem de cadastro).
+	 */
+	private final Map<String, Leitor> leitores = Collections.synchronizedMap(new LinkedHashMap<>());
+	
+	/**
+	 * Objeto responsável por carregar e salvar a lista de livros (arquivo único ou fragmentos).
+	 */
+	private final Armazenamento persistencia;
+	
+	/**
+	 * O mesmo armazenamento, quando o acervo fica em disco ({@link PersistenciaIndexada});
+	 * {@code null} quando o acervo é mantido em memória.
+	 */
+	private final PersistenciaIndexada emDisco;
+	
+	/**
+	 * Histórico de circulação (empréstimos e devoluções) gravado em segmentos append-only.
+	 */
+	private final HistoricoEmprestimos historico;
+	
+	/**
+	 * Eventos das alterações do acervo (inclusões, edições, remoções, empréstimos e devoluções),
+	 * assinados por outros sistemas (ex.: o site do catálogo).
+	 */
+	private final FluxoEventos eventos;
+	
+	/**
+	 * Retratos periódicos e mutações do acervo, para recuperá-lo como estava em qualquer instante.
+	 */
+	private final VersoesAcervo versoes;
+	
+	/**
+	 * Contagens de livros pegos pelos mesmos leitores, para sugerir livros no balcão.
+	 */
+	private final Recomendacoes recomendacoes = new Recomendacoes();
+	
+	/**
+	 * Livros em aberto de cada leitor e limites por categoria, conferidos a cada empréstimo.
+	 */
+	private final CotasEmprestimo cotas = new CotasEmprestimo();
+	
+	/**
+	 * Índice dos prazos de devolução, usado para encontrar empréstimos atrasados.
+	 */
+	private final AgendadorAtrasos agendadorAtrasos;
+	
+	/**
+	 * Filas de reserva de cada livro, com repasse automático na devolução.
+	 */
+	private final GerenciadorReservas reservas;
+	
+	/**
+	 * Registro das alterações do acervo, lido pelas réplicas dos outros campi.
+	 */
+	private final RegistroAlteracoes registroAlteracoes = new RegistroAlteracoes();
+	
+	/**
+	 * Índices por ID, título e autor, consultados nas faltas dos caches em vez de percorrer a lista.
+	 */
+	private final IndiceLivros indice = new IndiceLivros();
+
+	/**
+	 * Índices aproximados (por trigramas) dos títulos e dos nomes de autores, usados nas sugestões
+	 * de busca. São montados em segundo plano depois da carga ({@link #aproximadosProntos}).
+	 * Com o acervo em disco, as listas deles também ficam em disco ({@link IndiceAproximadoDisco}).
+	 */
+	private final IndiceSugestoes titulosAproximados;
+	private final IndiceSugestoes autoresAproximados;
+	private final CompletableFuture<Void> aproximadosProntos;
+	
+	/**
+	 * Duração de cada fase da inicialização, em milissegundos, na ordem em que ocorreram.
+	 */
+	private final Map<String, Long> temposInicializacao = new LinkedHashMap<>();
+	
+	/**
+	 * Lotes abertos por {@link #adiarGravacao()} e se alguma alteração ficou sem gravar
+	 * enquanto eles estavam abertos. Protegidos pelo monitor de {@link #persistencia}.
+	 */
+	private int lotesAbertos;
+	private boolean gravacaoPendente;
+
+	/**
+	 * Inversas das últimas transações confirmadas (para desfazê-las) e das desfeitas (para
+	 * refazê-las), da mais recente para a mais antiga. Protegidas pela {@link #travaEscrita}.
+	 */
+	private final ArrayDeque<List<Transacao.Operacao>> transacoesDesfazer = new ArrayDeque<>();
+	private final ArrayDeque<List<Transacao.Operacao>> transacoesRefazer = new ArrayDeque<>();
+	private int limiteDesfazer = LIMITE_DESFAZER_PADRAO;
+	
+	/**
+	 * Quantas transações confirmadas podem ser desfeitas, por padrão.
+	 */
+	public static final int LIMITE_DESFAZER_PADRAO = 20;
+	
+	/**
+	 * Prazo padrão de um empréstimo, em dias.
+	 */
+	public static final int PRAZO_EMPRESTIMO_PADRAO = 14;
+	
+	private static final long MILIS_POR_DIA = 24L * 60 * 60 * 1000;
+	
+	/**
+	 * Capacidade padrão de cada cache de consultas (em livros).
+	 */
+	public static final long CAPACIDADE_CACHE_PADRAO = 1024;
+	
+	/**
+	 * Caches de leitura na frente das consultas mais frequentes (por ID, por título e por autor).
+	 * São trocados juntos por {@link #configurarCache(Cache.Fabrica, long)}.
+	 */
+	private volatile Cache<String, Livro> cachePorId;
+	private volatile Cache<String, Livro> cachePorTitulo;
+	private volatile Cache<String, List<Livro>> cachePorAutor;
+
+	// Carregadores das faltas dos caches, criados uma vez (uma referência de método nova a cada consulta seria um objeto a mais)
+	private final Function<String, Livro> carregadorPorId = this::carregarLivroPorID;
+	private final Function<String, Livro> carregadorPorTitulo = this::carregarLivroPorTitulo;
+	
+	/**
+     * Enum para representar as opções de ordenação disponíveis para a coleção de livros.
+     */
+    public enum TipoOrdenacao {
+        /** Ordenar por Título */
+        TITULO,
+        /** Ordenar por Autor */
+        AUTOR
+    }
+
+	/**
+	 * Construtor que inicializa a lista de livros e o objeto de persistência.
+	 * A lista é carregada do arquivo na inicialização.
+	 */
+	public GerenciadorBiblioteca() {
+		this(new File("."));
+	}
+
+	/**
+	 * Construtor que guarda todos os arquivos de dados num diretório específico.
+	 * <p>Permite executar várias instâncias independentes (ex.: testes de carga).</p>
+	 * @param diretorioDados O diretório dos arquivos de dados (criado se não existir).
+	 */
+	public GerenciadorBiblioteca(File diretorioDados) {
+		this(diretorioDados, new Persistencia(new File(diretorioDados, Persistencia.NOME_ARQUIVO)));
+	}
+
+	/**
+	 * Construtor que usa uma forma específica de armazenamento do acervo (ex.: {@link PersistenciaFragmentada}).
+	 * <p>Os demais arquivos de dados (histórico, reservas) ficam no diretório informado.
+	 * Com uma {@link PersistenciaIndexada}, o acervo não é carregado: as consultas usam os
+	 * índices em disco, e a memória usada não depende do tamanho do acervo.</p>
+	 * @param diretorioDados O diretório dos demais arquivos de dados (criado se não existir).
+	 * @param armazenamento O {@link Armazenamento} que carrega e salva a lista de livros.
+	 */
+	public GerenciadorBiblioteca(File diretorioDados, Armazenamento armazenamento) {
+		long inicio = System.nanoTime();
+		long marca = inicio;
+		diretorioDados.mkdirs();
+		this.persistencia = armazenamento;
+		this.emDisco = (armazenamento instanceof PersistenciaIndexada) ? (PersistenciaIndexada) armazenamento : null;
+		this.historico = new HistoricoEmprestimos(new File(diretorioDados, HistoricoEmprestimos.DIRETORIO_PADRAO),
+				HistoricoEmprestimos.EVENTOS_POR_SEGMENTO_PADRAO);
+		this.reservas = new GerenciadorReservas(new File(diretorioDados, GerenciadorReservas.NOME_ARQUIVO));
+		this.eventos = new FluxoEventos(new File(diretorioDados, FluxoEventos.DIRETORIO_PADRAO));
+		this.versoes = new VersoesAcervo(new File(diretorioDados, VersoesAcervo.DIRETORIO_PADRAO));
+		configurarCache(CacheTinyLfu.FABRICA, CAPACIDADE_CACHE_PADRAO);
+		marca = registrarFase("histórico, reservas e eventos", marca);
+
+		// As recomendações são refeitas a partir dos empréstimos do histórico
+		for (EventoEmprestimo evento : historico.eventosEntre(0, Long.MAX_VALUE)) {
+			if (evento.getTipo() == EventoEmprestimo.Tipo.EMPRESTIMO) {
+				recomendacoes.registrarEmprestimo(evento.getIdLivro(), evento.getIdLeitor());
+			}
+		}
+		marca = registrarFase("recomendações", marca);
+
+		if (emDisco != null) {
+			// O acervo fica no disco: nada é carregado, e as consultas passam pelos índices dele
+			this.catalogo = VetorPersistente.vazio();
+		} else {
+			// Carrega os dados persistidos; os índices são montados enquanto os blocos são decodificados
+			List<CompletableFuture<List<Livro>>> blocos = persistencia.carregarEmBlocos();
+			CompletableFuture<Void> indices = indice.montar(blocos);
+			ArrayList<Livro> carregados = new ArrayList<>();
+			for (CompletableFuture<List<Livro>> bloco : blocos) {
+				for (Livro livro : bloco.join()) {
+					livro.compactarTextos(); // O acervo residente guarda os textos na arena
+					carregados.add(livro);
+				}
+			}
+			marca = registrarFase("decodificação (" + blocos.size() + " blocos)", marca);
+			
+			// Se o carregamento falhar (ou se o arquivo estiver vazio/não existir), inicia uma lista vazia
+			this.catalogo = VetorPersistente.de(carregados);
+			marca = registrarFase("acervo", marca);
+			indices.join();
+			marca = registrarFase("índices (espera)", marca);
+		}
+		
+		// Reconstrói o índice de prazos e as cotas a partir dos empréstimos em aberto e inicia as varreduras
+		this.agendadorAtrasos = new AgendadorAtrasos();
+		if (emDisco != null) {
+			// Os vencimentos vêm do índice de empréstimos, sem ler os livros
+			LinkedHashSet<String> emprestados = new LinkedHashSet<>();
+			emDisco.percorrerEmprestimos((idLivro, exemplar, vencimento) -> {
+				if (vencimento > 0) agendadorAtrasos.agendar(chaveExemplar(idLivro, exemplar), vencimento);
+				emprestados.add(idLivro);
+			});
+			// Os leitores não estão no índice: só os livros emprestados são lidos
+			for (String idLivro : emprestados) {
+				Livro livro = emDisco.buscarPorId(idLivro);
+				if (livro != null) contarEmprestimos(livro);
+			}
+		} else {
+			for (Livro livro : catalogo) {
+				for (int i = 0; i < livro.getNumExemplares(); i++) {
+					if (livro.getLeitorExemplar(i) != null && livro.getVencimentoExemplar(i) > 0) {
+						agendadorAtrasos.agendar(chaveExemplar(livro.getIdLivro(), i), livro.getVencimentoExemplar(i));
+					}
+				}
+				contarEmprestimos(livro);
+			}
+		}
+		agendadorAtrasos.iniciar();
+		registrarFase("prazos de devolução", marca);
+		temposInicializacao.put("total", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+
+		// As sugestões de busca não atrasam a inicialização: o índice delas é montado depois
+		File diretorioSugestoes = new File(diretorioDados, IndiceAproximadoDisco.DIRETORIO_PADRAO);
+		this.titulosAproximados = criarIndiceAproximado(new File(diretorioSugestoes, "titulos.idx"));
+		this.autoresAproximados = criarIndiceAproximado(new File(diretorioSugestoes, "autores.idx"));
+		this.aproximadosProntos = CompletableFuture.runAsync(() -> percorrerAcervo(livro -> {
+			titulosAproximados.adicionar(livro.getTitulo());
+			autoresAproximados.adicionar(livro.getAutor().getNome());
+		}));
+		versoes.iniciar(VersoesAcervo.INTERVALO_RETRATOS_PADRAO_MS, this::criarRetratoAcervo);
+	}
+
+	/**
+	 * Cria um índice aproximado vazio: em disco se o acervo estiver em disco, senão em memória.
+	 */
+	private IndiceSugestoes criarIndiceAproximado(File arquivo) {
+		if (emDisco == null) {
+			return new IndiceAproximado();
+		}
+		try {
+			return new IndiceAproximadoDisco(arquivo, ArvoreBMais.PAGINAS_EM_CACHE_PADRAO);
+		} catch (IOException e) {
+			System.err.println("Erro ao criar o índice de sugestões " + arquivo + "; usando a memória: " + e.getMessage());
+			return new IndiceAproximado();
+		}
+	}
+
+	/**
+	 * Guarda a duração de uma fase da inicialização.
+	 * @return O instante do fim da fase, que é o início da próxima.
+	 */
+	private long registrarFase(String fase, long inicioFase) {
+		long agora = System.nanoTime();
+		temposInicializacao.put(fase, TimeUnit.NANOSECONDS.toMillis(agora - inicioFase));
+		return agora;
+	}
+
+	/**
+	 * Retorna quanto tempo levou cada fase da inicialização (carga dos arquivos auxiliares,
+	 * decodificação do acervo, montagem da lista e dos índices, prazos de devolução) e o total.
+	 * @return Um mapa da fase para a duração em milissegundos, na ordem em que as fases ocorreram.
+	 */
+	public Map<String, Long> getTemposInicializacao() {
+		return Collections.unmodifiableMap(temposInicializacao);
+	}
+
+	/**
+	 * Adiciona um novo livro (com um único exemplar) à coleção e salva a lista.
+	 * * @param titulo O título do livro.
+	 * @param autor O objeto {@link Autor} do livro.
+	 * @param numPags O número de páginas.
+	 * @param anoPub O ano de publicação.
+	 * @param preco O preço do livro.
+	 * @return {@code true} se o livro for adicionado com sucesso, {@code false} caso já exista.
+	 */
+	public boolean addLivro(String titulo, Autor autor, int numPags, int anoPub, double preco) {
+		return addLivro(titulo, autor, numPags, anoPub, preco, 1);
+	}
+
+	/**
+	 * Adiciona um novo título com a quantidade de exemplares informada e salva a lista.
+	 * <p>Um título é considerado repetido quando já existe um livro com o mesmo título e o
+	 * mesmo nome de autor (ignorando maiúsculas/minúsculas). Nesse caso, novas cópias devem
+	 * ser cadastradas com {@link #addExemplares(String, int)}.</p>
+	 * * @param titulo O título do livro.
+	 * @param autor O objeto {@link Autor} do livro.
+	 * @param numPags O número de páginas.
+	 * @param anoPub O ano de publicação.
+	 * @param preco O preço do livro.
+	 * @param numExemplares A quantidade de exemplares físicos.
+	 * @return {@code true} se o livro for adicionado com sucesso, {@code false} caso já exista.
+	 */
+	public boolean addLivro(String titulo, Autor autor, int numPags, int anoPub, double preco, int numExemplares) {
+
+		travaEscrita.lock();
+		try {
+			// A verificação e a inclusão ficam sob a mesma trava, para não duplicar o título
+			if (buscarLivroPorTituloEAutor(titulo, autor.getNome()) != null) {
+				return false;
+			}
+
+			Livro livroAdd = new Livro(titulo, autor, numPags, anoPub, preco, numExemplares);
+			incluirAproximado(livroAdd);
+			if (emDisco == null) {
+				livroAdd.compactarTextos();
+				catalogo = catalogo.comAdicionado(livroAdd);
+				indice.adicionar(livroAdd);
+			}
+			registrarAlteracao(livroAdd);
+			eventos.publicar(EventoAcervo.Tipo.LIVRO_ADICIONADO, livroAdd.getIdLivro(), null, -1);
+		} finally {
+			travaEscrita.unlock();
+		}
+		salvar(); // Salva após alteração
+		return true;
+	}
+
+	/**
+	 * Cadastra novos exemplares de um título já existente e salva a lista.
+	 * <p>Se houver leitores na fila de reservas, os novos exemplares já são repassados a eles.</p>
+	 * * @param idLivro O ID único do título.
+	 * @param quantidade Quantos exemplares acrescentar.
+	 * @return {@code true} se os exemplares foram cadastrados, {@code false} se o título não existe.
+	 */
+	public boolean addExemplares(String idLivro, int quantidade) {
+		Livro livro = buscarLivroPorID(idLivro);
+		if (livro == null || quantidade <= 0) {
+			return false;
+		}
+
+		travaEscrita.lock(); // A lista do acervo recebe a nova versão do livro
+		try {
+			synchronized (reservas.travaDoLivro(idLivro)) {
+				Livro anterior = buscarLivroPorID(idLivro); // A versão vigente (ver emprestarLivro)
+				if (anterior == null) {
+					return false;
+				}
+				int primeiroNovo = anterior.getNumExemplares();
+				if (emDisco != null) {
+					livro = anterior;
+					livro.adicionarExemplares(quantidade);
+				} else {
+					// Os exemplares entram numa cópia, posta no lugar de uma vez (ver editarVersao)
+					livro = new Livro(anterior);
+					livro.adicionarExemplares(quantidade);
+					indice.substituir(anterior, livro);
+					invalidarCaches(anterior);
+					publicarNoCatalogo(anterior, livro);
+				}
+				registrarAlteracao(livro);
+				eventos.publicar(EventoAcervo.Tipo.EXEMPLARES_ADICIONADOS, idLivro, null, -1);
+
+				for (int i = primeiroNovo; i < livro.getNumExemplares(); i++) {
+					Leitor proximo = reservas.proximo(idLivro);
+					if (proximo == null) break;
+					registrarMudancaEmprestimo(livro, i, proximo, PRAZO_EMPRESTIMO_PADRAO);
+				}
+			}
+		} finally {
+			travaEscrita.unlock();
+		}
+		salvar(); // Salva após alteração
+		return true;
+	}
+
+	/**
+	 * Procura um título pelo título e nome do autor (ignora maiúsculas/minúsculas).
+	 * * @param titulo O título procurado.
+	 * @param nomeAutor O nome do autor.
+	 * @return O {@link Livro} encontrado ou {@code null}.
+	 */
+	public Livro buscarLivroPorTituloEAutor(String titulo, String nomeAutor) {
+		for (Livro livro : livrosComTitulo(chaveTitulo(titulo))) {
+			if (livro.getAutor().getNome().equalsIgnoreCase(nomeAutor)) {
+				return livro;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Busca um livro na coleção usando o seu ID único.
+	 * * @param idLivro O ID único do livro a ser procurado.
+	 * @return O objeto {@link Livro} encontrado ou {@code null} caso não exista.
+	 */
+	public Livro buscarLivroPorID(String idLivro) {
+		if (idLivro == null || idLivro.isEmpty()) return null;
+
+		return cachePorId.obter(idLivro, carregadorPorId);
+	}
+
+	/**
+	 * Procura um livro pelo ID no índice (consulta real, usada em faltas do cache).
+	 */
+	private Livro carregarLivroPorID(String idLivro) {
+		return (emDisco != null) ? emDisco.buscarPorId(idLivro) : indice.porId(idLivro);
+	}
+
+	/**
+	 * Retorna todos os livros com o título (já normalizado), pelo índice em memória ou em disco.
+	 */
+	private List<Livro> livrosComTitulo(String chaveTitulo) {
+		return (emDisco != null) ? emDisco.listarPorTitulo(chaveTitulo) : indice.porTitulo(chaveTitulo);
+	}
+
+	/**
+	 * Retorna o índice (posição na lista) do livro com o ID informado.
+	 * <p>Com o acervo em disco não há lista em memória, e o retorno é sempre {@code -1}.</p>
+	 * * @param idLivro O ID único do livro.
+	 * @return O índice do livro na lista ou {@code -1} caso não seja encontrado.
+	 */
+	public int buscarIndiceLivroPorID(String idLivro) {
+		if (idLivro == null || idLivro.isEmpty()) return -1;
+
+		// Compara as metades do ID, sem montar o texto de cada livro
+		long alta = Identificador.alta(idLivro);
+		long baixa = Identificador.baixa(idLivro, alta);
+		VetorPersistente<Livro> versao = catalogo;
+		for (int i = 0; i < versao.size(); i++) {
+			Livro livro = versao.get(i);
+			if (livro.getIdAlta() == alta && livro.getIdBaixa() == baixa) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Remove um livro da coleção usando o seu ID e salva a lista.
+	 * * @param idLivro O ID único do livro a ser removido.
+	 * @return {@code true} se o livro for encontrado e removido, {@code false} caso não exista.
+	 */
+	public boolean remLivro(String idLivro) {
+		Livro removido;
+		travaEscrita.lock();
+		try {
+			if (emDisco != null) {
+				// Sem lista em memória: o armazenamento e os caches são avisados em concluirRemocao
+				removido = buscarLivroPorID(idLivro);
+				if (removido != null) {
+					retirarAproximado(removido);
+				}
+			} else {
+				int indice = this.buscarIndiceLivroPorID(idLivro);
+				removido = (indice != -1) ? catalogo.get(indice) : null;
+				if (removido != null) {
+					retirarAproximado(removido);
+					catalogo = catalogo.semIndice(indice);
+					this.indice.remover(removido);
+				}
+			}
+			if (removido != null) {
+				eventos.publicar(EventoAcervo.Tipo.LIVRO_REMOVIDO, idLivro, null, -1);
+			}
+		} finally {
+			travaEscrita.unlock();
+		}
+
+		if (removido != null) {
+			concluirRemocao(removido);
+			salvar(); // Salva após alteração
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Descarta o que ainda se refere a um livro removido (consultas em cache, prazos e reservas)
+	 * e avisa o armazenamento, as réplicas e as versões. Chamado depois de publicar a remoção.
+	 */
+	private void concluirRemocao(Livro removido) {
+		String idLivro = removido.getIdLivro();
+		invalidarCaches(removido);
+		persistencia.marcarRemovido(idLivro);
+		registroAlteracoes.registrar(idLivro);
+		versoes.registrar(idLivro, null);
+		for (int i = 0; i < removido.getNumExemplares(); i++) {
+			agendadorAtrasos.cancelar(chaveExemplar(idLivro, i));
+		}
+		reservas.limpar(idLivro);
+		liberarEmprestimos(removido);
+	}
+
+	/**
+	 * Desconta das cotas dos leitores os exemplares emprestados de um livro que saiu do acervo.
+	 */
+	private void liberarEmprestimos(Livro livro) {
+		synchronized (reservas.travaDoLivro(livro.getIdLivro())) {
+			for (int i = 0; i < livro.getNumExemplares(); i++) {
+				Leitor leitor = livro.getLeitorExemplar(i);
+				if (leitor != null) cotas.liberar(leitor);
+			}
+		}
+	}
+
+	/**
+	 * Conta nas cotas dos leitores os exemplares emprestados de um livro (na carga e na volta de um livro removido).
+	 */
+	private void contarEmprestimos(Livro livro) {
+		for (int i = 0; i < livro.getNumExemplares(); i++) {
+			Leitor leitor = livro.getLeitorExemplar(i);
+			if (leitor != null) cotas.contar(leitor);
+		}
+	}
+
+	/**
+	 * Edita todas as informações de um livro existente, encontrado pelo seu ID, e salva a lista.
+	 * * @param idLivro O ID único do livro a ser editado.
+	 * @param titulo O novo título do livro.
+	 * @param autor O novo objeto {@link Autor} do livro.
+	 * @param numPags O novo número de páginas.
+	 * @param anoPub O novo ano de publicação.
+	 * @param preco O novo preço do livro.
+	 * @param leitorEmprestimo O objeto {@link Leitor} do primeiro exemplar (ou {@code null} se estiver disponível).
+	 * @return {@code true} se o livro for encontrado e as informações forem atualizadas.
+	 */
+	public boolean editLivro(String idLivro, String titulo, Autor autor, int numPags, 
+			int anoPub, double preco, Leitor leitorEmprestimo) {
+
+		Livro livro = this.buscarLivroPorID(idLivro);
+
+		if (livro != null) {
+			travaEscrita.lock();
+			try {
+				synchronized (reservas.travaDoLivro(idLivro)) {
+					// Relido com as travas: uma transação pode ter trocado o livro por uma cópia editada
+					Livro anterior = this.buscarLivroPorID(idLivro);
+					if (anterior == null) {
+						return false;
+					}
+					// Em memória, a edição é feita numa cópia que substitui a vigente nos índices,
+					// no cache e na lista de uma vez, como numa transação
+					livro = editarVersao(anterior, new Transacao.Edicao(idLivro, titulo, autor, numPags, anoPub, preco));
+					if (emDisco == null) {
+						publicarNoCatalogo(anterior, livro);
+					}
+					eventos.publicar(EventoAcervo.Tipo.LIVRO_EDITADO, idLivro, null, -1);
+
+					// ATUALIZADO: Define o objeto Leitor (registrando a mudança no histórico)
+					registrarMudancaEmprestimo(livro, 0, leitorEmprestimo, PRAZO_EMPRESTIMO_PADRAO);
+					// Ainda com as travas, para que uma edição seguinte não seja registrada antes desta
+					registrarAlteracao(livro);
+				}
+			} finally {
+				travaEscrita.unlock();
+			}
+
+			salvar(); // Salva após alteração
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Empresta um exemplar disponível para um leitor pelo prazo padrão.
+	 * * @param idLivro O ID único do livro a ser emprestado.
+	 * @param leitor O {@link Leitor} que está pegando o livro.
+	 * @return {@code true} se o empréstimo foi realizado, {@code false} se o livro não existe,
+	 * não tem exemplar disponível ou o leitor já está com um exemplar dele.
+	 * @see #PRAZO_EMPRESTIMO_PADRAO
+	 */
+	public boolean emprestarLivro(String idLivro, Leitor leitor) {
+		return emprestarLivro(idLivro, leitor, PRAZO_EMPRESTIMO_PADRAO);
+	}
+
+	/**
+	 * Empresta um exemplar disponível para um leitor, registra o evento no histórico,
+	 * agenda o prazo de devolução e salva a lista.
+	 * * @param idLivro O ID único do livro a ser emprestado.
+	 * @param leitor O {@link Leitor} que está pegando o livro.
+	 * @param prazoDias Em quantos dias o livro deve ser devolvido.
+	 * @return {@code true} se o empréstimo foi realizado, {@code false} se o livro não existe,
+	 * não tem exemplar disponível, o leitor já está com um exemplar dele ou já atingiu o limite
+	 * de livros da sua categoria ({@link #getLimiteEmprestimos(Leitor)}).
+	 */
+	public boolean emprestarLivro(String idLivro, Leitor leitor, int prazoDias) {
+		Livro livro = buscarLivroPorID(idLivro);
+		if (livro == null || leitor == null) {
+			return false;
+		}
+
+		// A trava do livro impede que dois balcões emprestem o mesmo exemplar ao mesmo tempo
+		synchronized (reservas.travaDoLivro(idLivro)) {
+			// Relido com a trava: uma transação confirmada depois da busca pode ter trocado o livro
+			// por uma cópia editada, e o empréstimo precisa ficar na versão vigente
+			livro = buscarLivroPorID(idLivro);
+			if (livro == null || !livro.temExemplarDisponivel() || livro.exemplarEmprestadoPara(leitor) != -1) {
+				return false;
+			}
+			// Conferência e contagem atômicas: outro balcão pode estar emprestando outro livro ao mesmo leitor
+			if (!cotas.adquirir(leitor)) {
+				return false;
+			}
+			trocarLeitorExemplar(livro, livro.primeiroExemplarDisponivel(), leitor, prazoDias);
+		}
+		salvar(); // Salva após alteração
+		return true;
+	}
+
+	/**
+	 * Devolve o exemplar que está com um leitor, registra o evento no histórico e salva a lista.
+	 * <p>Se houver leitores na fila de reservas, o exemplar é repassado ao primeiro da fila
+	 * na mesma operação atômica, sem ficar disponível para outros balcões.</p>
+	 * * @param idLivro O ID único do livro a ser devolvido.
+	 * @param leitor O {@link Leitor} que está devolvendo.
+	 * @return {@code true} se a devolução foi realizada, {@code false} se o livro não existe ou
+	 * o leitor não está com nenhum exemplar dele.
+	 */
+	public boolean devolverLivro(String idLivro, Leitor leitor) {
+		Livro livro = buscarLivroPorID(idLivro);
+		if (livro == null) {
+			return false;
+		}
+
+		synchronized (reservas.travaDoLivro(idLivro)) {
+			livro = buscarLivroPorID(idLivro); // A versão vigente (ver emprestarLivro)
+			int exemplar = (livro != null) ? livro.exemplarEmprestadoPara(leitor) : -1;
+			if (exemplar == -1) {
+				return false;
+			}
+			repassarOuLiberar(livro, exemplar);
+		}
+		salvar(); // Salva após alteração
+		return true;
+	}
+
+	/**
+	 * Devolve um exemplar específico, identificado pela sua posição, e salva a lista.
+	 * <p>Também repassa o exemplar ao primeiro da fila de reservas, se houver.</p>
+	 * * @param idLivro O ID único do livro.
+	 * @param exemplar O índice do exemplar (0 a {@code getNumExemplares() - 1}).
+	 * @return {@code true} se a devolução foi realizada, {@code false} se o livro ou o exemplar
+	 * não existem ou se o exemplar já está disponível.
+	 */
+	public boolean devolverExemplar(String idLivro, int exemplar) {
+		Livro livro = buscarLivroPorID(idLivro);
+		if (livro == null || exemplar < 0 || exemplar >= livro.getNumExemplares()) {
+			return false;
+		}
+
+		synchronized (reservas.travaDoLivro(idLivro)) {
+			livro = buscarLivroPorID(idLivro); // A versão vigente (ver emprestarLivro)
+			if (livro == null || livro.getLeitorExemplar(exemplar) == null) {
+				return false;
+			}
+			repassarOuLiberar(livro, exemplar);
+		}
+		salvar(); // Salva após alteração
+		return true;
+	}
+
+	/**
+	 * Entrega o exemplar devolvido ao próximo da fila ou o deixa disponível.
+	 * <p>Deve ser chamado segurando a trava do livro.</p>
+	 */
+	private void repassarOuLiberar(Livro livro, int exemplar) {
+		// Próximo da fila (ou null): a devolução e o novo empréstimo acontecem juntos
+		Leitor proximo = reservas.proximo(livro.getIdLivro());
+		registrarMudancaEmprestimo(livro, exemplar, proximo, PRAZO_EMPRESTIMO_PADRAO);
+	}
+
+	/**
+	 * Coloca um leitor na fila de reservas de um livro sem exemplares disponíveis.
+	 * * @param idLivro O ID único do livro desejado.
+	 * @param leitor O {@link Leitor} que deseja o livro.
+	 * @return {@code true} se o leitor entrou na fila; {@code false} se o livro não existe, tem
+	 * exemplar disponível, já está com esse leitor, se o leitor já estava na fila ou se ele já
+	 * atingiu o limite de livros da sua categoria.
+	 */
+	public boolean reservarLivro(String idLivro, Leitor leitor) {
+		Livro livro = buscarLivroPorID(idLivro);
+		if (livro == null || leitor == null) {
+			return false;
+		}
+
+		synchronized (reservas.travaDoLivro(idLivro)) {
+			livro = buscarLivroPorID(idLivro); // A versão vigente (ver emprestarLivro)
+			if (livro == null || livro.temExemplarDisponivel() || livro.exemplarEmprestadoPara(leitor) != -1) {
+				return false; // Livro disponível deve ser emprestado, não reservado
+			}
+			if (!cotas.podeEmprestar(leitor)) {
+				return false; // O repasse da fila não confere a cota
+			}
+			return reservas.reservar(idLivro, leitor);
+		}
+	}
+
+	/**
+	 * Tira um leitor da fila de reservas de um livro.
+	 * * @param idLivro O ID único do livro.
+	 * @param leitor O {@link Leitor} que desistiu da reserva.
+	 * @return {@code true} se o leitor estava na fila.
+	 */
+	public boolean cancelarReserva(String idLivro, Leitor leitor) {
+		return reservas.cancelar(idLivro, leitor);
+	}
+
+	/**
+	 * Troca o leitor de um exemplar, gerando os eventos de devolução e/ou empréstimo correspondentes
+	 * e mantendo o prazo de devolução em dia.
+	 * @param livro O livro cujo empréstimo muda.
+	 * @param exemplar O índice do exemplar.
+	 * @param novoLeitor O novo {@link Leitor} (ou {@code null} para devolução).
+	 * @param prazoDias O prazo do novo empréstimo, em dias (ignorado na devolução).
+	 */
+	private void registrarMudancaEmprestimo(Livro livro, int exemplar, Leitor novoLeitor, int prazoDias) {
+		if (Objects.equals(livro.getLeitorExemplar(exemplar), novoLeitor)) {
+			return; // Nada mudou no empréstimo
+		}
+		if (novoLeitor != null) {
+			cotas.contar(novoLeitor); // Repasses e edições não são recusados pela cota
+		}
+		trocarLeitorExemplar(livro, exemplar, novoLeitor, prazoDias);
+	}
+
+	/**
+	 * Faz a troca de {@link #registrarMudancaEmprestimo}, com o empréstimo do novo leitor já
+	 * contado na cota dele (o do leitor anterior é descontado aqui).
+	 */
+	private void trocarLeitorExemplar(Livro livro, int exemplar, Leitor novoLeitor, int prazoDias) {
+		Leitor anterior = livro.getLeitorExemplar(exemplar);
+		String chave = chaveExemplar(livro.getIdLivro(), exemplar);
+		if (anterior != null) {
+			cotas.liberar(anterior);
+			historico.registrarDevolucao(livro.getIdLivro(), anterior);
+			eventos.publicar(EventoAcervo.Tipo.DEVOLUCAO, livro.getIdLivro(), anterior.getId(), exemplar);
+		}
+		long vencimento = 0;
+		if (novoLeitor != null) {
+			historico.registrarEmprestimo(livro.getIdLivro(), novoLeitor);
+			recomendacoes.registrarEmprestimo(livro.getIdAlta(), livro.getIdBaixa(), novoLeitor.getIdAlta(), novoLeitor.getIdBaixa());
+			eventos.publicar(EventoAcervo.Tipo.EMPRESTIMO, livro.getIdLivro(), novoLeitor.getId(), exemplar);
+			vencimento = System.currentTimeMillis() + prazoDias * MILIS_POR_DIA;
+			agendadorAtrasos.agendar(chave, vencimento);
+		} else {
+			agendadorAtrasos.cancelar(chave);
+		}
+		livro.setEmprestimoExemplar(exemplar, novoLeitor, vencimento);
+		registrarAlteracao(livro);
+	}
+
+	/**
+	 * Monta a chave usada no agendador de atrasos para um exemplar ("idLivro#exemplar").
+	 */
+	private static String chaveExemplar(String idLivro, int exemplar) {
+		return idLivro + "#" + exemplar;
+	}
+
+	/**
+	 * Retorna os livros com algum exemplar com prazo de devolução vencido, na ordem em que venceram.
+	 * <p>Executa uma varredura imediata, para não depender do intervalo das varreduras automáticas.
+	 * Os exemplares atrasados de cada livro podem ser consultados com {@link Livro#exemplarAtrasado(int, long)}.</p>
+	 * @return Uma {@link ArrayList} com os livros atrasados.
+	 */
+	public ArrayList<Livro> listLivrosAtrasados() {
+		agendadorAtrasos.varrer(System.currentTimeMillis());
+
+		LinkedHashSet<Livro> atrasados = new LinkedHashSet<>();
+		for (String chave : agendadorAtrasos.listarAtrasados()) {
+			Livro livro = buscarLivroPorID(chave.substring(0, chave.lastIndexOf('#')));
+			if (livro != null) {
+				atrasados.add(livro);
+			}
+		}
+		return new ArrayList<>(atrasados);
+	}
+
+	/**
+	 * Retorna uma sublista contendo todos os livros escritos por um autor específico.
+	 * * @param autor O objeto {@link Autor} para filtrar a lista.
+	 * @return Uma {@link ArrayList} de livros do autor especificado.
+	 */
+	public ArrayList<Livro> listLivrosPorAutor(Autor autor) {
+		if (autor == null) return new ArrayList<>();
+
+		// O cache guarda uma lista imutável; quem chama recebe uma cópia própria
+		List<Livro> emCache = cachePorAutor.obter(autor.getId(),
+				id -> Collections.unmodifiableList(carregarLivrosPorAutor(autor)));
+		return new ArrayList<>(emCache);
+	}
+
+	/**
+	 * Acrescenta a uma lista do chamador os livros de um autor, na mesma ordem de
+	 * {@link #listLivrosPorAutor(Autor)}.
+	 * <p>Com o acervo em memória, a consulta vai direto ao índice (sem o cache, cuja chave
+	 * textual seria um objeto por consulta) e não cria objetos: reaproveitando a mesma lista,
+	 * limpa a cada consulta, uma tela de resultados não gera lixo.</p>
+	 * @param autor O objeto {@link Autor} para filtrar a lista.
+	 * @param destino A lista que recebe os livros (não é limpa antes).
+	 * @return Quantos livros foram acrescentados.
+	 */
+	public int listLivrosPorAutor(Autor autor, List<Livro> destino) {
+		if (autor == null) return 0;
+		if (emDisco != null) {
+			List<Livro> livros = listLivrosPorAutor(autor);
+			destino.addAll(livros);
+			return livros.size();
+		}
+		return indice.porAutor(autor.getIdAlta(), autor.getIdBaixa(), destino);
+	}
+
+	/**
+	 * Busca os livros de um autor no índice (consulta real, usada em faltas do cache).
+	 */
+	private List<Livro> carregarLivrosPorAutor(Autor autor) {
+		return (emDisco != null) ? emDisco.listarPorAutor(autor.getId()) : indice.porAutor(autor.getId());
+	}
+
+	/**
+	 * Retorna uma sublista contendo todos os livros que estão emprestados para um leitor específico.
+	 * * @param leitor O objeto {@link Leitor} que emprestou o livro.
+	 * @return Uma {@link ArrayList} de livros emprestados ao leitor.
+	 */
+	public ArrayList<Livro> listLivrosEmprestadosPara(Leitor leitor) {
+		ArrayList<Livro> livrosDoEmprestimo = new ArrayList<>();
+		listLivrosEmprestadosPara(leitor, livrosDoEmprestimo);
+		return livrosDoEmprestimo;
+	}
+
+	/**
+	 * Acrescenta a uma lista do chamador os livros emprestados para um leitor.
+	 * <p>Com o acervo em memória, percorre a versão vigente por posição (sem iterador) e não
+	 * cria objetos; com o acervo em disco, os livros emprestados são lidos do disco. A contagem
+	 * do leitor ({@link #getQuantidadeEmprestimos(Leitor)}) evita a busca quando ele não tem
+	 * livros e a encerra quando todos foram encontrados.</p>
+	 * @param leitor O objeto {@link Leitor} que emprestou o livro.
+	 * @param livrosDoEmprestimo A lista que recebe os livros (não é limpa antes).
+	 * @return Quantos livros foram acrescentados.
+	 */
+	public int listLivrosEmprestadosPara(Leitor leitor, List<Livro> livrosDoEmprestimo) {
+		int antes = livrosDoEmprestimo.size();
+		int emAberto = cotas.getEmAberto(leitor);
+		if (emAberto == 0) {
+			return 0;
+		}
+
+		if (emDisco != null) {
+			// Só os livros com algum exemplar emprestado precisam ser lidos do disco
+			LinkedHashSet<String> emprestados = new LinkedHashSet<>();
+			emDisco.percorrerEmprestimos((idLivro, exemplar, vencimento) -> emprestados.add(idLivro));
+			for (String idLivro : emprestados) {
+				Livro livro = buscarLivroPorID(idLivro);
+				if (livro != null && livro.exemplarEmprestadoPara(leitor) != -1) {
+					livrosDoEmprestimo.add(livro);
+					if (livrosDoEmprestimo.size() - antes == emAberto) {
+						break;
+					}
+				}
+			}
+			return livrosDoEmprestimo.size() - antes;
+		}
+
+		VetorPersistente<Livro> versao = catalogo;
+		for (int i = 0; i < versao.size(); i++) {
+			Livro livro = versao.get(i);
+			// ATUALIZADO: Procura o leitor entre os exemplares emprestados
+			if (livro.exemplarEmprestadoPara(leitor) != -1) {
+
+				livrosDoEmprestimo.add(livro);
+				if (livrosDoEmprestimo.size() - antes == emAberto) {
+					break; // Todos os livros do leitor já foram encontrados
+				}
+			}
+		}
+
+		return livrosDoEmprestimo.size() - antes;
+	}
+
+	/**
+	 * Busca um livro pelo título (ignora maiúsculas/minúsculas - case-insensitive).
+	 * * @param titulo O título a ser procurado.
+	 * @return O objeto {@link Livro} encontrado ou {@code null} se o livro não for encontrado.
+	 */
+	public Livro exibeLivro(String titulo) {
+		if (titulo == null || titulo.trim().isEmpty()) return null;
+
+		return cachePorTitulo.obter(chaveTitulo(titulo), carregadorPorTitulo);
+	}
+
+	/**
+	 * Procura o primeiro livro com o título no índice (consulta real, usada em faltas do cache).
+	 */
+	private Livro carregarLivroPorTitulo(String titulo) {
+		if (emDisco != null) {
+			List<Livro> livros = emDisco.listarPorTitulo(titulo);
+			return livros.isEmpty() ? null : livros.get(0);
+		}
+		return indice.primeiroPorTitulo(titulo);
+	}
+
+	/**
+	 * Lista, em ordem alfabética, os livros cujo título começa com o texto informado
+	 * (ignora maiúsculas/minúsculas).
+	 * <p>Com o acervo em disco, a busca percorre só as folhas da árvore de títulos que contêm o prefixo.</p>
+	 * @param prefixo O começo do título.
+	 * @param limite A quantidade máxima de livros retornados.
+	 * @return Uma {@link List} com os livros encontrados, ordenados pelo título.
+	 */
+	public List<Livro> listLivrosPorPrefixoTitulo(String prefixo, int limite) {
+		if (prefixo == null || limite <= 0) return new ArrayList<>();
+		if (emDisco != null) {
+			return emDisco.listarPorPrefixoTitulo(prefixo, limite);
+		}
+
+		String chave = chaveTitulo(prefixo);
+		List<Livro> encontrados = new ArrayList<>();
+		for (Livro livro : catalogo) {
+			if (chaveTitulo(livro.getTitulo()).startsWith(chave)) {
+				encontrados.add(livro);
+			}
+		}
+		encontrados.sort(Comparator.comparing((Livro livro) -> chaveTitulo(livro.getTitulo())));
+		return (encontrados.size() > limite) ? new ArrayList<>(encontrados.subList(0, limite)) : encontrados;
+	}
+	
+	/**
+	 * Sugere títulos do acervo parecidos com o texto digitado (erros de digitação, acentos,
+	 * maiúsculas/minúsculas), do mais parecido para o menos parecido.
+	 * <p>Logo após a inicialização, a primeira chamada pode esperar a montagem do índice.</p>
+	 * @param texto O título digitado.
+	 * @param limite A quantidade máxima de sugestões.
+	 * @return Os títulos sugeridos (vazia se nenhum for parecido o bastante).
+	 */
+	public List<String> sugerirTitulos(String texto, int limite) {
+		aproximadosProntos.join();
+		return titulosAproximados.sugerir(texto, limite);
+	}
+
+	/**
+	 * Sugere nomes de autores do acervo parecidos com o texto digitado, do mais parecido
+	 * para o menos parecido.
+	 * @param texto O nome digitado.
+	 * @param limite A quantidade máxima de sugestões.
+	 * @return Os nomes sugeridos (vazia se nenhum for parecido o bastante).
+	 * @see #sugerirTitulos(String, int)
+	 */
+	public List<String> sugerirAutores(String texto, int limite) {
+		aproximadosProntos.join();
+		return autoresAproximados.sugerir(texto, limite);
+	}
+
+	/**
+     * Ordena a lista de livros com base no tipo de ordenação escolhido.
+     * <p>Substitui o uso de {@code throws Exception} genérico por uma exceção mais específica.</p>
+     * * @param tipo O {@link TipoOrdenacao} desejado (TITULO ou AUTOR).
+	 * @return A versão do acervo já ordenada (imutável).
+     * @throws IllegalArgumentException Se o tipo de ordenação não for suportado.
+     */
+    public List<Livro> ordenarLivros(TipoOrdenacao tipo) throws IllegalArgumentException {
+        
+        // Definição da chave de ordenação (e da sua ordem) com base na escolha
+        Function<Livro, String> chave;
+        Comparator<String> comparator;
+
+        if (tipo == TipoOrdenacao.TITULO) { // Ordenação por título
+            // Mesma ordem da ordenação natural definida em Livro (compareTo)
+            chave = Livro::getTitulo;
+            comparator = String.CASE_INSENSITIVE_ORDER;
+            
+        } else if (tipo == TipoOrdenacao.AUTOR) { // Ordenação por autor
+            // Compara o nome do Autor (em minúsculas), calculado uma vez por autor e não por livro
+            Map<Autor, String> nomes = new HashMap<>();
+            chave = livro -> nomes.computeIfAbsent(livro.getAutor(), autor -> autor.getNome().toLowerCase());
+            comparator = Comparator.naturalOrder();
+            
+        } else {
+        	// Substituição do throws Exception genérico pelo IllegalArgumentException
+        	throw new IllegalArgumentException("Tipo de ordenação não suportado: " + tipo);
+        }
+
+        if (emDisco != null) {
+            // Com o acervo em disco, a ordenação serve só para exibição: a ordem dos índices não muda
+            ArrayList<Livro> copia = emDisco.carregarLivros();
+            ordenarPorChave(copia, chave, comparator);
+            return VetorPersistente.de(copia);
+        }
+
+        // Ordena uma cópia e publica o resultado como nova versão do acervo
+        VetorPersistente<Livro> ordenado;
+        travaEscrita.lock();
+        try {
+            ArrayList<Livro> copia = new ArrayList<>(catalogo);
+            ordenarPorChave(copia, chave, comparator);
+            ordenado = VetorPersistente.de(copia);
+            this.catalogo = ordenado;
+            indice.reconstruir(copia);
+            // A ordem muda qual livro é o "primeiro" de um título e a ordem das listas por autor
+            cachePorTitulo.invalidarTudo();
+            cachePorAutor.invalidarTudo();
+        } finally {
+            travaEscrita.unlock();
+        }
+        
+        // Salva a lista após a ordenação (se a ordenação for um estado persistente)
+        // Se a ordenação for apenas para exibição, esta linha pode ser removida.
+        salvar();
+        
+        return ordenado;
+    }
+
+	/**
+	 * Ordena os livros decodificando a chave de cada um uma única vez.
+	 * <p>Títulos e nomes ficam guardados na {@link model.ArenaTextos}; comparar os livros
+	 * diretamente decodificaria os dois textos a cada comparação.</p>
+	 */
+	private static void ordenarPorChave(List<Livro> livros, Function<Livro, String> chave, Comparator<String> comparator) {
+		List<Map.Entry<String, Livro>> pares = new ArrayList<>(livros.size());
+		for (Livro livro : livros) {
+			pares.add(Map.entry(chave.apply(livro), livro));
+		}
+		pares.sort(Map.Entry.comparingByKey(comparator)); // Estável, como o List.sort de antes
+		for (int i = 0; i < pares.size(); i++) {
+			livros.set(i, pares.get(i).getValue());
+		}
+	}
+
+	/**
+	 * Retorna a versão atual e completa da lista de livros.
+	 * <p>A lista é um retrato imutável: pode ser percorrida enquanto outras threads ordenam,
+	 * incluem ou removem livros, sem {@code ConcurrentModificationException} e sem cópia.
+	 * As alterações posteriores aparecem apenas numa nova chamada.</p>
+	 * <p>Com o acervo em disco, cada chamada lê o acervo inteiro para a memória; para percorrê-lo,
+	 * use {@link #percorrerLivros()}, e para saber apenas o tamanho, {@link #getQuantidadeLivros()}.</p>
+	 * @return A versão atual do acervo ({@link VetorPersistente} de {@link Livro}s).
+	 */
+	public VetorPersistente<Livro> getListaLivros() {
+		return (emDisco != null) ? VetorPersistente.de(emDisco.carregarLivros()) : catalogo;
+	}
+
+	/**
+	 * Retorna quantos livros (títulos) o acervo tem, sem ler o acervo.
+	 * @return A quantidade de livros.
+	 */
+	public long getQuantidadeLivros() {
+		return (emDisco != null) ? emDisco.getQuantidade() : catalogo.size();
+	}
+
+	/**
+	 * Retorna um retrato da lista de livros, seguro para ser percorrido por qualquer thread.
+	 * <p>Equivale a {@link #getListaLivros()}: a versão vigente é imutável e não precisa ser copiada.
+	 * Com o acervo em disco, também lê o acervo inteiro; prefira {@link #percorrerLivros()}.</p>
+	 * @return A versão atual do acervo.
+	 */
+	public List<Livro> listarTodos() {
+		return getListaLivros();
+	}
+
+	/**
+	 * Retorna os livros do acervo para serem percorridos (ex.: num {@code for}), sem montar uma lista.
+	 * <p>Em memória, percorre a versão vigente, como {@link #getListaLivros()}. Em disco, lê os
+	 * livros em lotes, em ordem de ID ({@link PersistenciaIndexada#iterador()}): a memória usada
+	 * não depende do tamanho do acervo, e as outras operações continuam durante o percurso.</p>
+	 * @return Os livros, para um ou mais percursos.
+	 */
+	public Iterable<Livro> percorrerLivros() {
+		if (emDisco != null) {
+			return emDisco::iterador;
+		}
+		return catalogo;
+	}
+
+	/**
+	 * Entrega cada livro do acervo, esteja ele em memória ou em disco, sem montar uma lista.
+	 */
+	private void percorrerAcervo(Consumer<Livro> consumidor) {
+		percorrerLivros().forEach(consumidor);
+	}
+
+	/**
+	 * Inclui o título e o autor de um livro nos índices aproximados.
+	 * <p>Antes, espera a montagem inicial, para que ela não conte de novo um livro já incluído
+	 * aqui. Deve ser chamado antes de publicar o livro no acervo.</p>
+	 */
+	private void incluirAproximado(Livro livro) {
+		aproximadosProntos.join();
+		titulosAproximados.adicionar(livro.getTitulo());
+		autoresAproximados.adicionar(livro.getAutor().getNome());
+	}
+
+	/**
+	 * Retira o título e o autor atuais de um livro dos índices aproximados (antes de removê-lo
+	 * do acervo ou de editá-lo).
+	 */
+	private void retirarAproximado(Livro livro) {
+		aproximadosProntos.join();
+		titulosAproximados.remover(livro.getTitulo());
+		autoresAproximados.remover(livro.getAutor().getNome());
+	}
+
+	// =========================================================================
+	// Cache de consultas
+	// =========================================================================
+
+	/**
+	 * Troca os caches de consultas por novos, criados pela fábrica informada.
+	 * <p>Permite usar outra implementação de {@link Cache} (ou outra capacidade) sem mudar as
+	 * consultas, qualquer que seja a forma de carregamento do acervo por trás delas.</p>
+	 * @param fabrica A {@link Cache.Fabrica} que cria os caches.
+	 * @param capacidade A capacidade de cada cache, em livros.
+	 */
+	public final void configurarCache(Cache.Fabrica fabrica, long capacidade) {
+		this.cachePorId = fabrica.criar("livrosPorId", capacidade, livro -> 1);
+		this.cachePorTitulo = fabrica.criar("livrosPorTitulo", capacidade, livro -> 1);
+		// Uma lista por autor pesa a quantidade de livros que ela guarda
+		this.cachePorAutor = fabrica.criar("livrosPorAutor", capacidade, List::size);
+	}
+
+	/**
+	 * Retorna as estatísticas (acertos, falhas e remoções) de cada cache de consultas.
+	 * <p>Com o acervo em disco, inclui também as do conjunto de livros residentes
+	 * ({@link PersistenciaIndexada#getEstatisticasResidentes()}).</p>
+	 * @return Uma lista com as {@link Cache.Estatisticas} dos caches por ID, título e autor.
+	 */
+	public List<Cache.Estatisticas> getEstatisticasCache() {
+		if (emDisco != null) {
+			return List.of(cachePorId.estatisticas(), cachePorTitulo.estatisticas(), cachePorAutor.estatisticas(),
+					emDisco.getEstatisticasResidentes());
+		}
+		return List.of(cachePorId.estatisticas(), cachePorTitulo.estatisticas(), cachePorAutor.estatisticas());
+	}
+
+	/**
+	 * Descarta as consultas em cache que envolvem o livro (pelo ID, título e autor atuais).
+	 * <p>Deve ser chamado depois de alterar o livro; quando o título ou o autor mudam,
+	 * também antes da alteração.</p>
+	 */
+	private void invalidarCaches(Livro livro) {
+		cachePorId.invalidar(livro.getIdLivro());
+		cachePorTitulo.invalidar(chaveTitulo(livro.getTitulo()));
+		cachePorAutor.invalidar(livro.getAutor().getId());
+	}
+
+	/**
+	 * Registra que o livro foi incluído ou alterado: descarta as consultas em cache e
+	 * avisa o armazenamento de que ele precisa ser regravado.
+	 */
+	private void registrarAlteracao(Livro livro) {
+		invalidarCaches(livro);
+		persistencia.marcarAlterado(livro);
+		registroAlteracoes.registrar(livro.getIdLivro());
+		synchronized (reservas.travaDoLivro(livro.getIdLivro())) {
+			versoes.registrar(livro.getIdLivro(), livro);
+		}
+	}
+
+	private static String chaveTitulo(String titulo) {
+		return IndiceLivros.chaveTitulo(titulo);
+	}
+
+	/**
+	 * Salva a versão atual da lista no arquivo.
+	 * <p>A versão é lida já com a gravação exclusiva em mãos, para que a última gravação
+	 * feita seja sempre a da versão mais recente.</p>
+	 * <p>Antes, espera as assinaturas de eventos atrasadas ({@link FluxoEventos#aguardarEspaco()}),
+	 * já fora das travas do acervo.</p>
+	 */
+	private void salvar() {
+		// Todos os métodos que publicam eventos passam por aqui depois de soltar as travas do acervo
+		eventos.aguardarEspaco();
+		synchronized (persistencia) {
+			if (lotesAbertos > 0) {
+				gravacaoPendente = true; // Gravada uma única vez, em concluirGravacao()
+				return;
+			}
+			persistencia.salvarLivros(catalogo);
+		}
+	}
+
+	/**
+	 * Adia a gravação do acervo até {@link #concluirGravacao()}, para que muitas alterações
+	 * seguidas (ex.: um lote de comandos) sejam gravadas de uma só vez no fim.
+	 * <p>Os lotes podem ser aninhados: a gravação acontece quando o último é concluído. O
+	 * histórico de circulação continua sendo gravado a cada evento.</p>
+	 */
+	public void adiarGravacao() {
+		synchronized (persistencia) {
+			lotesAbertos++;
+		}
+	}
+
+	/**
+	 * Conclui um lote aberto por {@link #adiarGravacao()}. Se era o último lote aberto e houve
+	 * alterações, grava o acervo.
+	 * @return {@code false} se a gravação falhou; {@code true} caso contrário.
+	 */
+	public boolean concluirGravacao() {
+		synchronized (persistencia) {
+			if (lotesAbertos > 0) {
+				lotesAbertos--;
+			}
+			if (lotesAbertos > 0 || !gravacaoPendente) {
+				return true;
+			}
+			gravacaoPendente = false;
+			return persistencia.salvarLivros(catalogo);
+		}
+	}
+
+	// =========================================================================
+	// Transações
+	// =========================================================================
+
+	/**
+	 * Inicia uma transação: um grupo de edições, inclusões e remoções aplicadas de uma só vez
+	 * em {@link Transacao#confirmar()}, com uma única gravação do acervo.
+	 * <p>Use-a para correções em massa (ex.: reajuste de preços ou troca do autor de vários
+	 * livros), que com {@link #editLivro} gravariam o acervo a cada livro e, numa falha no meio,
+	 * deixariam o acervo pela metade.</p>
+	 * @return Uma nova {@link Transacao}, vazia.
+	 */
+	public Transacao iniciarTransacao() {
+		return new Transacao(this);
+	}
+
+	/**
+	 * Confere e aplica as operações de uma transação e guarda as suas inversas para
+	 * {@link #desfazerTransacao()}. Uma nova transação descarta as que podiam ser refeitas.
+	 * @param operacoes As operações, na ordem em que foram anotadas.
+	 * @return {@code true} se foram aplicadas; {@code false} se alguma não pôde ser (e nenhuma foi).
+	 */
+	boolean confirmarTransacao(List<Transacao.Operacao> operacoes) {
+		travaEscrita.lock();
+		try {
+			List<Transacao.Operacao> inversas = aplicarOperacoes(operacoes);
+			if (inversas == null) {
+				return false;
+			}
+			empilhar(transacoesDesfazer, inversas);
+			transacoesRefazer.clear();
+		} finally {
+			travaEscrita.unlock();
+		}
+		salvar(); // Uma única gravação para a transação inteira
+		return true;
+	}
+
+	/**
+	 * Desfaz a última transação confirmada (ou refeita), aplicando as suas operações inversas
+	 * como uma nova transação: os campos editados voltam aos valores anteriores, os livros
+	 * incluídos saem e os removidos voltam com o mesmo ID e os mesmos empréstimos (as filas de
+	 * reserva deles não voltam).
+	 * <p>Se alterações feitas depois impedirem o desfazer (ex.: um dos livros foi removido), nada
+	 * é alterado e a transação deixa de poder ser desfeita.</p>
+	 * @return {@code true} se a transação foi desfeita; {@code false} se não havia transação
+	 * para desfazer ou se ela não pôde ser desfeita.
+	 */
+	public boolean desfazerTransacao() {
+		return reaplicar(transacoesDesfazer, transacoesRefazer);
+	}
+
+	/**
+	 * Refaz a última transação desfeita por {@link #desfazerTransacao()}.
+	 * @return {@code true} se a transação foi refeita; {@code false} se não havia transação
+	 * para refazer ou se ela não pôde ser refeita.
+	 */
+	public boolean refazerTransacao() {
+		return reaplicar(transacoesRefazer, transacoesDesfazer);
+	}
+
+	/**
+	 * Retorna quantas transações podem ser desfeitas agora.
+	 * @return A quantidade de transações na pilha de desfazer.
+	 */
+	public int getTransacoesDesfaziveis() {
+		travaEscrita.lock();
+		try {
+			return transacoesDesfazer.size();
+		} finally {
+			travaEscrita.unlock();
+		}
+	}
+
+	/**
+	 * Define quantas transações confirmadas podem ser desfeitas (as mais antigas são esquecidas).
+	 * @param limite A quantidade máxima ({@code 0} desliga o desfazer).
+	 */
+	public void configurarLimiteDesfazer(int limite) {
+		travaEscrita.lock();
+		try {
+			limiteDesfazer = Math.max(0, limite);
+			while (transacoesDesfazer.size() > limiteDesfazer) {
+				transacoesDesfazer.removeLast();
+			}
+			while (transacoesRefazer.size() > limiteDesfazer) {
+				transacoesRefazer.removeLast();
+			}
+		} finally {
+			travaEscrita.unlock();
+		}
+	}
+
+	/**
+	 * Aplica a transação do topo de uma pilha e guarda as inversas na outra.
+	 */
+	private boolean reaplicar(ArrayDeque<List<Transacao.Operacao>> origem, ArrayDeque<List<Transacao.Operacao>> destino) {
+		travaEscrita.lock();
+		try {
+			List<Transacao.Operacao> operacoes = origem.pollFirst();
+			if (operacoes == null) {
+				return false;
+			}
+			List<Transacao.Operacao> inversas = aplicarOperacoes(operacoes);
+			if (inversas == null) {
+				return false; // Em conflito com alterações posteriores: descartada
+			}
+			empilhar(destino, inversas);
+		} finally {
+			travaEscrita.unlock();
+		}
+		salvar();
+		return true;
+	}
+
+	private void empilhar(ArrayDeque<List<Transacao.Operacao>> pilha, List<Transacao.Operacao> inversas) {
+		if (limiteDesfazer == 0) {
+			return;
+		}
+		pilha.addFirst(inversas);
+		if (pilha.size() > limiteDesfazer) {
+			pilha.removeLast();
+		}
+	}
+
+	/**
+	 * Confere e aplica as operações de uma transação.
+	 * <p>Deve ser chamado segurando a {@link #travaEscrita}, o que exclui as demais inclusões,
+	 * edições e remoções durante toda a transação. Primeiro todas as operações são conferidas,
+	 * sem alterar nada. Depois, com o acervo em memória, cada livro editado é trocado (sob a
+	 * sua trava, para não perder um empréstimo simultâneo) por uma cópia já editada; quem o
+	 * consulta vê a versão anterior inteira ou a nova inteira, nunca uma edição pela metade. A
+	 * versão do acervo com todas as edições, inclusões e remoções é publicada de uma só vez.
+	 * Com o acervo em disco, os livros são editados no lugar, como em {@link #editLivro}.</p>
+	 * @return As operações inversas, da última para a primeira, ou {@code null} se alguma
+	 * operação não pôde ser aplicada (e então nenhuma foi).
+	 */
+	private List<Transacao.Operacao> aplicarOperacoes(List<Transacao.Operacao> operacoes) {
+		// Conferência: a versão vigente dos livros editados ou removidos, pelo ID
+		Map<String, Livro> originais = new HashMap<>(); // Como estão no acervo
+		Map<String, Livro> vigentes = new HashMap<>();
+		Set<String> removidos = new HashSet<>();
+		Set<String> incluidos = new HashSet<>();
+		for (Transacao.Operacao operacao : operacoes) {
+			if (operacao instanceof Transacao.Edicao edicao) {
+				if (vigente(edicao.idLivro(), originais, vigentes, removidos) == null) {
+					return null;
+				}
+			} else if (operacao instanceof Transacao.Remocao remocao) {
+				if (vigente(remocao.idLivro(), originais, vigentes, removidos) == null) {
+					return null;
+				}
+				removidos.add(remocao.idLivro());
+			} else if (operacao instanceof Transacao.Inclusao inclusao) {
+				if (inclusao.titulo() == null || inclusao.autor() == null
+						|| !tituloLivre(inclusao.titulo(), inclusao.autor(), removidos, incluidos)) {
+					return null;
+				}
+			} else if (operacao instanceof Transacao.Reinclusao reinclusao) {
+				Livro livro = reinclusao.livro();
+				boolean noAcervo = buscarLivroPorID(livro.getIdLivro()) != null && !removidos.contains(livro.getIdLivro());
+				if (noAcervo || !tituloLivre(livro.getTitulo(), livro.getAutor(), removidos, incluidos)) {
+					return null;
+				}
+				removidos.remove(livro.getIdLivro());
+				vigentes.put(livro.getIdLivro(), livro); // Pode ser editado em seguida (ao desfazer)
+			}
+		}
+
+		// Aplicação, a partir das versões que estão no acervo
+		vigentes = new HashMap<>(originais);
+		Map<String, Livro> alterados = new LinkedHashMap<>(); // ID -> versão final dos livros editados e incluídos
+		List<Livro> saidos = new ArrayList<>();
+		List<Livro> reincluidos = new ArrayList<>();
+		List<Transacao.Operacao> inversas = new ArrayList<>(operacoes.size());
+		for (Transacao.Operacao operacao : operacoes) {
+			if (operacao instanceof Transacao.Edicao edicao) {
+				Livro anterior = vigentes.get(edicao.idLivro());
+				inversas.add(inversaDaEdicao(anterior, edicao));
+				Livro editado = editarVersao(anterior, edicao);
+				vigentes.put(edicao.idLivro(), editado);
+				alterados.put(edicao.idLivro(), editado);
+			} else if (operacao instanceof Transacao.Remocao remocao) {
+				Livro anterior = vigentes.remove(remocao.idLivro());
+				inversas.add(new Transacao.Reinclusao(anterior));
+				retirarAproximado(anterior);
+				if (emDisco == null) {
+					indice.remover(anterior);
+				}
+				alterados.remove(remocao.idLivro());
+				saidos.add(anterior);
+			} else {
+				Livro novo;
+				if (operacao instanceof Transacao.Inclusao inclusao) {
+					novo = new Livro(inclusao.titulo(), inclusao.autor(), inclusao.numPags(), inclusao.anoPub(),
+							inclusao.preco(), inclusao.numExemplares());
+				} else {
+					novo = ((Transacao.Reinclusao) operacao).livro();
+					reincluidos.add(novo);
+				}
+				inversas.add(new Transacao.Remocao(novo.getIdLivro()));
+				incluirAproximado(novo);
+				if (emDisco == null) {
+					novo.compactarTextos();
+					indice.adicionar(novo);
+				}
+				vigentes.put(novo.getIdLivro(), novo);
+				alterados.put(novo.getIdLivro(), novo);
+				int saiu = saidos.indexOf(novo);
+				if (saiu != -1) {
+					liberarEmprestimos(saidos.remove(saiu)); // Removido e reincluído na mesma transação
+				}
+			}
+		}
+
+		if (emDisco == null) {
+			catalogo = novaVersao(originais, vigentes, alterados);
+		}
+		for (Livro livro : saidos) {
+			concluirRemocao(livro);
+			eventos.publicar(EventoAcervo.Tipo.LIVRO_REMOVIDO, livro.getIdLivro(), null, -1);
+		}
+		for (Livro livro : alterados.values()) {
+			registrarAlteracao(livro);
+			eventos.publicar(originais.containsKey(livro.getIdLivro())
+					? EventoAcervo.Tipo.LIVRO_EDITADO : EventoAcervo.Tipo.LIVRO_ADICIONADO, livro.getIdLivro(), null, -1);
+		}
+		for (Livro livro : reincluidos) {
+			// Os empréstimos que o livro tinha ao sair voltam a ter prazo e a contar para os leitores
+			contarEmprestimos(livro);
+			for (int i = 0; i < livro.getNumExemplares(); i++) {
+				if (livro.getLeitorExemplar(i) != null && livro.getVencimentoExemplar(i) > 0) {
+					agendadorAtrasos.agendar(chaveExemplar(livro.getIdLivro(), i), livro.getVencimentoExemplar(i));
+				}
+			}
+		}
+
+		Collections.reverse(inversas);
+		return inversas;
+	}
+
+	/**
+	 * Retorna a versão vigente de um livro da transação (a primeira consulta vai ao índice, e o
+	 * livro encontrado fica também em {@code originais}).
+	 * @return O livro, ou {@code null} se ele não existe ou já foi removido na transação.
+	 */
+	private Livro vigente(String idLivro, Map<String, Livro> originais, Map<String, Livro> vigentes,
+			Set<String> removidos) {
+		if (idLivro == null || removidos.contains(idLivro)) {
+			return null;
+		}
+		Livro livro = vigentes.get(idLivro);
+		if (livro == null) {
+			livro = buscarLivroPorID(idLivro);
+			if (livro != null) {
+				originais.put(idLivro, livro);
+				vigentes.put(idLivro, livro);
+			}
+		}
+		return livro;
+	}
+
+	/**
+	 * Confere se um título pode entrar no acervo: não existe outro com o mesmo título e autor
+	 * (a não ser que saia na mesma transação) e ele não entra duas vezes.
+	 */
+	private boolean tituloLivre(String titulo, Autor autor, Set<String> removidos, Set<String> incluidos) {
+		Livro existente = buscarLivroPorTituloEAutor(titulo, autor.getNome());
+		if (existente != null && !removidos.contains(existente.getIdLivro())) {
+			return false;
+		}
+		return incluidos.add(chaveTitulo(titulo) + '\n' + autor.getNome().toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * Aplica uma edição e retorna a versão editada do livro.
+	 * <p>Com o acervo em memória, edita uma cópia e a põe no lugar da anterior nos índices e no
+	 * cache, sob a trava do livro: os empréstimos feitos até ali estão na cópia, e os seguintes
+	 * já a encontram. A lista do acervo só passa a ter a cópia em {@link #novaVersao}.</p>
+	 */
+	private Livro editarVersao(Livro anterior, Transacao.Edicao edicao) {
+		synchronized (reservas.travaDoLivro(edicao.idLivro())) {
+			retirarAproximado(anterior);
+			if (emDisco != null) {
+				invalidarCaches(anterior);
+				aplicarEdicao(anterior, edicao);
+				incluirAproximado(anterior);
+				return anterior;
+			}
+			Livro editado = new Livro(anterior);
+			aplicarEdicao(editado, edicao);
+			editado.compactarTextos();
+			incluirAproximado(editado);
+			indice.substituir(anterior, editado);
+			invalidarCaches(anterior); // Pelo ID, título e autor antigos
+			return editado;
+		}
+	}
+
+	/**
+	 * Troca na lista do acervo a versão vigente de um único livro pela nova, já posta nos índices.
+	 * <p>Deve ser chamado com a trava de escrita, como {@link #novaVersao}.</p>
+	 */
+	private void publicarNoCatalogo(Livro anterior, Livro nova) {
+		String idLivro = nova.getIdLivro();
+		catalogo = novaVersao(Map.of(idLivro, anterior), Map.of(idLivro, nova), Map.of(idLivro, nova));
+	}
+
+	private static void aplicarEdicao(Livro livro, Transacao.Edicao edicao) {
+		if (edicao.titulo() != null) livro.setTitulo(edicao.titulo());
+		if (edicao.autor() != null) livro.setAutor(edicao.autor());
+		if (edicao.numPags() != null) livro.setNumPags(edicao.numPags());
+		if (edicao.anoPub() != null) livro.setAnoPub(edicao.anoPub());
+		if (edicao.preco() != null) livro.setPreco(edicao.preco());
+	}
+
+	/**
+	 * Monta a inversa de uma edição: apenas os campos que ela altera, com os valores atuais.
+	 */
+	private static Transacao.Edicao inversaDaEdicao(Livro livro, Transacao.Edicao edicao) {
+		return new Transacao.Edicao(edicao.idLivro(),
+				(edicao.titulo() != null) ? livro.getTitulo() : null,
+				(edicao.autor() != null) ? livro.getAutor() : null,
+				(edicao.numPags() != null) ? Integer.valueOf(livro.getNumPags()) : null,
+				(edicao.anoPub() != null) ? Integer.valueOf(livro.getAnoPub()) : null,
+				(edicao.preco() != null) ? Double.valueOf(livro.getPreco()) : null);
+	}
+
+	/**
+	 * Monta a versão do acervo com o resultado da transação: os livros editados trocados pelas
+	 * novas versões, os removidos fora e os incluídos no fim.
+	 * @param originais Os livros editados ou removidos, como estavam no acervo (pelo ID).
+	 * @param vigentes As versões finais dos livros da transação que continuam no acervo.
+	 * @param alterados Os livros editados e incluídos, na versão final.
+	 */
+	private VetorPersistente<Livro> novaVersao(Map<String, Livro> originais, Map<String, Livro> vigentes,
+			Map<String, Livro> alterados) {
+		// Pela identidade: a lista tem exatamente os objetos que a transação encontrou pelo índice
+		IdentityHashMap<Livro, Livro> trocas = new IdentityHashMap<>();
+		boolean haRemocoes = false;
+		for (Map.Entry<String, Livro> original : originais.entrySet()) {
+			Livro vigente = vigentes.get(original.getKey());
+			trocas.put(original.getValue(), vigente); // null: removido
+			haRemocoes |= (vigente == null);
+		}
+
+		VetorPersistente<Livro> versao = catalogo;
+		if (haRemocoes) {
+			ArrayList<Livro> livros = new ArrayList<>(versao.size());
+			for (Livro livro : versao) {
+				Livro vigente = trocas.containsKey(livro) ? trocas.get(livro) : livro;
+				if (vigente != null) {
+					livros.add(vigente);
+				}
+			}
+			versao = VetorPersistente.de(livros);
+		} else if (!trocas.isEmpty()) {
+			int restantes = trocas.size();
+			for (int i = 0; i < versao.size() && restantes > 0; i++) {
+				Livro vigente = trocas.get(versao.get(i));
+				if (vigente != null) {
+					versao = versao.comAlterado(i, vigente);
+					restantes--;
+				}
+			}
+		}
+		for (Livro livro : alterados.values()) {
+			if (!originais.containsKey(livro.getIdLivro())) {
+				versao = versao.comAdicionado(livro);
+			}
+		}
+		return versao;
+	}
+
+	// =========================================================================
+	// Leitores
+	// =========================================================================
+
+	/**
+	 * Cadastra um leitor, tornando-o localizável pelo ID (ex.: pela API HTTP).
+	 * @param leitor O {@link Leitor} a ser cadastrado.
+	 */
+	public void registrarLeitor(Leitor leitor) {
+		leitores.put(leitor.getId(), leitor);
+	}
+
+	/**
+	 * Busca um leitor cadastrado pelo seu ID.
+	 * @param idLeitor O ID do leitor.
+	 * @return O {@link Leitor} encontrado ou {@code null}.
+	 */
+	public Leitor buscarLeitorPorID(String idLeitor) {
+		return (idLeitor == null) ? null : leitores.get(idLeitor);
+	}
+
+	/**
+	 * Retorna os leitores cadastrados, na ordem de cadastro.
+	 * @return Uma nova {@link List} com os leitores.
+	 */
+	public List<Leitor> getLeitores() {
+		return new ArrayList<>(leitores.values());
+	}
+
+	/**
+	 * Retorna quantos exemplares estão emprestados para um leitor, pela contagem mantida a cada
+	 * empréstimo e devolução (sem percorrer o acervo).
+	 * @param leitor O {@link Leitor}.
+	 * @return A quantidade de empréstimos em aberto.
+	 */
+	public int getQuantidadeEmprestimos(Leitor leitor) {
+		return cotas.getEmAberto(leitor);
+	}
+
+	/**
+	 * Retorna quantos livros o leitor pode ter ao mesmo tempo, pela sua categoria.
+	 * @param leitor O {@link Leitor}.
+	 * @return O limite de empréstimos em aberto.
+	 */
+	public int getLimiteEmprestimos(Leitor leitor) {
+		return cotas.getLimite(leitor.getCategoria());
+	}
+
+	/**
+	 * Define quantos livros os leitores de uma categoria podem ter ao mesmo tempo.
+	 * <p>Quem já está acima do novo limite fica com os livros, mas só pega outro depois de devolver.</p>
+	 * @param categoria A {@link Leitor.Categoria}.
+	 * @param limite O novo limite ({@code 0} suspende os empréstimos da categoria).
+	 * @see CotasEmprestimo#LIMITES_PADRAO
+	 */
+	public void configurarLimiteEmprestimos(Leitor.Categoria categoria, int limite) {
+		cotas.configurarLimite(categoria, limite);
+	}
+
+	// =========================================================================
+	// Recomendações
+	// =========================================================================
+
+	/**
+	 * Sugere livros pegos pelos leitores que também pegaram um livro ("quem pegou este também pegou").
+	 * <p>As sugestões vêm prontas das contagens mantidas a cada empréstimo; livros já removidos
+	 * do acervo são omitidos.</p>
+	 * @param idLivro O ID do livro.
+	 * @param n A quantidade máxima de sugestões.
+	 * @return Os livros sugeridos, do mais ao menos pego em conjunto (vazia se não houver).
+	 */
+	public List<Livro> recomendarLivros(String idLivro, int n) {
+		List<Livro> sugeridos = new ArrayList<>();
+		for (String id : recomendacoes.sugestoes(idLivro, Recomendacoes.SUGESTOES_POR_LIVRO_PADRAO)) {
+			Livro livro = buscarLivroPorID(id);
+			if (livro != null) {
+				sugeridos.add(livro);
+				if (sugeridos.size() == n) {
+					break;
+				}
+			}
+		}
+		return sugeridos;
+	}
+
+	// =========================================================================
+	// Versões do acervo
+	// =========================================================================
+
+	/**
+	 * Grava agora um retrato do acervo (além dos retratos periódicos).
+	 * <p>As alterações continuam durante a gravação; o retrato vale a partir do seu fim.</p>
+	 * @return O {@link VersoesAcervo.Retrato} gravado, ou {@code null} em caso de erro.
+	 */
+	public VersoesAcervo.Retrato criarRetratoAcervo() {
+		// Os IDs vão em ordem; em disco, lidos da árvore aos poucos, sem lista nem trava durante o retrato
+		Iterable<String> ids = (emDisco != null) ? emDisco::iteradorIds : () -> {
+			List<String> doCatalogo = new ArrayList<>(catalogo.size());
+			catalogo.forEach(livro -> doCatalogo.add(livro.getIdLivro()));
+			doCatalogo.sort(null);
+			return doCatalogo.iterator();
+		};
+		return versoes.gravarRetrato(ids, idLivro -> {
+			// Pelo índice, sem passar pelo cache: o retrato não deve afastar as consultas frequentes
+			Livro livro = carregarLivroPorID(idLivro);
+			if (livro == null) {
+				return null;
+			}
+			synchronized (reservas.travaDoLivro(idLivro)) {
+				return VersoesAcervo.serializar(livro);
+			}
+		});
+	}
+
+	/**
+	 * Desfaz as alterações feitas num livro depois de um instante (ex.: uma edição errada),
+	 * voltando o título, o autor, as páginas, o ano e o preço aos valores daquele instante.
+	 * <p>Os empréstimos em aberto não mudam: eles refletem exemplares que estão de fato com os leitores.</p>
+	 * @param idLivro O ID do livro.
+	 * @param instante O instante desejado, em milissegundos desde a época Unix.
+	 * @return {@code true} se o livro foi restaurado; {@code false} se ele não existe mais, não
+	 * existia no instante ou se nenhum retrato mantido cobre o instante.
+	 */
+	public boolean restaurarLivro(String idLivro, long instante) {
+		Livro atual = buscarLivroPorID(idLivro);
+		Livro anterior = (atual != null) ? versoes.livroEm(idLivro, instante) : null;
+		if (anterior == null) {
+			return false;
+		}
+		return editLivro(idLivro, anterior.getTitulo(), anterior.getAutor(), anterior.getNumPags(),
+				anterior.getAnoPub(), anterior.getPreco(), atual.getLeitorExemplar(0));
+	}
+
+	/**
+	 * Retorna as versões do acervo: os retratos gravados, a reconstrução do acervo em um
+	 * instante e a comparação entre retratos.
+	 * @return O {@link VersoesAcervo} usado pelo gerenciador.
+	 */
+	public VersoesAcervo getVersoes() {
+		return versoes;
+	}
+
+	// =========================================================================
+	// Réplicas (federação de campi)
+	// =========================================================================
+
+	/**
+	 * Retorna as alterações do acervo depois de uma sequência, para atualizar uma réplica.
+	 * <p>Cada livro alterado vai como uma cópia independente do seu estado atual, tirada sob a
+	 * trava do livro; livros removidos vão como remoções. Os livros carregados na inicialização
+	 * não ocupam o registro: entram com a sequência {@code 0}, apenas quando a réplica pede o
+	 * acervo inteiro.</p>
+	 * @param desde A última sequência já aplicada pela réplica ({@code 0} para o acervo inteiro).
+	 * @return O {@link RegistroAlteracoes.Lote} com as alterações, em ordem de sequência.
+	 */
+	public RegistroAlteracoes.Lote alteracoesDesde(long desde) {
+		long ultima = registroAlteracoes.getUltimaSequencia();
+		ArrayList<RegistroAlteracoes.Alteracao> alteracoes = new ArrayList<>();
+		TreeMap<Long, String> alterados = registroAlteracoes.alteradosDesde(desde);
+
+		if (desde == 0) {
+			// Livros não alterados desde a carga: a réplica nova recebe o acervo inteiro
+			Set<String> noRegistro = new HashSet<>(alterados.values());
+			percorrerAcervo(livro -> {
+				if (!noRegistro.contains(livro.getIdLivro())) {
+					Livro copia;
+					synchronized (reservas.travaDoLivro(livro.getIdLivro())) {
+						copia = copiar(livro);
+					}
+					alteracoes.add(new RegistroAlteracoes.Alteracao(0, livro.getIdLivro(), copia));
+				}
+			});
+		}
+
+		for (Map.Entry<Long, String> entrada : alterados.entrySet()) {
+			String idLivro = entrada.getValue();
+			Livro livro = buscarLivroPorID(idLivro);
+			Livro copia = null;
+			if (livro != null) {
+				synchronized (reservas.travaDoLivro(idLivro)) {
+					copia = copiar(livro);
+				}
+			}
+			alteracoes.add(new RegistroAlteracoes.Alteracao(entrada.getKey(), idLivro, copia));
+			ultima = Math.max(ultima, entrada.getKey());
+		}
+		return registroAlteracoes.criarLote(alteracoes, ultima);
+	}
+
+	/**
+	 * Cria uma cópia profunda de um livro (pela serialização), sem referências ao original.
+	 */
+	private static Livro copiar(Livro livro) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+				oos.writeObject(livro);
+			}
+			try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+				return (Livro) ois.readObject();
+			}
+		} catch (IOException | ClassNotFoundException e) {
+			throw new IllegalStateException("Não foi possível copiar o livro " + livro.getIdLivro(), e);
+		}
+	}
+
+	/**
+	 * Retorna o histórico de circulação (empréstimos e devoluções) da biblioteca.
+	 * @return O {@link HistoricoEmprestimos} usado pelo gerenciador.
+	 */
+	public HistoricoEmprestimos getHistorico() {
+		return historico;
+	}
+
+	/**
+	 * Retorna o fluxo de eventos do acervo, para assinar as alterações
+	 * (ex.: {@code getEventos().assinar("site", evento -> ...)}).
+	 * @return O {@link FluxoEventos} usado pelo gerenciador.
+	 */
+	public FluxoEventos getEventos() {
+		return eventos;
+	}
+
+	/**
+	 * Retorna as filas de reserva dos livros.
+	 * @return O {@link GerenciadorReservas} usado pelo gerenciador.
+	 */
+	public GerenciadorReservas getReservas() {
+		return reservas;
+	}
+
+	/**
+	 * Retorna o agendador que acompanha os prazos de devolução.
+	 * @return O {@link AgendadorAtrasos} usado pelo gerenciador.
+	 */
+	public AgendadorAtrasos getAgendadorAtrasos() {
+		return agendadorAtrasos;
+	}
+
+	/**
+	 * Encerra as tarefas em segundo plano e fecha os arquivos abertos pelo gerenciador.
+	 */
+	public void encerrar() {
+		versoes.fechar();
+		eventos.fechar();
+		agendadorAtrasos.encerrar();
+		historico.fechar();
+		reservas.fechar();
+		aproximadosProntos.join();
+		titulosAproximados.fechar();
+		autoresAproximados.fechar();
+		persistencia.fechar();
+	}
 }
\ No newline at end of file
@@ -0,0 +1,337 @@
+package service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import model.Leitor;
+
+/**
+ * Classe responsável pelas filas de reserva (holds) de cada livro.
+ * <p>
+ * Cada livro tem sua própria fila FIFO de leitores, protegida pela trava do livro. As travas
+ * são um conjunto fixo de objetos, escolhido pelo hash do ID ({@link #travaDoLivro(String)}):
+ * o mesmo ID tem sempre a mesma trava, e balcões operando livros diferentes raramente disputam
+ * a mesma. O repasse de um livro devolvido ao próximo da fila é feito de forma atômica pelo
+ * {@link GerenciadorBiblioteca} segurando a trava do livro.
+ * </p>
+ * <p>
+ * Só os livros com leitores na fila ocupam memória: a fila é criada na primeira reserva e
+ * descartada quando esvazia, sem afetar a trava, que não depende dela.
+ * </p>
+ * <p>
+ * As filas são persistidas de forma incremental: cada entrada, saída ou cancelamento é
+ * acrescentado ao fim de um arquivo de log, que é reaplicado (e compactado) na inicialização.
+ * </p>
+ */
+public class GerenciadorReservas {
+
+	// Nome do arquivo de log das reservas.
+	static final String NOME_ARQUIVO = "biblioteca_reservas.log";
+
+	// Operações gravadas no log.
+	private static final byte OP_ENTRADA = 1;
+	private static final byte OP_SAIDA = 2;
+	private static final byte OP_CANCELAMENTO = 3;
+	private static final byte OP_LIMPEZA = 4;
+
+	// Quantidade de travas (potência de 2): poucos KiB, e pouca chance de dois livros em uso dividirem uma
+	private static final int NUMERO_TRAVAS = 1024;
+
+	/**
+	 * Fila de um livro, alterada somente sob a trava do livro.
+	 */
+	private static final class FilaReserva {
+		final ArrayDeque<Leitor> leitores = new ArrayDeque<>();
+	}
+
+	// Filas não vazias; cada entrada só é criada ou removida sob a trava do livro
+	private final ConcurrentHashMap<String, FilaReserva> filas = new ConcurrentHashMap<>();
+
+	private final Object[] travas = new Object[NUMERO_TRAVAS];
+
+	private final File arquivo;
+	private DataOutputStream log;
+
+	/**
+	 * Construtor que usa o arquivo de log padrão.
+	 */
+	public GerenciadorReservas() {
+		this(new File(NOME_ARQUIVO));
+	}
+
+	/**
+	 * Construtor completo. Reaplica o log existente e o reescreve de forma compacta.
+	 * @param arquivo O arquivo de log das reservas.
+	 */
+	public GerenciadorReservas(File arquivo) {
+		for (int i = 0; i < travas.length; i++) {
+			travas[i] = new Object();
+		}
+		this.arquivo = arquivo;
+		carregarLog();
+		compactarLog();
+	}
+
+	/**
+	 * Retorna o objeto usado como trava exclusiva de um livro.
+	 * <p>Quem precisar combinar a fila com a mudança de empréstimo do livro deve sincronizar nele.
+	 * A trava pode ser compartilhada com outros livros; quem a segura não deve esperar pela
+	 * trava de outro livro.</p>
+	 * @param idLivro O ID do livro.
+	 * @return A trava do livro (sempre o mesmo objeto para o mesmo ID, mesmo depois de {@link #limpar(String)}).
+	 */
+	public Object travaDoLivro(String idLivro) {
+		int hash = idLivro.hashCode();
+		return travas[(hash ^ (hash >>> 16)) & (NUMERO_TRAVAS - 1)];
+	}
+
+	/**
+	 * Coloca um leitor no fim da fila de um livro.
+	 * @param idLivro O ID do livro.
+	 * @param leitor O {@link Leitor} que deseja o livro.
+	 * @return {@code true} se entrou na fila, {@code false} se já estava nela.
+	 */
+	public boolean reservar(String idLivro, Leitor leitor) {
+		synchronized (travaDoLivro(idLivro)) {
+			FilaReserva fila = filas.computeIfAbsent(idLivro, k -> new FilaReserva());
+			if (fila.leitores.contains(leitor)) {
+				return false;
+			}
+			fila.leitores.addLast(leitor);
+			registrar(OP_ENTRADA, idLivro, leitor);
+			return true;
+		}
+	}
+
+	/**
+	 * Tira um leitor da fila de um livro.
+	 * @param idLivro O ID do livro.
+	 * @param leitor O {@link Leitor} que desistiu da reserva.
+	 * @return {@code true} se o leitor estava na fila.
+	 */
+	public boolean cancelar(String idLivro, Leitor leitor) {
+		synchronized (travaDoLivro(idLivro)) {
+			FilaReserva fila = filas.get(idLivro);
+			if (fila == null || !fila.leitores.remove(leitor)) {
+				return false;
+			}
+			descartarSeVazia(idLivro, fila);
+			registrar(OP_CANCELAMENTO, idLivro, leitor);
+			return true;
+		}
+	}
+
+	/**
+	 * Retira e retorna o primeiro leitor da fila de um livro, em tempo constante.
+	 * @param idLivro O ID do livro.
+	 * @return O próximo {@link Leitor} ou {@code null} se a fila estiver vazia.
+	 */
+	public Leitor proximo(String idLivro) {
+		synchronized (travaDoLivro(idLivro)) {
+			FilaReserva fila = filas.get(idLivro);
+			if (fila == null) return null;
+
+			Leitor leitor = fila.leitores.pollFirst();
+			if (leitor != null) {
+				descartarSeVazia(idLivro, fila);
+				registrar(OP_SAIDA, idLivro, null);
+			}
+			return leitor;
+		}
+	}
+
+	/**
+	 * Descarta a fila de um livro (ex.: quando ele é removido do acervo).
+	 * @param idLivro O ID do livro.
+	 */
+	public void limpar(String idLivro) {
+		synchronized (travaDoLivro(idLivro)) {
+			FilaReserva fila = filas.remove(idLivro);
+			if (fila != null && !fila.leitores.isEmpty()) {
+				registrar(OP_LIMPEZA, idLivro, null);
+			}
+		}
+	}
+
+	/**
+	 * Retorna uma cópia da fila de um livro, na ordem de atendimento.
+	 * @param idLivro O ID do livro.
+	 * @return Os leitores que aguardam o livro (lista vazia se não houver).
+	 */
+	public List<Leitor> filaDoLivro(String idLivro) {
+		synchronized (travaDoLivro(idLivro)) {
+			FilaReserva fila = filas.get(idLivro);
+			return (fila == null) ? new ArrayList<>() : new ArrayList<>(fila.leitores);
+		}
+	}
+
+	/**
+	 * Retorna quantos leitores aguardam um livro.
+	 * @param idLivro O ID do livro.
+	 * @return O tamanho da fila.
+	 */
+	public int tamanhoDaFila(String idLivro) {
+		synchronized (travaDoLivro(idLivro)) {
+			FilaReserva fila = filas.get(idLivro);
+			return (fila == null) ? 0 : fila.leitores.size();
+		}
+	}
+
+	/**
+	 * Retorna quantos livros têm leitores na fila.
+	 * @return A quantidade de filas não vazias.
+	 */
+	public int getQuantidadeFilas() {
+		return filas.size();
+	}
+
+	/**
+	 * Fecha o arquivo de log.
+	 */
+	public synchronized void fechar() {
+		if (log != null) {
+			try {
+				log.close();
+			} catch (IOException e) {
+				System.err.println("Erro ao fechar log de reservas: " + e.getMessage());
+			}
+			log = null;
+		}
+	}
+
+	/**
+	 * Tira do mapa a fila que ficou vazia. Deve ser chamado segurando a trava do livro.
+	 */
+	private void descartarSeVazia(String idLivro, FilaReserva fila) {
+		if (fila.leitores.isEmpty()) {
+			filas.remove(idLivro, fila);
+		}
+	}
+
+	// =========================================================================
+	// Persistência incremental
+	// =========================================================================
+
+	/**
+	 * Acrescenta uma operação ao log. A trava global aqui cobre apenas a escrita do registro.
+	 */
+	private synchronized void registrar(byte operacao, String idLivro, Leitor leitor) {
+		try {
+			if (log == null) {
+				log = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(arquivo, true)));
+			}
+			escreverRegistro(log, operacao, idLivro, leitor);
+			log.flush();
+		} catch (IOException e) {
+			System.err.println("Erro ao gravar reserva: " + e.getMessage());
+		}
+	}
+
+	private static void escreverRegistro(DataOutputStream dos, byte operacao, String idLivro, Leitor leitor)
+			throws IOException {
+		dos.writeByte(operacao);
+		dos.writeUTF(idLivro);
+		if (operacao == OP_ENTRADA || operacao == OP_CANCELAMENTO) {
+			// O leitor vai serializado no próprio registro, com o tamanho na frente
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+				oos.writeObject(leitor);
+			}
+			dos.writeInt(bytes.size());
+			bytes.writeTo(dos);
+		}
+	}
+
+	/**
+	 * Reaplica o log sobre as filas em memória. Um registro incompleto no fim é ignorado.
+	 */
+	private void carregarLog() {
+		if (!arquivo.exists() || arquivo.length() == 0) {
+			return;
+		}
+
+		try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(arquivo)))) {
+			while (true) {
+				byte operacao = dis.readByte();
+				String idLivro = dis.readUTF();
+				FilaReserva fila = filas.computeIfAbsent(idLivro, k -> new FilaReserva());
+
+				switch (operacao) {
+					case OP_ENTRADA:
+						fila.leitores.addLast(lerLeitor(dis));
+						break;
+					case OP_CANCELAMENTO:
+						fila.leitores.remove(lerLeitor(dis));
+						descartarSeVazia(idLivro, fila);
+						break;
+					case OP_SAIDA:
+						fila.leitores.pollFirst();
+						descartarSeVazia(idLivro, fila);
+						break;
+					case OP_LIMPEZA:
+						filas.remove(idLivro);
+						break;
+					default:
+						throw new IOException("Operação desconhecida no log de reservas: " + operacao);
+				}
+			}
+		} catch (EOFException e) {
+			// Fim normal do log
+		} catch (IOException | ClassNotFoundException e) {
+			System.err.println("Erro ao carregar reservas: " + e.getMessage());
+		}
+	}
+
+	private static Leitor lerLeitor(DataInputStream dis) throws IOException, ClassNotFoundException {
+		byte[] bytes = new byte[dis.readInt()];
+		dis.readFully(bytes);
+		try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return (Leitor) ois.readObject();
+		}
+	}
+
+	/**
+	 * Reescreve o log contendo apenas as entradas das filas atuais, descartando o histórico já consumido.
+	 */
+	private void compactarLog() {
+		if (!arquivo.exists()) {
+			return;
+		}
+
+		File temporario = new File(arquivo.getPath() + ".tmp");
+		try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporario)))) {
+			for (Map.Entry<String, FilaReserva> entrada : filas.entrySet()) {
+				for (Leitor leitor : entrada.getValue().leitores) {
+					escreverRegistro(dos, OP_ENTRADA, entrada.getKey(), leitor);
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Erro ao compactar log de reservas: " + e.getMessage());
+			return;
+		}
+
+		try {
+			Files.move(temporario.toPath(), arquivo.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			System.err.println("Erro ao substituir log de reservas: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,397 @@
+package service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import model.EventoEmprestimo;
+import model.Leitor;
+
+/**
+ * Classe responsável por guardar o histórico de circulação (empréstimos e devoluções).
+ * <p>
+ * O histórico é um registro <i>append-only</i> ordenado pelo tempo: os eventos são
+ * gravados no fim de arquivos de segmento dentro de um diretório e nunca reescritos.
+ * Quando um segmento atinge o limite de eventos, um novo arquivo é aberto.
+ * </p>
+ * <p>
+ * Em memória, os eventos ficam numa lista ordenada por instante, além de índices por
+ * livro e por leitor. Assim, consultas por janela de tempo (ex.: "últimos 30 dias")
+ * localizam o início da janela por busca binária e percorrem apenas os eventos dela.
+ * </p>
+ */
+public final class HistoricoEmprestimos {
+
+	// Diretório padrão onde os segmentos do histórico são gravados.
+	static final String DIRETORIO_PADRAO = "historico_emprestimos";
+
+	// Quantidade de eventos gravados em cada arquivo de segmento antes de abrir o próximo.
+	static final int EVENTOS_POR_SEGMENTO_PADRAO = 4096;
+
+	private static final long MILIS_POR_DIA = 24L * 60 * 60 * 1000;
+
+	private final File diretorio;
+	private final int eventosPorSegmento;
+
+	// Todos os eventos, em ordem crescente de instante.
+	private final ArrayList<EventoEmprestimo> eventos = new ArrayList<>();
+
+	// Índices secundários: eventos de cada livro e de cada leitor, também em ordem de tempo.
+	private final HashMap<String, List<EventoEmprestimo>> porLivro = new HashMap<>();
+	private final HashMap<String, List<EventoEmprestimo>> porLeitor = new HashMap<>();
+
+	// Segmento aberto para escrita.
+	private DataOutputStream segmentoAtual;
+	private int numeroSegmento;
+	private int eventosNoSegmento;
+
+	/**
+	 * Construtor que usa o diretório e o tamanho de segmento padrão.
+	 */
+	public HistoricoEmprestimos() {
+		this(new File(DIRETORIO_PADRAO), EVENTOS_POR_SEGMENTO_PADRAO);
+	}
+
+	/**
+	 * Construtor completo. Carrega os segmentos já existentes no diretório.
+	 * @param diretorio O diretório onde ficam os arquivos de segmento.
+	 * @param eventosPorSegmento Quantos eventos cada segmento comporta.
+	 */
+	public HistoricoEmprestimos(File diretorio, int eventosPorSegmento) {
+		this.diretorio = diretorio;
+		this.eventosPorSegmento = eventosPorSegmento;
+		carregarSegmentos();
+	}
+
+	/**
+	 * Registra a saída de um livro para um leitor.
+	 * @param idLivro O ID do livro emprestado.
+	 * @param leitor O {@link Leitor} que pegou o livro.
+	 * @return O evento registrado.
+	 */
+	public synchronized EventoEmprestimo registrarEmprestimo(String idLivro, Leitor leitor) {
+		EventoEmprestimo evento = new EventoEmprestimo(proximoInstante(), EventoEmprestimo.Tipo.EMPRESTIMO,
+				idLivro, leitor.getId(), leitor.getNome(), 0);
+		acrescentar(evento, true);
+		return evento;
+	}
+
+	/**
+	 * Registra a devolução de um livro, calculando por quanto tempo ele ficou com o leitor
+	 * (a partir do último empréstimo do mesmo livro para o mesmo leitor).
+	 * @param idLivro O ID do livro devolvido.
+	 * @param leitor O {@link Leitor} que devolveu o livro.
+	 * @return O evento registrado.
+	 */
+	public synchronized EventoEmprestimo registrarDevolucao(String idLivro, Leitor leitor) {
+		long agora = proximoInstante();
+		EventoEmprestimo saida = ultimoEmprestimo(idLivro, leitor.getId());
+		long duracao = (saida != null) ? agora - saida.getInstante() : 0;
+
+		EventoEmprestimo evento = new EventoEmprestimo(agora, EventoEmprestimo.Tipo.DEVOLUCAO,
+				idLivro, leitor.getId(), leitor.getNome(), duracao);
+		acrescentar(evento, true);
+		return evento;
+	}
+
+	// =========================================================================
+	// Consultas
+	// =========================================================================
+
+	/**
+	 * Retorna os eventos ocorridos no intervalo [inicio, fim).
+	 * <p>O custo é proporcional ao tamanho da janela, e não ao histórico completo.</p>
+	 * @param inicio O instante inicial (inclusivo), em milissegundos.
+	 * @param fim O instante final (exclusivo), em milissegundos.
+	 * @return Uma lista (somente leitura) com os eventos da janela, em ordem de tempo.
+	 */
+	public synchronized List<EventoEmprestimo> eventosEntre(long inicio, long fim) {
+		int de = primeiroIndiceAPartirDe(inicio);
+		int ate = primeiroIndiceAPartirDe(fim);
+		if (de >= ate) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(new ArrayList<>(eventos.subList(de, ate)));
+	}
+
+	/**
+	 * Retorna os empréstimos realizados nos últimos dias.
+	 * @param dias O tamanho da janela em dias.
+	 * @return Os eventos do tipo EMPRESTIMO da janela, em ordem de tempo.
+	 */
+	public synchronized List<EventoEmprestimo> emprestimosNosUltimosDias(int dias) {
+		long agora = System.currentTimeMillis();
+		ArrayList<EventoEmprestimo> resultado = new ArrayList<>();
+
+		for (int i = primeiroIndiceAPartirDe(agora - dias * MILIS_POR_DIA); i < eventos.size(); i++) {
+			EventoEmprestimo evento = eventos.get(i);
+			if (evento.getTipo() == EventoEmprestimo.Tipo.EMPRESTIMO) {
+				resultado.add(evento);
+			}
+		}
+		return resultado;
+	}
+
+	/**
+	 * Calcula os livros mais emprestados dentro de uma janela de tempo.
+	 * <p>Percorre apenas os eventos da janela e mantém um heap de tamanho {@code n}.</p>
+	 * @param inicio O instante inicial (inclusivo), em milissegundos.
+	 * @param fim O instante final (exclusivo), em milissegundos.
+	 * @param n Quantos livros retornar.
+	 * @return Pares (ID do livro, quantidade de empréstimos), do mais para o menos emprestado.
+	 */
+	public synchronized List<Map.Entry<String, Integer>> maisEmprestados(long inicio, long fim, int n) {
+		HashMap<String, Integer> contagem = new HashMap<>();
+		int ate = primeiroIndiceAPartirDe(fim);
+
+		for (int i = primeiroIndiceAPartirDe(inicio); i < ate; i++) {
+			EventoEmprestimo evento = eventos.get(i);
+			if (evento.getTipo() == EventoEmprestimo.Tipo.EMPRESTIMO) {
+				contagem.merge(evento.getIdLivro(), 1, Integer::sum);
+			}
+		}
+
+		// Heap mínimo com os n maiores: o topo é sempre o candidato a sair.
+		PriorityQueue<Map.Entry<String, Integer>> topo = new PriorityQueue<>(Map.Entry.comparingByValue());
+		for (Map.Entry<String, Integer> entrada : contagem.entrySet()) {
+			topo.offer(new AbstractMap.SimpleImmutableEntry<>(entrada));
+			if (topo.size() > n) {
+				topo.poll();
+			}
+		}
+
+		ArrayList<Map.Entry<String, Integer>> resultado = new ArrayList<>(topo);
+		resultado.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+		return resultado;
+	}
+
+	/**
+	 * Calcula os livros mais emprestados nos últimos dias.
+	 * @param dias O tamanho da janela em dias.
+	 * @param n Quantos livros retornar.
+	 * @return Pares (ID do livro, quantidade de empréstimos), do mais para o menos emprestado.
+	 */
+	public List<Map.Entry<String, Integer>> maisEmprestadosNosUltimosDias(int dias, int n) {
+		long agora = System.currentTimeMillis();
+		return maisEmprestados(agora - dias * MILIS_POR_DIA, Long.MAX_VALUE, n);
+	}
+
+	/**
+	 * Retorna toda a circulação de um livro.
+	 * @param idLivro O ID do livro.
+	 * @return Os eventos do livro em ordem de tempo (lista vazia se não houver).
+	 */
+	public synchronized List<EventoEmprestimo> historicoDoLivro(String idLivro) {
+		return copiaDoIndice(porLivro, idLivro);
+	}
+
+	/**
+	 * Retorna toda a circulação de um leitor.
+	 * @param idLeitor O ID do leitor.
+	 * @return Os eventos do leitor em ordem de tempo (lista vazia se não houver).
+	 */
+	public synchronized List<EventoEmprestimo> historicoDoLeitor(String idLeitor) {
+		return copiaDoIndice(porLeitor, idLeitor);
+	}
+
+	/**
+	 * Retorna o empréstimo mais recente de um livro.
+	 * @param idLivro O ID do livro.
+	 * @return O último evento de EMPRESTIMO do livro ou {@code null} se nunca foi emprestado.
+	 */
+	public synchronized EventoEmprestimo ultimoEmprestimo(String idLivro) {
+		return ultimoEmprestimo(idLivro, null);
+	}
+
+	/**
+	 * Retorna o empréstimo mais recente de um livro para um leitor.
+	 * @param idLivro O ID do livro.
+	 * @param idLeitor O ID do leitor (ou {@code null} para qualquer leitor).
+	 * @return O último evento de EMPRESTIMO correspondente ou {@code null} se não houver.
+	 */
+	public synchronized EventoEmprestimo ultimoEmprestimo(String idLivro, String idLeitor) {
+		List<EventoEmprestimo> doLivro = porLivro.get(idLivro);
+		if (doLivro == null) return null;
+
+		for (int i = doLivro.size() - 1; i >= 0; i--) {
+			EventoEmprestimo evento = doLivro.get(i);
+			if (evento.getTipo() == EventoEmprestimo.Tipo.EMPRESTIMO
+					&& (idLeitor == null || idLeitor.equals(evento.getIdLeitor()))) {
+				return evento;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Retorna o total de eventos registrados.
+	 * @return A quantidade de eventos no histórico.
+	 */
+	public synchronized int tamanho() {
+		return eventos.size();
+	}
+
+	/**
+	 * Fecha o segmento aberto para escrita.
+	 */
+	public synchronized void fechar() {
+		if (segmentoAtual != null) {
+			try {
+				segmentoAtual.close();
+			} catch (IOException e) {
+				System.err.println("Erro ao fechar segmento do histórico: " + e.getMessage());
+			}
+			segmentoAtual = null;
+		}
+	}
+
+	// =========================================================================
+	// Métodos Auxiliares
+	// =========================================================================
+
+	/**
+	 * Garante que os instantes sejam não decrescentes, mesmo que o relógio do sistema volte.
+	 */
+	private long proximoInstante() {
+		long agora = System.currentTimeMillis();
+		if (!eventos.isEmpty()) {
+			agora = Math.max(agora, eventos.get(eventos.size() - 1).getInstante());
+		}
+		return agora;
+	}
+
+	/**
+	 * Busca binária pelo primeiro evento com instante maior ou igual ao informado.
+	 */
+	private int primeiroIndiceAPartirDe(long instante) {
+		int baixo = 0;
+		int alto = eventos.size();
+		while (baixo < alto) {
+			int meio = (baixo + alto) >>> 1;
+			if (eventos.get(meio).getInstante() < instante) {
+				baixo = meio + 1;
+			} else {
+				alto = meio;
+			}
+		}
+		return baixo;
+	}
+
+	private List<EventoEmprestimo> copiaDoIndice(HashMap<String, List<EventoEmprestimo>> indice, String chave) {
+		List<EventoEmprestimo> lista = indice.get(chave);
+		if (lista == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(new ArrayList<>(lista));
+	}
+
+	/**
+	 * Acrescenta o evento à memória e aos índices e, se pedido, grava no segmento atual.
+	 */
+	private void acrescentar(EventoEmprestimo evento, boolean gravar) {
+		eventos.add(evento);
+		porLivro.computeIfAbsent(evento.getIdLivro(), k -> new ArrayList<>()).add(evento);
+		porLeitor.computeIfAbsent(evento.getIdLeitor(), k -> new ArrayList<>()).add(evento);
+
+		if (gravar) {
+			gravarNoSegmento(evento);
+		}
+	}
+
+	private void gravarNoSegmento(EventoEmprestimo evento) {
+		try {
+			if (segmentoAtual == null || eventosNoSegmento >= eventosPorSegmento) {
+				abrirNovoSegmento();
+			}
+			segmentoAtual.writeLong(evento.getInstante());
+			segmentoAtual.writeByte(evento.getTipo().ordinal());
+			segmentoAtual.writeUTF(evento.getIdLivro());
+			segmentoAtual.writeUTF(evento.getIdLeitor());
+			segmentoAtual.writeUTF(evento.getNomeLeitor());
+			segmentoAtual.writeLong(evento.getDuracao());
+			segmentoAtual.flush(); // Cada evento fica em disco assim que registrado
+			eventosNoSegmento++;
+
+		} catch (IOException e) {
+			System.err.println("Erro ao gravar evento no histórico: " + e.getMessage());
+		}
+	}
+
+	private void abrirNovoSegmento() throws IOException {
+		fechar();
+		if (!diretorio.exists() && !diretorio.mkdirs()) {
+			throw new IOException("Não foi possível criar o diretório " + diretorio);
+		}
+		numeroSegmento++;
+		File arquivo = new File(diretorio, nomeSegmento(numeroSegmento));
+		segmentoAtual = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(arquivo, true)));
+		eventosNoSegmento = 0;
+	}
+
+	private static String nomeSegmento(int numero) {
+		return String.format("segmento-%06d.log", numero);
+	}
+
+	/**
+	 * Lê todos os segmentos existentes, em ordem, reconstruindo a memória e os índices.
+	 * <p>Um registro incompleto ou corrompido no fim de um segmento (ex.: queda durante a
+	 * gravação) é ignorado, com o resto do segmento.</p>
+	 */
+	private void carregarSegmentos() {
+		File[] arquivos = diretorio.listFiles((dir, nome) -> nome.startsWith("segmento-") && nome.endsWith(".log"));
+		if (arquivos == null || arquivos.length == 0) {
+			return;
+		}
+		Arrays.sort(arquivos); // O nome tem o número com zeros à esquerda, então a ordem é a de criação
+
+		EventoEmprestimo.Tipo[] tipos = EventoEmprestimo.Tipo.values();
+		for (File arquivo : arquivos) {
+			try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(arquivo)))) {
+				while (true) {
+					long instante = dis.readLong();
+					int codigoTipo = dis.readByte();
+					if (codigoTipo < 0 || codigoTipo >= tipos.length) {
+						// Byte de tipo inválido: o resto do segmento é tratado como um fim truncado
+						System.err.println("Registro corrompido no histórico (" + arquivo.getName() + "); o restante do segmento foi ignorado.");
+						break;
+					}
+					EventoEmprestimo.Tipo tipo = tipos[codigoTipo];
+					String idLivro = dis.readUTF();
+					String idLeitor = dis.readUTF();
+					String nomeLeitor = dis.readUTF();
+					long duracao = dis.readLong();
+					acrescentar(new EventoEmprestimo(instante, tipo, idLivro, idLeitor, nomeLeitor, duracao), false);
+				}
+			} catch (EOFException e) {
+				// Fim normal do segmento
+			} catch (IOException e) {
+				System.err.println("Erro de I/O ao carregar histórico (" + arquivo.getName() + "): " + e.getMessage());
+			}
+			numeroSegmento = Math.max(numeroSegmento, numeroDoSegmento(arquivo.getName()));
+		}
+		// Próximas gravações abrem um segmento novo, nunca continuam um que pode estar truncado.
+		eventosNoSegmento = eventosPorSegmento;
+	}
+
+	private static int numeroDoSegmento(String nome) {
+		try {
+			return Integer.parseInt(nome.substring("segmento-".length(), nome.length() - ".log".length()));
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+}
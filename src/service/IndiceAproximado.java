@@ -0,0 +1,411 @@
+package service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice de busca aproximada por trigramas (sequências de três caracteres), para sugerir
+ * textos parecidos com o digitado ("Machado de Asis" encontra "Machado de Assis").
+ * <p>
+ * Cada texto é normalizado (minúsculas, sem acentos nem pontuação) e vira um termo; textos
+ * iguais depois da normalização compartilham o termo. Para cada trigrama, o índice guarda a
+ * lista dos termos que o contêm.
+ * </p>
+ * <p>
+ * Um termo a até {@code k} edições da consulta perde no máximo {@code 3k} dos trigramas dela.
+ * Por isso, basta percorrer as {@code 3k + 1} listas mais curtas entre os trigramas da
+ * consulta para encontrar todos os candidatos, que são então conferidos pela distância de
+ * edição (Levenshtein) limitada a {@code k}, calculada só numa faixa em volta da diagonal.
+ * Uma consulta curta, com no máximo {@code 3k} trigramas, pode não ter nenhum trigrama em comum
+ * com um termo parecido; nesse caso são conferidos todos os termos de tamanho próximo, que o
+ * índice também agrupa por tamanho.
+ * </p>
+ * <p>
+ * Quando a última ocorrência de um termo é removida, o termo sai das listas (as que ficam
+ * vazias são descartadas) e o seu ID é reaproveitado, de modo que a memória acompanha os
+ * textos presentes, e não todos os que já passaram pelo índice.
+ * </p>
+ * <p>
+ * A seleção e a ordem das sugestões ({@link #considerar}) são as mesmas do
+ * {@link IndiceAproximadoDisco}, que guarda as listas em disco.
+ * </p>
+ */
+final class IndiceAproximado implements IndiceSugestoes {
+
+	/**
+	 * Maior distância de edição aceita numa sugestão.
+	 */
+	static final int DISTANCIA_MAXIMA = 3;
+
+	// IDs dos termos que contêm um trigrama (ou que têm um tamanho), sem ordem
+	private static final class Lista {
+		private int[] termos = new int[4];
+		private int tamanho;
+
+		void acrescentar(int termo) {
+			if (tamanho == termos.length) {
+				termos = Arrays.copyOf(termos, tamanho * 2);
+			}
+			termos[tamanho++] = termo;
+		}
+
+		// Troca o termo pelo último da lista
+		void retirar(int termo) {
+			for (int i = 0; i < tamanho; i++) {
+				if (termos[i] == termo) {
+					termos[i] = termos[--tamanho];
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Termo parecido com a consulta, com a distância de edição e a diferença de tamanho.
+	 */
+	record Candidato(String termo, int distancia, int diferencaTamanho) {
+	}
+
+	// Do mais parecido para o menos parecido; empates pelo termo, para uma ordem estável
+	private static final Comparator<Candidato> ORDEM = Comparator.comparingInt(Candidato::distancia)
+			.thenComparingInt(Candidato::diferencaTamanho).thenComparing(Candidato::termo);
+
+	private final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+	private final Map<String, Integer> idsPorTermo = new HashMap<>();
+	private final MapaIds<Lista> listas = new MapaIds<>(); // Trigrama (metade alta) -> lista
+	private final List<Lista> porTamanho = new ArrayList<>(); // Tamanho do termo -> lista
+	// Por ID de termo; null (e zero ocorrências) num ID livre
+	private String[] termos = new String[16];
+	private String[] originais = new String[16];
+	private int[] ocorrencias = new int[16];
+	private int proximoId; // IDs a partir deste nunca foram usados
+	private int[] livres = new int[16]; // IDs de termos removidos, para reaproveitar
+	private int quantidadeLivres;
+
+	@Override
+	public void adicionar(String texto) {
+		String termo = normalizar(texto);
+		if (termo.isEmpty()) {
+			return;
+		}
+		trava.writeLock().lock();
+		try {
+			Integer id = idsPorTermo.get(termo);
+			if (id == null) {
+				id = novoId();
+				termos[id] = termo;
+				originais[id] = texto;
+				idsPorTermo.put(termo, id);
+				for (long trigrama : trigramas(termo)) {
+					Lista lista = listas.obter(trigrama, 0);
+					if (lista == null) {
+						lista = new Lista();
+						listas.inserir(trigrama, 0, lista);
+					}
+					lista.acrescentar(id);
+				}
+				while (porTamanho.size() <= termo.length()) {
+					porTamanho.add(null);
+				}
+				if (porTamanho.get(termo.length()) == null) {
+					porTamanho.set(termo.length(), new Lista());
+				}
+				porTamanho.get(termo.length()).acrescentar(id);
+			}
+			ocorrencias[id]++;
+		} finally {
+			trava.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void remover(String texto) {
+		String termo = normalizar(texto);
+		trava.writeLock().lock();
+		try {
+			Integer id = idsPorTermo.get(termo);
+			if (id != null && --ocorrencias[id] == 0) {
+				liberar(id);
+			}
+		} finally {
+			trava.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public int tamanho() {
+		trava.readLock().lock();
+		try {
+			return idsPorTermo.size();
+		} finally {
+			trava.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Sugere os textos mais parecidos com a consulta.
+	 * <p>A distância aceita cresce com o tamanho da consulta (uma edição a cada quatro
+	 * caracteres, de 1 até {@link #DISTANCIA_MAXIMA}).</p>
+	 * @param consulta O texto digitado.
+	 * @param limite A quantidade máxima de sugestões.
+	 * @return Os textos originais, do mais parecido para o menos parecido.
+	 */
+	@Override
+	public List<String> sugerir(String consulta, int limite) {
+		String alvo = normalizar(consulta);
+		List<String> sugestoes = new ArrayList<>();
+		if (alvo.isEmpty() || limite <= 0) {
+			return sugestoes;
+		}
+		int maximo = distanciaAceita(alvo);
+		long[] trigramasAlvo = trigramas(alvo);
+
+		PriorityQueue<Candidato> melhores = novosMelhores();
+
+		trava.readLock().lock();
+		try {
+			Lista[] doAlvo = new Lista[trigramasAlvo.length];
+			for (int i = 0; i < trigramasAlvo.length; i++) {
+				doAlvo[i] = listas.obter(trigramasAlvo[i], 0);
+			}
+			Lista[] percorrer;
+			if (trigramasAlvo.length > 3 * maximo) {
+				// Listas ausentes contam como vazias e entram primeiro: nenhum termo as contém
+				Arrays.sort(doAlvo, Comparator.comparingInt((Lista lista) -> (lista == null) ? 0 : lista.tamanho));
+				percorrer = Arrays.copyOf(doAlvo, 3 * maximo + 1);
+			} else {
+				// Consulta curta: um termo parecido pode não ter trigrama algum dela
+				percorrer = new Lista[2 * maximo + 1];
+				for (int i = 0; i < percorrer.length; i++) {
+					int tamanho = alvo.length() - maximo + i;
+					percorrer[i] = (tamanho >= 0 && tamanho < porTamanho.size()) ? porTamanho.get(tamanho) : null;
+				}
+			}
+
+			BitSet vistos = new BitSet(proximoId);
+			int[] linhas = new int[2 * (alvo.length() + DISTANCIA_MAXIMA + 1)];
+			for (Lista lista : percorrer) {
+				for (int j = 0; lista != null && j < lista.tamanho; j++) {
+					int id = lista.termos[j];
+					if (vistos.get(id)) {
+						continue;
+					}
+					vistos.set(id);
+					considerar(melhores, limite, alvo, termos[id], maximo, linhas);
+				}
+			}
+
+			for (Candidato candidato : emOrdem(melhores)) {
+				sugestoes.add(originais[idsPorTermo.get(candidato.termo())]);
+			}
+		} finally {
+			trava.readLock().unlock();
+		}
+		return sugestoes;
+	}
+
+	// Um ID livre (reaproveitado, ou o próximo nunca usado), com espaço nos vetores por ID
+	private int novoId() {
+		if (quantidadeLivres > 0) {
+			return livres[--quantidadeLivres];
+		}
+		int id = proximoId++;
+		if (id == termos.length) {
+			termos = Arrays.copyOf(termos, id * 2);
+			originais = Arrays.copyOf(originais, id * 2);
+			ocorrencias = Arrays.copyOf(ocorrencias, id * 2);
+		}
+		return id;
+	}
+
+	// Tira o termo das listas (descartando as que esvaziam) e devolve o ID
+	private void liberar(int id) {
+		String termo = termos[id];
+		for (long trigrama : trigramas(termo)) {
+			Lista lista = listas.obter(trigrama, 0);
+			if (lista != null) {
+				lista.retirar(id);
+				if (lista.tamanho == 0) {
+					listas.remover(trigrama, 0);
+				}
+			}
+		}
+		Lista mesmoTamanho = porTamanho.get(termo.length());
+		mesmoTamanho.retirar(id);
+		if (mesmoTamanho.tamanho == 0) {
+			porTamanho.set(termo.length(), null);
+		}
+		idsPorTermo.remove(termo);
+		termos[id] = null;
+		originais[id] = null;
+		if (quantidadeLivres == livres.length) {
+			livres = Arrays.copyOf(livres, quantidadeLivres * 2);
+		}
+		livres[quantidadeLivres++] = id;
+	}
+
+	/**
+	 * Cria a fila dos melhores candidatos de uma consulta, com o pior no topo (o primeiro a sair
+	 * quando chega um melhor).
+	 * @return A fila vazia.
+	 */
+	static PriorityQueue<Candidato> novosMelhores() {
+		return new PriorityQueue<>(ORDEM.reversed());
+	}
+
+	/**
+	 * Confere um termo pela distância de edição e o guarda entre os melhores, se couber.
+	 * @param melhores A fila criada por {@link #novosMelhores()}.
+	 * @param limite Quantos candidatos guardar.
+	 * @param alvo A consulta normalizada.
+	 * @param termo O termo candidato.
+	 * @param maximo A maior distância aceita.
+	 * @param linhas Espaço de trabalho de {@link #distancia(String, String, int, int[])}.
+	 */
+	static void considerar(PriorityQueue<Candidato> melhores, int limite, String alvo, String termo, int maximo, int[] linhas) {
+		int diferenca = Math.abs(termo.length() - alvo.length());
+		if (diferenca > maximo) {
+			return;
+		}
+		int distancia = distancia(alvo, termo, maximo, linhas);
+		if (distancia <= maximo) {
+			melhores.add(new Candidato(termo, distancia, diferenca));
+			if (melhores.size() > limite) {
+				melhores.poll();
+			}
+		}
+	}
+
+	/**
+	 * Retorna os candidatos guardados, do mais parecido para o menos parecido.
+	 * @param melhores A fila preenchida por {@link #considerar}.
+	 * @return Os candidatos em ordem.
+	 */
+	static List<Candidato> emOrdem(PriorityQueue<Candidato> melhores) {
+		List<Candidato> ordenados = new ArrayList<>(melhores);
+		ordenados.sort(ORDEM);
+		return ordenados;
+	}
+
+	/**
+	 * Retorna a maior distância de edição aceita para uma consulta normalizada.
+	 * @param alvo A consulta normalizada.
+	 * @return De 1 até {@link #DISTANCIA_MAXIMA}, uma edição a cada quatro caracteres.
+	 */
+	static int distanciaAceita(String alvo) {
+		return Math.min(DISTANCIA_MAXIMA, Math.max(1, alvo.length() / 4));
+	}
+
+	/**
+	 * Normaliza um texto para comparação: minúsculas, sem acentos, e com cada sequência de
+	 * espaços e pontuação trocada por um único espaço.
+	 * @param texto O texto.
+	 * @return O texto normalizado (vazio para {@code null}).
+	 */
+	static String normalizar(String texto) {
+		if (texto == null) {
+			return "";
+		}
+		String decomposto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+		StringBuilder normalizado = new StringBuilder(decomposto.length());
+		boolean separador = true; // Evita espaço no início
+		for (int i = 0; i < decomposto.length(); i++) {
+			char c = decomposto.charAt(i);
+			if (Character.getType(c) == Character.NON_SPACING_MARK) {
+				continue; // Acento separado da letra pela decomposição
+			}
+			if (Character.isLetterOrDigit(c)) {
+				normalizado.append(Character.toLowerCase(c));
+				separador = false;
+			} else if (!separador) {
+				normalizado.append(' ');
+				separador = true;
+			}
+		}
+		int fim = normalizado.length();
+		if (fim > 0 && normalizado.charAt(fim - 1) == ' ') {
+			normalizado.setLength(fim - 1);
+		}
+		return normalizado.toString();
+	}
+
+	/**
+	 * Calcula a distância de edição entre dois textos, parando assim que ela passar do máximo.
+	 * @param a O primeiro texto.
+	 * @param b O segundo texto.
+	 * @param maximo A maior distância de interesse.
+	 * @param linhas Espaço de trabalho com pelo menos {@code 2 * (b.length() + 1)} posições (ou {@code null}).
+	 * @return A distância, ou {@code maximo + 1} se ela for maior que o máximo.
+	 */
+	static int distancia(String a, String b, int maximo, int[] linhas) {
+		int n = a.length();
+		int m = b.length();
+		if (Math.abs(n - m) > maximo) {
+			return maximo + 1;
+		}
+		if (linhas == null || linhas.length < 2 * (m + 1)) {
+			linhas = new int[2 * (m + 1)];
+		}
+		int acima = 0;       // Início da linha anterior no vetor
+		int atual = m + 1;   // Início da linha atual
+		int fora = maximo + 1;
+		for (int j = 0; j <= m; j++) {
+			linhas[acima + j] = (j <= maximo) ? j : fora;
+		}
+		for (int i = 1; i <= n; i++) {
+			// Só a faixa |i - j| <= maximo pode ficar dentro do limite
+			int de = Math.max(1, i - maximo);
+			int ate = Math.min(m, i + maximo);
+			linhas[atual + de - 1] = (de == 1) ? Math.min(i, fora) : fora;
+			int menor = linhas[atual + de - 1];
+			char c = a.charAt(i - 1);
+			for (int j = de; j <= ate; j++) {
+				int valor = linhas[acima + j - 1] + ((c == b.charAt(j - 1)) ? 0 : 1);
+				valor = Math.min(valor, linhas[acima + j] + 1);
+				valor = Math.min(valor, linhas[atual + j - 1] + 1);
+				linhas[atual + j] = Math.min(valor, fora);
+				menor = Math.min(menor, linhas[atual + j]);
+			}
+			if (ate < m) {
+				linhas[atual + ate + 1] = fora; // Fronteira da faixa para a próxima linha
+			}
+			if (menor > maximo) {
+				return fora;
+			}
+			int troca = acima;
+			acima = atual;
+			atual = troca;
+		}
+		return linhas[acima + m];
+	}
+
+	/**
+	 * Retorna os trigramas distintos do termo, com um espaço de cada lado (marcam início e fim de
+	 * palavra), cada um com os três caracteres em 16 bits, do mais alto para o mais baixo.
+	 * @param termo O termo normalizado.
+	 * @return Os trigramas, em ordem crescente.
+	 */
+	static long[] trigramas(String termo) {
+		String comBordas = " " + termo + " ";
+		long[] resultado = new long[comBordas.length() - 2];
+		for (int i = 0; i < resultado.length; i++) {
+			resultado[i] = ((long) comBordas.charAt(i) << 32) | ((long) comBordas.charAt(i + 1) << 16) | comBordas.charAt(i + 2);
+		}
+		Arrays.sort(resultado);
+		int distintos = 0;
+		for (int i = 0; i < resultado.length; i++) {
+			if (i == 0 || resultado[i] != resultado[i - 1]) {
+				resultado[distintos++] = resultado[i];
+			}
+		}
+		return Arrays.copyOf(resultado, distintos);
+	}
+}
@@ -0,0 +1,265 @@
+package service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice de busca aproximada por trigramas com as listas numa {@link ArvoreBMais}, para o
+ * acervo em disco.
+ * <p>
+ * Faz a mesma busca do {@link IndiceAproximado} (as {@code 3k + 1} listas mais curtas dos
+ * trigramas da consulta, ou os termos de tamanho próximo numa consulta curta), mas cada lista
+ * é uma faixa de chaves da árvore, percorrida em ordem sem ser carregada. Só as páginas em
+ * cache da árvore e os candidatos de uma consulta ficam em memória, qualquer que seja a
+ * quantidade de textos. As chaves são:
+ * </p>
+ * <ul>
+ * <li>{@code "c" + trigrama} → quantos termos contêm o trigrama (o tamanho da lista);</li>
+ * <li>{@code "g" + trigrama + SEPARADOR + termo} → a lista do trigrama;</li>
+ * <li>{@code "n" + tamanho (4 dígitos) + termo} → os termos de cada tamanho;</li>
+ * <li>{@code "t" + termo + SEPARADOR + texto original} → quantas ocorrências o termo tem.</li>
+ * </ul>
+ * <p>
+ * O arquivo é refeito a cada abertura (o {@link GerenciadorBiblioteca} inclui o acervo de novo
+ * em segundo plano), então não precisa acompanhar gravações nem falhas do acervo. Um texto cuja
+ * chave passaria de {@link ArvoreBMais#TAMANHO_MAXIMO_CHAVE} bytes (centenas de caracteres) não
+ * é incluído.
+ * </p>
+ * <p>Pode ser usado por várias threads ao mesmo tempo.</p>
+ */
+final class IndiceAproximadoDisco implements IndiceSugestoes {
+
+	/**
+	 * Nome padrão do diretório dos arquivos dos índices, dentro do diretório de dados.
+	 */
+	static final String DIRETORIO_PADRAO = "sugestoes";
+
+	// Separa as partes de uma chave; menor que qualquer caractere de um termo normalizado
+	private static final char SEPARADOR = '\u0000';
+
+	// Registro de um termo: a chave completa (com o texto original) e as ocorrências
+	private record Termo(String chave, long ocorrencias) {
+	}
+
+	private final File arquivo;
+	private final ArvoreBMais arvore;
+	private final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+	private int quantidadeTermos;
+
+	/**
+	 * Cria um índice vazio, descartando o arquivo anterior, se houver.
+	 * @param arquivo O arquivo da árvore.
+	 * @param paginasEmCache Quantas páginas da árvore manter em memória.
+	 * @throws IOException Se o arquivo não puder ser criado.
+	 */
+	IndiceAproximadoDisco(File arquivo, int paginasEmCache) throws IOException {
+		this.arquivo = arquivo;
+		arquivo.getParentFile().mkdirs();
+		if (arquivo.exists() && !arquivo.delete()) {
+			throw new IOException("Não foi possível excluir o índice anterior " + arquivo);
+		}
+		this.arvore = new ArvoreBMais(arquivo, paginasEmCache);
+	}
+
+	@Override
+	public void adicionar(String texto) {
+		String termo = IndiceAproximado.normalizar(texto);
+		if (termo.isEmpty()) {
+			return;
+		}
+		String chaveTermo = "t" + termo + SEPARADOR + texto;
+		if (chaveTermo.getBytes(StandardCharsets.UTF_8).length > ArvoreBMais.TAMANHO_MAXIMO_CHAVE) {
+			return;
+		}
+		trava.writeLock().lock();
+		try {
+			Termo existente = buscarTermo(termo);
+			if (existente != null) {
+				arvore.inserir(existente.chave(), existente.ocorrencias() + 1);
+				return;
+			}
+			arvore.inserir(chaveTermo, 1);
+			arvore.inserir(chaveTamanho(termo.length()) + termo, 0);
+			for (long trigrama : IndiceAproximado.trigramas(termo)) {
+				String chave = chaveTrigrama(trigrama);
+				arvore.inserir("g" + chave + SEPARADOR + termo, 0);
+				arvore.inserir("c" + chave, Math.max(0, arvore.obter("c" + chave)) + 1);
+			}
+			quantidadeTermos++;
+		} catch (IOException e) {
+			System.err.println("Erro ao incluir no índice de sugestões " + arquivo + ": " + e.getMessage());
+		} finally {
+			trava.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void remover(String texto) {
+		String termo = IndiceAproximado.normalizar(texto);
+		if (termo.isEmpty()) {
+			return;
+		}
+		trava.writeLock().lock();
+		try {
+			Termo existente = buscarTermo(termo);
+			if (existente == null) {
+				return;
+			}
+			if (existente.ocorrencias() > 1) {
+				arvore.inserir(existente.chave(), existente.ocorrencias() - 1);
+				return;
+			}
+			// Última ocorrência: o termo sai das listas, e as contagens que zeram são removidas
+			arvore.remover(existente.chave());
+			arvore.remover(chaveTamanho(termo.length()) + termo);
+			for (long trigrama : IndiceAproximado.trigramas(termo)) {
+				String chave = chaveTrigrama(trigrama);
+				arvore.remover("g" + chave + SEPARADOR + termo);
+				long restantes = arvore.obter("c" + chave) - 1;
+				if (restantes > 0) {
+					arvore.inserir("c" + chave, restantes);
+				} else {
+					arvore.remover("c" + chave);
+				}
+			}
+			quantidadeTermos--;
+		} catch (IOException e) {
+			System.err.println("Erro ao retirar do índice de sugestões " + arquivo + ": " + e.getMessage());
+		} finally {
+			trava.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public int tamanho() {
+		trava.readLock().lock();
+		try {
+			return quantidadeTermos;
+		} finally {
+			trava.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Sugere os textos mais parecidos com a consulta, como {@link IndiceAproximado#sugerir(String, int)}.
+	 * @param consulta O texto digitado.
+	 * @param limite A quantidade máxima de sugestões.
+	 * @return Os textos originais, do mais parecido para o menos parecido (vazia se o arquivo
+	 * não puder ser lido).
+	 */
+	@Override
+	public List<String> sugerir(String consulta, int limite) {
+		String alvo = IndiceAproximado.normalizar(consulta);
+		List<String> sugestoes = new ArrayList<>();
+		if (alvo.isEmpty() || limite <= 0) {
+			return sugestoes;
+		}
+		int maximo = IndiceAproximado.distanciaAceita(alvo);
+		long[] trigramasAlvo = IndiceAproximado.trigramas(alvo);
+		PriorityQueue<IndiceAproximado.Candidato> melhores = IndiceAproximado.novosMelhores();
+		int[] linhas = new int[2 * (alvo.length() + IndiceAproximado.DISTANCIA_MAXIMA + 1)];
+
+		trava.readLock().lock();
+		try {
+			if (trigramasAlvo.length > 3 * maximo) {
+				// As listas mais curtas primeiro; uma lista ausente (vazia) não tem candidatos
+				String[] chaves = new String[trigramasAlvo.length];
+				long[] tamanhos = new long[trigramasAlvo.length];
+				Integer[] ordem = new Integer[trigramasAlvo.length];
+				for (int i = 0; i < chaves.length; i++) {
+					chaves[i] = chaveTrigrama(trigramasAlvo[i]);
+					tamanhos[i] = Math.max(0, arvore.obter("c" + chaves[i]));
+					ordem[i] = i;
+				}
+				Arrays.sort(ordem, Comparator.comparingLong(i -> tamanhos[i]));
+				Set<String> vistos = new HashSet<>(); // Um termo aparece em várias listas
+				for (int i = 0; i <= 3 * maximo; i++) {
+					String prefixo = "g" + chaves[ordem[i]] + SEPARADOR;
+					arvore.percorrerPrefixo(prefixo, (chave, valor) -> {
+						String termo = chave.substring(prefixo.length());
+						if (vistos.add(termo)) {
+							IndiceAproximado.considerar(melhores, limite, alvo, termo, maximo, linhas);
+						}
+						return true;
+					});
+				}
+			} else {
+				// Consulta curta: um termo parecido pode não ter trigrama algum dela
+				for (int tamanho = Math.max(1, alvo.length() - maximo); tamanho <= alvo.length() + maximo; tamanho++) {
+					String prefixo = chaveTamanho(tamanho);
+					arvore.percorrerPrefixo(prefixo, (chave, valor) -> {
+						IndiceAproximado.considerar(melhores, limite, alvo, chave.substring(prefixo.length()), maximo, linhas);
+						return true;
+					});
+				}
+			}
+
+			for (IndiceAproximado.Candidato candidato : IndiceAproximado.emOrdem(melhores)) {
+				Termo existente = buscarTermo(candidato.termo());
+				if (existente != null) {
+					sugestoes.add(existente.chave().substring(candidato.termo().length() + 2)); // O texto original
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Erro ao consultar o índice de sugestões " + arquivo + ": " + e.getMessage());
+			sugestoes.clear();
+		} finally {
+			trava.readLock().unlock();
+		}
+		return sugestoes;
+	}
+
+	/**
+	 * Fecha e exclui o arquivo do índice (ele é refeito na próxima abertura).
+	 */
+	@Override
+	public void fechar() {
+		trava.writeLock().lock();
+		try {
+			arvore.fechar();
+		} catch (IOException e) {
+			System.err.println("Erro ao fechar o índice de sugestões " + arquivo + ": " + e.getMessage());
+		} finally {
+			trava.writeLock().unlock();
+		}
+		if (!arquivo.delete()) {
+			System.err.println("Não foi possível excluir o índice " + arquivo);
+		}
+	}
+
+	// =========================================================================
+	// Métodos Auxiliares
+	// =========================================================================
+
+	/**
+	 * Busca o registro de um termo.
+	 * @return O registro, ou {@code null} se o termo não está no índice.
+	 */
+	private Termo buscarTermo(String termo) throws IOException {
+		Termo[] encontrado = new Termo[1];
+		arvore.percorrerPrefixo("t" + termo + SEPARADOR, (chave, valor) -> {
+			encontrado[0] = new Termo(chave, valor);
+			return false;
+		});
+		return encontrado[0];
+	}
+
+	// Os três caracteres do trigrama, na ordem do termo
+	private static String chaveTrigrama(long trigrama) {
+		return new String(new char[] {(char) (trigrama >>> 32), (char) (trigrama >>> 16), (char) trigrama});
+	}
+
+	// Prefixo dos termos de um tamanho; os dígitos fixos mantêm os tamanhos em ordem
+	private static String chaveTamanho(int tamanho) {
+		return String.format("n%04d", tamanho);
+	}
+}
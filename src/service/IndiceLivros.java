@@ -0,0 +1,323 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+import model.Identificador;
+import model.Livro;
+
+/**
+ * Índices do acervo em memória: por ID, por título (sem distinguir maiúsculas/minúsculas)
+ * e por autor.
+ * <p>
+ * Substituem as varreduras da lista nas faltas dos caches de consulta. Cada índice é
+ * montado por uma tarefa própria a partir dos blocos carregados ({@link #montar(List)}),
+ * de modo que os três ficam prontos juntos e a montagem acompanha a decodificação.
+ * Depois disso, o {@link GerenciadorBiblioteca} os mantém a cada inclusão, remoção ou edição,
+ * sempre segurando a trava dos escritores.
+ * </p>
+ * <p>As listas por título e por autor seguem a ordem de inclusão dos livros.</p>
+ * <p>
+ * Os índices por ID e por autor usam a chave de 128 bits dos IDs ({@link MapaIds}): a consulta
+ * converte o ID textual sem criar objetos e compara apenas números. As leituras são otimistas
+ * ({@link StampedLock}) e só esperam a trava se uma alteração ocorrer no meio delas.
+ * </p>
+ */
+final class IndiceLivros {
+
+	private final MapaIds<Livro> porId = new MapaIds<>();
+	private final StampedLock travaPorId = new StampedLock();
+	private final Map<String, List<Livro>> porTitulo = new ConcurrentHashMap<>();
+	private final MapaIds<List<Livro>> porAutor = new MapaIds<>();
+	private final StampedLock travaPorAutor = new StampedLock();
+
+	/**
+	 * Monta os três índices em paralelo, consumindo os blocos na ordem em que foram gravados.
+	 * <p>Cada tarefa espera um bloco de cada vez, então começa a trabalhar assim que o primeiro
+	 * bloco é decodificado.</p>
+	 * @param blocos Os blocos do acervo, ainda em decodificação.
+	 * @return Um futuro concluído quando os três índices estiverem prontos.
+	 */
+	CompletableFuture<Void> montar(List<CompletableFuture<List<Livro>>> blocos) {
+		CompletableFuture<?> ids = CompletableFuture.runAsync(() -> {
+			for (CompletableFuture<List<Livro>> bloco : blocos) {
+				List<Livro> livros = bloco.join();
+				long marca = travaPorId.writeLock();
+				try {
+					for (Livro livro : livros) {
+						porId.inserir(livro.getIdAlta(), livro.getIdBaixa(), livro);
+					}
+				} finally {
+					travaPorId.unlockWrite(marca);
+				}
+			}
+		});
+		CompletableFuture<?> titulos = CompletableFuture.runAsync(() -> {
+			for (CompletableFuture<List<Livro>> bloco : blocos) {
+				for (Livro livro : bloco.join()) {
+					acrescentar(porTitulo, chaveTitulo(livro.getTitulo()), livro);
+				}
+			}
+		});
+		CompletableFuture<?> autores = CompletableFuture.runAsync(() -> {
+			for (CompletableFuture<List<Livro>> bloco : blocos) {
+				for (Livro livro : bloco.join()) {
+					acrescentarAutor(livro);
+				}
+			}
+		});
+		return CompletableFuture.allOf(ids, titulos, autores);
+	}
+
+	/**
+	 * Refaz os índices a partir de uma nova ordem do acervo (ex.: depois de uma ordenação).
+	 * @param livros Todos os livros, na nova ordem.
+	 */
+	void reconstruir(List<Livro> livros) {
+		long marca = travaPorId.writeLock();
+		porId.limpar();
+		travaPorId.unlockWrite(marca);
+		porTitulo.clear();
+		marca = travaPorAutor.writeLock();
+		porAutor.limpar();
+		travaPorAutor.unlockWrite(marca);
+		montar(List.of(CompletableFuture.completedFuture(livros))).join();
+	}
+
+	/**
+	 * Inclui um livro nos três índices.
+	 * @param livro O {@link Livro} incluído.
+	 */
+	void adicionar(Livro livro) {
+		long marca = travaPorId.writeLock();
+		try {
+			porId.inserir(livro.getIdAlta(), livro.getIdBaixa(), livro);
+		} finally {
+			travaPorId.unlockWrite(marca);
+		}
+		acrescentar(porTitulo, chaveTitulo(livro.getTitulo()), livro);
+		acrescentarAutor(livro);
+	}
+
+	/**
+	 * Tira um livro dos três índices, usando o título e o autor que ele tem agora.
+	 * <p>Numa edição, deve ser chamado antes de trocar o título ou o autor.</p>
+	 * @param livro O {@link Livro} removido (ou prestes a ser editado).
+	 */
+	void remover(Livro livro) {
+		long marca = travaPorId.writeLock();
+		try {
+			porId.remover(livro.getIdAlta(), livro.getIdBaixa());
+		} finally {
+			travaPorId.unlockWrite(marca);
+		}
+		retirar(porTitulo, chaveTitulo(livro.getTitulo()), livro);
+		retirarAutor(livro);
+	}
+
+	/**
+	 * Troca um livro pela sua nova versão (o mesmo ID, ex.: uma cópia editada).
+	 * <p>A consulta por ID passa direto da versão antiga para a nova, sem intervalo em que o
+	 * livro não é encontrado; nas listas por título e por autor, a versão antiga é trocada na
+	 * mesma posição quando o título ou o autor não mudaram.</p>
+	 * @param antigo A versão atual, com o título e o autor com que foi indexada.
+	 * @param novo A nova versão.
+	 */
+	void substituir(Livro antigo, Livro novo) {
+		long marca = travaPorId.writeLock();
+		try {
+			porId.inserir(novo.getIdAlta(), novo.getIdBaixa(), novo);
+		} finally {
+			travaPorId.unlockWrite(marca);
+		}
+
+		String tituloAntigo = chaveTitulo(antigo.getTitulo());
+		String tituloNovo = chaveTitulo(novo.getTitulo());
+		if (tituloAntigo.equals(tituloNovo)) {
+			trocar(porTitulo.get(tituloNovo), antigo, novo);
+		} else {
+			retirar(porTitulo, tituloAntigo, antigo);
+			acrescentar(porTitulo, tituloNovo, novo);
+		}
+
+		if (antigo.getAutor().equals(novo.getAutor())) {
+			marca = travaPorAutor.readLock();
+			try {
+				trocar(porAutor.obter(novo.getAutor().getIdAlta(), novo.getAutor().getIdBaixa()), antigo, novo);
+			} finally {
+				travaPorAutor.unlockRead(marca);
+			}
+		} else {
+			retirarAutor(antigo);
+			acrescentarAutor(novo);
+		}
+	}
+
+	/**
+	 * Busca um livro pelo ID.
+	 * @param idLivro O ID do livro.
+	 * @return O {@link Livro} ou {@code null}.
+	 */
+	Livro porId(String idLivro) {
+		long alta = Identificador.alta(idLivro);
+		return consultar(porId, travaPorId, alta, Identificador.baixa(idLivro, alta));
+	}
+
+	/**
+	 * Retorna o primeiro livro incluído com o título.
+	 * @param chaveTitulo O título já em minúsculas (ver {@link #chaveTitulo(String)}).
+	 * @return O {@link Livro} ou {@code null}.
+	 */
+	Livro primeiroPorTitulo(String chaveTitulo) {
+		List<Livro> livros = porTitulo.get(chaveTitulo);
+		if (livros == null) {
+			return null;
+		}
+		synchronized (livros) {
+			return livros.isEmpty() ? null : livros.get(0);
+		}
+	}
+
+	/**
+	 * Retorna todos os livros com o título, na ordem de inclusão.
+	 * @param chaveTitulo O título já em minúsculas (ver {@link #chaveTitulo(String)}).
+	 * @return Uma nova lista (vazia se não há livro com o título).
+	 */
+	List<Livro> porTitulo(String chaveTitulo) {
+		List<Livro> livros = porTitulo.get(chaveTitulo);
+		return (livros == null) ? new ArrayList<>() : new ArrayList<>(livros);
+	}
+
+	/**
+	 * Retorna os livros de um autor, na ordem de inclusão.
+	 * @param idAutor O ID do autor.
+	 * @return Uma nova lista (vazia se o autor não tem livros).
+	 */
+	List<Livro> porAutor(String idAutor) {
+		long alta = Identificador.alta(idAutor);
+		List<Livro> livros = consultar(porAutor, travaPorAutor, alta, Identificador.baixa(idAutor, alta));
+		return (livros == null) ? new ArrayList<>() : new ArrayList<>(livros);
+	}
+
+	/**
+	 * Acrescenta a uma lista os livros de um autor, sem criar objetos.
+	 * @param alta A metade alta do ID do autor.
+	 * @param baixa A metade baixa do ID do autor.
+	 * @param destino A lista que recebe os livros.
+	 * @return Quantos livros foram acrescentados.
+	 */
+	int porAutor(long alta, long baixa, List<Livro> destino) {
+		List<Livro> livros = consultar(porAutor, travaPorAutor, alta, baixa);
+		if (livros == null) {
+			return 0;
+		}
+		synchronized (livros) {
+			int quantidade = livros.size();
+			for (int i = 0; i < quantidade; i++) {
+				destino.add(livros.get(i));
+			}
+			return quantidade;
+		}
+	}
+
+	/**
+	 * Retorna quantos livros estão indexados.
+	 * @return O tamanho do índice por ID.
+	 */
+	int tamanho() {
+		long marca = travaPorId.readLock();
+		try {
+			return porId.tamanho();
+		} finally {
+			travaPorId.unlockRead(marca);
+		}
+	}
+
+	/**
+	 * Normaliza um título para uso como chave (minúsculas, independente do idioma do sistema).
+	 * @param titulo O título.
+	 * @return A chave do título.
+	 */
+	static String chaveTitulo(String titulo) {
+		return titulo.toLowerCase(Locale.ROOT);
+	}
+
+	// Listas com sincronização própria: a leitura por título pode ocorrer durante uma inclusão
+	private static void acrescentar(Map<String, List<Livro>> indice, String chave, Livro livro) {
+		indice.computeIfAbsent(chave, c -> Collections.synchronizedList(new ArrayList<>(1))).add(livro);
+	}
+
+	private void acrescentarAutor(Livro livro) {
+		long alta = livro.getAutor().getIdAlta();
+		long baixa = livro.getAutor().getIdBaixa();
+		long marca = travaPorAutor.writeLock();
+		try {
+			List<Livro> livros = porAutor.obter(alta, baixa);
+			if (livros == null) {
+				livros = Collections.synchronizedList(new ArrayList<>(1));
+				porAutor.inserir(alta, baixa, livros);
+			}
+			livros.add(livro);
+		} finally {
+			travaPorAutor.unlockWrite(marca);
+		}
+	}
+
+	private void retirarAutor(Livro livro) {
+		long alta = livro.getAutor().getIdAlta();
+		long baixa = livro.getAutor().getIdBaixa();
+		long marca = travaPorAutor.writeLock();
+		try {
+			List<Livro> livros = porAutor.obter(alta, baixa);
+			if (livros != null) {
+				livros.remove(livro);
+				if (livros.isEmpty()) {
+					porAutor.remover(alta, baixa);
+				}
+			}
+		} finally {
+			travaPorAutor.unlockWrite(marca);
+		}
+	}
+
+	// Leitura otimista: refeita sob a trava de leitura se um escritor alterou o mapa nesse meio-tempo
+	private static <V> V consultar(MapaIds<V> mapa, StampedLock trava, long alta, long baixa) {
+		long marca = trava.tryOptimisticRead();
+		V valor = mapa.obter(alta, baixa);
+		if (!trava.validate(marca)) {
+			marca = trava.readLock();
+			try {
+				valor = mapa.obter(alta, baixa);
+			} finally {
+				trava.unlockRead(marca);
+			}
+		}
+		return valor;
+	}
+
+	// Troca pela posição: a igualdade dos livros é pelo ID, e os dois têm o mesmo
+	private static void trocar(List<Livro> livros, Livro antigo, Livro novo) {
+		if (livros == null) {
+			return;
+		}
+		synchronized (livros) {
+			int posicao = livros.indexOf(antigo);
+			if (posicao != -1) {
+				livros.set(posicao, novo);
+			}
+		}
+	}
+
+	private static void retirar(Map<String, List<Livro>> indice, String chave, Livro livro) {
+		indice.computeIfPresent(chave, (c, livros) -> {
+			livros.remove(livro);
+			return livros.isEmpty() ? null : livros;
+		});
+	}
+}
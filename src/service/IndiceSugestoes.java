@@ -0,0 +1,47 @@
+package service;
+
+import java.util.List;
+
+/**
+ * Interface dos índices de busca aproximada usados nas sugestões de títulos e de autores.
+ * <p>
+ * O {@link GerenciadorBiblioteca} inclui e retira cada texto à medida que o acervo muda. Com o
+ * acervo em memória, o índice também fica em memória ({@link IndiceAproximado}); com o acervo
+ * em disco, as listas de trigramas ficam numa árvore em disco ({@link IndiceAproximadoDisco}),
+ * e a memória usada não depende do tamanho do acervo. As duas formas dão as mesmas sugestões.
+ * </p>
+ */
+interface IndiceSugestoes {
+
+	/**
+	 * Inclui uma ocorrência de um texto.
+	 * @param texto O texto (ex.: um título).
+	 */
+	void adicionar(String texto);
+
+	/**
+	 * Retira uma ocorrência de um texto. O texto sai do índice com a última ocorrência.
+	 * @param texto O texto incluído antes com {@link #adicionar(String)}.
+	 */
+	void remover(String texto);
+
+	/**
+	 * Sugere os textos mais parecidos com a consulta.
+	 * @param consulta O texto digitado.
+	 * @param limite A quantidade máxima de sugestões.
+	 * @return Os textos originais, do mais parecido para o menos parecido.
+	 */
+	List<String> sugerir(String consulta, int limite);
+
+	/**
+	 * Retorna quantos termos distintos estão no índice.
+	 * @return A quantidade de termos.
+	 */
+	int tamanho();
+
+	/**
+	 * Libera os recursos do índice (arquivos abertos). O padrão não faz nada.
+	 */
+	default void fechar() {
+	}
+}
@@ -0,0 +1,144 @@
+package service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limitador de taxa por chave (ex.: o ID do leitor) no modelo de balde de fichas (<i>token bucket</i>).
+ * <p>
+ * Cada chave tem um balde com até {@code capacidade} fichas, repostas continuamente à taxa
+ * configurada. Cada operação gasta uma ficha; sem fichas, ela é recusada até a próxima
+ * reposição. Assim, uma rajada curta (até a capacidade) passa, mas o ritmo sustentado fica
+ * limitado à taxa. A reposição é calculada na própria consulta, pelo tempo decorrido desde a
+ * anterior: não há thread de fundo, e cada consulta custa tempo constante.
+ * </p>
+ * <p>
+ * Pode ser usado por várias threads ao mesmo tempo; cada balde tem a sua trava, mantida só pelo
+ * cálculo. Os baldes cheios (chaves ociosas) são descartados quando há muitos, já que um balde
+ * novo começa cheio e equivale a eles.
+ * </p>
+ */
+public final class LimitadorTaxa {
+
+	/**
+	 * Capacidade padrão do balde: operações seguidas permitidas numa rajada.
+	 */
+	public static final int CAPACIDADE_PADRAO = 10;
+
+	/**
+	 * Taxa padrão de reposição, em fichas por segundo.
+	 */
+	public static final double TAXA_PADRAO = 1.0;
+
+	// Acima desta quantidade de baldes, os cheios são descartados
+	private static final int MAXIMO_BALDES = 10_000;
+
+	/**
+	 * Fichas de uma chave, atualizadas sob o monitor do próprio balde.
+	 */
+	private static final class Balde {
+		double fichas;
+		long ultimaReposicao;
+
+		Balde(double fichas, long agora) {
+			this.fichas = fichas;
+			this.ultimaReposicao = agora;
+		}
+	}
+
+	private final int capacidade;
+	private final double fichasPorNano;
+	private final ConcurrentHashMap<String, Balde> baldes = new ConcurrentHashMap<>();
+	// Tempo para um balde vazio encher, que é também o intervalo mínimo entre descartes
+	private final long nanosParaEncher;
+	private volatile long ultimoDescarte;
+
+	/**
+	 * Cria um limitador.
+	 * @param capacidade Quantas operações seguidas uma chave pode fazer (a rajada máxima).
+	 * @param taxaPorSegundo Quantas operações por segundo uma chave pode sustentar.
+	 */
+	public LimitadorTaxa(int capacidade, double taxaPorSegundo) {
+		if (capacidade <= 0 || taxaPorSegundo <= 0) {
+			throw new IllegalArgumentException("Capacidade e taxa devem ser positivas: " + capacidade + ", " + taxaPorSegundo);
+		}
+		this.capacidade = capacidade;
+		this.fichasPorNano = taxaPorSegundo / TimeUnit.SECONDS.toNanos(1);
+		this.nanosParaEncher = (long) Math.ceil(capacidade / fichasPorNano);
+		this.ultimoDescarte = System.nanoTime();
+	}
+
+	/**
+	 * Gasta uma ficha da chave, se houver.
+	 * @param chave A chave (ex.: o ID do leitor).
+	 * @return {@code true} se a operação pode seguir; {@code false} se a chave excedeu a taxa.
+	 */
+	public boolean tentarConsumir(String chave) {
+		return esperaParaConsumir(chave) == 0;
+	}
+
+	/**
+	 * Gasta uma ficha da chave, se houver, ou informa quanto falta para a próxima.
+	 * @param chave A chave (ex.: o ID do leitor).
+	 * @return {@code 0} se a ficha foi gasta; senão, em quantos milissegundos haverá uma ficha
+	 * (nada é gasto).
+	 */
+	public long esperaParaConsumir(String chave) {
+		long agora = System.nanoTime();
+		Balde balde = baldes.get(chave);
+		if (balde == null) {
+			if (baldes.size() >= MAXIMO_BALDES && agora - ultimoDescarte >= nanosParaEncher) {
+				ultimoDescarte = agora;
+				descartarCheios(agora);
+			}
+			balde = baldes.computeIfAbsent(chave, c -> new Balde(capacidade, agora));
+		}
+
+		synchronized (balde) {
+			repor(balde, agora);
+			if (balde.fichas >= 1) {
+				balde.fichas -= 1;
+				return 0;
+			}
+			double faltaNanos = (1 - balde.fichas) / fichasPorNano;
+			return Math.max(1, TimeUnit.NANOSECONDS.toMillis((long) Math.ceil(faltaNanos)));
+		}
+	}
+
+	/**
+	 * Retorna quantas chaves têm um balde em uso.
+	 * @return A quantidade de baldes.
+	 */
+	public int getQuantidadeBaldes() {
+		return baldes.size();
+	}
+
+	// =========================================================================
+	// Métodos Auxiliares
+	// =========================================================================
+
+	/**
+	 * Acrescenta as fichas repostas desde a última consulta, sem passar da capacidade.
+	 * <p>Deve ser chamado segurando o monitor do balde.</p>
+	 */
+	private void repor(Balde balde, long agora) {
+		long decorrido = agora - balde.ultimaReposicao;
+		if (decorrido > 0) {
+			balde.fichas = Math.min(capacidade, balde.fichas + decorrido * fichasPorNano);
+			balde.ultimaReposicao = agora;
+		}
+	}
+
+	/**
+	 * Descarta os baldes que já estariam cheios: uma chave sem balde recebe um balde cheio.
+	 */
+	private void descartarCheios(long agora) {
+		baldes.entrySet().removeIf(entrada -> {
+			Balde balde = entrada.getValue();
+			synchronized (balde) {
+				repor(balde, agora);
+				return balde.fichas >= capacidade;
+			}
+		});
+	}
+}
@@ -0,0 +1,187 @@
+package service;
+
+/**
+ * Mapa de chaves de 128 bits (ex.: as duas metades do ID, ver {@link model.Identificador}) para valores.
+ * <p>
+ * Usa endereçamento aberto com sondagem linear sobre vetores paralelos: as chaves ficam em dois
+ * {@code long[]} e os valores num {@code Object[]}, sem nó, chave em {@link String} ou
+ * {@link Long} por entrada. Consultas não criam objetos. A remoção desloca as entradas
+ * seguintes para trás, sem deixar marcas de apagado.
+ * </p>
+ * <p>
+ * Não é sincronizado. Os vetores ficam num único objeto interno, trocado de uma vez
+ * ao crescer, de modo que uma leitura otimista concorrente (validada depois por uma trava,
+ * como em {@link IndiceLivros}) nunca enxerga vetores de tamanhos diferentes.
+ * </p>
+ * @param <V> O tipo dos valores.
+ */
+final class MapaIds<V> {
+
+	private static final int CAPACIDADE_MINIMA = 16;
+
+	// Ocupação máxima antes de dobrar a tabela: 3/4
+	private static final int OCUPACAO_NUMERADOR = 3;
+	private static final int OCUPACAO_DENOMINADOR = 4;
+
+	private static final class Tabela {
+		final long[] altas;
+		final long[] baixas;
+		final Object[] valores; // null marca posição livre
+
+		Tabela(int capacidade) {
+			altas = new long[capacidade];
+			baixas = new long[capacidade];
+			valores = new Object[capacidade];
+		}
+	}
+
+	private Tabela tabela = new Tabela(CAPACIDADE_MINIMA);
+	private int tamanho;
+
+	/**
+	 * Busca o valor de uma chave.
+	 * @param alta A metade alta da chave.
+	 * @param baixa A metade baixa da chave.
+	 * @return O valor, ou {@code null} se a chave não estiver no mapa.
+	 */
+	@SuppressWarnings("unchecked")
+	V obter(long alta, long baixa) {
+		Tabela t = tabela;
+		int mascara = t.valores.length - 1;
+		// Limitada à capacidade: numa leitura otimista a tabela pode estar sendo alterada
+		for (int i = posicao(alta, baixa, mascara), passos = 0; passos <= mascara; i = (i + 1) & mascara, passos++) {
+			Object valor = t.valores[i];
+			if (valor == null) {
+				return null;
+			}
+			if (t.altas[i] == alta && t.baixas[i] == baixa) {
+				return (V) valor;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Associa um valor a uma chave.
+	 * @param alta A metade alta da chave.
+	 * @param baixa A metade baixa da chave.
+	 * @param valor O valor (não nulo).
+	 * @return O valor anterior, ou {@code null}.
+	 */
+	@SuppressWarnings("unchecked")
+	V inserir(long alta, long baixa, V valor) {
+		if (valor == null) {
+			throw new NullPointerException("Valor nulo em MapaIds");
+		}
+		if ((tamanho + 1) * OCUPACAO_DENOMINADOR > tabela.valores.length * OCUPACAO_NUMERADOR) {
+			redimensionar(tabela.valores.length * 2);
+		}
+		Tabela t = tabela;
+		int mascara = t.valores.length - 1;
+		int i = posicao(alta, baixa, mascara);
+		while (t.valores[i] != null) {
+			if (t.altas[i] == alta && t.baixas[i] == baixa) {
+				V anterior = (V) t.valores[i];
+				t.valores[i] = valor;
+				return anterior;
+			}
+			i = (i + 1) & mascara;
+		}
+		t.altas[i] = alta;
+		t.baixas[i] = baixa;
+		t.valores[i] = valor;
+		tamanho++;
+		return null;
+	}
+
+	/**
+	 * Remove uma chave.
+	 * @param alta A metade alta da chave.
+	 * @param baixa A metade baixa da chave.
+	 * @return O valor removido, ou {@code null} se a chave não estava no mapa.
+	 */
+	@SuppressWarnings("unchecked")
+	V remover(long alta, long baixa) {
+		Tabela t = tabela;
+		int mascara = t.valores.length - 1;
+		int i = posicao(alta, baixa, mascara);
+		while (t.valores[i] != null) {
+			if (t.altas[i] == alta && t.baixas[i] == baixa) {
+				V removido = (V) t.valores[i];
+				fecharLacuna(t, i, mascara);
+				tamanho--;
+				return removido;
+			}
+			i = (i + 1) & mascara;
+		}
+		return null;
+	}
+
+	/**
+	 * Retorna a quantidade de chaves.
+	 * @return O tamanho do mapa.
+	 */
+	int tamanho() {
+		return tamanho;
+	}
+
+	/**
+	 * Remove todas as chaves, voltando à capacidade mínima.
+	 */
+	void limpar() {
+		tabela = new Tabela(CAPACIDADE_MINIMA);
+		tamanho = 0;
+	}
+
+	// =========================================================================
+	// Métodos Auxiliares
+	// =========================================================================
+
+	// Mistura as duas metades (os IDs fora do formato UUID têm códigos pequenos e sequenciais)
+	private static int posicao(long alta, long baixa, int mascara) {
+		long h = alta * 0x9E3779B97F4A7C15L ^ baixa;
+		h ^= h >>> 32;
+		h *= 0xD6E8FEB86659FD93L;
+		h ^= h >>> 32;
+		return (int) h & mascara;
+	}
+
+	// Desloca para trás as entradas do mesmo grupo que vêm depois da posição esvaziada
+	private static void fecharLacuna(Tabela t, int livre, int mascara) {
+		int i = livre;
+		while (true) {
+			i = (i + 1) & mascara;
+			if (t.valores[i] == null) {
+				break;
+			}
+			int ideal = posicao(t.altas[i], t.baixas[i], mascara);
+			// A entrada só pode ocupar a posição livre se ela estiver entre a ideal e a atual
+			boolean podeMover = (livre <= i) ? (ideal <= livre || ideal > i) : (ideal <= livre && ideal > i);
+			if (podeMover) {
+				t.altas[livre] = t.altas[i];
+				t.baixas[livre] = t.baixas[i];
+				t.valores[livre] = t.valores[i];
+				livre = i;
+			}
+		}
+		t.valores[livre] = null;
+	}
+
+	private void redimensionar(int capacidade) {
+		Tabela antiga = tabela;
+		Tabela nova = new Tabela(capacidade);
+		int mascara = capacidade - 1;
+		for (int j = 0; j < antiga.valores.length; j++) {
+			if (antiga.valores[j] != null) {
+				int i = posicao(antiga.altas[j], antiga.baixas[j], mascara);
+				while (nova.valores[i] != null) {
+					i = (i + 1) & mascara;
+				}
+				nova.altas[i] = antiga.altas[j];
+				nova.baixas[i] = antiga.baixas[j];
+				nova.valores[i] = antiga.valores[j];
+			}
+		}
+		tabela = nova;
+	}
+}
@@ -1,83 +1,172 @@
-package service;
-
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.util.ArrayList;
-
-import model.Livro;
-
-/**
- * Classe responsável por lidar com a persistência de dados.
- * <p>
- * Utiliza o conceito de Serialização (ObjectOutputStream/ObjectInputStream)
- * para salvar e carregar a lista de livros em um arquivo binário.
- * </p>
- */
-public class Persistencia {
-    
-    // Nome do arquivo onde a lista de livros será salva.
-    private static final String NOME_ARQUIVO = "biblioteca_livros.dat";
-
-    /**
-     * Salva a lista de livros em um arquivo no sistema de arquivos.
-     * <p>Utiliza um bloco try-with-resources para garantir que o fluxo (stream) seja fechado.</p>
-     * * @param listaLivros A {@link ArrayList} de {@link Livro} a ser salva.
-     * @return {@code true} se o salvamento foi bem-sucedido, {@code false} caso contrário.
-     */
-    public boolean salvarLivros(ArrayList<Livro> listaLivros) {
-        // Uso de try-with-resources para garantir o fechamento do ObjectOutputStream
-        try (FileOutputStream fos = new FileOutputStream(NOME_ARQUIVO);
-             ObjectOutputStream oos = new ObjectOutputStream(fos)) {
-            
-            oos.writeObject(listaLivros);
-            return true;
-            
-        } catch (IOException e) {
-            // Tratamento de Exceção específico para erros de I/O
-            System.err.println("Erro ao salvar lista de livros: " + e.getMessage());
-            return false;
-        }
-    }
-
-    /**
-     * Carrega a lista de livros de um arquivo.
-     * <p>Utiliza um bloco try-with-resources para garantir que o fluxo (stream) seja fechado.</p>
-     * * @return A {@link ArrayList} de {@link Livro} carregada ou uma lista vazia se o arquivo não existir ou houver erro.
-     */
-    @SuppressWarnings("unchecked")
-    public ArrayList<Livro> carregarLivros() {
-        File arquivo = new File(NOME_ARQUIVO);
-
-        // Se o arquivo não existe, retorna uma lista vazia e não tenta carregar
-        if (!arquivo.exists() || arquivo.length() == 0) {
-            return new ArrayList<>();
-        }
-
-        try (FileInputStream fis = new FileInputStream(arquivo);
-             ObjectInputStream ois = new ObjectInputStream(fis)) {
-            
-            // Lança um aviso para a conversão não verificada (unchecked cast)
-            Object objetoLido = ois.readObject();
-            if (objetoLido instanceof ArrayList) {
-                // Conversão para ArrayList<Livro>
-                return (ArrayList<Livro>) objetoLido;
-            } else {
-                System.err.println("O objeto lido não é uma lista de livros válida.");
-                return new ArrayList<>();
-            }
-            
-        } catch (IOException e) {
-            // Tratamento de Exceção específico para erros de I/O
-            System.err.println("Erro de I/O ao carregar lista de livros: " + e.getMessage());
-            return new ArrayList<>();
-        } catch (ClassNotFoundException e) {
-            // Tratamento de Exceção para classe não encontrada (ocorre na desserialização)
-            System.err.println("Erro: Classe do objeto lido não encontrada. " + e.getMessage());
-            return new ArrayList<>();
-        }
-    }
+package service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import model.Livro;
+
+/**
+ * Classe responsável por lidar com a persistência de dados.
+ * <p>
+ * Utiliza o conceito de Serialização (ObjectOutputStream/ObjectInputStream)
+ * para salvar e carregar a lista de livros em um arquivo binário.
+ * </p>
+ * <p>
+ * Com um {@link Codec}, o arquivo é gravado em blocos comprimidos ({@link BlocosComprimidos}),
+ * cada um com o seu CRC32C: a serialização repete muito os nomes de classes, autores e
+ * nacionalidades, e o arquivo fica bem menor. A carga reconhece os dois formatos pelo início
+ * do arquivo e lê os blocos como fluxo, sem descomprimir o arquivo inteiro antes.
+ * </p>
+ */
+public class Persistencia implements Armazenamento {
+    
+    // Nome do arquivo onde a lista de livros será salva.
+    static final String NOME_ARQUIVO = "biblioteca_livros.dat";
+    
+    // Arquivo efetivamente usado por esta instância.
+    private final File arquivo;
+    
+    // Codec dos blocos comprimidos (null = serialização direta, o formato original).
+    private final Codec codec;
+    
+    /**
+     * Construtor que usa o arquivo padrão, no diretório de trabalho.
+     */
+    public Persistencia() {
+        this(new File(NOME_ARQUIVO));
+    }
+    
+    /**
+     * Construtor que usa o arquivo padrão, gravado em blocos comprimidos.
+     * @param codec O {@link Codec} dos blocos.
+     */
+    public Persistencia(Codec codec) {
+        this(new File(NOME_ARQUIVO), codec);
+    }
+    
+    /**
+     * Construtor que usa um arquivo específico.
+     * @param arquivo O arquivo onde a lista de livros será salva.
+     */
+    public Persistencia(File arquivo) {
+        this(arquivo, null);
+    }
+    
+    /**
+     * Construtor que grava o arquivo em blocos comprimidos.
+     * @param arquivo O arquivo onde a lista de livros será salva.
+     * @param codec O {@link Codec} dos blocos (ou {@code null} para a serialização direta).
+     */
+    public Persistencia(File arquivo, Codec codec) {
+        this.arquivo = arquivo;
+        this.codec = codec;
+    }
+    
+    /**
+     * Retorna o codec usado na gravação.
+     * @return O {@link Codec}, ou {@code null} se o arquivo é gravado sem compressão.
+     */
+    public Codec getCodec() {
+        return codec;
+    }
+
+    /**
+     * Salva a lista de livros em um arquivo no sistema de arquivos.
+     * <p>Utiliza um bloco try-with-resources para garantir que o fluxo (stream) seja fechado.
+     * O método é sincronizado para que balcões concorrentes não gravem o arquivo ao mesmo tempo.</p>
+     * <p>O arquivo guarda sempre uma {@link ArrayList}; outras listas são copiadas para uma.</p>
+     * * @param listaLivros A lista de {@link Livro} a ser salva.
+     * @return {@code true} se o salvamento foi bem-sucedido, {@code false} caso contrário.
+     */
+    @Override
+    public synchronized boolean salvarLivros(List<Livro> listaLivros) {
+        // Uso de try-with-resources para garantir o fechamento do ObjectOutputStream
+        try (FileOutputStream fos = new FileOutputStream(arquivo);
+             ObjectOutputStream oos = new ObjectOutputStream(abrirSaida(fos))) {
+            
+            // Mantém o formato do arquivo: uma ArrayList serializada
+            oos.writeObject((listaLivros instanceof ArrayList) ? listaLivros : new ArrayList<>(listaLivros));
+            return true;
+            
+        } catch (IOException e) {
+            // Tratamento de Exceção específico para erros de I/O
+            System.err.println("Erro ao salvar lista de livros: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Carrega a lista de livros de um arquivo.
+     * <p>Utiliza um bloco try-with-resources para garantir que o fluxo (stream) seja fechado.</p>
+     * * @return A {@link ArrayList} de {@link Livro} carregada ou uma lista vazia se o arquivo não existir ou houver erro.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public ArrayList<Livro> carregarLivros() {
+        // Se o arquivo não existe, retorna uma lista vazia e não tenta carregar
+        if (!arquivo.exists() || arquivo.length() == 0) {
+            return new ArrayList<>();
+        }
+
+        try (FileInputStream fis = new FileInputStream(arquivo);
+             InputStream entrada = abrirEntrada(fis);
+             ObjectInputStream ois = new ObjectInputStream(entrada)) {
+            
+            // Lança um aviso para a conversão não verificada (unchecked cast)
+            Object objetoLido = ois.readObject();
+            if (entrada instanceof BlocosComprimidos.Entrada) {
+                // Um arquivo truncado depois da lista também é recusado
+                ((BlocosComprimidos.Entrada) entrada).conferirFim();
+            }
+            if (objetoLido instanceof ArrayList) {
+                // Conversão para ArrayList<Livro>
+                return (ArrayList<Livro>) objetoLido;
+            } else {
+                System.err.println("O objeto lido não é uma lista de livros válida.");
+                return new ArrayList<>();
+            }
+            
+        } catch (IOException e) {
+            // Tratamento de Exceção específico para erros de I/O
+            System.err.println("Erro de I/O ao carregar lista de livros: " + e.getMessage());
+            return new ArrayList<>();
+        } catch (ClassNotFoundException e) {
+            // Tratamento de Exceção para classe não encontrada (ocorre na desserialização)
+            System.err.println("Erro: Classe do objeto lido não encontrada. " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Envolve o arquivo no formato de gravação: blocos comprimidos, se houver codec.
+     */
+    private OutputStream abrirSaida(FileOutputStream fos) throws IOException {
+        if (codec == null) {
+            return fos;
+        }
+        return new BlocosComprimidos.Saida(new BufferedOutputStream(fos, 1 << 16), codec,
+                BlocosComprimidos.TAMANHO_BLOCO_PADRAO);
+    }
+
+    /**
+     * Reconhece o formato do arquivo pelos primeiros bytes e o abre para leitura.
+     */
+    private InputStream abrirEntrada(FileInputStream fis) throws IOException {
+        BufferedInputStream entrada = new BufferedInputStream(fis, 1 << 16);
+        byte[] inicio = new byte[4];
+        entrada.mark(inicio.length);
+        int lidos = entrada.readNBytes(inicio, 0, inicio.length);
+        entrada.reset();
+        return BlocosComprimidos.temAssinatura(inicio, lidos) ? new BlocosComprimidos.Entrada(entrada, codec) : entrada;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,248 @@
+package service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.BufferedOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import model.Livro;
+
+/**
+ * Armazenamento do acervo num retrato dividido em blocos independentes.
+ * <p>
+ * O arquivo começa com uma tabela que indica a posição, o tamanho e a quantidade de livros
+ * de cada bloco. Cada bloco é uma lista de livros serializada à parte, de modo que a carga
+ * decodifica todos os blocos ao mesmo tempo, um por núcleo, em vez de ler o arquivo inteiro
+ * numa única {@link ObjectInputStream}. A gravação também serializa os blocos em paralelo
+ * e substitui o arquivo de uma só vez.
+ * </p>
+ * <p>
+ * Com {@link #carregarEmBlocos()}, quem carrega pode começar a processar os primeiros blocos
+ * (ex.: montar índices) enquanto os demais ainda estão sendo decodificados.
+ * </p>
+ */
+public class PersistenciaBlocos implements Armazenamento {
+
+	/**
+	 * Nome padrão do arquivo de blocos.
+	 */
+	public static final String NOME_ARQUIVO = "biblioteca_blocos.dat";
+
+	/**
+	 * Quantidade padrão de livros por bloco.
+	 */
+	public static final int LIVROS_POR_BLOCO_PADRAO = 4096;
+
+	private static final int ASSINATURA = 0x424C4F43; // "BLOC"
+	private static final int VERSAO_FORMATO = 1;
+	private static final int TAMANHO_CABECALHO = 12;
+	private static final int TAMANHO_ENTRADA_TABELA = 16;
+
+	private final File arquivo;
+	private final int livrosPorBloco;
+
+	/**
+	 * Construtor que usa a quantidade padrão de livros por bloco.
+	 * @param arquivo O arquivo de blocos.
+	 */
+	public PersistenciaBlocos(File arquivo) {
+		this(arquivo, LIVROS_POR_BLOCO_PADRAO);
+	}
+
+	/**
+	 * Construtor completo.
+	 * @param arquivo O arquivo de blocos.
+	 * @param livrosPorBloco Quantos livros vão em cada bloco na gravação.
+	 */
+	public PersistenciaBlocos(File arquivo, int livrosPorBloco) {
+		if (livrosPorBloco <= 0) {
+			throw new IllegalArgumentException("Quantidade de livros por bloco deve ser positiva: " + livrosPorBloco);
+		}
+		this.arquivo = arquivo;
+		this.livrosPorBloco = livrosPorBloco;
+	}
+
+	/**
+	 * Salva o acervo: serializa os blocos em paralelo e troca o arquivo de uma só vez.
+	 * @param livros A versão atual e completa da lista de livros.
+	 * @return {@code true} se a gravação foi bem-sucedida.
+	 */
+	@Override
+	public synchronized boolean salvarLivros(List<Livro> livros) {
+		int numBlocos = (livros.size() + livrosPorBloco - 1) / livrosPorBloco;
+		List<byte[]> blocos;
+		try {
+			blocos = IntStream.range(0, numBlocos).parallel()
+					.mapToObj(b -> serializarBloco(livros.subList(b * livrosPorBloco,
+							Math.min(livros.size(), (b + 1) * livrosPorBloco))))
+					.toList();
+		} catch (IllegalStateException e) {
+			System.err.println("Erro ao serializar blocos de livros: " + e.getMessage());
+			return false;
+		}
+
+		File temporario = new File(arquivo.getPath() + ".tmp");
+		try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporario), 1 << 16))) {
+			dos.writeInt(ASSINATURA);
+			dos.writeInt(VERSAO_FORMATO);
+			dos.writeInt(numBlocos);
+
+			long deslocamento = TAMANHO_CABECALHO + (long) numBlocos * TAMANHO_ENTRADA_TABELA;
+			for (int b = 0; b < numBlocos; b++) {
+				dos.writeLong(deslocamento);
+				dos.writeInt(blocos.get(b).length);
+				dos.writeInt(Math.min(livrosPorBloco, livros.size() - b * livrosPorBloco));
+				deslocamento += blocos.get(b).length;
+			}
+			for (byte[] bloco : blocos) {
+				dos.write(bloco);
+			}
+		} catch (IOException e) {
+			System.err.println("Erro ao salvar blocos de livros: " + e.getMessage());
+			return false;
+		}
+
+		try {
+			Files.move(temporario.toPath(), arquivo.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			return true;
+		} catch (IOException e) {
+			System.err.println("Erro ao substituir arquivo de blocos: " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Carrega o acervo, decodificando os blocos em paralelo.
+	 * @return A lista de livros (vazia se não houver dados ou em caso de erro).
+	 */
+	@Override
+	public ArrayList<Livro> carregarLivros() {
+		List<CompletableFuture<List<Livro>>> blocos = carregarEmBlocos();
+		ArrayList<Livro> livros = new ArrayList<>();
+		for (CompletableFuture<List<Livro>> bloco : blocos) {
+			livros.addAll(bloco.join());
+		}
+		return livros;
+	}
+
+	/**
+	 * Inicia a decodificação paralela de todos os blocos e retorna sem esperar por ela.
+	 * <p>Um bloco ilegível é informado e resulta numa lista vazia, sem impedir os demais.</p>
+	 * @return Um futuro por bloco, na ordem do arquivo.
+	 */
+	@Override
+	public List<CompletableFuture<List<Livro>>> carregarEmBlocos() {
+		List<CompletableFuture<List<Livro>>> futuros = new ArrayList<>();
+		if (!arquivo.exists() || arquivo.length() == 0) {
+			return futuros;
+		}
+
+		FileChannel canal;
+		try {
+			canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ);
+		} catch (IOException e) {
+			System.err.println("Erro ao abrir arquivo de blocos: " + e.getMessage());
+			return futuros;
+		}
+
+		try {
+			ByteBuffer cabecalho = lerTrecho(canal, 0, TAMANHO_CABECALHO);
+			if (cabecalho.getInt() != ASSINATURA || cabecalho.getInt() != VERSAO_FORMATO) {
+				System.err.println("O arquivo " + arquivo + " não é um arquivo de blocos de livros.");
+				canal.close();
+				return futuros;
+			}
+			int numBlocos = cabecalho.getInt();
+			ByteBuffer tabela = lerTrecho(canal, TAMANHO_CABECALHO, numBlocos * TAMANHO_ENTRADA_TABELA);
+
+			for (int b = 0; b < numBlocos; b++) {
+				long deslocamento = tabela.getLong();
+				int tamanho = tabela.getInt();
+				int quantidade = tabela.getInt();
+				int numero = b;
+				// Leituras posicionais no mesmo canal podem ser feitas por várias threads
+				futuros.add(CompletableFuture.supplyAsync(() -> decodificarBloco(canal, deslocamento, tamanho, quantidade, numero)));
+			}
+		} catch (IOException e) {
+			System.err.println("Erro ao ler a tabela de blocos: " + e.getMessage());
+		}
+
+		CompletableFuture.allOf(futuros.toArray(new CompletableFuture<?>[0])).whenComplete((r, e) -> fecharCanal(canal));
+		return futuros;
+	}
+
+	/**
+	 * Copia todo o acervo de outro armazenamento (ex.: o arquivo único antigo) para o arquivo de blocos.
+	 * @param origem O {@link Armazenamento} de onde os livros são lidos.
+	 * @return A quantidade de livros importados, ou {@code -1} se a gravação falhar.
+	 */
+	public int importarDe(Armazenamento origem) {
+		ArrayList<Livro> livros = origem.carregarLivros();
+		return salvarLivros(livros) ? livros.size() : -1;
+	}
+
+	// =========================================================================
+	// Métodos Auxiliares
+	// =========================================================================
+
+	private static byte[] serializarBloco(List<Livro> livros) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+			oos.writeObject(new ArrayList<>(livros));
+		} catch (IOException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+		return bytes.toByteArray();
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Livro> decodificarBloco(FileChannel canal, long deslocamento, int tamanho, int quantidade, int numero) {
+		try {
+			ByteBuffer trecho = lerTrecho(canal, deslocamento, tamanho);
+			try (ObjectInputStream ois = new ObjectInputStream(
+					new ByteArrayInputStream(trecho.array(), 0, tamanho))) {
+				List<Livro> livros = (List<Livro>) ois.readObject();
+				if (livros.size() != quantidade) {
+					System.err.println("Bloco " + numero + " com " + livros.size() + " livros (esperados " + quantidade + ").");
+				}
+				return livros;
+			}
+		} catch (IOException | ClassNotFoundException | ClassCastException e) {
+			System.err.println("Erro ao decodificar o bloco " + numero + " de livros: " + e.getMessage());
+			return new ArrayList<>();
+		}
+	}
+
+	private static ByteBuffer lerTrecho(FileChannel canal, long posicao, int tamanho) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(tamanho);
+		while (buffer.hasRemaining()) {
+			if (canal.read(buffer, posicao + buffer.position()) < 0) {
+				throw new IOException("Arquivo de blocos truncado na posição " + (posicao + buffer.position()));
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private static void fecharCanal(FileChannel canal) {
+		try {
+			canal.close();
+		} catch (IOException e) {
+			System.err.println("Erro ao fechar arquivo de blocos: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,374 @@
+package service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import model.Identificador;
+import model.Livro;
+
+/**
+ * Armazenamento que divide o acervo em vários arquivos (fragmentos).
+ * <p>
+ * Cada livro pertence ao fragmento dado pelo hash do seu ID. Cada fragmento é um arquivo
+ * próprio, no mesmo formato do arquivo único da {@link Persistencia}, gravado por uma
+ * instância própria (com a sua própria trava). Os avisos de alteração recebidos do
+ * {@link GerenciadorBiblioteca} marcam os fragmentos "sujos", e só eles são regravados.
+ * A carga lê todos os fragmentos em paralelo.
+ * </p>
+ * <p>
+ * A quantidade de fragmentos fica registrada num manifesto no diretório. Para mudá-la, use
+ * {@link #rebalancear(File, int)} com o sistema parado (ou o {@link #main(String[])}).
+ * </p>
+ * <p>
+ * Os fragmentos não têm índice próprio: cada um é lido inteiro na carga, e as consultas passam
+ * pelo índice em memória do {@link GerenciadorBiblioteca}. Para um acervo maior que a memória,
+ * use a {@link PersistenciaIndexada}.
+ * </p>
+ * <p>A ordem dos livros entre fragmentos não é preservada; a ordenação é refeita ao listar.</p>
+ */
+public class PersistenciaFragmentada implements Armazenamento {
+
+	/**
+	 * Diretório padrão dos fragmentos, no diretório de trabalho.
+	 */
+	public static final String DIRETORIO_PADRAO = "biblioteca_fragmentos";
+
+	/**
+	 * Quantidade padrão de fragmentos de um diretório novo.
+	 */
+	public static final int NUM_FRAGMENTOS_PADRAO = 8;
+
+	private static final String ARQUIVO_MANIFESTO = "fragmentos.properties";
+	private static final String FORMATO_FRAGMENTO = "fragmento-%03d.dat";
+
+	// Sufixos dos diretórios irmãos usados na troca do rebalanceamento
+	private static final String SUFIXO_TEMPORARIO = ".rebalanceamento";
+	private static final String SUFIXO_ANTERIOR = ".anterior";
+
+	private final File diretorio;
+	private final Persistencia[] fragmentos;
+	private final Set<Integer> sujos = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Abre (ou cria) um diretório de fragmentos.
+	 * <p>Se o diretório já tiver um manifesto, vale a quantidade registrada nele; para
+	 * mudar a quantidade de um diretório existente, use {@link #rebalancear(File, int)}.</p>
+	 * @param diretorio O diretório dos fragmentos (criado se não existir).
+	 * @param numFragmentos A quantidade de fragmentos de um diretório novo.
+	 */
+	public PersistenciaFragmentada(File diretorio, int numFragmentos) {
+		if (numFragmentos <= 0) {
+			throw new IllegalArgumentException("Quantidade de fragmentos deve ser positiva: " + numFragmentos);
+		}
+		this.diretorio = diretorio;
+		recuperarRebalanceamento(diretorio);
+		diretorio.mkdirs();
+
+		int registrados = lerManifesto(diretorio);
+		if (registrados > 0 && registrados != numFragmentos) {
+			System.err.println("O diretório " + diretorio + " usa " + registrados + " fragmentos; ignorando o valor "
+					+ numFragmentos + ". Use o rebalanceamento para mudar a quantidade.");
+			numFragmentos = registrados;
+		}
+
+		this.fragmentos = new Persistencia[numFragmentos];
+		for (int i = 0; i < numFragmentos; i++) {
+			fragmentos[i] = new Persistencia(arquivoFragmento(diretorio, i));
+		}
+		if (registrados <= 0) {
+			gravarManifesto(diretorio, numFragmentos);
+		}
+	}
+
+	/**
+	 * Retorna a quantidade de fragmentos em uso.
+	 * @return O número de fragmentos.
+	 */
+	public int getNumFragmentos() {
+		return fragmentos.length;
+	}
+
+	/**
+	 * Retorna o fragmento ao qual um livro pertence.
+	 * @param idLivro O ID do livro.
+	 * @return O número do fragmento (0 a {@code getNumFragmentos() - 1}).
+	 */
+	public int fragmentoDe(String idLivro) {
+		return Math.floorMod(idLivro.hashCode(), fragmentos.length);
+	}
+
+	/**
+	 * Retorna o fragmento ao qual um livro pertence, pelas metades do ID (sem montar o texto).
+	 * @param livro O livro.
+	 * @return O mesmo número de {@link #fragmentoDe(String)} para o ID do livro.
+	 */
+	public int fragmentoDe(Livro livro) {
+		return Math.floorMod(Identificador.hashTexto(livro.getIdAlta(), livro.getIdBaixa()), fragmentos.length);
+	}
+
+	@Override
+	public void marcarAlterado(Livro livro) {
+		sujos.add(fragmentoDe(livro));
+	}
+
+	@Override
+	public void marcarRemovido(String idLivro) {
+		sujos.add(fragmentoDe(idLivro));
+	}
+
+	/**
+	 * Regrava apenas os fragmentos marcados como alterados desde a última gravação.
+	 * <p>Um fragmento cuja gravação falhar continua marcado e será tentado de novo.</p>
+	 * @param livros A versão atual e completa da lista de livros.
+	 * @return {@code true} se todos os fragmentos alterados foram gravados.
+	 */
+	@Override
+	public boolean salvarLivros(List<Livro> livros) {
+		if (sujos.isEmpty()) {
+			return true;
+		}
+
+		// Desmarca antes de separar os livros: uma alteração feita durante a gravação marca de novo
+		boolean[] gravar = new boolean[fragmentos.length];
+		for (Integer fragmento : sujos.toArray(new Integer[0])) {
+			sujos.remove(fragmento);
+			gravar[fragmento] = true;
+		}
+
+		List<List<Livro>> partes = new ArrayList<>(fragmentos.length);
+		for (int i = 0; i < fragmentos.length; i++) {
+			partes.add(gravar[i] ? new ArrayList<>() : null);
+		}
+		for (Livro livro : livros) {
+			int fragmento = fragmentoDe(livro);
+			if (gravar[fragmento]) {
+				partes.get(fragmento).add(livro);
+			}
+		}
+
+		boolean sucesso = true;
+		for (int i = 0; i < fragmentos.length; i++) {
+			if (gravar[i] && !fragmentos[i].salvarLivros(partes.get(i))) {
+				sujos.add(i);
+				sucesso = false;
+			}
+		}
+		return sucesso;
+	}
+
+	/**
+	 * Carrega todos os fragmentos em paralelo e junta os livros, na ordem dos fragmentos.
+	 * @return A lista de livros (vazia se não houver dados).
+	 */
+	@Override
+	public ArrayList<Livro> carregarLivros() {
+		List<ArrayList<Livro>> partes = IntStream.range(0, fragmentos.length).parallel()
+				.mapToObj(i -> fragmentos[i].carregarLivros())
+				.toList();
+
+		int total = 0;
+		for (ArrayList<Livro> parte : partes) {
+			total += parte.size();
+		}
+		ArrayList<Livro> livros = new ArrayList<>(total);
+		for (ArrayList<Livro> parte : partes) {
+			livros.addAll(parte);
+		}
+		return livros;
+	}
+
+	/**
+	 * Copia para os fragmentos todo o acervo de outro armazenamento (ex.: o arquivo único antigo).
+	 * @param origem O {@link Armazenamento} de onde os livros são lidos.
+	 * @return A quantidade de livros importados, ou {@code -1} se a gravação falhar.
+	 */
+	public int importarDe(Armazenamento origem) {
+		ArrayList<Livro> livros = origem.carregarLivros();
+		return gravarTodos(livros) ? livros.size() : -1;
+	}
+
+	/**
+	 * Regrava todos os fragmentos (inclusive os que ficarem vazios).
+	 */
+	private boolean gravarTodos(List<Livro> livros) {
+		for (int i = 0; i < fragmentos.length; i++) {
+			sujos.add(i);
+		}
+		return salvarLivros(livros);
+	}
+
+	/**
+	 * Indica se o diretório ainda não tem nenhum fragmento gravado.
+	 * @return {@code true} se nenhum arquivo de fragmento existe.
+	 */
+	public boolean estaVazio() {
+		for (int i = 0; i < fragmentos.length; i++) {
+			if (arquivoFragmento(diretorio, i).exists()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// =========================================================================
+	// Rebalanceamento (offline)
+	// =========================================================================
+
+	/**
+	 * Redistribui os livros de um diretório numa nova quantidade de fragmentos.
+	 * <p>Deve ser executado com o sistema parado. Os novos fragmentos e o manifesto são
+	 * gravados num diretório temporário ao lado do atual, e os diretórios são trocados por
+	 * renomeação: o atual vira cópia de segurança, o temporário assume o nome, e a cópia é
+	 * apagada. Uma interrupção no meio da troca é desfeita na próxima abertura, que volta
+	 * à cópia de segurança.</p>
+	 * @param diretorio O diretório dos fragmentos.
+	 * @param novoNumFragmentos A nova quantidade de fragmentos.
+	 * @return {@code true} se o rebalanceamento foi concluído.
+	 */
+	public static boolean rebalancear(File diretorio, int novoNumFragmentos) {
+		int atual = lerManifesto(diretorio);
+		if (atual <= 0) {
+			System.err.println("Diretório sem manifesto de fragmentos: " + diretorio);
+			return false;
+		}
+
+		ArrayList<Livro> livros = new PersistenciaFragmentada(diretorio, atual).carregarLivros();
+
+		File temporario = diretorioIrmao(diretorio, SUFIXO_TEMPORARIO);
+		apagarDiretorio(temporario);
+		PersistenciaFragmentada novo = new PersistenciaFragmentada(temporario, novoNumFragmentos);
+		if (!novo.gravarTodos(livros)) {
+			System.err.println("Erro ao gravar os novos fragmentos; os antigos foram mantidos.");
+			return false;
+		}
+
+		File anterior = diretorioIrmao(diretorio, SUFIXO_ANTERIOR);
+		apagarDiretorio(anterior);
+		try {
+			Files.move(diretorio.toPath(), anterior.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.err.println("Erro ao substituir os fragmentos; os antigos foram mantidos: " + e.getMessage());
+			return false;
+		}
+		try {
+			Files.move(temporario.toPath(), diretorio.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.err.println("Erro ao substituir os fragmentos; os antigos foram restaurados: " + e.getMessage());
+			recuperarRebalanceamento(diretorio);
+			return false;
+		}
+		apagarDiretorio(anterior);
+		return true;
+	}
+
+	/**
+	 * Ferramenta de linha de comando para rebalancear ou importar um acervo.
+	 * <p>Uso: {@code java service.PersistenciaFragmentada <diretorio> <fragmentos> [arquivoUnico]}.
+	 * Com {@code arquivoUnico}, importa um {@code biblioteca_livros.dat} para um diretório novo;
+	 * sem ele, rebalanceia o diretório existente.</p>
+	 * @param args Os argumentos da linha de comando.
+	 */
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.out.println("Uso: java service.PersistenciaFragmentada <diretorio> <fragmentos> [arquivoUnico]");
+			return;
+		}
+		File diretorio = new File(args[0]);
+		int numFragmentos = Integer.parseInt(args[1]);
+
+		if (args.length > 2) {
+			PersistenciaFragmentada fragmentada = new PersistenciaFragmentada(diretorio, numFragmentos);
+			int importados = fragmentada.importarDe(new Persistencia(new File(args[2])));
+			System.out.println("Livros importados: " + importados + " em " + fragmentada.getNumFragmentos() + " fragmentos.");
+		} else if (rebalancear(diretorio, numFragmentos)) {
+			System.out.println("Diretório rebalanceado para " + numFragmentos + " fragmentos.");
+		}
+	}
+
+	// =========================================================================
+	// Métodos Auxiliares
+	// =========================================================================
+
+	private static File arquivoFragmento(File diretorio, int fragmento) {
+		return new File(diretorio, String.format(FORMATO_FRAGMENTO, fragmento));
+	}
+
+	private static File diretorioIrmao(File diretorio, String sufixo) {
+		return new File(diretorio.getAbsoluteFile().getParentFile(), diretorio.getName() + sufixo);
+	}
+
+	/**
+	 * Conclui um rebalanceamento interrompido: sem o diretório, volta à cópia de segurança;
+	 * com ele, a cópia que sobrou é apagada.
+	 */
+	private static void recuperarRebalanceamento(File diretorio) {
+		File anterior = diretorioIrmao(diretorio, SUFIXO_ANTERIOR);
+		if (!anterior.exists()) {
+			return;
+		}
+		if (diretorio.exists()) {
+			apagarDiretorio(anterior);
+			return;
+		}
+		try {
+			Files.move(anterior.toPath(), diretorio.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			System.err.println("Rebalanceamento interrompido em " + diretorio + "; os fragmentos anteriores foram restaurados.");
+		} catch (IOException e) {
+			System.err.println("Erro ao restaurar os fragmentos de " + anterior + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Apaga os fragmentos e o manifesto de um diretório e, se ele ficar vazio, o próprio diretório.
+	 */
+	private static void apagarDiretorio(File diretorio) {
+		File[] arquivos = diretorio.listFiles((dir, nome) -> nome.startsWith("fragmento-") || nome.equals(ARQUIVO_MANIFESTO));
+		if (arquivos == null) return;
+		for (File arquivo : arquivos) {
+			arquivo.delete();
+		}
+		if (!diretorio.delete()) {
+			System.err.println("Não foi possível apagar o diretório " + diretorio);
+		}
+	}
+
+	/**
+	 * Lê a quantidade de fragmentos registrada no manifesto ({@code 0} se não houver manifesto).
+	 */
+	private static int lerManifesto(File diretorio) {
+		File manifesto = new File(diretorio, ARQUIVO_MANIFESTO);
+		if (!manifesto.exists()) {
+			return 0;
+		}
+		Properties propriedades = new Properties();
+		try (InputStream entrada = new FileInputStream(manifesto)) {
+			propriedades.load(entrada);
+			return Integer.parseInt(propriedades.getProperty("fragmentos", "0"));
+		} catch (IOException | NumberFormatException e) {
+			System.err.println("Erro ao ler manifesto de fragmentos: " + e.getMessage());
+			return 0;
+		}
+	}
+
+	private static void gravarManifesto(File diretorio, int numFragmentos) {
+		Properties propriedades = new Properties();
+		propriedades.setProperty("fragmentos", Integer.toString(numFragmentos));
+		try (OutputStream saida = new FileOutputStream(new File(diretorio, ARQUIVO_MANIFESTO))) {
+			propriedades.store(saida, "Fragmentos do acervo da biblioteca");
+		} catch (IOException e) {
+			System.err.println("Erro ao gravar manifesto de fragmentos: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,1083 @@
+package service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+import model.Identificador;
+import model.Livro;
+
+/**
+ * Armazenamento do acervo em disco com índices em {@link ArvoreBMais}, para acervos maiores que a memória.
+ * <p>
+ * Os livros ficam num arquivo de registros (cada gravação de um livro é acrescentada ao fim)
+ * e três árvores B+ apontam para o registro vigente de cada um: por ID, por título
+ * normalizado e por autor. As consultas leem do disco só as páginas e os registros
+ * necessários, e as buscas por prefixo do título percorrem as folhas da árvore de títulos.
+ * Uma quarta árvore guarda o vencimento de cada exemplar emprestado, para que os prazos
+ * sejam conhecidos sem ler o acervo.
+ * </p>
+ * <p>
+ * Com este armazenamento, o {@link GerenciadorBiblioteca} não carrega o acervo: cada consulta
+ * passa pelos índices. Para que todos vejam o mesmo estado de empréstimo, um livro lido do
+ * disco é sempre entregue como a mesma instância enquanto alguém ainda a usar (mapa de
+ * referências fracas). Os livros alterados ficam pendentes até a gravação e são
+ * considerados nas consultas.
+ * </p>
+ * <p>
+ * Com um orçamento de memória, os livros usados recentemente ficam residentes (seguros contra
+ * o coletor de lixo) até somarem o orçamento, estimado pelo tamanho dos registros; os menos
+ * usados deixam de ser retidos e voltam a ser lidos do disco quando pedidos. Os livros
+ * pendentes também contam: quando passam de metade do orçamento, são gravados antes da
+ * próxima gravação pedida. As instâncias entregues são as mesmas com ou sem orçamento, de
+ * modo que os resultados das consultas não mudam.
+ * </p>
+ * <p>
+ * Se o programa terminar sem {@link #fechar()}, as árvores são refeitas a partir do arquivo
+ * de registros na próxima abertura. Registros superados só são descartados por {@link #compactar()}.
+ * </p>
+ */
+public class PersistenciaIndexada implements Armazenamento {
+
+	/**
+	 * Diretório padrão dos arquivos do armazenamento indexado.
+	 */
+	public static final String DIRETORIO_PADRAO = "biblioteca_indexada";
+
+	private static final String ARQUIVO_DADOS = "livros.dat";
+	private static final String ARVORE_ID = "por-id.idx";
+	private static final String ARVORE_TITULO = "por-titulo.idx";
+	private static final String ARVORE_AUTOR = "por-autor.idx";
+	private static final String ARVORE_EMPRESTIMOS = "emprestimos.idx";
+
+	private static final int ASSINATURA = 0x4C495844; // "LIXD"
+	private static final int TAMANHO_CABECALHO = 4;
+	private static final byte TIPO_LIVRO = 1;
+	private static final byte TIPO_REMOCAO = 2;
+
+	// Separa o título (ou o autor) do ID nas chaves compostas; ordena antes de qualquer caractere
+	private static final char SEPARADOR = '\u0000';
+
+	// Ordem de ID pelas metades, sem montar o texto de cada livro comparado
+	private static final Comparator<Livro> POR_ID = (a, b) ->
+			Identificador.comparar(a.getIdAlta(), a.getIdBaixa(), b.getIdAlta(), b.getIdBaixa());
+
+	// Títulos maiores são truncados na chave (e conferidos ao ler o livro)
+	private static final int TAMANHO_MAXIMO_TITULO = 512;
+
+	// Quantos livros são lidos da árvore por vez ao percorrer o acervo inteiro
+	private static final int LOTE_VARREDURA = 1024;
+
+	/**
+	 * Orçamento que desliga o conjunto de livros residentes (a retenção fica só por conta de quem os usa).
+	 */
+	public static final long SEM_ORCAMENTO = 0;
+
+	// Tamanho atribuído a um livro cujo registro ainda não foi lido nem gravado
+	private static final int TAMANHO_ESTIMADO_REGISTRO = 512;
+
+	/**
+	 * Recebe cada exemplar emprestado em {@link #percorrerEmprestimos(VisitanteEmprestimo)}.
+	 */
+	@FunctionalInterface
+	public interface VisitanteEmprestimo {
+		/**
+		 * @param idLivro O ID do livro.
+		 * @param exemplar O índice do exemplar emprestado.
+		 * @param vencimento O prazo de devolução (em milissegundos desde a época).
+		 */
+		void visitar(String idLivro, int exemplar, long vencimento);
+	}
+
+	/**
+	 * Referência fraca a um livro entregue, lembrando o ID para limpar o mapa depois.
+	 */
+	private static final class Referencia extends WeakReference<Livro> {
+		final String idLivro;
+		final int bytes; // Tamanho do registro do livro, usado no orçamento de memória
+
+		Referencia(Livro livro, int bytes, ReferenceQueue<Livro> fila) {
+			super(livro, fila);
+			this.idLivro = livro.getIdLivro();
+			this.bytes = bytes;
+		}
+	}
+
+	/**
+	 * Livro mantido em memória dentro do orçamento.
+	 */
+	private static final class Residente {
+		final Livro livro;
+		final int bytes;
+
+		Residente(Livro livro, int bytes) {
+			this.livro = livro;
+			this.bytes = bytes;
+		}
+	}
+
+	/**
+	 * Chaves de índice guardadas no início de cada registro, lidas sem desserializar o livro.
+	 */
+	private static final class ChavesRegistro {
+		final byte tipo;
+		final String idLivro;
+		final String titulo;
+		final String autor;
+		final int[] exemplares;
+		final long[] vencimentos;
+
+		ChavesRegistro(byte tipo, String idLivro, String titulo, String autor, int[] exemplares, long[] vencimentos) {
+			this.tipo = tipo;
+			this.idLivro = idLivro;
+			this.titulo = titulo;
+			this.autor = autor;
+			this.exemplares = exemplares;
+			this.vencimentos = vencimentos;
+		}
+	}
+
+	private final File diretorio;
+	private final int paginasEmCache;
+	private final long orcamentoBytes;
+	private FileChannel dados;
+	private long fimDados;
+	private ArvoreBMais porId;
+	private ArvoreBMais porTitulo;
+	private ArvoreBMais porAutor;
+	private ArvoreBMais porEmprestimo;
+	private boolean aberto;
+
+	// Livros alterados desde a última gravação (null = removido), na ordem dos avisos
+	private final LinkedHashMap<String, Livro> pendentes = new LinkedHashMap<>();
+
+	// Instâncias já entregues, para que o mesmo livro nunca exista em duas cópias ao mesmo tempo
+	private final Map<String, Referencia> instancias = new HashMap<>();
+	private final ReferenceQueue<Livro> referenciasLiberadas = new ReferenceQueue<>();
+
+	// Livros retidos dentro do orçamento, do menos para o mais recentemente usado
+	private final LinkedHashMap<String, Residente> residentes = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytesResidentes;
+	private long bytesPendentes;
+
+	// Livros entregues sem ler o disco, lidos do disco e deixados de reter pelo orçamento
+	private long acertos;
+	private long faltas;
+	private long despejos;
+
+	/**
+	 * Construtor que usa a quantidade padrão de páginas em memória para cada índice, sem orçamento de memória.
+	 * @param diretorio O diretório dos arquivos (criado se não existir).
+	 */
+	public PersistenciaIndexada(File diretorio) {
+		this(diretorio, ArvoreBMais.PAGINAS_EM_CACHE_PADRAO);
+	}
+
+	/**
+	 * Construtor sem orçamento de memória para os livros.
+	 * @param diretorio O diretório dos arquivos (criado se não existir).
+	 * @param paginasEmCache Quantas páginas de cada índice manter em memória.
+	 */
+	public PersistenciaIndexada(File diretorio, int paginasEmCache) {
+		this(diretorio, paginasEmCache, SEM_ORCAMENTO);
+	}
+
+	/**
+	 * Construtor completo. Abre os arquivos e, se necessário, refaz os índices.
+	 * @param diretorio O diretório dos arquivos (criado se não existir).
+	 * @param paginasEmCache Quantas páginas de cada índice manter em memória.
+	 * @param orcamentoBytes Quantos bytes de livros manter residentes (ou {@link #SEM_ORCAMENTO}).
+	 */
+	public PersistenciaIndexada(File diretorio, int paginasEmCache, long orcamentoBytes) {
+		this.diretorio = diretorio;
+		this.paginasEmCache = paginasEmCache;
+		this.orcamentoBytes = Math.max(SEM_ORCAMENTO, orcamentoBytes);
+		diretorio.mkdirs();
+		abrir(false);
+	}
+
+	// =========================================================================
+	// Armazenamento
+	// =========================================================================
+
+	@Override
+	public synchronized void marcarAlterado(Livro livro) {
+		marcarPendente(livro.getIdLivro(), livro);
+		registrarInstancia(livro, TAMANHO_ESTIMADO_REGISTRO);
+	}
+
+	@Override
+	public synchronized void marcarRemovido(String idLivro) {
+		marcarPendente(idLivro, null);
+	}
+
+	/**
+	 * Grava os livros pendentes e atualiza os índices.
+	 * <p>A lista recebida não é percorrida: os livros pendentes já foram informados pelos avisos.</p>
+	 * @param livros A versão atual da lista de livros (não usada).
+	 * @return {@code true} se todos os livros foram gravados.
+	 */
+	@Override
+	public synchronized boolean salvarLivros(List<Livro> livros) {
+		if (pendentes.isEmpty()) {
+			return true;
+		}
+		if (!aberto) {
+			System.err.println("Armazenamento indexado indisponível; alterações não gravadas.");
+			return false;
+		}
+
+		try {
+			for (Map.Entry<String, Livro> pendente : pendentes.entrySet()) {
+				String idLivro = pendente.getKey();
+				Livro livro = pendente.getValue();
+
+				// Tira dos índices as chaves do registro anterior (o título ou o autor podem ter mudado)
+				long anterior = porId.obter(idLivro);
+				if (anterior >= 0) {
+					ChavesRegistro antigas = lerChaves(anterior);
+					porTitulo.remover(antigas.titulo + SEPARADOR + idLivro);
+					porAutor.remover(antigas.autor + SEPARADOR + idLivro);
+					for (int exemplar : antigas.exemplares) {
+						porEmprestimo.remover(idLivro + SEPARADOR + exemplar);
+					}
+				}
+
+				long posicao = anexar(idLivro, livro);
+				if (livro != null) {
+					reter(idLivro, livro, (int) (fimDados - posicao));
+					porId.inserir(idLivro, posicao);
+					porTitulo.inserir(chaveTitulo(livro.getTitulo()) + SEPARADOR + idLivro, posicao);
+					porAutor.inserir(livro.getAutor().getId() + SEPARADOR + idLivro, posicao);
+					for (int i = 0; i < livro.getNumExemplares(); i++) {
+						if (livro.getLeitorExemplar(i) != null) {
+							porEmprestimo.inserir(idLivro + SEPARADOR + i, livro.getVencimentoExemplar(i));
+						}
+					}
+				} else {
+					porId.remover(idLivro);
+				}
+			}
+			gravarArvores();
+		} catch (IOException e) {
+			System.err.println("Erro ao gravar livros no armazenamento indexado: " + e.getMessage());
+			return false;
+		}
+		pendentes.clear();
+		bytesPendentes = 0;
+		respeitarOrcamento();
+		return true;
+	}
+
+	/**
+	 * Lê o acervo inteiro para a memória, em ordem de ID.
+	 * <p>Existe para importações e para quem pede uma lista completa; as listagens do
+	 * {@link GerenciadorBiblioteca} usam {@link #iterador()}, que não monta a lista.</p>
+	 * @return A lista de livros.
+	 */
+	@Override
+	public ArrayList<Livro> carregarLivros() {
+		ArrayList<Livro> livros = new ArrayList<>();
+		percorrer(livros::add);
+		return livros;
+	}
+
+	/**
+	 * Grava os pendentes e fecha os arquivos, marcando os índices como íntegros.
+	 */
+	@Override
+	public synchronized void fechar() {
+		if (!aberto) {
+			return;
+		}
+		salvarLivros(List.of());
+		try {
+			dados.force(false);
+		} catch (IOException e) {
+			System.err.println("Erro ao gravar o arquivo de registros: " + e.getMessage());
+		}
+		fecharArquivos();
+	}
+
+	// =========================================================================
+	// Consultas pelos índices
+	// =========================================================================
+
+	/**
+	 * Busca um livro pelo ID.
+	 * @param idLivro O ID do livro.
+	 * @return O {@link Livro} ou {@code null}.
+	 */
+	public synchronized Livro buscarPorId(String idLivro) {
+		if (pendentes.containsKey(idLivro)) {
+			return pendentes.get(idLivro);
+		}
+		if (!aberto) {
+			return null;
+		}
+		try {
+			long posicao = porId.obter(idLivro);
+			return (posicao < 0) ? null : instancia(idLivro, posicao, true);
+		} catch (IOException | ClassNotFoundException e) {
+			System.err.println("Erro ao buscar o livro " + idLivro + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Lista os livros com o título informado (ignora maiúsculas/minúsculas), em ordem de ID.
+	 * @param titulo O título procurado.
+	 * @return Os livros com esse título.
+	 */
+	public synchronized List<Livro> listarPorTitulo(String titulo) {
+		String chave = IndiceLivros.chaveTitulo(titulo);
+		List<Livro> livros = buscarPorPrefixo(porTitulo, chaveTitulo(titulo) + SEPARADOR, Integer.MAX_VALUE,
+				livro -> IndiceLivros.chaveTitulo(livro.getTitulo()).equals(chave));
+		livros.sort(POR_ID);
+		return livros;
+	}
+
+	/**
+	 * Lista, em ordem alfabética, os livros cujo título começa com o prefixo (ignora maiúsculas/minúsculas).
+	 * <p>Lê apenas as folhas da árvore de títulos que contêm o prefixo.</p>
+	 * @param prefixo O começo do título.
+	 * @param limite A quantidade máxima de livros retornados.
+	 * @return Os livros encontrados, ordenados pelo título.
+	 */
+	public synchronized List<Livro> listarPorPrefixoTitulo(String prefixo, int limite) {
+		String chave = IndiceLivros.chaveTitulo(prefixo);
+		List<Livro> livros = buscarPorPrefixo(porTitulo, chaveTitulo(prefixo), limite,
+				livro -> IndiceLivros.chaveTitulo(livro.getTitulo()).startsWith(chave));
+		livros.sort(Comparator.comparing((Livro livro) -> IndiceLivros.chaveTitulo(livro.getTitulo()))
+				.thenComparing(POR_ID));
+		return (livros.size() > limite) ? new ArrayList<>(livros.subList(0, limite)) : livros;
+	}
+
+	/**
+	 * Lista os livros de um autor, em ordem de ID.
+	 * @param idAutor O ID do autor.
+	 * @return Os livros do autor.
+	 */
+	public synchronized List<Livro> listarPorAutor(String idAutor) {
+		long alta = Identificador.alta(idAutor);
+		long baixa = Identificador.baixa(idAutor, alta);
+		List<Livro> livros = buscarPorPrefixo(porAutor, idAutor + SEPARADOR, Integer.MAX_VALUE,
+				livro -> livro.getAutor().getIdAlta() == alta && livro.getAutor().getIdBaixa() == baixa);
+		livros.sort(POR_ID);
+		return livros;
+	}
+
+	/**
+	 * Entrega cada livro do acervo, em ordem de ID, lendo a árvore aos poucos (ver {@link #iterador()}).
+	 * @param consumidor Quem recebe cada livro.
+	 */
+	public void percorrer(Consumer<Livro> consumidor) {
+		iterador().forEachRemaining(consumidor);
+	}
+
+	/**
+	 * Retorna um cursor sobre os livros do acervo, em ordem de ID, que lê a árvore em lotes de
+	 * {@value #LOTE_VARREDURA} livros.
+	 * <p>A memória usada não depende do tamanho do acervo (a não ser que quem percorre guarde os
+	 * livros). O armazenamento fica travado só durante a leitura de cada lote: as consultas e as
+	 * gravações continuam durante o percurso. Um livro incluído ou removido no meio do percurso
+	 * pode aparecer ou não; os demais aparecem uma vez cada, na versão do momento em que o lote
+	 * deles foi lido. Os livros lidos pelo cursor não tomam o lugar dos residentes.</p>
+	 * @return O cursor.
+	 */
+	public Iterator<Livro> iterador() {
+		return new Cursor<>(this::lerLivros);
+	}
+
+	/**
+	 * Retorna um cursor sobre os IDs do acervo, em ordem, sem ler os livros (ver {@link #iterador()}).
+	 * @return O cursor.
+	 */
+	public Iterator<String> iteradorIds() {
+		return new Cursor<>(ids -> ids);
+	}
+
+	/**
+	 * Entrega cada exemplar emprestado e o seu vencimento, lendo só a árvore de empréstimos.
+	 * @param visitante Quem recebe cada exemplar emprestado.
+	 */
+	public synchronized void percorrerEmprestimos(VisitanteEmprestimo visitante) {
+		if (aberto) {
+			try {
+				porEmprestimo.percorrerIntervalo(null, null, (chave, vencimento) -> {
+					int separador = chave.lastIndexOf(SEPARADOR);
+					String idLivro = chave.substring(0, separador);
+					if (!pendentes.containsKey(idLivro)) {
+						visitante.visitar(idLivro, Integer.parseInt(chave.substring(separador + 1)), vencimento);
+					}
+					return true;
+				});
+			} catch (IOException e) {
+				System.err.println("Erro ao percorrer os empréstimos: " + e.getMessage());
+			}
+		}
+		for (Livro livro : new ArrayList<>(pendentes.values())) {
+			for (int i = 0; livro != null && i < livro.getNumExemplares(); i++) {
+				if (livro.getLeitorExemplar(i) != null) {
+					visitante.visitar(livro.getIdLivro(), i, livro.getVencimentoExemplar(i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Retorna quantos livros o acervo tem, contando os pendentes.
+	 * @return A quantidade de livros.
+	 */
+	public synchronized long getQuantidade() {
+		if (!aberto) {
+			return 0;
+		}
+		long quantidade = porId.getQuantidade();
+		try {
+			for (Map.Entry<String, Livro> pendente : pendentes.entrySet()) {
+				boolean gravado = porId.obter(pendente.getKey()) >= 0;
+				if (pendente.getValue() != null && !gravado) quantidade++;
+				if (pendente.getValue() == null && gravado) quantidade--;
+			}
+		} catch (IOException e) {
+			System.err.println("Erro ao contar os livros: " + e.getMessage());
+		}
+		return quantidade;
+	}
+
+	/**
+	 * Indica se o armazenamento ainda não tem nenhum livro gravado.
+	 * @return {@code true} se o arquivo de registros está vazio.
+	 */
+	public synchronized boolean estaVazio() {
+		return fimDados <= TAMANHO_CABECALHO && pendentes.isEmpty();
+	}
+
+	/**
+	 * Retorna quantos livros estão retidos em memória: os residentes e os pendentes.
+	 * <p>Os demais ficam só no disco (fora os que ainda estiverem em uso por alguém).</p>
+	 * @return A quantidade de livros residentes.
+	 */
+	public synchronized int getLivrosResidentes() {
+		int quantidade = residentes.size();
+		for (Livro livro : pendentes.values()) {
+			if (livro != null) quantidade++;
+		}
+		return quantidade;
+	}
+
+	/**
+	 * Retorna quantos livros do acervo ficam só no disco, sem estar entre os residentes.
+	 * @return A quantidade de livros fora da memória.
+	 */
+	public synchronized long getLivrosEmDisco() {
+		return Math.max(0, getQuantidade() - getLivrosResidentes());
+	}
+
+	/**
+	 * Retorna as estatísticas do conjunto de residentes, no formato das dos caches de consultas.
+	 * <p>Acertos são livros entregues sem ler o disco; falhas, livros lidos do disco; remoções,
+	 * livros que deixaram de ser retidos pelo orçamento; o peso é em bytes estimados.</p>
+	 * @return Um retrato das {@link Cache.Estatisticas} do acervo residente.
+	 */
+	public synchronized Cache.Estatisticas getEstatisticasResidentes() {
+		return new Cache.Estatisticas("acervoResidente", acertos, faltas, despejos,
+				bytesResidentes + bytesPendentes, orcamentoBytes);
+	}
+
+	/**
+	 * Retorna quantas páginas dos índices já foram lidas do disco (faltas do cache de páginas).
+	 * @return A soma das páginas lidas das três árvores.
+	 */
+	public synchronized long getPaginasLidas() {
+		return aberto ? porId.getPaginasLidas() + porTitulo.getPaginasLidas() + porAutor.getPaginasLidas()
+				+ porEmprestimo.getPaginasLidas() : 0;
+	}
+
+	// =========================================================================
+	// Manutenção
+	// =========================================================================
+
+	/**
+	 * Copia todo o acervo de outro armazenamento (ex.: o arquivo único antigo).
+	 * @param origem O {@link Armazenamento} de onde os livros são lidos.
+	 * @return A quantidade de livros importados, ou {@code -1} se a gravação falhar.
+	 */
+	public synchronized int importarDe(Armazenamento origem) {
+		ArrayList<Livro> livros = origem.carregarLivros();
+		for (Livro livro : livros) {
+			pendentes.put(livro.getIdLivro(), livro);
+		}
+		return salvarLivros(livros) ? livros.size() : -1;
+	}
+
+	/**
+	 * Reescreve o arquivo de registros só com o registro vigente de cada livro e refaz os índices.
+	 * @return {@code true} se a compactação foi concluída.
+	 */
+	public synchronized boolean compactar() {
+		if (!aberto || !salvarLivros(List.of())) {
+			return false;
+		}
+
+		File temporario = new File(diretorio, ARQUIVO_DADOS + ".tmp");
+		try (FileChannel novo = FileChannel.open(temporario.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			escreverTudo(novo, ByteBuffer.allocate(TAMANHO_CABECALHO).putInt(ASSINATURA).flip(), 0);
+			long[] fim = { TAMANHO_CABECALHO };
+			String de = null;
+			while (true) {
+				List<String> ids = new ArrayList<>();
+				List<Long> posicoes = new ArrayList<>();
+				porId.percorrerIntervalo(de, null, (idLivro, posicao) -> {
+					ids.add(idLivro);
+					posicoes.add(posicao);
+					return ids.size() < LOTE_VARREDURA;
+				});
+				for (long posicao : posicoes) {
+					ByteBuffer registro = lerRegistroCompleto(posicao);
+					fim[0] += escreverTudo(novo, registro, fim[0]);
+				}
+				if (ids.size() < LOTE_VARREDURA) break;
+				de = ids.get(ids.size() - 1) + SEPARADOR;
+			}
+			novo.force(false);
+		} catch (IOException e) {
+			System.err.println("Erro ao compactar o armazenamento indexado: " + e.getMessage());
+			return false;
+		}
+
+		fecharArquivos();
+		try {
+			Files.move(temporario.toPath(), new File(diretorio, ARQUIVO_DADOS).toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			System.err.println("Erro ao substituir o arquivo de registros: " + e.getMessage());
+		}
+		// As posições mudaram: os índices são refeitos a partir do novo arquivo
+		abrir(true);
+		return aberto;
+	}
+
+	// =========================================================================
+	// Métodos Auxiliares
+	// =========================================================================
+
+	private void abrir(boolean refazerIndices) {
+		try {
+			dados = FileChannel.open(new File(diretorio, ARQUIVO_DADOS).toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.READ, StandardOpenOption.WRITE);
+			if (dados.size() == 0) {
+				escreverTudo(dados, ByteBuffer.allocate(TAMANHO_CABECALHO).putInt(ASSINATURA).flip(), 0);
+			} else if (lerTrecho(0, TAMANHO_CABECALHO).getInt() != ASSINATURA) {
+				throw new IOException("O arquivo " + new File(diretorio, ARQUIVO_DADOS) + " não é um arquivo de livros indexados.");
+			}
+			fimDados = dados.size();
+
+			porId = new ArvoreBMais(new File(diretorio, ARVORE_ID), paginasEmCache);
+			porTitulo = new ArvoreBMais(new File(diretorio, ARVORE_TITULO), paginasEmCache);
+			porAutor = new ArvoreBMais(new File(diretorio, ARVORE_AUTOR), paginasEmCache);
+			porEmprestimo = new ArvoreBMais(new File(diretorio, ARVORE_EMPRESTIMOS), paginasEmCache);
+			aberto = true;
+
+			if (refazerIndices) {
+				reconstruirIndices();
+			} else if (!porId.foiFechadaCorretamente() || !porTitulo.foiFechadaCorretamente()
+					|| !porAutor.foiFechadaCorretamente() || !porEmprestimo.foiFechadaCorretamente()) {
+				System.err.println("Índices de " + diretorio + " não foram fechados corretamente; refazendo a partir dos registros.");
+				reconstruirIndices();
+			}
+		} catch (IOException | ClassNotFoundException e) {
+			System.err.println("Erro ao abrir o armazenamento indexado: " + e.getMessage());
+			fecharArquivos();
+		}
+	}
+
+	/**
+	 * Refaz as árvores lendo o arquivo de registros do começo: primeiro o índice por ID
+	 * (o último registro de cada livro vale), depois os de título, autor e empréstimos a partir dele.
+	 * Um registro incompleto no fim do arquivo é descartado.
+	 */
+	private void reconstruirIndices() throws IOException, ClassNotFoundException {
+		fecharArvores();
+		excluirIndices();
+		porId = new ArvoreBMais(new File(diretorio, ARVORE_ID), paginasEmCache);
+		porTitulo = new ArvoreBMais(new File(diretorio, ARVORE_TITULO), paginasEmCache);
+		porAutor = new ArvoreBMais(new File(diretorio, ARVORE_AUTOR), paginasEmCache);
+		porEmprestimo = new ArvoreBMais(new File(diretorio, ARVORE_EMPRESTIMOS), paginasEmCache);
+
+		long posicao = TAMANHO_CABECALHO;
+		long tamanho = dados.size();
+		while (posicao < tamanho) {
+			ByteBuffer registro;
+			try {
+				registro = lerRegistroCompleto(posicao);
+			} catch (IOException e) {
+				System.err.println("Registro incompleto ou corrompido na posição " + posicao + "; o restante foi descartado.");
+				dados.truncate(posicao);
+				break;
+			}
+			ChavesRegistro chaves = lerChaves(registro);
+			if (chaves.tipo == TIPO_LIVRO) {
+				porId.inserir(chaves.idLivro, posicao);
+			} else {
+				porId.remover(chaves.idLivro);
+			}
+			posicao += registro.remaining();
+		}
+		fimDados = Math.min(posicao, dados.size());
+
+		String de = null;
+		while (true) {
+			List<String> ids = new ArrayList<>();
+			List<Long> posicoes = new ArrayList<>();
+			porId.percorrerIntervalo(de, null, (idLivro, posicaoLivro) -> {
+				ids.add(idLivro);
+				posicoes.add(posicaoLivro);
+				return ids.size() < LOTE_VARREDURA;
+			});
+			for (int i = 0; i < ids.size(); i++) {
+				ChavesRegistro chaves = lerChaves(posicoes.get(i));
+				porTitulo.inserir(chaves.titulo + SEPARADOR + ids.get(i), posicoes.get(i));
+				porAutor.inserir(chaves.autor + SEPARADOR + ids.get(i), posicoes.get(i));
+				for (int j = 0; j < chaves.exemplares.length; j++) {
+					porEmprestimo.inserir(ids.get(i) + SEPARADOR + chaves.exemplares[j], chaves.vencimentos[j]);
+				}
+			}
+			if (ids.size() < LOTE_VARREDURA) break;
+			de = ids.get(ids.size() - 1) + SEPARADOR;
+		}
+		gravarArvores();
+	}
+
+	private void gravarArvores() throws IOException {
+		porId.gravar();
+		porTitulo.gravar();
+		porAutor.gravar();
+		porEmprestimo.gravar();
+	}
+
+	/**
+	 * Busca numa árvore pelo prefixo, junta os livros pendentes que atendem ao filtro e
+	 * descarta os que foram alterados depois de gravados (a versão pendente vale).
+	 */
+	private List<Livro> buscarPorPrefixo(ArvoreBMais arvore, String prefixo, int limite,
+			Predicate<Livro> filtro) {
+		List<Livro> livros = new ArrayList<>();
+		if (aberto) {
+			List<String> ids = new ArrayList<>();
+			List<Long> posicoes = new ArrayList<>();
+			try {
+				arvore.percorrerPrefixo(prefixo, (chave, posicao) -> {
+					String idLivro = chave.substring(chave.lastIndexOf(SEPARADOR) + 1);
+					if (!pendentes.containsKey(idLivro)) {
+						ids.add(idLivro);
+						posicoes.add(posicao);
+					}
+					return ids.size() < limite;
+				});
+				for (int i = 0; i < ids.size(); i++) {
+					Livro livro = instancia(ids.get(i), posicoes.get(i), true);
+					if (livro != null && filtro.test(livro)) {
+						livros.add(livro);
+					}
+				}
+			} catch (IOException | ClassNotFoundException e) {
+				System.err.println("Erro ao consultar o armazenamento indexado: " + e.getMessage());
+			}
+		}
+		for (Livro livro : pendentes.values()) {
+			if (livro != null && filtro.test(livro)) {
+				livros.add(livro);
+			}
+		}
+		return livros;
+	}
+
+	/**
+	 * Faixa de IDs lida por um {@link Cursor}: os IDs presentes e o último ID coberto pela faixa
+	 * ({@code null} se ela vai até o fim do acervo).
+	 */
+	private record Faixa(List<String> ids, String ate) {
+	}
+
+	/**
+	 * Percorre o acervo em ordem de ID, uma {@link Faixa} por vez.
+	 */
+	private final class Cursor<T> implements Iterator<T> {
+		private final Function<List<String>, List<T>> ler;
+		private Iterator<T> lote = Collections.emptyIterator();
+		private String depoisDe;
+		private boolean fim;
+
+		Cursor(Function<List<String>, List<T>> ler) {
+			this.ler = ler;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!lote.hasNext() && !fim) {
+				Faixa faixa = proximaFaixa(depoisDe);
+				depoisDe = faixa.ate();
+				fim = (depoisDe == null);
+				lote = ler.apply(faixa.ids()).iterator();
+			}
+			return lote.hasNext();
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return lote.next();
+		}
+	}
+
+	/**
+	 * Lê até {@value #LOTE_VARREDURA} IDs da árvore depois de {@code depoisDe} e acerta a faixa
+	 * com os pendentes: os incluídos ainda não gravados entram, os removidos saem.
+	 */
+	private synchronized Faixa proximaFaixa(String depoisDe) {
+		List<String> daArvore = new ArrayList<>();
+		if (aberto) {
+			try {
+				String de = (depoisDe == null) ? null : depoisDe + SEPARADOR; // A menor chave depois da última lida
+				porId.percorrerIntervalo(de, null, (idLivro, posicao) -> {
+					daArvore.add(idLivro);
+					return daArvore.size() < LOTE_VARREDURA;
+				});
+			} catch (IOException e) {
+				System.err.println("Erro ao percorrer o armazenamento indexado: " + e.getMessage());
+				return new Faixa(List.of(), null);
+			}
+		}
+		String ate = (daArvore.size() == LOTE_VARREDURA) ? daArvore.get(daArvore.size() - 1) : null;
+		TreeSet<String> ids = new TreeSet<>(daArvore);
+		for (Map.Entry<String, Livro> pendente : pendentes.entrySet()) {
+			String idLivro = pendente.getKey();
+			if ((depoisDe == null || idLivro.compareTo(depoisDe) > 0) && (ate == null || idLivro.compareTo(ate) <= 0)) {
+				if (pendente.getValue() != null) {
+					ids.add(idLivro);
+				} else {
+					ids.remove(idLivro);
+				}
+			}
+		}
+		return new Faixa(new ArrayList<>(ids), ate);
+	}
+
+	/**
+	 * Lê os livros de uma faixa (os pendentes vêm da memória). Os que deixaram de existir desde
+	 * a leitura da faixa são pulados.
+	 */
+	private synchronized List<Livro> lerLivros(List<String> ids) {
+		List<Livro> livros = new ArrayList<>(ids.size());
+		try {
+			for (String idLivro : ids) {
+				Livro livro;
+				if (pendentes.containsKey(idLivro)) {
+					livro = pendentes.get(idLivro);
+				} else {
+					long posicao = aberto ? porId.obter(idLivro) : -1;
+					livro = (posicao >= 0) ? instancia(idLivro, posicao, false) : null;
+				}
+				if (livro != null) {
+					livros.add(livro);
+				}
+			}
+		} catch (IOException | ClassNotFoundException e) {
+			System.err.println("Erro ao percorrer o armazenamento indexado: " + e.getMessage());
+		}
+		return livros;
+	}
+
+	/**
+	 * Retorna a instância já entregue do livro ou, se ninguém mais a usa, lê o registro.
+	 * @param admitir Se o livro pode entrar no conjunto de residentes (falso nas varreduras).
+	 */
+	private Livro instancia(String idLivro, long posicao, boolean admitir) throws IOException, ClassNotFoundException {
+		limparReferencias();
+		Referencia referencia = instancias.get(idLivro);
+		Livro livro = (referencia == null) ? null : referencia.get();
+		int bytes;
+		if (livro != null) {
+			acertos++;
+			bytes = referencia.bytes;
+		} else {
+			faltas++;
+			ByteBuffer registro = lerRegistroCompleto(posicao);
+			livro = lerLivro(registro);
+			if (livro == null) {
+				return null;
+			}
+			bytes = registro.limit();
+			registrarInstancia(livro, bytes);
+		}
+		if (admitir || residentes.containsKey(idLivro)) {
+			reter(idLivro, livro, bytes);
+			respeitarOrcamento();
+		}
+		return livro;
+	}
+
+	private void registrarInstancia(Livro livro, int bytes) {
+		Referencia atual = instancias.get(livro.getIdLivro());
+		if (atual == null || atual.get() != livro) {
+			instancias.put(livro.getIdLivro(), new Referencia(livro, bytes, referenciasLiberadas));
+		}
+	}
+
+	/**
+	 * Marca o livro como usado agora no conjunto de residentes, se houver orçamento.
+	 */
+	private void reter(String idLivro, Livro livro, int bytes) {
+		if (orcamentoBytes == SEM_ORCAMENTO) {
+			return;
+		}
+		Residente atual = residentes.get(idLivro); // Também o move para o fim (mais recente)
+		if (atual != null && atual.livro == livro) {
+			return;
+		}
+		residentes.put(idLivro, new Residente(livro, bytes));
+		bytesResidentes += bytes - ((atual != null) ? atual.bytes : 0);
+	}
+
+	/**
+	 * Deixa de reter os livros usados há mais tempo até que residentes e pendentes caibam no orçamento.
+	 */
+	private void respeitarOrcamento() {
+		if (orcamentoBytes == SEM_ORCAMENTO) {
+			return;
+		}
+		Iterator<Residente> iterador = residentes.values().iterator();
+		while (bytesResidentes + bytesPendentes > orcamentoBytes && iterador.hasNext()) {
+			bytesResidentes -= iterador.next().bytes;
+			iterador.remove();
+			despejos++;
+		}
+	}
+
+	/**
+	 * Guarda a alteração de um livro até a gravação. O livro deixa o conjunto de residentes e
+	 * passa a contar como pendente; se os pendentes passarem de metade do orçamento, são gravados.
+	 */
+	private void marcarPendente(String idLivro, Livro livro) {
+		if (orcamentoBytes == SEM_ORCAMENTO) {
+			pendentes.put(idLivro, livro);
+			return;
+		}
+		Residente residente = residentes.remove(idLivro);
+		int bytes = TAMANHO_ESTIMADO_REGISTRO;
+		if (residente != null) {
+			bytesResidentes -= residente.bytes;
+			bytes = residente.bytes;
+		}
+		if (!pendentes.containsKey(idLivro)) {
+			bytesPendentes += bytes;
+		}
+		pendentes.put(idLivro, livro);
+		if (bytesPendentes > orcamentoBytes / 2) {
+			salvarLivros(List.of());
+		}
+		respeitarOrcamento();
+	}
+
+	// Remove do mapa os livros que ninguém mais usa
+	private void limparReferencias() {
+		Referencia liberada;
+		while ((liberada = (Referencia) referenciasLiberadas.poll()) != null) {
+			instancias.remove(liberada.idLivro, liberada);
+		}
+	}
+
+	/**
+	 * Normaliza o título para a chave do índice, truncando-o se passar do limite de bytes.
+	 */
+	private static String chaveTitulo(String titulo) {
+		String chave = IndiceLivros.chaveTitulo(titulo);
+		while (chave.getBytes(StandardCharsets.UTF_8).length > TAMANHO_MAXIMO_TITULO) {
+			chave = chave.substring(0, Math.min(chave.length() - 1, TAMANHO_MAXIMO_TITULO));
+		}
+		return chave;
+	}
+
+	/**
+	 * Acrescenta um registro: tamanho, corpo (tipo, ID, chaves de título e autor, vencimento
+	 * de cada exemplar emprestado, livro serializado) e CRC32 do corpo.
+	 * @return A posição do registro no arquivo.
+	 */
+	private long anexar(String idLivro, Livro livro) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream corpo = new DataOutputStream(bytes)) {
+			corpo.writeByte(livro == null ? TIPO_REMOCAO : TIPO_LIVRO);
+			corpo.writeUTF(idLivro);
+			if (livro != null) {
+				corpo.writeUTF(chaveTitulo(livro.getTitulo()));
+				corpo.writeUTF(livro.getAutor().getId());
+				int emprestados = 0;
+				for (int i = 0; i < livro.getNumExemplares(); i++) {
+					if (livro.getLeitorExemplar(i) != null) emprestados++;
+				}
+				corpo.writeInt(emprestados);
+				for (int i = 0; i < livro.getNumExemplares(); i++) {
+					if (livro.getLeitorExemplar(i) != null) {
+						corpo.writeInt(i);
+						corpo.writeLong(livro.getVencimentoExemplar(i));
+					}
+				}
+				try (ObjectOutputStream oos = new ObjectOutputStream(corpo)) {
+					oos.writeObject(livro);
+				}
+			}
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(bytes.toByteArray());
+		ByteBuffer registro = ByteBuffer.allocate(4 + bytes.size() + 8);
+		registro.putInt(bytes.size()).put(bytes.toByteArray()).putLong(crc.getValue()).flip();
+
+		long posicao = fimDados;
+		fimDados += escreverTudo(dados, registro, posicao);
+		return posicao;
+	}
+
+	/**
+	 * Lê um registro inteiro (tamanho, corpo e CRC) e confere o CRC.
+	 * @return O registro, com a posição no início do corpo e o limite no fim do CRC.
+	 */
+	private ByteBuffer lerRegistroCompleto(long posicao) throws IOException {
+		int tamanho = lerTrecho(posicao, 4).getInt();
+		if (tamanho < 0 || posicao + 4 + tamanho + 8 > dados.size()) {
+			throw new IOException("Registro inválido na posição " + posicao);
+		}
+		ByteBuffer registro = lerTrecho(posicao, 4 + tamanho + 8);
+		CRC32 crc = new CRC32();
+		crc.update(registro.array(), 4, tamanho);
+		if (crc.getValue() != registro.getLong(4 + tamanho)) {
+			throw new IOException("CRC inválido no registro da posição " + posicao);
+		}
+		return registro;
+	}
+
+	private ChavesRegistro lerChaves(long posicao) throws IOException {
+		return lerChaves(lerRegistroCompleto(posicao));
+	}
+
+	private static ChavesRegistro lerChaves(ByteBuffer registro) throws IOException {
+		DataInputStream corpo = new DataInputStream(new ByteArrayInputStream(registro.array(), 4, registro.getInt(0)));
+		byte tipo = corpo.readByte();
+		String idLivro = corpo.readUTF();
+		if (tipo == TIPO_REMOCAO) {
+			return new ChavesRegistro(tipo, idLivro, null, null, new int[0], new long[0]);
+		}
+		String titulo = corpo.readUTF();
+		String autor = corpo.readUTF();
+		int emprestados = corpo.readInt();
+		int[] exemplares = new int[emprestados];
+		long[] vencimentos = new long[emprestados];
+		for (int i = 0; i < emprestados; i++) {
+			exemplares[i] = corpo.readInt();
+			vencimentos[i] = corpo.readLong();
+		}
+		return new ChavesRegistro(tipo, idLivro, titulo, autor, exemplares, vencimentos);
+	}
+
+	private static Livro lerLivro(ByteBuffer registro) throws IOException, ClassNotFoundException {
+		DataInputStream corpo = new DataInputStream(new ByteArrayInputStream(registro.array(), 4, registro.getInt(0)));
+		if (corpo.readByte() != TIPO_LIVRO) {
+			return null;
+		}
+		corpo.readUTF();
+		corpo.readUTF();
+		corpo.readUTF();
+		corpo.skipBytes(corpo.readInt() * (4 + 8));
+		try (ObjectInputStream ois = new ObjectInputStream(corpo)) {
+			return (Livro) ois.readObject();
+		}
+	}
+
+	private ByteBuffer lerTrecho(long posicao, int tamanho) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(tamanho);
+		while (buffer.hasRemaining()) {
+			if (dados.read(buffer, posicao + buffer.position()) < 0) {
+				throw new IOException("Fim inesperado do arquivo de registros na posição " + (posicao + buffer.position()));
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private static int escreverTudo(FileChannel canal, ByteBuffer buffer, long posicao) throws IOException {
+		int tamanho = buffer.remaining();
+		while (buffer.hasRemaining()) {
+			canal.write(buffer, posicao + tamanho - buffer.remaining());
+		}
+		return tamanho;
+	}
+
+	private void excluirIndices() {
+		for (String nome : new String[] { ARVORE_ID, ARVORE_TITULO, ARVORE_AUTOR, ARVORE_EMPRESTIMOS }) {
+			File arquivo = new File(diretorio, nome);
+			if (arquivo.exists() && !arquivo.delete()) {
+				System.err.println("Não foi possível excluir o índice " + arquivo);
+			}
+		}
+	}
+
+	private void fecharArvores() {
+		for (ArvoreBMais arvore : new ArvoreBMais[] { porId, porTitulo, porAutor, porEmprestimo }) {
+			if (arvore != null) {
+				try {
+					arvore.fechar();
+				} catch (IOException e) {
+					System.err.println("Erro ao fechar índice: " + e.getMessage());
+				}
+			}
+		}
+		porId = null;
+		porTitulo = null;
+		porAutor = null;
+		porEmprestimo = null;
+	}
+
+	private void fecharArquivos() {
+		fecharArvores();
+		if (dados != null) {
+			try {
+				dados.close();
+			} catch (IOException e) {
+				System.err.println("Erro ao fechar o arquivo de registros: " + e.getMessage());
+			}
+			dados = null;
+		}
+		aberto = false;
+	}
+}
@@ -0,0 +1,353 @@
+package service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import model.Identificador;
+import model.Livro;
+
+/**
+ * Armazenamento do acervo em registros, um por livro, acrescentados ao fim do arquivo.
+ * <p>
+ * O {@link GerenciadorBiblioteca} avisa cada inclusão, alteração ou remoção; o livro fica
+ * pendente com um novo número de versão. Na gravação, só os pendentes são escritos, como
+ * novos registros no fim do arquivo. O custo de salvar depende da quantidade de alterações,
+ * e não do tamanho do acervo.
+ * </p>
+ * <p>
+ * Na carga vale o registro de maior versão de cada livro; remoções são registros sem dados.
+ * Quando os registros superados passam a ocupar mais que os válidos, o arquivo é
+ * reescrito só com os válidos (compactação). Cada registro tem um CRC32, e um registro
+ * incompleto no fim (gravação interrompida) é descartado.
+ * </p>
+ * <p>A ordem do acervo é a ordem de inclusão; a ordenação não é persistida.</p>
+ */
+public class PersistenciaRegistros implements Armazenamento {
+
+	/**
+	 * Nome padrão do arquivo de registros.
+	 */
+	public static final String NOME_ARQUIVO = "biblioteca_registros.dat";
+
+	private static final int ASSINATURA = 0x4C495652; // "LIVR"
+	private static final byte TIPO_LIVRO = 1;
+	private static final byte TIPO_REMOCAO = 2;
+
+	// A compactação só compensa a partir de um mínimo de registros superados
+	private static final int MINIMO_PARA_COMPACTAR = 1024;
+
+	// Versão mais recente gravada (ou pendente) de um livro, e se o arquivo tem um registro válido dele
+	private static final class Versao {
+		long numero;
+		boolean noArquivo;
+	}
+
+	private final File arquivo;
+
+	// Versão de cada livro, pelas metades do ID (sem guardar o texto de cada um)
+	private MapaIds<Versao> versoes = new MapaIds<>();
+
+	// Livros alterados desde a última gravação (null = removido), na ordem dos avisos
+	private final LinkedHashMap<String, Livro> pendentes = new LinkedHashMap<>();
+
+	// Livros com um registro válido no arquivo, e quantos registros do arquivo já foram superados
+	private long livrosNoArquivo;
+	private long registrosSuperados;
+	private DataOutputStream saida;
+
+	/**
+	 * Construtor que usa um arquivo específico.
+	 * @param arquivo O arquivo de registros.
+	 */
+	public PersistenciaRegistros(File arquivo) {
+		this.arquivo = arquivo;
+	}
+
+	@Override
+	public synchronized void marcarAlterado(Livro livro) {
+		versao(livro.getIdAlta(), livro.getIdBaixa()).numero++;
+		pendentes.put(livro.getIdLivro(), livro);
+	}
+
+	@Override
+	public synchronized void marcarRemovido(String idLivro) {
+		long alta = Identificador.alta(idLivro);
+		versao(alta, Identificador.baixa(idLivro, alta)).numero++;
+		pendentes.put(idLivro, null);
+	}
+
+	/**
+	 * Retorna quantos livros aguardam gravação.
+	 * @return A quantidade de livros pendentes.
+	 */
+	public synchronized int getPendentes() {
+		return pendentes.size();
+	}
+
+	/**
+	 * Acrescenta ao arquivo um registro para cada livro pendente.
+	 * <p>A lista recebida não é percorrida: os livros pendentes já foram informados pelos avisos.</p>
+	 * @param livros A versão atual da lista de livros (não usada).
+	 * @return {@code true} se todos os registros foram gravados.
+	 */
+	@Override
+	public synchronized boolean salvarLivros(List<Livro> livros) {
+		if (pendentes.isEmpty()) {
+			return true;
+		}
+
+		try {
+			if (saida == null) {
+				boolean novo = !arquivo.exists() || arquivo.length() == 0;
+				saida = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(arquivo, true)));
+				if (novo) {
+					saida.writeInt(ASSINATURA);
+				}
+			}
+			for (Map.Entry<String, Livro> pendente : pendentes.entrySet()) {
+				String idLivro = pendente.getKey();
+				long alta = Identificador.alta(idLivro);
+				Versao versao = versao(alta, Identificador.baixa(idLivro, alta));
+				escreverRegistro(saida, idLivro, versao.numero, pendente.getValue());
+
+				// O registro novo supera o anterior do mesmo livro; uma remoção já nasce superada
+				boolean tinhaRegistro = versao.noArquivo;
+				versao.noArquivo = (pendente.getValue() != null);
+				livrosNoArquivo += (versao.noArquivo ? 1 : 0) - (tinhaRegistro ? 1 : 0);
+				if (tinhaRegistro) registrosSuperados++;
+				if (pendente.getValue() == null) registrosSuperados++;
+			}
+			saida.flush();
+		} catch (IOException e) {
+			System.err.println("Erro ao gravar registros de livros: " + e.getMessage());
+			return false;
+		}
+		pendentes.clear();
+
+		if (registrosSuperados > MINIMO_PARA_COMPACTAR && registrosSuperados > livrosNoArquivo) {
+			compactar();
+		}
+		return true;
+	}
+
+	/**
+	 * Carrega o arquivo, ficando com o registro de maior versão de cada livro.
+	 * @return A lista de livros, na ordem em que foram incluídos.
+	 */
+	@Override
+	public synchronized ArrayList<Livro> carregarLivros() {
+		LinkedHashMap<String, Livro> livros = new LinkedHashMap<>();
+		versoes.limpar();
+		livrosNoArquivo = 0;
+		registrosSuperados = 0;
+		if (!arquivo.exists() || arquivo.length() == 0) {
+			return new ArrayList<>();
+		}
+
+		long registros = 0;
+		long tamanhoValido = 4;
+		boolean finalIncompleto = false;
+		try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(arquivo)))) {
+			if (dis.readInt() != ASSINATURA) {
+				System.err.println("O arquivo " + arquivo + " não é um arquivo de registros de livros.");
+				return new ArrayList<>();
+			}
+
+			while (true) {
+				int tamanho = dis.readInt();
+				if (tamanho < 0 || tamanho > arquivo.length() - tamanhoValido - 4) {
+					finalIncompleto = true; // Tamanho de um registro que não chegou a ser gravado inteiro
+					break;
+				}
+				byte[] corpo = new byte[tamanho];
+				dis.readFully(corpo);
+				long crc = dis.readLong();
+				CRC32 verificador = new CRC32();
+				verificador.update(corpo);
+				if (verificador.getValue() != crc) {
+					System.err.println("Registro corrompido em " + arquivo + "; os registros seguintes foram ignorados.");
+					finalIncompleto = true;
+					break;
+				}
+				tamanhoValido += 4 + tamanho + 8;
+				registros++;
+				aplicarRegistro(corpo, livros);
+			}
+		} catch (EOFException e) {
+			// Fim do arquivo (ou registro incompleto no fim)
+			finalIncompleto = tamanhoValido < arquivo.length();
+		} catch (IOException | ClassNotFoundException e) {
+			System.err.println("Erro ao carregar registros de livros: " + e.getMessage());
+		}
+
+		// Descarta um final incompleto, para que os próximos registros fiquem legíveis
+		if (finalIncompleto) {
+			truncar(tamanhoValido);
+		}
+
+		for (Livro livro : livros.values()) {
+			versoes.obter(livro.getIdAlta(), livro.getIdBaixa()).noArquivo = true;
+		}
+		livrosNoArquivo = livros.size();
+		registrosSuperados = registros - livrosNoArquivo;
+		return new ArrayList<>(livros.values());
+	}
+
+	/**
+	 * Reescreve o arquivo apenas com o registro válido de cada livro.
+	 * @return {@code true} se a compactação foi concluída.
+	 */
+	public synchronized boolean compactar() {
+		fecharSaida();
+		ArrayList<Livro> livros = carregarLivros();
+
+		// Versões de livros removidos não precisam mais ser lembradas
+		MapaIds<Versao> vigentes = new MapaIds<>();
+		File temporario = new File(arquivo.getPath() + ".tmp");
+		try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporario)))) {
+			dos.writeInt(ASSINATURA);
+			for (Livro livro : livros) {
+				Versao versao = versoes.obter(livro.getIdAlta(), livro.getIdBaixa());
+				escreverRegistro(dos, livro.getIdLivro(), versao.numero, livro);
+				vigentes.inserir(livro.getIdAlta(), livro.getIdBaixa(), versao);
+			}
+		} catch (IOException e) {
+			System.err.println("Erro ao compactar registros de livros: " + e.getMessage());
+			return false;
+		}
+
+		try {
+			Files.move(temporario.toPath(), arquivo.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			System.err.println("Erro ao substituir arquivo de registros: " + e.getMessage());
+			return false;
+		}
+		versoes = vigentes;
+		registrosSuperados = 0;
+		return true;
+	}
+
+	/**
+	 * Copia todo o acervo de outro armazenamento (ex.: o arquivo único antigo) como registros.
+	 * @param origem O {@link Armazenamento} de onde os livros são lidos.
+	 * @return A quantidade de livros importados, ou {@code -1} se a gravação falhar.
+	 */
+	public synchronized int importarDe(Armazenamento origem) {
+		ArrayList<Livro> livros = origem.carregarLivros();
+		for (Livro livro : livros) {
+			marcarAlterado(livro);
+		}
+		return salvarLivros(livros) ? livros.size() : -1;
+	}
+
+	/**
+	 * Fecha o arquivo aberto para acréscimos.
+	 */
+	@Override
+	public synchronized void fechar() {
+		fecharSaida();
+	}
+
+	// =========================================================================
+	// Métodos Auxiliares
+	// =========================================================================
+
+	/**
+	 * Grava um registro: tamanho, corpo (tipo, versão, ID e o livro serializado) e CRC32 do corpo.
+	 */
+	private static void escreverRegistro(DataOutputStream dos, String idLivro, long versao, Livro livro)
+			throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream corpo = new DataOutputStream(bytes)) {
+			corpo.writeByte(livro == null ? TIPO_REMOCAO : TIPO_LIVRO);
+			corpo.writeLong(versao);
+			corpo.writeUTF(idLivro);
+			if (livro != null) {
+				try (ObjectOutputStream oos = new ObjectOutputStream(corpo)) {
+					oos.writeObject(livro);
+				}
+			}
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(bytes.toByteArray());
+		dos.writeInt(bytes.size());
+		bytes.writeTo(dos);
+		dos.writeLong(crc.getValue());
+	}
+
+	private void aplicarRegistro(byte[] corpo, LinkedHashMap<String, Livro> livros)
+			throws IOException, ClassNotFoundException {
+		DataInputStream dis = new DataInputStream(new ByteArrayInputStream(corpo));
+		byte tipo = dis.readByte();
+		long versao = dis.readLong();
+		String idLivro = dis.readUTF();
+
+		// Registra um ID fora do formato UUID antes do livro, para que as metades sejam as dele
+		long[] metades = Identificador.compactar(idLivro);
+		Versao atual = versao(metades[0], metades[1]);
+		if (atual.numero >= versao) {
+			return; // Registro superado por outro já lido
+		}
+		atual.numero = versao;
+
+		if (tipo == TIPO_REMOCAO) {
+			livros.remove(idLivro);
+		} else {
+			try (ObjectInputStream ois = new ObjectInputStream(dis)) {
+				Livro livro = (Livro) ois.readObject();
+				// Um livro alterado mantém a sua posição; um livro novo (ou reincluído) vai para o fim
+				livros.put(idLivro, livro);
+			}
+		}
+	}
+
+	// A versão de um livro, criada (número 0, sem registro) na primeira vez
+	private Versao versao(long alta, long baixa) {
+		Versao versao = versoes.obter(alta, baixa);
+		if (versao == null) {
+			versao = new Versao();
+			versoes.inserir(alta, baixa, versao);
+		}
+		return versao;
+	}
+
+	private void truncar(long tamanho) {
+		try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.WRITE)) {
+			canal.truncate(tamanho);
+		} catch (IOException e) {
+			System.err.println("Erro ao descartar registro incompleto: " + e.getMessage());
+		}
+	}
+
+	private void fecharSaida() {
+		if (saida != null) {
+			try {
+				saida.close();
+			} catch (IOException e) {
+				System.err.println("Erro ao fechar arquivo de registros: " + e.getMessage());
+			}
+			saida = null;
+		}
+	}
+}
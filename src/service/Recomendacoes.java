@@ -0,0 +1,376 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import model.Identificador;
+
+/**
+ * Recomendações do tipo "quem pegou este livro também pegou".
+ * <p>
+ * Para cada par de livros emprestados pelo mesmo leitor, guarda quantos leitores pegaram os
+ * dois. As contagens são mantidas a cada empréstimo, sem recalcular nada: os IDs de livros e
+ * leitores viram códigos {@code int}, e as contagens de cada livro ficam num mapa de
+ * endereçamento aberto sobre {@code int[]}, sem {@link Integer} por entrada.
+ * </p>
+ * <p>
+ * Cada livro também guarda os seus {@code k} pares mais frequentes, em ordem. Como as
+ * contagens só crescem, basta comparar a contagem que acabou de subir com a menor da lista
+ * para mantê-la exata, e a consulta apenas copia essa lista.
+ * </p>
+ * <p>
+ * Um leitor conta uma única vez para cada livro, por mais vezes que o tenha pego. Um livro
+ * novo no histórico do leitor forma par apenas com os últimos {@link #JANELA_POR_LEITOR_PADRAO}
+ * livros distintos dele, o que limita o custo dos leitores mais assíduos.
+ * </p>
+ * <p>Os métodos são sincronizados.</p>
+ */
+final class Recomendacoes {
+
+	// Quantidade de sugestões mantidas para cada livro.
+	static final int SUGESTOES_POR_LIVRO_PADRAO = 10;
+
+	// Quantidade de livros recentes de um leitor com que um livro novo forma par.
+	static final int JANELA_POR_LEITOR_PADRAO = 200;
+
+	/**
+	 * Mapa de {@code int} para contagem, com endereçamento aberto e sondagem linear.
+	 * As chaves são guardadas somadas de 1, de modo que 0 marca posição livre.
+	 */
+	private static final class Contagens {
+		private int[] chaves;
+		private int[] valores;
+		private int tamanho;
+
+		Contagens(int capacidade) {
+			chaves = new int[capacidade];
+			valores = new int[capacidade];
+		}
+
+		/**
+		 * Soma 1 à contagem de uma chave.
+		 * @return A nova contagem.
+		 */
+		int incrementar(int chave) {
+			if ((tamanho + 1) * 4 > chaves.length * 3) {
+				redimensionar();
+			}
+			int i = posicao(chave);
+			if (chaves[i] == 0) {
+				chaves[i] = chave + 1;
+				tamanho++;
+			}
+			return ++valores[i];
+		}
+
+		boolean contem(int chave) {
+			return chaves[posicao(chave)] != 0;
+		}
+
+		/**
+		 * Retorna a posição da chave ou, se ela não estiver no mapa, a posição livre onde entraria.
+		 */
+		private int posicao(int chave) {
+			int mascara = chaves.length - 1;
+			int h = chave * 0x9E3779B9;
+			int i = (h ^ (h >>> 16)) & mascara;
+			while (chaves[i] != 0 && chaves[i] != chave + 1) {
+				i = (i + 1) & mascara;
+			}
+			return i;
+		}
+
+		private void redimensionar() {
+			int[] antigasChaves = chaves;
+			int[] antigosValores = valores;
+			chaves = new int[antigasChaves.length * 2];
+			valores = new int[antigasChaves.length * 2];
+			for (int j = 0; j < antigasChaves.length; j++) {
+				if (antigasChaves[j] != 0) {
+					int i = posicao(antigasChaves[j] - 1);
+					chaves[i] = antigasChaves[j];
+					valores[i] = antigosValores[j];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Dados de um livro: as contagens dos pares e os pares mais frequentes, em ordem decrescente.
+	 */
+	private static final class Item {
+		final Contagens pares = new Contagens(8);
+		final int[] melhores;
+		final int[] contagensMelhores;
+		int quantidadeMelhores;
+
+		Item(int k) {
+			melhores = new int[k];
+			contagensMelhores = new int[k];
+		}
+	}
+
+	/**
+	 * Livros distintos já emprestados a um leitor, na ordem do primeiro empréstimo.
+	 */
+	private static final class Leitura {
+		final Contagens vistos = new Contagens(8);
+		int[] livros = new int[8];
+		int quantidade;
+	}
+
+	/**
+	 * Atribui códigos sequenciais ({@code 0, 1, 2...}) a IDs, com endereçamento aberto sobre as
+	 * metades do ID ({@link Identificador}), sem guardar o texto de cada um.
+	 * A tabela guarda o código somado de 1, de modo que 0 marca posição livre.
+	 */
+	private static final class Codigos {
+		private int[] tabela = new int[16];
+		private long[] altas = new long[16];  // Indexado pelo código
+		private long[] baixas = new long[16]; // Indexado pelo código
+		private int quantidade;
+
+		/**
+		 * Retorna o código de um ID, ou {@code -1} se ele ainda não tiver código.
+		 */
+		int codigo(long alta, long baixa) {
+			return tabela[posicao(tabela, alta, baixa)] - 1;
+		}
+
+		/**
+		 * Retorna o código de um ID, criando um novo se for a primeira vez que ele aparece.
+		 */
+		int codigoOuNovo(long alta, long baixa) {
+			int i = posicao(tabela, alta, baixa);
+			if (tabela[i] != 0) {
+				return tabela[i] - 1;
+			}
+			int codigo = quantidade++;
+			if (codigo == altas.length) {
+				altas = Arrays.copyOf(altas, codigo * 2);
+				baixas = Arrays.copyOf(baixas, codigo * 2);
+			}
+			altas[codigo] = alta;
+			baixas[codigo] = baixa;
+			tabela[i] = codigo + 1;
+			if (quantidade * 4 > tabela.length * 3) {
+				redimensionar();
+			}
+			return codigo;
+		}
+
+		/**
+		 * Monta o texto do ID de um código.
+		 */
+		String id(int codigo) {
+			return Identificador.texto(altas[codigo], baixas[codigo]);
+		}
+
+		int quantidade() {
+			return quantidade;
+		}
+
+		private int posicao(int[] tabela, long alta, long baixa) {
+			int mascara = tabela.length - 1;
+			int i = Identificador.hash(alta, baixa) * 0x9E3779B9;
+			i = (i ^ (i >>> 16)) & mascara;
+			while (tabela[i] != 0 && (altas[tabela[i] - 1] != alta || baixas[tabela[i] - 1] != baixa)) {
+				i = (i + 1) & mascara;
+			}
+			return i;
+		}
+
+		private void redimensionar() {
+			int[] nova = new int[tabela.length * 2];
+			for (int codigo = 0; codigo < quantidade; codigo++) {
+				nova[posicao(nova, altas[codigo], baixas[codigo])] = codigo + 1;
+			}
+			tabela = nova;
+		}
+	}
+
+	private final int sugestoesPorLivro;
+	private final int janelaPorLeitor;
+
+	private final Codigos livros = new Codigos();
+	private final Codigos leitores = new Codigos();
+	private Item[] itens = new Item[16];         // Indexado pelo código do livro
+	private Leitura[] leituras = new Leitura[16]; // Indexado pelo código do leitor
+
+	private long pares; // Pares distintos (a, b) com contagem, contando (a, b) e (b, a)
+
+	/**
+	 * Construtor com os limites padrão.
+	 */
+	Recomendacoes() {
+		this(SUGESTOES_POR_LIVRO_PADRAO, JANELA_POR_LEITOR_PADRAO);
+	}
+
+	/**
+	 * Construtor completo.
+	 * @param sugestoesPorLivro Quantidade de sugestões mantidas para cada livro.
+	 * @param janelaPorLeitor Quantidade de livros recentes de um leitor com que um livro novo forma par.
+	 */
+	Recomendacoes(int sugestoesPorLivro, int janelaPorLeitor) {
+		if (sugestoesPorLivro < 1 || janelaPorLeitor < 1) {
+			throw new IllegalArgumentException("Limites das recomendações devem ser positivos");
+		}
+		this.sugestoesPorLivro = sugestoesPorLivro;
+		this.janelaPorLeitor = janelaPorLeitor;
+	}
+
+	/**
+	 * Registra um empréstimo a partir dos IDs textuais (ex.: os eventos do histórico), como
+	 * {@link #registrarEmprestimo(long, long, long, long)}.
+	 * @param idLivro O ID do livro.
+	 * @param idLeitor O ID do leitor.
+	 */
+	void registrarEmprestimo(String idLivro, String idLeitor) {
+		if (idLivro == null || idLeitor == null) {
+			return;
+		}
+		// Registra um ID fora do formato UUID, que pode aparecer antes de a entidade ser carregada
+		long[] livro = Identificador.compactar(idLivro);
+		long[] leitor = Identificador.compactar(idLeitor);
+		registrarEmprestimo(livro[0], livro[1], leitor[0], leitor[1]);
+	}
+
+	/**
+	 * Registra que um leitor pegou um livro emprestado, atualizando as contagens dos pares
+	 * que o livro forma com os livros recentes do leitor.
+	 * @param livroAlta A metade alta do ID do livro.
+	 * @param livroBaixa A metade baixa do ID do livro.
+	 * @param leitorAlta A metade alta do ID do leitor.
+	 * @param leitorBaixa A metade baixa do ID do leitor.
+	 */
+	synchronized void registrarEmprestimo(long livroAlta, long livroBaixa, long leitorAlta, long leitorBaixa) {
+		int livro = livros.codigoOuNovo(livroAlta, livroBaixa);
+		int leitor = leitores.codigoOuNovo(leitorAlta, leitorBaixa);
+		if (livro >= itens.length) {
+			itens = Arrays.copyOf(itens, itens.length * 2);
+		}
+		if (leitor >= leituras.length) {
+			leituras = Arrays.copyOf(leituras, leituras.length * 2);
+		}
+		if (itens[livro] == null) {
+			itens[livro] = new Item(sugestoesPorLivro);
+		}
+		Leitura leitura = leituras[leitor];
+		if (leitura == null) {
+			leitura = leituras[leitor] = new Leitura();
+		}
+		if (leitura.vistos.contem(livro)) {
+			return; // O leitor já contou para este livro
+		}
+		leitura.vistos.incrementar(livro);
+
+		for (int i = Math.max(0, leitura.quantidade - janelaPorLeitor); i < leitura.quantidade; i++) {
+			int outro = leitura.livros[i];
+			contar(livro, outro);
+			contar(outro, livro);
+		}
+		if (leitura.quantidade == leitura.livros.length) {
+			leitura.livros = Arrays.copyOf(leitura.livros, leitura.quantidade * 2);
+		}
+		leitura.livros[leitura.quantidade++] = livro;
+	}
+
+	/**
+	 * Retorna os livros mais pegos pelos leitores que pegaram um livro.
+	 * @param idLivro O ID do livro.
+	 * @param n A quantidade máxima de sugestões (limitada às sugestões mantidas por livro).
+	 * @return Os IDs sugeridos, do mais ao menos frequente (vazia se o livro nunca formou par).
+	 */
+	synchronized List<String> sugestoes(String idLivro, int n) {
+		long alta = Identificador.alta(idLivro);
+		int livro = livros.codigo(alta, Identificador.baixa(idLivro, alta));
+		Item item = (livro >= 0) ? itens[livro] : null;
+		if (item == null || item.quantidadeMelhores == 0 || n <= 0) {
+			return Collections.emptyList();
+		}
+		int quantidade = Math.min(n, item.quantidadeMelhores);
+		List<String> resultado = new ArrayList<>(quantidade);
+		for (int i = 0; i < quantidade; i++) {
+			resultado.add(livros.id(item.melhores[i]));
+		}
+		return resultado;
+	}
+
+	/**
+	 * Retorna quantos leitores pegaram os dois livros.
+	 * @param idLivro O ID de um livro.
+	 * @param idOutro O ID do outro livro.
+	 * @return A quantidade de leitores em comum (0 se nenhum).
+	 */
+	synchronized int leitoresEmComum(String idLivro, String idOutro) {
+		long alta = Identificador.alta(idLivro);
+		long altaOutro = Identificador.alta(idOutro);
+		int livro = livros.codigo(alta, Identificador.baixa(idLivro, alta));
+		int outro = livros.codigo(altaOutro, Identificador.baixa(idOutro, altaOutro));
+		if (livro < 0 || outro < 0 || itens[livro] == null) {
+			return 0;
+		}
+		Contagens pares = itens[livro].pares;
+		int i = pares.posicao(outro);
+		return (pares.chaves[i] != 0) ? pares.valores[i] : 0;
+	}
+
+	/**
+	 * Retorna quantos livros já foram emprestados ao menos uma vez.
+	 * @return A quantidade de livros conhecidos.
+	 */
+	synchronized int quantidadeLivros() {
+		return livros.quantidade();
+	}
+
+	/**
+	 * Retorna quantos pares de livros têm contagem.
+	 * @return A quantidade de pares, contando cada sentido uma vez.
+	 */
+	synchronized long quantidadePares() {
+		return pares;
+	}
+
+	// =========================================================================
+	// Métodos Auxiliares
+	// =========================================================================
+
+	/**
+	 * Soma 1 ao par (livro, outro) e atualiza os mais frequentes do livro.
+	 */
+	private void contar(int livro, int outro) {
+		Item item = itens[livro];
+		int antes = item.pares.tamanho;
+		int contagem = item.pares.incrementar(outro);
+		pares += item.pares.tamanho - antes;
+
+		int[] melhores = item.melhores;
+		int[] contagens = item.contagensMelhores;
+		int posicao = -1;
+		for (int i = 0; i < item.quantidadeMelhores; i++) {
+			if (melhores[i] == outro) {
+				posicao = i;
+				break;
+			}
+		}
+		if (posicao < 0) {
+			if (item.quantidadeMelhores < melhores.length) {
+				posicao = item.quantidadeMelhores++;
+			} else if (contagem > contagens[melhores.length - 1]) {
+				posicao = melhores.length - 1; // Substitui o menos frequente
+			} else {
+				return;
+			}
+		}
+		// A contagem só cresce: o par sobe até a posição certa
+		while (posicao > 0 && contagens[posicao - 1] < contagem) {
+			melhores[posicao] = melhores[posicao - 1];
+			contagens[posicao] = contagens[posicao - 1];
+			posicao--;
+		}
+		melhores[posicao] = outro;
+		contagens[posicao] = contagem;
+	}
+}
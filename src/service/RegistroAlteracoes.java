@@ -0,0 +1,164 @@
+package service;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import model.Livro;
+
+/**
+ * Registro das alterações do acervo, usado para manter réplicas em outros campi.
+ * <p>
+ * Cada inclusão, alteração ou remoção de um livro recebe um número de sequência crescente.
+ * Só a alteração mais recente de cada livro é guardada: quem pede as alterações desde uma
+ * sequência recebe o estado atual de cada livro alterado depois dela, e não cada passo
+ * intermediário. Assim o registro nunca passa do tamanho do acervo (mais as remoções).
+ * </p>
+ * <p>
+ * O registro vive em memória. Cada instância tem uma origem aleatória; uma réplica que
+ * encontra uma origem diferente (o campus foi reiniciado) recomeça do zero.
+ * </p>
+ */
+public class RegistroAlteracoes {
+
+	/**
+	 * Uma alteração: o estado de um livro numa sequência ({@code livro == null} indica remoção).
+	 */
+	public static final class Alteracao implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final long sequencia;
+		private final String idLivro;
+		private final Livro livro;
+
+		/**
+		 * Construtor completo.
+		 * @param sequencia O número de sequência da alteração.
+		 * @param idLivro O ID do livro alterado.
+		 * @param livro Uma cópia do livro, ou {@code null} se ele foi removido.
+		 */
+		public Alteracao(long sequencia, String idLivro, Livro livro) {
+			this.sequencia = sequencia;
+			this.idLivro = idLivro;
+			this.livro = livro;
+		}
+
+		/** @return O número de sequência da alteração. */
+		public long getSequencia() {
+			return sequencia;
+		}
+
+		/** @return O ID do livro alterado. */
+		public String getIdLivro() {
+			return idLivro;
+		}
+
+		/** @return Uma cópia do livro, ou {@code null} se ele foi removido. */
+		public Livro getLivro() {
+			return livro;
+		}
+
+		/** @return {@code true} se a alteração é uma remoção. */
+		public boolean isRemocao() {
+			return livro == null;
+		}
+	}
+
+	/**
+	 * Lote de alterações entregue a uma réplica.
+	 */
+	public static final class Lote implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final String origem;
+		private final long ultimaSequencia;
+		private final ArrayList<Alteracao> alteracoes;
+
+		/**
+		 * Construtor completo.
+		 * @param origem O identificador da instância que gerou o lote.
+		 * @param ultimaSequencia A maior sequência já registrada na origem.
+		 * @param alteracoes As alterações do lote, em ordem de sequência.
+		 */
+		public Lote(String origem, long ultimaSequencia, ArrayList<Alteracao> alteracoes) {
+			this.origem = origem;
+			this.ultimaSequencia = ultimaSequencia;
+			this.alteracoes = alteracoes;
+		}
+
+		/** @return O identificador da instância que gerou o lote. */
+		public String getOrigem() {
+			return origem;
+		}
+
+		/** @return A maior sequência já registrada na origem. */
+		public long getUltimaSequencia() {
+			return ultimaSequencia;
+		}
+
+		/** @return As alterações do lote, em ordem de sequência. */
+		public List<Alteracao> getAlteracoes() {
+			return alteracoes;
+		}
+	}
+
+	private final String origem = UUID.randomUUID().toString();
+	private long sequencia;
+
+	// Sequência mais recente de cada livro e o caminho inverso, ordenado por sequência
+	private final Map<String, Long> ultimaPorLivro = new HashMap<>();
+	private final TreeMap<Long, String> livroPorSequencia = new TreeMap<>();
+
+	/**
+	 * Registra que um livro foi incluído, alterado ou removido.
+	 * @param idLivro O ID do livro.
+	 * @return A sequência atribuída à alteração.
+	 */
+	public synchronized long registrar(String idLivro) {
+		Long anterior = ultimaPorLivro.put(idLivro, ++sequencia);
+		if (anterior != null) {
+			livroPorSequencia.remove(anterior);
+		}
+		livroPorSequencia.put(sequencia, idLivro);
+		return sequencia;
+	}
+
+	/**
+	 * Retorna, em ordem, os livros alterados depois de uma sequência e a sequência de cada um.
+	 * @param desde A última sequência já conhecida ({@code 0} para todas).
+	 * @return Um mapa ordenado de sequência para ID do livro.
+	 */
+	public synchronized TreeMap<Long, String> alteradosDesde(long desde) {
+		return new TreeMap<>(livroPorSequencia.tailMap(desde, false));
+	}
+
+	/**
+	 * Retorna a maior sequência registrada.
+	 * @return A última sequência ({@code 0} se nada foi registrado).
+	 */
+	public synchronized long getUltimaSequencia() {
+		return sequencia;
+	}
+
+	/**
+	 * Retorna o identificador desta instância do registro.
+	 * @return A origem, diferente a cada execução.
+	 */
+	public String getOrigem() {
+		return origem;
+	}
+
+	/**
+	 * Monta um lote a partir das alterações já resolvidas (com as cópias dos livros).
+	 * @param alteracoes As alterações, em ordem de sequência.
+	 * @param ultimaSequencia A maior sequência considerada.
+	 * @return O {@link Lote} desta origem.
+	 */
+	public Lote criarLote(ArrayList<Alteracao> alteracoes, long ultimaSequencia) {
+		return new Lote(origem, ultimaSequencia, alteracoes);
+	}
+}
@@ -0,0 +1,141 @@
+package service;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import model.Autor;
+import model.Leitor;
+import model.Livro;
+
+/**
+ * Medição dos bytes alocados por operação nos caminhos de consulta e de exibição.
+ * <p>
+ * Gera um acervo com o {@link GeradorAcervo}, aquece cada operação (para o JIT compilar e
+ * eliminar o que puder) e mede, pelo {@code ThreadMXBean} da JVM, quantos bytes a thread
+ * alocou em várias rodadas. Conta a melhor rodada, que representa o regime permanente.
+ * </p>
+ * <p>
+ * As variantes com lista ou {@link StringBuilder} do chamador (e as buscas por ID e por
+ * título, com o livro no cache) devem alocar zero bytes por operação; o teste termina com
+ * código 1 se alguma alocar. As variantes que devolvem objetos novos aparecem só para comparação.
+ * </p>
+ * <p>Uso: {@code java service.TesteAlocacao [livros] [operações por rodada]}</p>
+ */
+public class TesteAlocacao {
+
+	private static final int RODADAS = 7;
+
+	// Recebe os resultados das operações, para que o JIT não as descarte
+	private static volatile int descarte;
+
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	/**
+	 * Uma operação medida; recebe o número da repetição e devolve algo derivado do resultado,
+	 * para o JIT não descartar a chamada.
+	 */
+	private interface Operacao {
+		int executar(int repeticao);
+	}
+
+	public static void main(String[] args) throws Exception {
+		int numLivros = (args.length > 0) ? Integer.parseInt(args[0]) : 5_000;
+		int repeticoes = (args.length > 1) ? Integer.parseInt(args[1]) : 20_000;
+		if (!THREADS.isThreadAllocatedMemorySupported()) {
+			System.out.println("Esta JVM não mede a alocação por thread.");
+			return;
+		}
+		THREADS.setThreadAllocatedMemoryEnabled(true);
+
+		File diretorio = Files.createTempDirectory("biblioteca-alocacao").toFile();
+		GerenciadorBiblioteca gerenciador = new GerenciadorBiblioteca(diretorio);
+		GeradorAcervo gerador = new GeradorAcervo(7);
+		List<String> idsLivros = gerador.popularLivros(gerenciador, numLivros);
+		List<Leitor> leitores = gerador.popularLeitores(gerenciador, 10);
+
+		// Um leitor com alguns livros, e um livro de vários exemplares com um deles emprestado
+		Leitor leitor = leitores.get(0);
+		gerenciador.adiarGravacao();
+		for (int i = 0; i < 5; i++) {
+			gerenciador.emprestarLivro(idsLivros.get(i * 7), leitor);
+		}
+		gerenciador.concluirGravacao();
+		Livro emprestado = gerenciador.buscarLivroPorID(idsLivros.get(0));
+		Livro disponivel = gerenciador.buscarLivroPorID(idsLivros.get(1));
+		Autor autor = emprestado.getAutor();
+		String[] ids = idsLivros.subList(0, 64).toArray(new String[0]);
+		String titulo = disponivel.getTitulo().toLowerCase(Locale.ROOT);
+
+		List<Livro> lista = new ArrayList<>(numLivros);
+		StringBuilder texto = new StringBuilder(1024);
+
+		System.out.printf("%d livros, %d operações por rodada, melhor de %d rodadas%n%n", numLivros, repeticoes, RODADAS);
+		System.out.printf("%-40s %12s%n", "operação", "bytes/op");
+		boolean ok = true;
+		ok &= medir("buscarLivroPorID", repeticoes, true,
+				i -> gerenciador.buscarLivroPorID(ids[i & 63]).getNumPags());
+		ok &= medir("exibeLivro (título no cache)", repeticoes, true,
+				i -> gerenciador.exibeLivro(titulo).getNumPags());
+		ok &= medir("listLivrosPorAutor(autor, lista)", repeticoes, true, i -> {
+			lista.clear();
+			return gerenciador.listLivrosPorAutor(autor, lista);
+		});
+		ok &= medir("listLivrosEmprestadosPara(leitor, lista)", Math.max(1, repeticoes / 100), true, i -> {
+			lista.clear();
+			return gerenciador.listLivrosEmprestadosPara(leitor, lista);
+		});
+		ok &= medir("exibeInformacoes(texto) disponível", repeticoes, true, i -> {
+			texto.setLength(0);
+			return disponivel.exibeInformacoes(texto).length();
+		});
+		ok &= medir("exibeInformacoes(texto) emprestado", repeticoes, true, i -> {
+			texto.setLength(0);
+			return emprestado.exibeInformacoes(texto).length();
+		});
+
+		System.out.println("\nVariantes que devolvem objetos novos (comparação):");
+		medir("listLivrosPorAutor(autor)", repeticoes, false,
+				i -> gerenciador.listLivrosPorAutor(autor).size());
+		medir("listLivrosEmprestadosPara(leitor)", Math.max(1, repeticoes / 100), false,
+				i -> gerenciador.listLivrosEmprestadosPara(leitor).size());
+		medir("exibeInformacoes() disponível", repeticoes, false, i -> disponivel.exibeInformacoes().length());
+		medir("exibeInformacoes() emprestado", repeticoes, false, i -> emprestado.exibeInformacoes().length());
+
+		gerenciador.encerrar();
+		System.out.println(ok ? "\nOK: nenhuma alocação nos caminhos sem alocação." : "\nFALHOU: houve alocação num caminho sem alocação.");
+		if (!ok) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Aquece a operação e mede os bytes alocados por execução na melhor rodada.
+	 * @return {@code false} se a operação deveria alocar zero bytes e alocou.
+	 */
+	private static boolean medir(String nome, int repeticoes, boolean semAlocacao, Operacao operacao) {
+		int verificacao = 0;
+		for (int r = 0; r < 3; r++) {
+			for (int i = 0; i < repeticoes; i++) {
+				verificacao += operacao.executar(i);
+			}
+		}
+		long melhor = Long.MAX_VALUE;
+		for (int r = 0; r < RODADAS && melhor > 0; r++) {
+			long antes = THREADS.getCurrentThreadAllocatedBytes();
+			for (int i = 0; i < repeticoes; i++) {
+				verificacao += operacao.executar(i);
+			}
+			melhor = Math.min(melhor, THREADS.getCurrentThreadAllocatedBytes() - antes);
+		}
+		double porOperacao = (double) melhor / repeticoes;
+		boolean ok = !semAlocacao || melhor == 0;
+		descarte = verificacao;
+		System.out.printf("%-40s %12.1f%s%n", nome, porOperacao, ok ? "" : "  <- deveria ser 0");
+		return ok;
+	}
+}
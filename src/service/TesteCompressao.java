@@ -0,0 +1,110 @@
+package service;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import model.Autor;
+import model.Leitor;
+import model.Livro;
+
+/**
+ * Comparação de tamanho e tempo entre o arquivo único sem compressão e os retratos em blocos
+ * comprimidos de cada {@link Codec.Padrao}.
+ * <p>
+ * Gera um acervo sintético (autores, nacionalidades e leitores repetidos, como num acervo
+ * real), grava-o com a {@link Persistencia} em cada formato e mede o tamanho do arquivo, o
+ * tempo de gravação e o melhor tempo de carga em algumas repetições. A carga é conferida
+ * contra o acervo original.
+ * </p>
+ * <p>Uso: {@code java service.TesteCompressao [livros] [repetições]}</p>
+ */
+public class TesteCompressao {
+
+	private static final String[] NACIONALIDADES = { "Brasileira", "Portuguesa", "Argentina", "Francesa", "Inglesa" };
+
+	public static void main(String[] args) throws Exception {
+		int numLivros = (args.length > 0) ? Integer.parseInt(args[0]) : 50_000;
+		int repeticoes = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+
+		Random aleatorio = new Random(42);
+		List<Autor> autores = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			autores.add(new Autor("Autor " + i, NACIONALIDADES[i % NACIONALIDADES.length]));
+		}
+		List<Leitor> leitores = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			leitores.add(new Leitor("Leitor " + i, "(77) 9" + (10000000 + i), "leitor" + i + "@uesb.br"));
+		}
+		ArrayList<Livro> acervo = new ArrayList<>(numLivros);
+		for (int i = 0; i < numLivros; i++) {
+			Livro livro = new Livro("Título " + i + " sobre o assunto " + aleatorio.nextInt(1000),
+					autores.get(aleatorio.nextInt(autores.size())), 50 + aleatorio.nextInt(900),
+					1900 + aleatorio.nextInt(125), 10 + aleatorio.nextInt(200), 1 + aleatorio.nextInt(3));
+			if (aleatorio.nextInt(4) == 0) {
+				livro.setEmprestimoExemplar(0, leitores.get(aleatorio.nextInt(leitores.size())),
+						System.currentTimeMillis() + aleatorio.nextInt(30) * 86_400_000L);
+			}
+			acervo.add(livro);
+		}
+
+		File diretorio = Files.createTempDirectory("biblioteca-compressao").toFile();
+		System.out.printf("%d livros, melhor carga de %d repetições, em %s%n%n", numLivros, repeticoes, diretorio);
+		System.out.printf("%-10s %12s %8s %12s %12s%n", "formato", "tamanho", "razão", "gravação", "carga");
+
+		long tamanhoOriginal = 0;
+		List<Codec> formatos = new ArrayList<>();
+		formatos.add(null);
+		formatos.addAll(List.of(Codec.Padrao.values()));
+		for (Codec codec : formatos) {
+			String nome = (codec == null) ? "original" : codec.getNome();
+			File arquivo = new File(diretorio, "acervo-" + nome + ".dat");
+			Persistencia persistencia = new Persistencia(arquivo, codec);
+
+			long inicio = System.nanoTime();
+			if (!persistencia.salvarLivros(acervo)) {
+				System.out.println(nome + ": falha na gravação");
+				continue;
+			}
+			long gravacao = System.nanoTime() - inicio;
+
+			long melhorCarga = Long.MAX_VALUE;
+			int carregados = 0;
+			for (int r = 0; r < repeticoes; r++) {
+				inicio = System.nanoTime();
+				ArrayList<Livro> lidos = persistencia.carregarLivros();
+				melhorCarga = Math.min(melhorCarga, System.nanoTime() - inicio);
+				carregados = conferir(acervo, lidos) ? lidos.size() : -1;
+			}
+			if (codec == null) {
+				tamanhoOriginal = arquivo.length();
+			}
+			System.out.printf("%-10s %9d KiB %7.1fx %9.1f ms %9.1f ms%s%n", nome, arquivo.length() / 1024,
+					(double) tamanhoOriginal / arquivo.length(), gravacao / 1e6, melhorCarga / 1e6,
+					(carregados == numLivros) ? "" : "  (carga NÃO confere)");
+			arquivo.delete();
+		}
+		diretorio.delete();
+	}
+
+	/**
+	 * Confere se a lista carregada tem os mesmos livros, na mesma ordem e com o mesmo estado de empréstimo.
+	 */
+	private static boolean conferir(List<Livro> esperados, List<Livro> lidos) {
+		if (lidos.size() != esperados.size()) {
+			return false;
+		}
+		for (int i = 0; i < lidos.size(); i++) {
+			Livro esperado = esperados.get(i);
+			Livro lido = lidos.get(i);
+			if (!lido.getIdLivro().equals(esperado.getIdLivro()) || !lido.getTitulo().equals(esperado.getTitulo())
+					|| lido.getExemplaresDisponiveis() != esperado.getExemplaresDisponiveis()
+					|| !lido.getAutor().getNome().equals(esperado.getAutor().getNome())) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,320 @@
+package service;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+import model.Leitor;
+import model.Livro;
+
+/**
+ * Teste de carga prolongado (soak) do {@link GerenciadorBiblioteca}, sem a API HTTP.
+ * <p>
+ * Gera um acervo com o {@link GeradorAcervo} e dispara threads que misturam consultas por
+ * ID, buscas por título, empréstimos, devoluções e edições numa taxa alvo. Os livros são
+ * escolhidos pela popularidade de Zipf do gerador. Cada operação tem um horário previsto
+ * pela taxa, e a latência é medida a partir dele: se o sistema atrasar, a espera acumulada
+ * entra na latência em vez de simplesmente reduzir a carga.
+ * </p>
+ * <p>
+ * A cada intervalo é exibida uma linha com a vazão, os percentis de latência do intervalo,
+ * as coletas de lixo e a memória usada; no fim, o resumo de cada operação e de cada coletor.
+ * A gravação do acervo fica adiada e é feita uma vez por intervalo (a não ser com
+ * {@code sempre}, em que cada alteração grava o acervo, como no uso interativo).
+ * </p>
+ * <p>Uso: {@code java service.TesteSoak [threads] [ops/s (0 = sem limite)] [segundos] [livros]
+ * [leitores] [intervalo em s] [sempre]}</p>
+ */
+public class TesteSoak {
+
+	private static final String[] OPERACOES = { "consulta", "busca", "emprestimo", "devolucao", "edicao" };
+
+	// Mistura acumulada, em %: 60% consultas, 15% buscas, 11% empréstimos, 10% devoluções, 4% edições
+	private static final int[] MISTURA = { 60, 75, 86, 96, 100 };
+
+	private static final long SEMENTE = 2024;
+
+	/**
+	 * Histograma de latências (em microssegundos) com baldes log-lineares: 16 baldes por
+	 * potência de 2, ou seja, erro relativo de até 1/16, em memória constante.
+	 */
+	private static final class Histograma {
+		private static final int SUB_BALDES = 16;
+		private final long[] contagens = new long[64 * SUB_BALDES];
+		private long quantidade;
+		private long maximo;
+
+		void registrar(long micros) {
+			contagens[balde(Math.max(0, micros))]++;
+			quantidade++;
+			maximo = Math.max(maximo, micros);
+		}
+
+		void somar(Histograma outro) {
+			for (int i = 0; i < contagens.length; i++) {
+				contagens[i] += outro.contagens[i];
+			}
+			quantidade += outro.quantidade;
+			maximo = Math.max(maximo, outro.maximo);
+		}
+
+		long percentil(double fracao) {
+			long alvo = (long) Math.ceil(quantidade * fracao);
+			long acumulado = 0;
+			for (int i = 0; i < contagens.length; i++) {
+				acumulado += contagens[i];
+				if (acumulado >= alvo && acumulado > 0) {
+					return Math.min(maximo, limiteSuperior(i));
+				}
+			}
+			return maximo;
+		}
+
+		private static int balde(long valor) {
+			if (valor < SUB_BALDES) {
+				return (int) valor;
+			}
+			int expoente = 63 - Long.numberOfLeadingZeros(valor); // >= 4
+			int sub = (int) (valor >>> (expoente - 4)) & (SUB_BALDES - 1);
+			return (expoente - 3) * SUB_BALDES + sub;
+		}
+
+		private static long limiteSuperior(int balde) {
+			if (balde < SUB_BALDES) {
+				return balde;
+			}
+			int expoente = balde / SUB_BALDES + 3;
+			long base = (SUB_BALDES + balde % SUB_BALDES) << (expoente - 4);
+			return base + (1L << (expoente - 4)) - 1;
+		}
+	}
+
+	/**
+	 * Medidas de uma thread: um histograma por operação no intervalo corrente e no total.
+	 * O relatório troca os do intervalo sob a trava da própria thread, que nunca é disputada no resto do tempo.
+	 */
+	private static final class Medidas {
+		Histograma[] intervalo = novos();
+		final Histograma[] total = novos();
+		final long[] falhas = new long[OPERACOES.length];
+
+		synchronized void registrar(int operacao, long micros, boolean sucesso) {
+			intervalo[operacao].registrar(micros);
+			if (!sucesso) falhas[operacao]++;
+		}
+
+		synchronized Histograma[] trocarIntervalo() {
+			Histograma[] anterior = intervalo;
+			intervalo = novos();
+			for (int i = 0; i < OPERACOES.length; i++) {
+				total[i].somar(anterior[i]);
+			}
+			return anterior;
+		}
+
+		private static Histograma[] novos() {
+			Histograma[] histogramas = new Histograma[OPERACOES.length];
+			for (int i = 0; i < histogramas.length; i++) histogramas[i] = new Histograma();
+			return histogramas;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		int threads = (args.length > 0) ? Integer.parseInt(args[0]) : 8;
+		double taxa = (args.length > 1) ? Double.parseDouble(args[1]) : 2000;
+		int segundos = (args.length > 2) ? Integer.parseInt(args[2]) : 60;
+		int numLivros = (args.length > 3) ? Integer.parseInt(args[3]) : 20_000;
+		int numLeitores = (args.length > 4) ? Integer.parseInt(args[4]) : 2_000;
+		int intervaloRelatorio = (args.length > 5) ? Integer.parseInt(args[5]) : 10;
+		boolean gravarSempre = args.length > 6 && args[6].equals("sempre");
+
+		File diretorio = Files.createTempDirectory("biblioteca-soak").toFile();
+		GerenciadorBiblioteca gerenciador = new GerenciadorBiblioteca(diretorio);
+		System.out.println("Gerando acervo de " + numLivros + " livros e " + numLeitores + " leitores em " + diretorio + "...");
+		long inicioGeracao = System.nanoTime();
+		GeradorAcervo gerador = new GeradorAcervo(SEMENTE);
+		List<String> idsLivros = gerador.popularLivros(gerenciador, numLivros);
+		List<Leitor> leitores = gerador.popularLeitores(gerenciador, numLeitores);
+		System.out.printf("Acervo gerado em %.1f s.%n", (System.nanoTime() - inicioGeracao) / 1e9);
+
+		GeradorAcervo.Zipf popularidade = new GeradorAcervo.Zipf(idsLivros.size(), 1.0);
+		long intervaloNanos = (taxa > 0) ? (long) (threads * 1e9 / taxa) : 0;
+		System.out.printf("%d threads, %s, %d s, relatório a cada %d s, gravação %s%n%n", threads,
+				(taxa > 0) ? String.format("%.0f ops/s", taxa) : "sem limite de taxa", segundos, intervaloRelatorio,
+				gravarSempre ? "a cada alteração" : "a cada relatório");
+		System.out.printf("%6s %9s %9s %9s %9s %9s %6s %8s %9s %9s%n", "t(s)", "ops/s", "p50 us", "p99 us", "p99.9 us",
+				"max us", "GCs", "GC ms", "heap MiB", "grav ms");
+
+		if (!gravarSempre) {
+			gerenciador.adiarGravacao();
+		}
+		Medidas[] medidas = new Medidas[threads];
+		Thread[] trabalhadores = new Thread[threads];
+		long inicio = System.nanoTime();
+		long fim = inicio + segundos * 1_000_000_000L;
+		for (int t = 0; t < threads; t++) {
+			Medidas minhas = medidas[t] = new Medidas();
+			Random aleatorio = new Random(SEMENTE + t + 1);
+			long defasagem = (intervaloNanos > 0) ? intervaloNanos * t / threads : 0;
+			trabalhadores[t] = new Thread(() -> executar(gerenciador, idsLivros, leitores, popularidade, aleatorio,
+					minhas, inicio + defasagem, intervaloNanos, fim), "soak-" + t);
+			trabalhadores[t].start();
+		}
+
+		// Relatórios periódicos
+		List<GarbageCollectorMXBean> coletores = ManagementFactory.getGarbageCollectorMXBeans();
+		MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+		long[] gcInicial = totaisGc(coletores);
+		long[] gcAnterior = gcInicial;
+		long anterior = inicio;
+		long totalGravacao = 0;
+		while (anterior < fim) {
+			long proximo = Math.min(fim, anterior + intervaloRelatorio * 1_000_000_000L);
+			while (System.nanoTime() < proximo) {
+				Thread.sleep(Math.max(1, (proximo - System.nanoTime()) / 1_000_000));
+			}
+			long gravacao = 0;
+			if (!gravarSempre) {
+				long inicioGravacao = System.nanoTime();
+				gerenciador.concluirGravacao();
+				gravacao = System.nanoTime() - inicioGravacao;
+				totalGravacao += gravacao;
+				gerenciador.adiarGravacao();
+			}
+
+			Histograma intervalo = new Histograma();
+			for (Medidas m : medidas) {
+				for (Histograma h : m.trocarIntervalo()) intervalo.somar(h);
+			}
+			long agora = System.nanoTime();
+			long[] gc = totaisGc(coletores);
+			System.out.printf("%6.0f %9.0f %9d %9d %9d %9d %6d %8d %9d %9.1f%n", (agora - inicio) / 1e9,
+					intervalo.quantidade / ((agora - anterior) / 1e9), intervalo.percentil(0.50), intervalo.percentil(0.99),
+					intervalo.percentil(0.999), intervalo.maximo, gc[0] - gcAnterior[0], gc[1] - gcAnterior[1],
+					memoria.getHeapMemoryUsage().getUsed() / (1024 * 1024), gravacao / 1e6);
+			gcAnterior = gc;
+			anterior = agora;
+		}
+		for (Thread trabalhador : trabalhadores) {
+			trabalhador.join();
+		}
+		if (!gravarSempre) {
+			gerenciador.concluirGravacao();
+		}
+		double duracao = (System.nanoTime() - inicio) / 1e9;
+
+		System.out.println("\n===== Resultado do Teste Prolongado =====");
+		Histograma geral = new Histograma();
+		for (int op = 0; op < OPERACOES.length; op++) {
+			Histograma porOperacao = new Histograma();
+			long falhas = 0;
+			for (Medidas m : medidas) {
+				m.trocarIntervalo();
+				porOperacao.somar(m.total[op]);
+				falhas += m.falhas[op];
+			}
+			geral.somar(porOperacao);
+			System.out.printf("%-11s %9d ops %9.1f ops/s  p50=%6d us  p99=%7d us  p99.9=%7d us  max=%8d us  recusadas=%d%n",
+					OPERACOES[op], porOperacao.quantidade, porOperacao.quantidade / duracao, porOperacao.percentil(0.50),
+					porOperacao.percentil(0.99), porOperacao.percentil(0.999), porOperacao.maximo, falhas);
+		}
+		System.out.printf("%-11s %9d ops %9.1f ops/s  p50=%6d us  p99=%7d us  p99.9=%7d us  max=%8d us%n", "total",
+				geral.quantidade, geral.quantidade / duracao, geral.percentil(0.50), geral.percentil(0.99),
+				geral.percentil(0.999), geral.maximo);
+		long[] gcFinal = totaisGc(coletores);
+		System.out.printf("GC: %d coletas, %d ms (%.2f%% do tempo)%n", gcFinal[0] - gcInicial[0], gcFinal[1] - gcInicial[1],
+				(gcFinal[1] - gcInicial[1]) / (duracao * 10));
+		for (GarbageCollectorMXBean coletor : coletores) {
+			System.out.printf("  %-24s %6d coletas %8d ms (desde o início da JVM)%n", coletor.getName(),
+					coletor.getCollectionCount(), coletor.getCollectionTime());
+		}
+		if (!gravarSempre) {
+			System.out.printf("Gravações periódicas: %.1f ms no total%n", totalGravacao / 1e6);
+		}
+		gerenciador.encerrar();
+	}
+
+	/**
+	 * Laço de uma thread: espera o horário previsto de cada operação, sorteia e executa a operação.
+	 */
+	private static void executar(GerenciadorBiblioteca gerenciador, List<String> idsLivros, List<Leitor> leitores,
+			GeradorAcervo.Zipf popularidade, Random aleatorio, Medidas medidas, long primeira, long intervaloNanos, long fim) {
+		// Empréstimos feitos por esta thread, devolvidos na ordem em que foram feitos
+		ArrayDeque<String> livrosEmprestados = new ArrayDeque<>();
+		ArrayDeque<Leitor> leitoresEmprestimo = new ArrayDeque<>();
+		long previsto = primeira;
+		while (true) {
+			if (intervaloNanos > 0) {
+				long espera = previsto - System.nanoTime();
+				if (espera > 0) {
+					LockSupport.parkNanos(espera);
+				}
+			} else {
+				previsto = System.nanoTime();
+			}
+			if (previsto >= fim) {
+				return;
+			}
+
+			int sorteio = aleatorio.nextInt(100);
+			int operacao = 0;
+			while (sorteio >= MISTURA[operacao]) operacao++;
+			String idLivro = idsLivros.get(popularidade.sortear(aleatorio));
+			boolean sucesso;
+			switch (operacao) {
+				case 0:
+					sucesso = gerenciador.buscarLivroPorID(idLivro) != null;
+					break;
+				case 1: {
+					Livro livro = gerenciador.buscarLivroPorID(idLivro);
+					String titulo = (livro != null) ? livro.getTitulo() : "";
+					sucesso = !gerenciador.listLivrosPorPrefixoTitulo(titulo.substring(0, Math.min(8, titulo.length())), 20).isEmpty();
+					break;
+				}
+				case 2: {
+					Leitor leitor = leitores.get(aleatorio.nextInt(leitores.size()));
+					sucesso = gerenciador.emprestarLivro(idLivro, leitor);
+					if (sucesso) {
+						livrosEmprestados.add(idLivro);
+						leitoresEmprestimo.add(leitor);
+					}
+					break;
+				}
+				case 3: {
+					String emprestado = livrosEmprestados.poll();
+					sucesso = emprestado != null && gerenciador.devolverLivro(emprestado, leitoresEmprestimo.poll());
+					break;
+				}
+				default: {
+					Livro livro = gerenciador.buscarLivroPorID(idLivro);
+					sucesso = livro != null && gerenciador.editLivro(idLivro, livro.getTitulo(), livro.getAutor(),
+							livro.getNumPags(), livro.getAnoPub(), Math.round(livro.getPreco() * 101) / 100.0,
+							livro.getLeitorExemplar(0));
+					break;
+				}
+			}
+			medidas.registrar(operacao, (System.nanoTime() - previsto) / 1000, sucesso);
+			previsto += intervaloNanos;
+		}
+	}
+
+	/**
+	 * Soma as coletas e o tempo de coleta de todos os coletores.
+	 * @return {quantidade de coletas, tempo em ms}.
+	 */
+	private static long[] totaisGc(List<GarbageCollectorMXBean> coletores) {
+		long[] totais = new long[2];
+		for (GarbageCollectorMXBean coletor : coletores) {
+			totais[0] += Math.max(0, coletor.getCollectionCount());
+			totais[1] += Math.max(0, coletor.getCollectionTime());
+		}
+		return totais;
+	}
+}
@@ -0,0 +1,166 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import model.Autor;
+import model.Livro;
+
+/**
+ * Grupo de alterações do acervo (edições, inclusões e remoções) confirmadas de uma só vez.
+ * <p>
+ * As operações apenas são anotadas até {@link #confirmar()}. Na confirmação, o
+ * {@link GerenciadorBiblioteca} confere todas antes de alterar qualquer coisa: se uma delas
+ * não puder ser aplicada (ex.: livro inexistente ou título repetido), nenhuma é. Depois, os
+ * livros editados são trocados por cópias já editadas e o acervo resultante é publicado numa
+ * única versão, gravada uma única vez.
+ * </p>
+ * <p>
+ * Cada transação confirmada guarda apenas as suas operações inversas (os valores antigos dos
+ * campos alterados, o ID dos livros incluídos e os livros removidos), usadas por
+ * {@link GerenciadorBiblioteca#desfazerTransacao()}.
+ * </p>
+ * <p>Não é sincronizada: deve ser montada e confirmada por uma única thread.</p>
+ * <pre>
+ * Transacao transacao = gerenciador.iniciarTransacao();
+ * for (Livro livro : gerenciador.listLivrosPorAutor(duplicado)) {
+ *     transacao.alterarAutor(livro.getIdLivro(), autorUnificado);
+ * }
+ * transacao.confirmar();
+ * </pre>
+ */
+public final class Transacao {
+
+	/**
+	 * Uma alteração anotada numa transação (ou a inversa de uma alteração confirmada).
+	 */
+	sealed interface Operacao permits Edicao, Inclusao, Remocao, Reinclusao {
+	}
+
+	/**
+	 * Edição dos dados de um livro; os campos {@code null} ficam como estão.
+	 */
+	record Edicao(String idLivro, String titulo, Autor autor, Integer numPags, Integer anoPub, Double preco)
+			implements Operacao {
+	}
+
+	/**
+	 * Inclusão de um novo título (o ID é gerado na confirmação).
+	 */
+	record Inclusao(String titulo, Autor autor, int numPags, int anoPub, double preco, int numExemplares)
+			implements Operacao {
+	}
+
+	/**
+	 * Remoção de um livro.
+	 */
+	record Remocao(String idLivro) implements Operacao {
+	}
+
+	/**
+	 * Volta de um livro removido ao acervo, com o mesmo ID (inversa de {@link Remocao}).
+	 */
+	record Reinclusao(Livro livro) implements Operacao {
+	}
+
+	private final GerenciadorBiblioteca gerenciador;
+	private final List<Operacao> operacoes = new ArrayList<>();
+	private boolean encerrada;
+
+	/**
+	 * Cria uma transação vazia (ver {@link GerenciadorBiblioteca#iniciarTransacao()}).
+	 */
+	Transacao(GerenciadorBiblioteca gerenciador) {
+		this.gerenciador = gerenciador;
+	}
+
+	/**
+	 * Anota a edição de todos os dados bibliográficos de um livro (como em
+	 * {@link GerenciadorBiblioteca#editLivro}, sem mexer nos empréstimos).
+	 * @param idLivro O ID do livro.
+	 * @param titulo O novo título.
+	 * @param autor O novo {@link Autor}.
+	 * @param numPags O novo número de páginas.
+	 * @param anoPub O novo ano de publicação.
+	 * @param preco O novo preço.
+	 */
+	public void editar(String idLivro, String titulo, Autor autor, int numPags, int anoPub, double preco) {
+		anotar(new Edicao(idLivro, titulo, autor, numPags, anoPub, preco));
+	}
+
+	/**
+	 * Anota a troca do preço de um livro.
+	 * @param idLivro O ID do livro.
+	 * @param preco O novo preço.
+	 */
+	public void alterarPreco(String idLivro, double preco) {
+		anotar(new Edicao(idLivro, null, null, null, null, preco));
+	}
+
+	/**
+	 * Anota a troca do autor de um livro (ex.: ao unificar dois cadastros do mesmo autor).
+	 * @param idLivro O ID do livro.
+	 * @param autor O novo {@link Autor}.
+	 */
+	public void alterarAutor(String idLivro, Autor autor) {
+		anotar(new Edicao(idLivro, null, autor, null, null, null));
+	}
+
+	/**
+	 * Anota a inclusão de um novo título.
+	 * @param titulo O título do livro.
+	 * @param autor O {@link Autor} do livro.
+	 * @param numPags O número de páginas.
+	 * @param anoPub O ano de publicação.
+	 * @param preco O preço.
+	 * @param numExemplares A quantidade de exemplares físicos.
+	 */
+	public void adicionar(String titulo, Autor autor, int numPags, int anoPub, double preco, int numExemplares) {
+		anotar(new Inclusao(titulo, autor, numPags, anoPub, preco, numExemplares));
+	}
+
+	/**
+	 * Anota a remoção de um livro.
+	 * @param idLivro O ID do livro.
+	 */
+	public void remover(String idLivro) {
+		anotar(new Remocao(idLivro));
+	}
+
+	/**
+	 * Retorna quantas operações foram anotadas.
+	 * @return A quantidade de operações.
+	 */
+	public int getQuantidadeOperacoes() {
+		return operacoes.size();
+	}
+
+	/**
+	 * Aplica todas as operações de uma só vez e grava o acervo uma única vez.
+	 * @return {@code true} se a transação foi aplicada; {@code false} se alguma operação não
+	 * pôde ser aplicada (e então nenhuma foi) ou se a transação já estava encerrada.
+	 */
+	public boolean confirmar() {
+		if (encerrada) {
+			return false;
+		}
+		encerrada = true;
+		return operacoes.isEmpty() || gerenciador.confirmarTransacao(Collections.unmodifiableList(operacoes));
+	}
+
+	/**
+	 * Descarta as operações anotadas, sem aplicar nenhuma.
+	 */
+	public void cancelar() {
+		encerrada = true;
+		operacoes.clear();
+	}
+
+	private void anotar(Operacao operacao) {
+		if (encerrada) {
+			throw new IllegalStateException("Transação já confirmada ou cancelada.");
+		}
+		operacoes.add(operacao);
+	}
+}
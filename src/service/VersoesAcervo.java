@@ -0,0 +1,650 @@
+package service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import model.Livro;
+
+/**
+ * Versões do acervo ao longo do tempo, para recuperar o estado de qualquer instante (ex.: antes
+ * de uma edição errada) e comparar dois momentos.
+ * <p>
+ * Dois tipos de arquivo ficam no diretório:
+ * </p>
+ * <ul>
+ * <li>retratos ({@code retrato-<instante>.dat}): o acervo inteiro, em ordem de ID, gravado
+ * periodicamente;</li>
+ * <li>mutações ({@code mutacoes-<instante>.log}): o estado completo de um livro a cada alteração,
+ * ou a sua remoção, apenas acrescentados. Cada retrato começa um segmento novo.</li>
+ * </ul>
+ * <p>
+ * O retrato é gravado sem parar as alterações: os livros são lidos um a um entre o início e o
+ * fim dele. Por isso um retrato só vale para instantes a partir do seu fim, e a recuperação
+ * reaplica por cima dele as mutações desde o seu início. Como cada mutação guarda o estado
+ * completo do livro, reaplicar uma mutação que o retrato já contém não muda nada.
+ * </p>
+ * <p>
+ * Por estarem em ordem de ID, dois retratos são comparados como numa intercalação, lendo os
+ * dois arquivos em sequência, sem carregá-los na memória. Só os livros diferentes são
+ * decodificados.
+ * </p>
+ */
+public class VersoesAcervo {
+
+	// Diretório padrão dos retratos e das mutações.
+	static final String DIRETORIO_PADRAO = "versoes_acervo";
+
+	/**
+	 * Intervalo padrão entre retratos, em milissegundos (uma hora).
+	 */
+	public static final long INTERVALO_RETRATOS_PADRAO_MS = 60L * 60 * 1000;
+
+	/**
+	 * Quantidade padrão de retratos mantidos; os mais antigos são apagados com as suas mutações.
+	 */
+	public static final int MAXIMO_RETRATOS_PADRAO = 48;
+
+	private static final int ASSINATURA = 0x52455452; // "RETR"
+	private static final byte REGISTRO_LIVRO = 1;
+	private static final byte REGISTRO_REMOCAO = 2;
+	private static final byte FIM_RETRATO = 0;
+	private static final int TAMANHO_RODAPE = 1 + 8 + 4; // Marca de fim, instante do fim e quantidade
+
+	/**
+	 * Enum para representar como um livro mudou entre dois retratos.
+	 */
+	public enum TipoDiferenca {
+		/** O livro só existe no retrato mais novo */
+		INCLUIDO,
+		/** O livro só existe no retrato mais antigo */
+		REMOVIDO,
+		/** O livro existe nos dois, com dados diferentes */
+		ALTERADO
+	}
+
+	/**
+	 * Uma diferença entre dois retratos.
+	 */
+	public static final class Diferenca {
+		private final TipoDiferenca tipo;
+		private final String idLivro;
+		private final Livro antes;
+		private final Livro depois;
+
+		private Diferenca(TipoDiferenca tipo, String idLivro, Livro antes, Livro depois) {
+			this.tipo = tipo;
+			this.idLivro = idLivro;
+			this.antes = antes;
+			this.depois = depois;
+		}
+
+		/** @return Como o livro mudou. */
+		public TipoDiferenca getTipo() {
+			return tipo;
+		}
+
+		/** @return O ID do livro. */
+		public String getIdLivro() {
+			return idLivro;
+		}
+
+		/** @return O livro no retrato mais antigo, ou {@code null} se ele foi incluído. */
+		public Livro getAntes() {
+			return antes;
+		}
+
+		/** @return O livro no retrato mais novo, ou {@code null} se ele foi removido. */
+		public Livro getDepois() {
+			return depois;
+		}
+	}
+
+	/**
+	 * Um retrato gravado do acervo.
+	 */
+	public static final class Retrato {
+		private final File arquivo;
+		private final long inicio;
+		private final long fim;
+		private final int quantidade;
+
+		private Retrato(File arquivo, long inicio, long fim, int quantidade) {
+			this.arquivo = arquivo;
+			this.inicio = inicio;
+			this.fim = fim;
+			this.quantidade = quantidade;
+		}
+
+		/** @return O arquivo do retrato. */
+		public File getArquivo() {
+			return arquivo;
+		}
+
+		/** @return O instante em que a gravação começou (milissegundos desde a época Unix). */
+		public long getInicio() {
+			return inicio;
+		}
+
+		/** @return O instante em que a gravação terminou; o retrato vale a partir dele. */
+		public long getFim() {
+			return fim;
+		}
+
+		/** @return Quantos livros o retrato tem. */
+		public int getQuantidade() {
+			return quantidade;
+		}
+	}
+
+	private final File diretorio;
+	private final int maximoRetratos;
+
+	// Um retrato por vez
+	private final Object travaRetrato = new Object();
+
+	// Protegidos por this
+	private DataOutputStream segmentoAtual;
+	private long ultimoInstante;
+	private boolean fechado;
+	private ScheduledExecutorService executor;
+
+	/**
+	 * Construtor que mantém a quantidade padrão de retratos.
+	 * @param diretorio O diretório dos retratos e das mutações.
+	 */
+	public VersoesAcervo(File diretorio) {
+		this(diretorio, MAXIMO_RETRATOS_PADRAO);
+	}
+
+	/**
+	 * Construtor completo.
+	 * @param diretorio O diretório dos retratos e das mutações.
+	 * @param maximoRetratos Quantos retratos manter.
+	 */
+	public VersoesAcervo(File diretorio, int maximoRetratos) {
+		this.diretorio = diretorio;
+		this.maximoRetratos = Math.max(1, maximoRetratos);
+		// Retratos interrompidos (ex.: queda durante a gravação) nunca chegaram a valer
+		File[] temporarios = diretorio.listFiles((dir, nome) -> nome.endsWith(".tmp"));
+		if (temporarios != null) {
+			for (File temporario : temporarios) {
+				temporario.delete();
+			}
+		}
+	}
+
+	// =========================================================================
+	// Gravação
+	// =========================================================================
+
+	/**
+	 * Registra o estado de um livro depois de uma alteração, ou a sua remoção.
+	 * <p>Deve ser chamado com a trava do livro, para que o estado gravado seja consistente.</p>
+	 * @param idLivro O ID do livro.
+	 * @param livro O livro alterado, ou {@code null} se ele foi removido.
+	 */
+	synchronized void registrar(String idLivro, Livro livro) {
+		if (fechado) {
+			return;
+		}
+		try {
+			if (segmentoAtual == null) {
+				abrirSegmento(proximoInstante());
+			}
+			byte[] dados = (livro != null) ? serializar(livro) : null;
+			segmentoAtual.writeLong(proximoInstante());
+			segmentoAtual.writeByte((dados != null) ? REGISTRO_LIVRO : REGISTRO_REMOCAO);
+			segmentoAtual.writeUTF(idLivro);
+			if (dados != null) {
+				segmentoAtual.writeInt(dados.length);
+				segmentoAtual.write(dados);
+			}
+			segmentoAtual.flush(); // Cada mutação fica em disco assim que registrada
+		} catch (IOException e) {
+			System.err.println("Erro ao registrar mutação do acervo: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Grava um retrato do acervo e apaga os retratos (e mutações) além do máximo mantido.
+	 * @param idsDoAcervo Os IDs dos livros do acervo, em ordem, percorridos depois do início do
+	 * retrato (sem precisar estar todos em memória).
+	 * @param estadoAtual Fornece o livro serializado por {@link #serializar(Livro)} (ou {@code null}
+	 * se ele foi removido nesse meio tempo), lido com a trava do livro.
+	 * @return O retrato gravado, ou {@code null} em caso de erro.
+	 */
+	Retrato gravarRetrato(Iterable<String> idsDoAcervo, Function<String, byte[]> estadoAtual) {
+		synchronized (travaRetrato) {
+			long inicio;
+			synchronized (this) {
+				if (fechado) {
+					return null;
+				}
+				inicio = proximoInstante();
+				try {
+					abrirSegmento(inicio); // As mutações daqui em diante são reaplicadas sobre o retrato
+				} catch (IOException e) {
+					System.err.println("Erro ao iniciar segmento de mutações: " + e.getMessage());
+					return null;
+				}
+			}
+
+			File arquivo = new File(diretorio, nomeArquivo("retrato-", inicio, ".dat"));
+			File temporario = new File(diretorio, arquivo.getName() + ".tmp");
+			long fim;
+			int quantidade = 0;
+			try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporario), 1 << 16))) {
+				dos.writeInt(ASSINATURA);
+				dos.writeLong(inicio);
+				for (String idLivro : idsDoAcervo) {
+					byte[] dados = estadoAtual.apply(idLivro);
+					if (dados == null) {
+						continue; // Removido durante o retrato
+					}
+					dos.writeByte(REGISTRO_LIVRO);
+					dos.writeUTF(idLivro);
+					dos.writeInt(dados.length);
+					dos.write(dados);
+					quantidade++;
+				}
+				synchronized (this) {
+					fim = proximoInstante();
+				}
+				dos.writeByte(FIM_RETRATO);
+				dos.writeLong(fim);
+				dos.writeInt(quantidade);
+			} catch (IOException e) {
+				System.err.println("Erro ao gravar retrato do acervo: " + e.getMessage());
+				temporario.delete();
+				return null;
+			}
+
+			try {
+				Files.move(temporario.toPath(), arquivo.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} catch (IOException e) {
+				System.err.println("Erro ao gravar retrato do acervo: " + e.getMessage());
+				return null;
+			}
+			descartarAntigos();
+			return new Retrato(arquivo, inicio, fim, quantidade);
+		}
+	}
+
+	/**
+	 * Grava retratos periodicamente numa thread daemon, para não impedir o encerramento da aplicação.
+	 * <p>O primeiro sai assim que o último retrato gravado completar o intervalo (ou logo, se não
+	 * houver nenhum).</p>
+	 * @param intervaloMs O intervalo entre retratos, em milissegundos.
+	 * @param criarRetrato A tarefa que grava um retrato.
+	 */
+	synchronized void iniciar(long intervaloMs, Runnable criarRetrato) {
+		if (executor != null || fechado) {
+			return; // Já iniciado
+		}
+		List<Retrato> retratos = getRetratos();
+		long espera = retratos.isEmpty() ? 0
+				: Math.max(0, retratos.get(retratos.size() - 1).getFim() + intervaloMs - System.currentTimeMillis());
+		executor = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+			Thread thread = new Thread(tarefa, "retratos-acervo");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleAtFixedRate(() -> {
+			try {
+				criarRetrato.run();
+			} catch (RuntimeException e) {
+				// Uma exceção aqui cancelaria os próximos retratos do ScheduledExecutorService
+				System.err.println("Erro ao gravar retrato do acervo: " + e.getMessage());
+			}
+		}, espera, intervaloMs, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Interrompe os retratos periódicos e fecha o segmento de mutações.
+	 */
+	public synchronized void fechar() {
+		fechado = true;
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+		if (segmentoAtual != null) {
+			try {
+				segmentoAtual.close();
+			} catch (IOException e) {
+				System.err.println("Erro ao fechar segmento de mutações: " + e.getMessage());
+			}
+			segmentoAtual = null;
+		}
+	}
+
+	// =========================================================================
+	// Recuperação e comparação
+	// =========================================================================
+
+	/**
+	 * Lista os retratos gravados, do mais antigo para o mais novo.
+	 * @return Os {@link Retrato}s válidos do diretório.
+	 */
+	public List<Retrato> getRetratos() {
+		List<Retrato> retratos = new ArrayList<>();
+		for (File arquivo : arquivos("retrato-", ".dat")) {
+			try (RandomAccessFile raf = new RandomAccessFile(arquivo, "r")) {
+				if (raf.length() < 12 + TAMANHO_RODAPE || raf.readInt() != ASSINATURA) {
+					continue;
+				}
+				long inicio = raf.readLong();
+				raf.seek(raf.length() - TAMANHO_RODAPE);
+				if (raf.readByte() == FIM_RETRATO) {
+					long fim = raf.readLong();
+					retratos.add(new Retrato(arquivo, inicio, fim, raf.readInt()));
+				}
+			} catch (IOException e) {
+				System.err.println("Erro ao ler retrato " + arquivo.getName() + ": " + e.getMessage());
+			}
+		}
+		return retratos;
+	}
+
+	/**
+	 * Reconstrói o acervo como estava num instante.
+	 * @param instante O instante, em milissegundos desde a época Unix.
+	 * @return Os livros daquele instante, em ordem de ID, ou {@code null} se nenhum retrato
+	 * mantido cobre o instante (anterior ao fim do retrato mais antigo) ou em caso de erro.
+	 */
+	public ArrayList<Livro> acervoEm(long instante) {
+		TreeMap<String, byte[]> estados = estadosEm(instante, null);
+		if (estados == null) {
+			return null;
+		}
+		ArrayList<Livro> livros = new ArrayList<>(estados.size());
+		try {
+			for (byte[] dados : estados.values()) {
+				livros.add(desserializar(dados));
+			}
+		} catch (IOException e) {
+			System.err.println("Erro ao decodificar livro do retrato: " + e.getMessage());
+			return null;
+		}
+		return livros;
+	}
+
+	/**
+	 * Reconstrói um único livro como estava num instante.
+	 * <p>O retrato é lido só até a posição do ID, e das mutações só as do livro são decodificadas.</p>
+	 * @param idLivro O ID do livro.
+	 * @param instante O instante, em milissegundos desde a época Unix.
+	 * @return O livro naquele instante, ou {@code null} se ele não existia, se nenhum retrato
+	 * cobre o instante ou em caso de erro.
+	 */
+	public Livro livroEm(String idLivro, long instante) {
+		TreeMap<String, byte[]> estados = estadosEm(instante, idLivro);
+		byte[] dados = (estados == null) ? null : estados.get(idLivro);
+		if (dados == null) {
+			return null;
+		}
+		try {
+			return desserializar(dados);
+		} catch (IOException e) {
+			System.err.println("Erro ao decodificar livro do retrato: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Compara dois retratos, entregando cada livro incluído, removido ou alterado em ordem de ID.
+	 * <p>Os dois arquivos são lidos em sequência, um livro de cada por vez.</p>
+	 * @param antes O retrato mais antigo.
+	 * @param depois O retrato mais novo.
+	 * @param destino Quem recebe as {@link Diferenca}s.
+	 * @throws IOException Se um dos arquivos não puder ser lido ou não for um retrato.
+	 */
+	public static void comparar(File antes, File depois, Consumer<Diferenca> destino) throws IOException {
+		try (LeitorRetrato a = new LeitorRetrato(antes); LeitorRetrato b = new LeitorRetrato(depois)) {
+			while (a.idLivro != null || b.idLivro != null) {
+				int comparacao = (a.idLivro == null) ? 1 : (b.idLivro == null) ? -1 : a.idLivro.compareTo(b.idLivro);
+				if (comparacao < 0) {
+					destino.accept(new Diferenca(TipoDiferenca.REMOVIDO, a.idLivro, desserializar(a.dados), null));
+					a.avancar();
+				} else if (comparacao > 0) {
+					destino.accept(new Diferenca(TipoDiferenca.INCLUIDO, b.idLivro, null, desserializar(b.dados)));
+					b.avancar();
+				} else {
+					// Só os livros com bytes diferentes são decodificados
+					if (!Arrays.equals(a.dados, b.dados)) {
+						destino.accept(new Diferenca(TipoDiferenca.ALTERADO, a.idLivro,
+								desserializar(a.dados), desserializar(b.dados)));
+					}
+					a.avancar();
+					b.avancar();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Serializa um livro no formato dos retratos e das mutações.
+	 * @param livro O livro.
+	 * @return Os bytes do livro.
+	 */
+	static byte[] serializar(Livro livro) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+				oos.writeObject(livro);
+			}
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalStateException("Não foi possível serializar o livro " + livro.getIdLivro(), e);
+		}
+	}
+
+	// =========================================================================
+	// Métodos Auxiliares
+	// =========================================================================
+
+	/**
+	 * Leitura sequencial de um retrato, um livro por vez ({@code idLivro == null} no fim).
+	 */
+	private static final class LeitorRetrato implements Closeable {
+		private final DataInputStream dis;
+		private String idLivro;
+		private byte[] dados;
+
+		LeitorRetrato(File arquivo) throws IOException {
+			dis = new DataInputStream(new BufferedInputStream(new FileInputStream(arquivo), 1 << 16));
+			if (dis.readInt() != ASSINATURA) {
+				dis.close();
+				throw new IOException(arquivo.getName() + " não é um retrato do acervo");
+			}
+			dis.readLong(); // Início
+			avancar();
+		}
+
+		void avancar() throws IOException {
+			if (dis.readByte() != REGISTRO_LIVRO) {
+				idLivro = null;
+				dados = null;
+				return;
+			}
+			idLivro = dis.readUTF();
+			dados = new byte[dis.readInt()];
+			dis.readFully(dados);
+		}
+
+		@Override
+		public void close() throws IOException {
+			dis.close();
+		}
+	}
+
+	/**
+	 * Estados (serializados) dos livros num instante: o retrato mais recente que vale para ele,
+	 * com as mutações desde o início do retrato até o instante. Só do livro informado, se
+	 * {@code somenteId} não for {@code null}.
+	 * @return Os estados por ID, ou {@code null} se nenhum retrato cobre o instante.
+	 */
+	private TreeMap<String, byte[]> estadosEm(long instante, String somenteId) {
+		Retrato base = null;
+		for (Retrato retrato : getRetratos()) {
+			if (retrato.getFim() <= instante) {
+				base = retrato;
+			}
+		}
+		if (base == null) {
+			return null;
+		}
+
+		TreeMap<String, byte[]> estados = new TreeMap<>();
+		try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(base.getArquivo()), 1 << 16))) {
+			dis.readInt();
+			dis.readLong();
+			while (dis.readByte() == REGISTRO_LIVRO) {
+				String idLivro = dis.readUTF();
+				int tamanho = dis.readInt();
+				if (somenteId == null || somenteId.equals(idLivro)) {
+					byte[] dados = new byte[tamanho];
+					dis.readFully(dados);
+					estados.put(idLivro, dados);
+				} else if (idLivro.compareTo(somenteId) > 0) {
+					break; // Em ordem de ID: o livro procurado não está no retrato
+				} else {
+					dis.skipNBytes(tamanho);
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Erro ao ler retrato " + base.getArquivo().getName() + ": " + e.getMessage());
+			return null;
+		}
+
+		for (File segmento : arquivos("mutacoes-", ".log")) {
+			if (instanteDoArquivo(segmento, "mutacoes-", ".log") < base.getInicio()) {
+				continue; // Mutações anteriores ao retrato, já contidas nele
+			}
+			try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(segmento)))) {
+				while (true) {
+					long momento = dis.readLong();
+					byte tipo = dis.readByte();
+					String idLivro = dis.readUTF();
+					byte[] dados = null;
+					if (tipo == REGISTRO_LIVRO) {
+						dados = new byte[dis.readInt()];
+						dis.readFully(dados);
+					}
+					if (momento > instante) {
+						return estados; // Os instantes das mutações só crescem
+					}
+					if (momento < base.getInicio() || (somenteId != null && !somenteId.equals(idLivro))) {
+						continue;
+					}
+					if (dados == null) {
+						estados.remove(idLivro);
+					} else {
+						estados.put(idLivro, dados);
+					}
+				}
+			} catch (EOFException e) {
+				// Fim normal do segmento (ou registro incompleto, em gravação)
+			} catch (IOException e) {
+				System.err.println("Erro ao ler mutações (" + segmento.getName() + "): " + e.getMessage());
+				return null;
+			}
+		}
+		return estados;
+	}
+
+	/**
+	 * Apaga os retratos mais antigos além do máximo e as mutações que só serviam a eles.
+	 */
+	private void descartarAntigos() {
+		List<Retrato> retratos = getRetratos();
+		if (retratos.size() <= maximoRetratos) {
+			return;
+		}
+		for (int i = 0; i < retratos.size() - maximoRetratos; i++) {
+			retratos.get(i).getArquivo().delete();
+		}
+		long maisAntigo = retratos.get(retratos.size() - maximoRetratos).getInicio();
+		for (File segmento : arquivos("mutacoes-", ".log")) {
+			if (instanteDoArquivo(segmento, "mutacoes-", ".log") < maisAntigo) {
+				segmento.delete();
+			}
+		}
+	}
+
+	// Deve ser chamado com a trava (this)
+	private void abrirSegmento(long inicio) throws IOException {
+		if (segmentoAtual != null) {
+			segmentoAtual.close();
+			segmentoAtual = null;
+		}
+		if (!diretorio.exists() && !diretorio.mkdirs()) {
+			throw new IOException("Não foi possível criar o diretório " + diretorio);
+		}
+		File arquivo = new File(diretorio, nomeArquivo("mutacoes-", inicio, ".log"));
+		segmentoAtual = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(arquivo, true)));
+	}
+
+	/**
+	 * Garante que os instantes sejam não decrescentes, mesmo que o relógio do sistema volte.
+	 * Deve ser chamado com a trava (this).
+	 */
+	private long proximoInstante() {
+		ultimoInstante = Math.max(System.currentTimeMillis(), ultimoInstante);
+		return ultimoInstante;
+	}
+
+	private File[] arquivos(String prefixo, String sufixo) {
+		File[] arquivos = diretorio.listFiles((dir, nome) -> nome.startsWith(prefixo) && nome.endsWith(sufixo));
+		if (arquivos == null) {
+			return new File[0];
+		}
+		Arrays.sort(arquivos); // O instante tem zeros à esquerda, então a ordem é a de criação
+		return arquivos;
+	}
+
+	private static String nomeArquivo(String prefixo, long instante, String sufixo) {
+		return String.format("%s%016d%s", prefixo, instante, sufixo);
+	}
+
+	private static long instanteDoArquivo(File arquivo, String prefixo, String sufixo) {
+		String nome = arquivo.getName();
+		try {
+			return Long.parseLong(nome.substring(prefixo.length(), nome.length() - sufixo.length()));
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	private static Livro desserializar(byte[] dados) throws IOException {
+		try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(dados))) {
+			return (Livro) ois.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Classe não encontrada ao decodificar livro: " + e.getMessage(), e);
+		}
+	}
+}
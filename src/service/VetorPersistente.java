@@ -0,0 +1,242 @@
+package service;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Lista imutável com compartilhamento estrutural (vetor persistente).
+ * <p>
+ * Os elementos ficam numa árvore de ramificação 32, mais um bloco final ("cauda") de até
+ * 32 elementos. Acrescentar ou trocar um elemento copia apenas o caminho até a folha
+ * afetada (no máximo algumas dezenas de referências), e a versão anterior continua
+ * válida e intacta. Assim, quem lê uma versão nunca é afetado por quem publica a próxima.
+ * </p>
+ * <p>
+ * A remoção de um elemento do meio e a ordenação reconstroem o vetor inteiro, em tempo linear.
+ * </p>
+ * <p>Os métodos de alteração de {@link List} lançam {@link UnsupportedOperationException}.</p>
+ * @param <E> O tipo dos elementos.
+ */
+public final class VetorPersistente<E> extends AbstractList<E> implements RandomAccess {
+
+	private static final int BITS = 5;
+	private static final int LARGURA = 1 << BITS;
+	private static final int MASCARA = LARGURA - 1;
+
+	private static final VetorPersistente<?> VAZIO = new VetorPersistente<>(0, BITS, new Object[0], new Object[0]);
+
+	private final int tamanho;
+	private final int nivel;
+	private final Object[] raiz;
+	private final Object[] cauda;
+
+	private VetorPersistente(int tamanho, int nivel, Object[] raiz, Object[] cauda) {
+		this.tamanho = tamanho;
+		this.nivel = nivel;
+		this.raiz = raiz;
+		this.cauda = cauda;
+	}
+
+	/**
+	 * Retorna o vetor vazio.
+	 * @param <E> O tipo dos elementos.
+	 * @return Um vetor sem elementos.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E> VetorPersistente<E> vazio() {
+		return (VetorPersistente<E>) VAZIO;
+	}
+
+	/**
+	 * Monta um vetor com os elementos de uma coleção, na ordem da sua iteração, em tempo linear.
+	 * @param <E> O tipo dos elementos.
+	 * @param elementos Os elementos do vetor.
+	 * @return Um novo vetor com os elementos.
+	 */
+	public static <E> VetorPersistente<E> de(Collection<? extends E> elementos) {
+		Object[] todos = elementos.toArray();
+		int tamanho = todos.length;
+		if (tamanho == 0) {
+			return vazio();
+		}
+
+		// A cauda guarda de 1 a 32 elementos; o restante vai para folhas cheias
+		int inicioCauda = deslocamentoCauda(tamanho);
+		Object[] cauda = Arrays.copyOfRange(todos, inicioCauda, tamanho);
+
+		List<Object> nos = new ArrayList<>();
+		for (int i = 0; i < inicioCauda; i += LARGURA) {
+			nos.add(Arrays.copyOfRange(todos, i, i + LARGURA));
+		}
+
+		// Agrupa os nós de 32 em 32 até caberem numa única raiz
+		int nivel = BITS;
+		while (nos.size() > LARGURA) {
+			List<Object> pais = new ArrayList<>();
+			for (int i = 0; i < nos.size(); i += LARGURA) {
+				pais.add(nos.subList(i, Math.min(i + LARGURA, nos.size())).toArray());
+			}
+			nos = pais;
+			nivel += BITS;
+		}
+
+		return new VetorPersistente<>(tamanho, nivel, nos.toArray(), cauda);
+	}
+
+	@Override
+	public int size() {
+		return tamanho;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E get(int indice) {
+		return (E) folhaDe(indice)[indice & MASCARA];
+	}
+
+	/**
+	 * Retorna uma nova versão com o elemento acrescentado no fim.
+	 * @param elemento O elemento a acrescentar.
+	 * @return A nova versão (esta permanece inalterada).
+	 */
+	public VetorPersistente<E> comAdicionado(E elemento) {
+		// Ainda cabe na cauda: copia só a cauda
+		if (tamanho - deslocamentoCauda(tamanho) < LARGURA) {
+			Object[] novaCauda = Arrays.copyOf(cauda, cauda.length + 1);
+			novaCauda[cauda.length] = elemento;
+			return new VetorPersistente<>(tamanho + 1, nivel, raiz, novaCauda);
+		}
+
+		// Cauda cheia: ela desce para a árvore e uma nova cauda começa
+		Object[] novaRaiz;
+		int novoNivel = nivel;
+		if ((tamanho >>> BITS) > (1 << nivel)) {
+			novaRaiz = new Object[] { raiz, novoCaminho(nivel, cauda) };
+			novoNivel += BITS;
+		} else {
+			novaRaiz = empurrarCauda(nivel, raiz, cauda);
+		}
+		return new VetorPersistente<>(tamanho + 1, novoNivel, novaRaiz, new Object[] { elemento });
+	}
+
+	/**
+	 * Retorna uma nova versão com o elemento da posição trocado.
+	 * @param indice A posição do elemento.
+	 * @param elemento O novo elemento.
+	 * @return A nova versão (esta permanece inalterada).
+	 * @throws IndexOutOfBoundsException Se a posição não existir.
+	 */
+	public VetorPersistente<E> comAlterado(int indice, E elemento) {
+		verificarIndice(indice);
+		if (indice >= deslocamentoCauda(tamanho)) {
+			Object[] novaCauda = cauda.clone();
+			novaCauda[indice & MASCARA] = elemento;
+			return new VetorPersistente<>(tamanho, nivel, raiz, novaCauda);
+		}
+		return new VetorPersistente<>(tamanho, nivel, alterar(nivel, raiz, indice, elemento), cauda);
+	}
+
+	/**
+	 * Retorna uma nova versão sem o elemento da posição (reconstrução em tempo linear).
+	 * @param indice A posição do elemento a remover.
+	 * @return A nova versão (esta permanece inalterada).
+	 * @throws IndexOutOfBoundsException Se a posição não existir.
+	 */
+	public VetorPersistente<E> semIndice(int indice) {
+		verificarIndice(indice);
+		ArrayList<E> restantes = new ArrayList<>(tamanho - 1);
+		for (int i = 0; i < tamanho; i++) {
+			if (i != indice) restantes.add(get(i));
+		}
+		return de(restantes);
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		// Percorre folha a folha, sem descer a árvore para cada elemento
+		return new Iterator<E>() {
+			private int proximo = 0;
+			private Object[] folha = (tamanho > 0) ? folhaDe(0) : null;
+
+			@Override
+			public boolean hasNext() {
+				return proximo < tamanho;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public E next() {
+				if (proximo >= tamanho) {
+					throw new NoSuchElementException();
+				}
+				if (proximo > 0 && (proximo & MASCARA) == 0) {
+					folha = folhaDe(proximo);
+				}
+				return (E) folha[proximo++ & MASCARA];
+			}
+		};
+	}
+
+	// =========================================================================
+	// Métodos Auxiliares
+	// =========================================================================
+
+	private static int deslocamentoCauda(int tamanho) {
+		return (tamanho < LARGURA) ? 0 : ((tamanho - 1) >>> BITS) << BITS;
+	}
+
+	private void verificarIndice(int indice) {
+		if (indice < 0 || indice >= tamanho) {
+			throw new IndexOutOfBoundsException("Índice " + indice + " fora do vetor de tamanho " + tamanho);
+		}
+	}
+
+	private Object[] folhaDe(int indice) {
+		verificarIndice(indice);
+		if (indice >= deslocamentoCauda(tamanho)) {
+			return cauda;
+		}
+		Object[] no = raiz;
+		for (int n = nivel; n > 0; n -= BITS) {
+			no = (Object[]) no[(indice >>> n) & MASCARA];
+		}
+		return no;
+	}
+
+	/**
+	 * Pendura a cauda cheia na árvore, copiando apenas o caminho até a nova folha.
+	 */
+	private Object[] empurrarCauda(int nivelAtual, Object[] pai, Object[] folha) {
+		int sub = ((tamanho - 1) >>> nivelAtual) & MASCARA;
+		Object[] copia = Arrays.copyOf(pai, Math.max(pai.length, sub + 1));
+		if (nivelAtual == BITS) {
+			copia[sub] = folha;
+		} else {
+			Object[] filho = (sub < pai.length) ? (Object[]) pai[sub] : null;
+			copia[sub] = (filho != null) ? empurrarCauda(nivelAtual - BITS, filho, folha)
+					: novoCaminho(nivelAtual - BITS, folha);
+		}
+		return copia;
+	}
+
+	private static Object[] novoCaminho(int nivelAtual, Object[] folha) {
+		return (nivelAtual == 0) ? folha : new Object[] { novoCaminho(nivelAtual - BITS, folha) };
+	}
+
+	private static Object[] alterar(int nivelAtual, Object[] no, int indice, Object elemento) {
+		Object[] copia = no.clone();
+		if (nivelAtual == 0) {
+			copia[indice & MASCARA] = elemento;
+		} else {
+			int sub = (indice >>> nivelAtual) & MASCARA;
+			copia[sub] = alterar(nivelAtual - BITS, (Object[]) no[sub], indice, elemento);
+		}
+		return copia;
+	}
+}